@@ -0,0 +1,98 @@
+package aliview.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aliview.importer.AlignmentImportException;
+import aliview.importer.ClustalImporter;
+import aliview.importer.FastFastaImporter;
+import aliview.importer.FileFormat;
+import aliview.importer.MSFImporter;
+import aliview.importer.PhylipImporter;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Reading a whole alignment file into memory with the importers
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+	@Param({"fasta", "phylip", "clustal", "msf"})
+	public String format;
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"2000"})
+	public int columns;
+
+	@Param({SyntheticAlignment.NUCLEOTIDE, SyntheticAlignment.AMINO_ACID})
+	public String alphabet;
+
+	@Param({"0.2"})
+	public double gapRate;
+
+	private File file;
+
+	@Setup(Level.Trial)
+	public void writeFile() throws IOException{
+		file = new SyntheticAlignment(rows, columns, alphabet, gapRate).writeTempFile(getFileFormat());
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile(){
+		file.delete();
+	}
+
+	private FileFormat getFileFormat(){
+		if("fasta".equals(format)){
+			return FileFormat.FASTA;
+		}else if("phylip".equals(format)){
+			return FileFormat.PHYLIP_RELAXED_PADDED_AKA_LONG_NAME_SEQUENTIAL;
+		}else if("clustal".equals(format)){
+			return FileFormat.CLUSTAL;
+		}else if("msf".equals(format)){
+			return FileFormat.MSF;
+		}
+		throw new IllegalArgumentException("Unknown format: " + format);
+	}
+
+	@Benchmark
+	public List<Sequence> importSequences() throws IOException, AlignmentImportException{
+		if("fasta".equals(format)){
+			return new FastFastaImporter(new BufferedReader(new FileReader(file))).importSequences();
+		}else if("phylip".equals(format)){
+			return new PhylipImporter(new BufferedReader(new FileReader(file)), getFileFormat()).importSequences();
+		}else if("clustal".equals(format)){
+			return new ClustalImporter(new BufferedReader(new FileReader(file)), file.length()).importSequences();
+		}else{
+			return new MSFImporter(new FileReader(file)).importSequences();
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+package aliview.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aliview.importer.AlignmentImportException;
+import aliview.importer.FastaFileIndexer;
+import aliview.importer.FileFormat;
+import aliview.importer.PhylipFileIndexer;
+import aliview.sequencelist.FileSequenceCatalog;
+import aliview.sequencelist.MemoryMappedSequencesFile;
+import aliview.sequences.Sequence;
+import aliview.subprocesses.SubThreadProgressWindow;
+
+/*
+ *
+ * Indexing of files too big for memory, the file is mapped once and the indexers are run on the whole file
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexBenchmark {
+
+	@Param({"10000", "100000"})
+	public int rows;
+
+	@Param({"1000"})
+	public int columns;
+
+	@Param({SyntheticAlignment.NUCLEOTIDE})
+	public String alphabet;
+
+	@Param({"0.2"})
+	public double gapRate;
+
+	private File fastaFile;
+	private File phylipFile;
+	private MemoryMappedSequencesFile fastaMapped;
+	private MemoryMappedSequencesFile phylipMapped;
+	private SubThreadProgressWindow progressWin;
+
+	@Setup(Level.Trial)
+	public void mapFiles() throws IOException{
+		SyntheticAlignment synthetic = new SyntheticAlignment(rows, columns, alphabet, gapRate);
+		fastaFile = synthetic.writeTempFile(FileFormat.FASTA);
+		phylipFile = synthetic.writeTempFile(FileFormat.PHYLIP_RELAXED_PADDED_AKA_LONG_NAME_SEQUENTIAL);
+		fastaMapped = new MemoryMappedSequencesFile(fastaFile, FileFormat.FASTA);
+		fastaMapped.mapFile();
+		phylipMapped = new MemoryMappedSequencesFile(phylipFile, FileFormat.PHYLIP_RELAXED_PADDED_AKA_LONG_NAME_SEQUENTIAL);
+		phylipMapped.mapFile();
+		// progress window without any ui
+		progressWin = new SubThreadProgressWindow(Thread.currentThread());
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFiles(){
+		fastaFile.delete();
+		phylipFile.delete();
+	}
+
+	@Benchmark
+	public FileSequenceCatalog indexFasta(){
+		FileSequenceCatalog catalog = new FileSequenceCatalog(fastaMapped);
+		new FastaFileIndexer().indexSequencesInFile(fastaMapped, 0, catalog, Integer.MAX_VALUE, progressWin);
+		return catalog;
+	}
+
+	@Benchmark
+	public List<Sequence> indexPhylip() throws AlignmentImportException{
+		return new PhylipFileIndexer().findSequencesInFile(phylipMapped, 0, 0, Integer.MAX_VALUE, progressWin);
+	}
+
+}
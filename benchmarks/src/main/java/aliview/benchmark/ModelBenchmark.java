@@ -0,0 +1,104 @@
+package aliview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aliview.alignment.AAHistogram;
+import aliview.alignment.AliHistogram;
+import aliview.alignment.Alignment;
+import aliview.alignment.NucleotideHistogram;
+import aliview.sequencelist.FindObject;
+import aliview.sequences.Sequence;
+import aliview.undo.UndoSavedState;
+import aliview.undo.UndoSavedStateEverything;
+
+/*
+ *
+ * Operations on the alignment model, histogram (consensus), find, delete vertical gaps and the
+ * copy that is saved as undo state before every edit
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelBenchmark {
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"2000"})
+	public int columns;
+
+	@Param({SyntheticAlignment.NUCLEOTIDE, SyntheticAlignment.AMINO_ACID})
+	public String alphabet;
+
+	@Param({"0.2"})
+	public double gapRate;
+
+	private SyntheticAlignment synthetic;
+	private Alignment alignment;
+	// edited by deleteVerticalGaps, recreated before every invocation
+	private Alignment editedAlignment;
+	private String searchTerm;
+
+	@Setup(Level.Trial)
+	public void createAlignment(){
+		synthetic = new SyntheticAlignment(rows, columns, alphabet, gapRate);
+		alignment = synthetic.createAlignment();
+
+		// a motif from the middle of the last sequence, so something is found
+		Sequence last = alignment.getSequences().get(rows - 1);
+		String ungapped = last.getBasesAsString().replace("-", "");
+		int start = ungapped.length() / 2;
+		searchTerm = ungapped.substring(start, Math.min(ungapped.length(), start + 8));
+	}
+
+	@Setup(Level.Invocation)
+	public void createEditedAlignment(){
+		editedAlignment = synthetic.createAlignment();
+	}
+
+	@Benchmark
+	public AliHistogram createHistogram(){
+		int length = alignment.getMaximumSequenceLength();
+		AliHistogram histogram = synthetic.isNucleotide() ? new NucleotideHistogram(length) : new AAHistogram(length);
+		for(Sequence seq: alignment.getSequences()){
+			histogram.addSequence(seq);
+		}
+		return histogram;
+	}
+
+	@Benchmark
+	public FindObject findAll(){
+		FindObject found = alignment.getSequences().findAndSelect(new FindObject(searchTerm, true));
+		alignment.clearSelection();
+		return found;
+	}
+
+	@Benchmark
+	public Alignment deleteVerticalGaps(){
+		editedAlignment.deleteVerticalGaps();
+		return editedAlignment;
+	}
+
+	@Benchmark
+	public UndoSavedState saveUndoState(){
+		return new UndoSavedStateEverything(alignment.getSequences().getCopy(), alignment.getAlignentMetaCopy());
+	}
+
+}
@@ -0,0 +1,109 @@
+package aliview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aliview.alignment.Alignment;
+import aliview.gui.pane.AlignmentPane;
+import aliview.gui.pane.RGBArray;
+import aliview.gui.pane.SequencePainter;
+import aliview.gui.pane.SequencePainterAminoAcid;
+import aliview.gui.pane.SequencePainterAminoAcidTranslated;
+import aliview.gui.pane.SequencePainterAminoAcidTranslatedIgnoreGap;
+import aliview.gui.pane.SequencePainterNucleotide;
+import aliview.gui.pane.SequencePainterNucleotideTranslatedShowNucAndAcid;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Painting a window of rows x columns into an offscreen pixel array with the sequence painters, the same
+ * way AlignmentPane is filling its RGBArray but in one thread so the painter itself is measured
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PaintBenchmark {
+
+	@Param({"nucleotide", "aminoacid", "translated", "translatedIgnoreGap", "nucleotideAndTranslated"})
+	public String painter;
+
+	// size of painted window in residues
+	@Param({"100"})
+	public int windowRows;
+
+	@Param({"300"})
+	public int windowColumns;
+
+	@Param({"1000"})
+	public int rows;
+
+	@Param({"2000"})
+	public int columns;
+
+	@Param({"0.2"})
+	public double gapRate;
+
+	private Alignment alignment;
+	private AlignmentPane pane;
+	private RGBArray clipRGB;
+	private int charWidth;
+	private int charHeight;
+
+	@Setup(Level.Trial)
+	public void createAlignment(){
+		String alphabet = "aminoacid".equals(painter) ? SyntheticAlignment.AMINO_ACID : SyntheticAlignment.NUCLEOTIDE;
+		alignment = new SyntheticAlignment(rows, columns, alphabet, gapRate).createAlignment();
+		pane = new AlignmentPane();
+		pane.setAlignment(alignment);
+		charWidth = Math.max(1, (int) pane.getCharWidth());
+		charHeight = Math.max(1, (int) pane.getCharHeight());
+		int width = windowColumns * charWidth;
+		int height = windowRows * charHeight;
+		clipRGB = new RGBArray(new int[width * height], width, height);
+	}
+
+	@Benchmark
+	public RGBArray paintWindow(){
+		// window in the middle of alignment
+		int yMin = Math.max(0, (rows - windowRows) / 2);
+		int xMin = Math.max(0, (columns - windowColumns) / 2);
+		int xMax = Math.min(columns, xMin + windowColumns);
+		int clipYPos = 0;
+		for(int y = yMin; y < yMin + windowRows && y < rows; y++){
+			createPainter(alignment.getSequences().get(y), y, clipYPos, xMin, xMax).run();
+			clipYPos ++;
+		}
+		return clipRGB;
+	}
+
+	private SequencePainter createPainter(Sequence seq, int seqYPos, int clipYPos, int xMin, int xMax){
+		if("aminoacid".equals(painter)){
+			return new SequencePainterAminoAcid(seq, seqYPos, clipYPos, xMin, xMax, 1, charWidth, charHeight, 1, clipRGB, pane, alignment);
+		}else if("translated".equals(painter)){
+			return new SequencePainterAminoAcidTranslated(seq, seqYPos, clipYPos, xMin, xMax, 1, charWidth, charHeight, 1, clipRGB, pane, alignment);
+		}else if("translatedIgnoreGap".equals(painter)){
+			return new SequencePainterAminoAcidTranslatedIgnoreGap(seq, seqYPos, clipYPos, xMin, xMax, 1, charWidth, charHeight, 1, clipRGB, pane, alignment);
+		}else if("nucleotideAndTranslated".equals(painter)){
+			return new SequencePainterNucleotideTranslatedShowNucAndAcid(seq, seqYPos, clipYPos, xMin, xMax, 1, charWidth, charHeight, 1, clipRGB, pane, alignment);
+		}else{
+			return new SequencePainterNucleotide(seq, seqYPos, clipYPos, xMin, xMax, 1, charWidth, charHeight, 1, clipRGB, pane, alignment);
+		}
+	}
+
+}
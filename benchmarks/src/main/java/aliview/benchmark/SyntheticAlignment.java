@@ -0,0 +1,114 @@
+package aliview.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import aliview.alignment.Alignment;
+import aliview.importer.FileFormat;
+import aliview.sequencelist.AlignmentListModel;
+import aliview.sequencelist.MemorySequenceAlignmentListModel;
+import aliview.sequences.InMemorySequence;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Generates alignments of rows x columns for benchmarks, every sequence is a mutated copy of one ancestor
+ * (so there is a consensus to find) and gaps come in runs, like in a real alignment, until about gapRate
+ * of all positions are gaps. The same parameters and seed give the same alignment
+ *
+ */
+public class SyntheticAlignment {
+	public static final String NUCLEOTIDE = "nucleotide";
+	public static final String AMINO_ACID = "aminoacid";
+	private static final String NUCLEOTIDES = "ACGT";
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+	private static final double MUTATION_RATE = 0.1;
+	// probability that a gap run is continued
+	private static final double GAP_EXTEND = 0.8;
+	private static final long DEFAULT_SEED = 42;
+
+	private final int rows;
+	private final int columns;
+	private final String alphabet;
+	private final double gapRate;
+	private final long seed;
+
+	public SyntheticAlignment(int rows, int columns, String alphabet, double gapRate) {
+		this(rows, columns, alphabet, gapRate, DEFAULT_SEED);
+	}
+
+	public SyntheticAlignment(int rows, int columns, String alphabet, double gapRate, long seed) {
+		if(! NUCLEOTIDE.equals(alphabet) && ! AMINO_ACID.equals(alphabet)){
+			throw new IllegalArgumentException("Alphabet should be " + NUCLEOTIDE + " or " + AMINO_ACID + ": " + alphabet);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.alphabet = alphabet;
+		this.gapRate = Math.max(0, Math.min(0.99, gapRate));
+		this.seed = seed;
+	}
+
+	public boolean isNucleotide(){
+		return NUCLEOTIDE.equals(alphabet);
+	}
+
+	public List<Sequence> createSequences(){
+		Random random = new Random(seed);
+		String residues = isNucleotide() ? NUCLEOTIDES : AMINO_ACIDS;
+
+		byte[] ancestor = new byte[columns];
+		for(int n = 0; n < columns; n++){
+			ancestor[n] = (byte) residues.charAt(random.nextInt(residues.length()));
+		}
+
+		// chance of opening a gap run so that in total gapRate of positions are gaps
+		double gapOpen = gapRate * (1 - GAP_EXTEND) / (1 - gapRate);
+
+		List<Sequence> sequences = new ArrayList<Sequence>(rows);
+		for(int row = 0; row < rows; row++){
+			byte[] bases = new byte[columns];
+			boolean inGap = false;
+			for(int n = 0; n < columns; n++){
+				inGap = random.nextDouble() < (inGap ? GAP_EXTEND : gapOpen);
+				if(inGap){
+					bases[n] = '-';
+				}else if(random.nextDouble() < MUTATION_RATE){
+					bases[n] = (byte) residues.charAt(random.nextInt(residues.length()));
+				}else{
+					bases[n] = ancestor[n];
+				}
+			}
+			sequences.add(new InMemorySequence(String.format("seq_%07d", row), bases));
+		}
+		return sequences;
+	}
+
+	public AlignmentListModel createListModel(){
+		AlignmentListModel model = new MemorySequenceAlignmentListModel();
+		model.setSequences(createSequences());
+		return model;
+	}
+
+	public Alignment createAlignment(){
+		return new Alignment(createListModel());
+	}
+
+	/*
+	 * Written with the exporters of AliView, so files are what the importers are expected to read
+	 */
+	public File writeTempFile(FileFormat fileFormat) throws IOException{
+		File file = File.createTempFile("aliview-benchmark-" + rows + "x" + columns + "-", "." + fileFormat.getSuffix());
+		file.deleteOnExit();
+		createAlignment().saveAlignmentAsFile(file, fileFormat, false);
+		return file;
+	}
+
+	@Override
+	public String toString() {
+		return "SyntheticAlignment [rows=" + rows + ", columns=" + columns + ", alphabet=" + alphabet + ", gapRate=" + gapRate + "]";
+	}
+
+}
@@ -34,9 +34,9 @@ import javax.swing.UIManager.LookAndFeelInfo;
 import javax.swing.border.Border;
 import javax.swing.plaf.FontUIResource;
 
-import org.apache.log4j.Appender;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.simplericity.macify.eawt.Application;
 import org.simplericity.macify.eawt.ApplicationEvent;
@@ -46,11 +46,14 @@ import org.simplericity.macify.eawt.DefaultApplication;
 import utils.DialogUtils;
 import utils.FileUtilities;
 import utils.OSNativeUtils;
+import aliview.batch.BatchProcessor;
 import aliview.gui.AliViewJMenuBarFactory;
 import aliview.gui.RepeatingKeyEventsFixer;
 import aliview.messenges.Messenger;
+import aliview.metrics.PerformanceMetrics;
 import aliview.settings.Settings;
 import aliview.test.Test;
+import aliview.utils.LogUtils;
 
 public class AliView implements ApplicationListener{
 
@@ -68,6 +71,13 @@ public class AliView implements ApplicationListener{
 	 */
 	public static void main(String[] args){
 
+		// Headless batch mode - no GUI is created
+		if(args != null && args.length >= 1 && BatchProcessor.BATCH_ARG.equals(args[0])){
+			System.setProperty("java.awt.headless", "true");
+			Logger.getRootLogger().setLevel(Level.WARN);
+			System.exit(BatchProcessor.run(args));
+		}
+
 		// First set max logging for startup, then at end of initialization turn off
 		//		// it can then be turned on manually from menu
 		//		System.setErr( new PrintStream( new LoggingOutputStream( logger, Level.ERROR ), true));
@@ -77,6 +87,7 @@ public class AliView implements ApplicationListener{
 
 		Logger.getRootLogger().setLevel(Level.ALL);
 		logAllLogs();
+		LogUtils.installAsyncAppender();
 
 
 		//logger.info("version " + AliView.getVersion());
@@ -130,6 +141,9 @@ public class AliView implements ApplicationListener{
 			for (int i = 0; i < aList.size(); i++) {
 				logger.info("" +  aList.get( i ));
 			}
+
+			// performance metrics visible in jconsole/VisualVM
+			PerformanceMetrics.registerMBean();
 			// print the non-JVM command line arguments using args
 			// name of the main class
 			logger.info(" " + System.getProperty("sun.java.command"));
@@ -411,6 +425,7 @@ public class AliView implements ApplicationListener{
 		else{
 			Logger.getRootLogger().setLevel(Level.ERROR);
 		}
+		LogUtils.setDiagnostic(isDebugMode());
 
 		//Logger.getRootLogger().setLevel(Level.ERROR);
 
@@ -674,17 +689,15 @@ public class AliView implements ApplicationListener{
 		}
 
 		logger.info("System exit");
+		// async appender writes what is left in its buffer
+		LogManager.shutdown();
 		System.exit(0);
 		return isQuitOK;
 	}
 
 	public static void logAllLogs(){
-		Enumeration enumer = Logger.getRootLogger().getAllAppenders();
-		while ( enumer.hasMoreElements() ){
-			Appender app = (Appender)enumer.nextElement();
-			if ( app instanceof FileAppender ){
-				System.out.println("File: " + ((FileAppender)app).getFile());
-			}
+		for(FileAppender app: LogUtils.getFileAppenders(Logger.getRootLogger())){
+			System.out.println("File: " + app.getFile());
 		}
 	}
 
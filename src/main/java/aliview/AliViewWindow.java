@@ -110,7 +110,6 @@ import javax.swing.event.ListSelectionListener;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.log4j.Appender;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
@@ -125,17 +124,22 @@ import utils.nexus.NexusUtilities;
 import aliview.aligner.Aligner;
 import aliview.aligner.AlignerADDItemsFrame;
 import aliview.aligner.AlignerALLItemsFrame;
+import aliview.aligner.PartitionRealignJob;
+import aliview.aligner.PartitionRealigner;
 import aliview.alignment.Alignment;
+import aliview.alignment.AlignmentStatistics;
 import aliview.alignment.AlignmentEvent;
 import aliview.alignment.AlignmentFile;
+import aliview.alignment.DistanceMatrix;
 import aliview.alignment.AlignmentMeta;
 import aliview.alignment.AlignmentListener;
 import aliview.color.ColorScheme;
-import aliview.exporter.ImageExporter;
+import aliview.exporter.TiledImageExporter;
 import aliview.externalcommands.CommandItem;
 import aliview.externalcommands.ExternalCommandExecutor;
 import aliview.gui.AliToolBar;
 import aliview.gui.AliViewJMenuBar;
+import aliview.gui.AlignmentStatisticsFrame;
 import aliview.gui.AliViewJMenuBarFactory;
 import aliview.gui.AlignmentPopupMenu;
 import aliview.gui.AppIcons;
@@ -143,6 +147,8 @@ import aliview.gui.GlassPaneKeyListener;
 import aliview.gui.GlassPaneMouseListener;
 import aliview.gui.ListTopOffsetJPanel;
 import aliview.gui.MessageLogFrame;
+import aliview.gui.PerformanceFrame;
+import aliview.gui.PartitionRealignFrame;
 import aliview.gui.ScrollBarModelSyncChangeListener;
 import aliview.gui.SearchPanel;
 import aliview.gui.StatusPanel;
@@ -164,12 +170,16 @@ import aliview.messenges.Messenger;
 import aliview.old.ExternalCmdFrame;
 import aliview.old.MyScrollPane;
 import aliview.phenotype2genotype.Phenotype2Genootype;
+import aliview.primer.DimerScreen;
 import aliview.primer.Primer;
+import aliview.primer.PrimerFinder;
+import aliview.primer.PrimerFinderListener;
 import aliview.primer.PrimerResultsFrame;
 import aliview.sequencelist.AlignmentDataEvent;
 import aliview.sequencelist.AlignmentDataListener;
 import aliview.sequencelist.AlignmentSelectionEvent;
 import aliview.sequencelist.AlignmentSelectionListener;
+import aliview.sequencelist.FastaSelection;
 import aliview.sequencelist.FilePage;
 import aliview.sequencelist.FileSequenceAlignmentListModel;
 import aliview.sequencelist.FindObject;
@@ -190,6 +200,7 @@ import aliview.undo.UndoSavedStateEditedSequences;
 import aliview.undo.UndoSavedStateEverything;
 import aliview.undo.UndoSavedStateMetaOnly;
 import aliview.undo.UndoSavedStateSequenceOrder;
+import aliview.utils.LogUtils;
 import aliview.utils.FileDrop;
 import aliview.utils.Utils;
 import aliview.utils.FileDrop.Listener;
@@ -783,6 +794,11 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		messFrame.setVisible(true);
 	}
 
+	public void showPerformanceMetrics() {
+		PerformanceFrame perfFrame = new PerformanceFrame(this);
+		perfFrame.setVisible(true);
+	}
+
 	public void updateWindowTitle() {
 		AlignmentFile aliFile = alignment.getAlignmentFile();
 		if(aliFile == null || aliFile.getName().length() == 0){
@@ -1199,6 +1215,13 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	 * Initialize the contents of the frame.
 	 */
 	public boolean saveAlignmentAsFileViaChooser(FileFormat fileFormat, boolean saveAsCopy){
+		return saveAlignmentAsFileViaChooser(fileFormat, saveAsCopy, 1);
+	}
+
+	/*
+	 * imageDownsampleFactor is only used when fileFormat is an image format (1 is full size)
+	 */
+	public boolean saveAlignmentAsFileViaChooser(FileFormat fileFormat, boolean saveAsCopy, int imageDownsampleFactor){
 
 		// Get dir for saving
 		String suggestedDir = null;
@@ -1250,8 +1273,8 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 			}
 			try {
 
-				if(fileFormat == fileFormat.IMAGE_PNG){
-					ImageExporter.writeComponentAsImageToFile(selectedFile, fileFormat.getSuffix(), alignmentPane);
+				if(fileFormat == FileFormat.IMAGE_PNG || fileFormat == FileFormat.IMAGE_TIFF){
+					exportAlignmentImageInSeparateThread(selectedFile, fileFormat, imageDownsampleFactor);
 				}else{
 					saveAlignmentAsFileAskIfNotEqualLength(selectedFile, fileFormat);
 				}
@@ -1268,7 +1291,7 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 					}
 				}
 
-				if(fileFormat != fileFormat.IMAGE_PNG){
+				if(fileFormat != FileFormat.IMAGE_PNG && fileFormat != FileFormat.IMAGE_TIFF){
 					Settings.addRecentFile(selectedFile);
 				}
 
@@ -1288,6 +1311,156 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 
+	/*
+	 * Asks for downsample factor and exports a smaller overview image of the whole alignment
+	 */
+	public void exportAlignmentOverviewImageViaChooser(){
+		Integer[] factors = new Integer[TiledImageExporter.OVERVIEW_FACTORS.length];
+		for(int n = 0; n < factors.length; n++){
+			factors[n] = TiledImageExporter.OVERVIEW_FACTORS[n];
+		}
+		Integer suggested = TiledImageExporter.getSuggestedDownsampleFactor(alignmentPane);
+		Object selected = JOptionPane.showInputDialog(this, "Downsample factor (every n x n pixels become one pixel):",
+				"Export alignment overview image", JOptionPane.QUESTION_MESSAGE, null, factors, suggested);
+		if(selected == null){
+			return;
+		}
+		saveAlignmentAsFileViaChooser(FileFormat.IMAGE_PNG, true, ((Integer) selected).intValue());
+	}
+
+	/*
+	 * Alignment is painted and written tile by tile in a background thread, GUI is locked so alignment is
+	 * not changed while it is exported
+	 */
+	private void exportAlignmentImageInSeparateThread(final File outFile, final FileFormat fileFormat, final int downsampleFactor){
+		final SubProcessWindow progressWin = SubProcessWindow.getProcessProgressWindow(aliViewWindow, Settings.getHideProcessProgressWindowWhenDone().getBooleanValue());
+		progressWin.setTitle("Export alignment as image");
+		progressWin.setAlwaysOnTop(false);
+		progressWin.show();
+
+		Thread thread = new Thread(new Runnable(){
+			public void run(){
+				try{
+					TiledImageExporter.writeAlignmentPaneAsImage(outFile, fileFormat, alignmentPane, downsampleFactor, progressWin);
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							if(progressWin.isCloseWhenDoneCbxSelected()){
+								progressWin.dispose();
+							}
+						}
+					});
+				}catch(final Exception e){
+					e.printStackTrace();
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							progressWin.dispose();
+							Messenger.showOKOnlyMessage(Messenger.FILE_SAVE_ERROR, LF + e.getLocalizedMessage(), aliViewWindow);
+						}
+					});
+				}finally{
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							setSoftLockGUIThroughMenuDisable(false);
+						}
+					});
+				}
+			}
+		});
+		// Lock GUI while second thread is working
+		setSoftLockGUIThroughMenuDisable(true);
+		thread.start();
+	}
+
+	/*
+	 * Pairwise distances of selected sequences (or all) - PHYLIP square matrix or CSV if file name ends with .csv
+	 */
+	public void exportDistanceMatrixViaChooser(){
+		Object[] valueTypes = new Object[]{"p-distance", "identity"};
+		Object selectedType = JOptionPane.showInputDialog(this, "Values in matrix (of selected sequences or all if less than two are selected):",
+				"Export pairwise distance matrix", JOptionPane.QUESTION_MESSAGE, null, valueTypes, valueTypes[0]);
+		if(selectedType == null){
+			return;
+		}
+		final boolean identity = selectedType == valueTypes[1];
+
+		String suggestedDir = null;
+		String suggestedFileName = null;
+		if(alignment.getAlignmentFile().isAliViewTempFile()){
+			File lastRecent = Settings.getLastRecentFile();
+			if(lastRecent == null){
+				suggestedDir = AlignmentFile.createUserHomeFile().getAbsolutePath();
+			}else{
+				suggestedDir = lastRecent.getParentFile().getAbsolutePath();
+			}
+			suggestedFileName = alignment.getAlignmentFile().getNameWithoutTempPrefix();
+		}else{
+			suggestedDir = alignment.getAlignmentFile().getParent();
+			suggestedFileName = alignment.getFileName();
+		}
+		if(suggestedFileName == null){
+			suggestedFileName = "";
+		}
+		suggestedFileName = FileFormat.stripFileSuffixFromName(suggestedFileName) + (identity ? ".identity.phy" : ".distance.phy");
+
+		final File selectedFile = FileUtilities.selectSaveFileViaChooser(new File(suggestedDir, suggestedFileName), this.getParent());
+		if(selectedFile == null){
+			return;
+		}
+		if(selectedFile.exists()){
+			String message = "File already exists - do you want to overwrite?";
+			int retVal = JOptionPane.showConfirmDialog(this, message, "Overwrite?", JOptionPane.OK_CANCEL_OPTION);
+			if(retVal != JOptionPane.OK_OPTION){
+				return;
+			}
+		}
+
+		final SubProcessWindow progressWin = SubProcessWindow.getProcessProgressWindow(aliViewWindow, Settings.getHideProcessProgressWindowWhenDone().getBooleanValue());
+		progressWin.setTitle("Export pairwise distance matrix");
+		progressWin.setAlwaysOnTop(false);
+		progressWin.show();
+
+		Thread thread = new Thread(new Runnable(){
+			public void run(){
+				BufferedWriter out = null;
+				try{
+					DistanceMatrix matrix = alignment.getDistanceMatrixOfSelected(progressWin);
+					progressWin.setOutput("Writing " + matrix.getSize() + " x " + matrix.getSize() + " matrix to: " + selectedFile.getAbsolutePath());
+					out = new BufferedWriter(new FileWriter(selectedFile));
+					if(selectedFile.getName().toLowerCase().endsWith(".csv")){
+						matrix.writeCSV(out, identity);
+					}else{
+						matrix.writePhylip(out, identity);
+					}
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							if(progressWin.isCloseWhenDoneCbxSelected()){
+								progressWin.dispose();
+							}
+						}
+					});
+				}catch(final Exception e){
+					e.printStackTrace();
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							progressWin.dispose();
+							Messenger.showOKOnlyMessage(Messenger.FILE_SAVE_ERROR, LF + e.getLocalizedMessage(), aliViewWindow);
+						}
+					});
+				}finally{
+					IOUtils.closeQuietly(out);
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							setSoftLockGUIThroughMenuDisable(false);
+						}
+					});
+				}
+			}
+		});
+		// Lock GUI while second thread is working
+		setSoftLockGUIThroughMenuDisable(true);
+		thread.start();
+	}
+
 	public void exportRaxMLFile() {
 		exportRaxMLFileViaChooser();
 	}
@@ -1467,7 +1640,11 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 	public void loadNewAlignmentFile(File selectedFile, int sequenceType){
-		alignment = AlignmentFactory.createNewAlignment(selectedFile, sequenceType);
+		loadNewAlignment(AlignmentFactory.createNewAlignment(selectedFile, sequenceType));
+	}
+
+	private void loadNewAlignment(Alignment newAlignment){
+		alignment = newAlignment;
 		setupNewAlignment(alignment);
 		hasUnsavedUndoableEdits = false;
 		this.updateWindowTitle();
@@ -1611,11 +1788,16 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 				// check that a full sequence is selected
 				if(alignment.hasFullySelectedSequences()){
 					// Save selected sequences in one file and other in another
-					final File unselectedAlignmentTempFile = AlignmentFile.createAliViewTempFile("unselected-alignment", FileFormat.FASTA.getSuffix());
 					final File selectedAlignmentTempFile = AlignmentFile.createAliViewTempFile("selected-alignment", FileFormat.FASTA.getSuffix());	
 					alignment.saveSelectedSequencesAsFastaFile(selectedAlignmentTempFile, false);
-					alignment.saveUnSelectedSequencesAsFastaFile(unselectedAlignmentTempFile, false);
-					alignAndAddSequences(firstSelected, unselectedAlignmentTempFile, selectedAlignmentTempFile);
+					// unselected sequences can be sent to aligner through stdin
+					if(firstSelected.isStdinStdoutCommand()){
+						alignAndAddSequencesThroughStdinStdout(firstSelected, alignment.getUnSelectedSequences(), selectedAlignmentTempFile);
+					}else{
+						final File unselectedAlignmentTempFile = AlignmentFile.createAliViewTempFile("unselected-alignment", FileFormat.FASTA.getSuffix());
+						alignment.saveUnSelectedSequencesAsFastaFile(unselectedAlignmentTempFile, false);
+						alignAndAddSequences(firstSelected, unselectedAlignmentTempFile, selectedAlignmentTempFile);
+					}
 				}else{
 					Messenger.showOKOnlyMessage(Messenger.NO_FULLY_SELECTED_SEQUENCES, this);
 				}
@@ -1646,6 +1828,11 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 			}
 		}
 		if(firstSelected != null){
+			// Current alignment is sent to aligner through stdin
+			if(firstSelected.isStdinStdoutCommand()){
+				alignAndAddSequencesThroughStdinStdout(firstSelected, alignment.getSequencesForExport(true), additionalSequencesFile);
+				return;
+			}
 			// Save current alignment in tempdir (to be sure all unsaved changes are there)
 			FileFormat currentTempFileFormat = firstSelected.getCurrentAlignmentFileFormat();
 			final File currentAlignmentTempFile = AlignmentFile.createAliViewTempFile("current-alignment", currentTempFileFormat.getSuffix());
@@ -1655,11 +1842,14 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 
-	public synchronized void alignAndAddSequences(final CommandItem alignItem, File origSequences, File newSeqs){
+	/*
+	 * Returns false if user cancelled
+	 */
+	private boolean showAlignAndAddMessages(CommandItem alignItem){
 
 		if(alignment.isTranslatedOnePos()){
 			Messenger.showOKOnlyMessage(Messenger.SUGGEST_ALIGN_AS_TRANSLATED, aliViewWindow);	
-			return;
+			return false;
 		}
 
 		if(StringUtils.containsIgnoreCase(alignItem.getCommand(), "profile")){
@@ -1677,9 +1867,17 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 			Messenger.showHideAlignmentProgramInvalidCharsInfoMessage(invalidChars);
 			int choise = Messenger.getLastSelectedOption();
 			if(choise == JOptionPane.CANCEL_OPTION){
-				return;
+				return false;
 			}
 		}
+		return true;
+	}
+
+	public synchronized void alignAndAddSequences(final CommandItem alignItem, File origSequences, File newSeqs){
+
+		if(! showAlignAndAddMessages(alignItem)){
+			return;
+		}
 		try {
 			// Create a tempFile for new alignment
 			final File newAlignmentTempFile = AlignmentFile.createAliViewTempFile("alignment", ".fasta");
@@ -1746,6 +1944,83 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 
 
 
+	/*
+	 * Sequences are written to stdin of aligner and new alignment is read from its stdout (SECOND_SEQUENCES is still a file)
+	 */
+	public synchronized void alignAndAddSequencesThroughStdinStdout(final CommandItem alignItem, List<Sequence> inputSequences, File newSeqs){
+
+		if(! showAlignAndAddMessages(alignItem)){
+			return;
+		}
+		alignItem.setParameterStreams();
+		alignItem.setParameterSecondFile(newSeqs);
+		alignThroughStdinStdout(alignItem, inputSequences, "Align and add sequences with " + alignItem.getName(), true);
+	}
+
+	private void alignThroughStdinStdout(final CommandItem alignItem, final List<Sequence> inputSequences, String title, final boolean isAddSequences){
+		try {
+			final SubProcessWindow subProcessWin = SubProcessWindow.getProcessProgressWindow(aliViewWindow, true);
+			subProcessWin.setCloseWhenDoneCbxSelection(Settings.getHideProcessProgressWindowWhenDone().getBooleanValue());
+			subProcessWin.setTitle(title);
+			subProcessWin.setAlwaysOnTop(false);
+			subProcessWin.show();
+
+			Thread thread = new Thread(new Runnable(){
+				public void run(){
+					try {
+						final AlignmentListModel alignedSequences = ExternalCommandExecutor.executeStdinStdout(alignItem, inputSequences, subProcessWin);
+						logger.info("donerealign");
+						// aligning is done the new thread should activate GUI again before it is finished
+						SwingUtilities.invokeLater(new Runnable() {
+							public void run(){
+								boolean wasProcessInterruptedByUser = subProcessWin.wasSubProcessDestrouedByUser();
+								Alignment realignment = null;
+								if(! wasProcessInterruptedByUser && alignedSequences.getSize() > 0){
+									realignment = AlignmentFactory.createNewAlignment(alignedSequences);
+								}
+								if(isAddSequences){
+									aliViewWindow.realignmentOfSelectedSeqsDone(wasProcessInterruptedByUser, realignment);
+								}else{
+									aliViewWindow.realignmentDone(wasProcessInterruptedByUser, realignment);
+								}
+								subProcessWin.appendOutput(LF + "Done" + LF);
+
+								// close window automatically if that is what is wanted
+								if(Settings.getHideProcessProgressWindowWhenDone().getBooleanValue()){
+									subProcessWin.dispose();
+								}
+
+								setSoftLockGUIThroughMenuDisable(false);
+							}
+						});
+					} catch (Exception e) {
+						setSoftLockGUIThroughMenuDisable(false);
+						subProcessWin.appendOutput(e.getMessage());
+						// no message if process was cancelled (output was then not complete)
+						if(! subProcessWin.wasSubProcessDestrouedByUser()){
+							Messenger.showOKOnlyMessage(Messenger.ALIGNER_SOMETHING_PROBLEM_ERROR,
+									LF + "Message: " + e.getLocalizedMessage(),
+									aliViewWindow);
+						}
+						e.printStackTrace();
+					}
+					finally {  
+						setSoftLockGUIThroughMenuDisable(false);
+					}
+				}
+			});
+			// Lock GUI while second thread is working
+			setSoftLockGUIThroughMenuDisable(true);
+			thread.start();
+		} catch (Exception e) {
+			setSoftLockGUIThroughMenuDisable(false);
+			Messenger.showOKOnlyMessage(Messenger.ALIGNER_SOMETHING_PROBLEM_ERROR,
+					LF + "Message: " + e.getLocalizedMessage(),
+					aliViewWindow);	
+			e.printStackTrace();
+		}
+	}
+
 	public void reAlignEverythingWithDefaultProgram() {
 
 		if(alignment.isTranslatedOnePos()){
@@ -1801,6 +2076,101 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 
+	/*
+	 * Selected whole columns (or if none the charsets) are realigned separately with default aligner,
+	 * several partitions at the same time
+	 */
+	public synchronized void reAlignPartitionsInParallel() {
+
+		if(alignment.isTranslatedOnePos()){
+			Messenger.showOKOnlyMessage(Messenger.SUGGEST_ALIGN_AS_TRANSLATED, aliViewWindow);	
+			return;
+		}
+
+		CommandItem firstSelected = null;
+		for(CommandItem item: Settings.getAlignALLCommands()){
+			if(item.isActivated()){
+				firstSelected = item;
+				firstSelected.reParseCommand();
+				break;
+			}
+		}
+		if(firstSelected == null){
+			return;
+		}
+
+		List<PartitionRealignJob> jobs = PartitionRealigner.createJobs(alignment, firstSelected);
+		if(jobs.size() == 0){
+			Messenger.showOKOnlyMessage(Messenger.NO_PARTITIONS_TO_REALIGN, aliViewWindow);
+			return;
+		}
+
+		// warn if invalid characters
+		String invalidChars = alignment.getFirstAlignmentProgInvalidCharacter();
+		if(invalidChars.length() > 0){
+			String invalCharMessage = "Some aligners (e.g. Muscle, Mafft) are sensiteive to invalid characters," + LF + "the following were found and you might need to replace them with X in your alignment: " + invalidChars;
+			int choise = JOptionPane.showConfirmDialog(this, invalCharMessage, "Problem characters", JOptionPane.OK_CANCEL_OPTION);
+			if(choise == JOptionPane.CANCEL_OPTION){
+				return;
+			}
+		}
+
+		final Alignment partitionedAlignment = alignment;
+		final PartitionRealigner realigner = new PartitionRealigner(alignment.getSequencesForExport(true), jobs, Settings.getParallelRealignJobs().getIntValue());
+		final PartitionRealignFrame progressFrame = new PartitionRealignFrame(realigner, "Realign " + jobs.size() + " partitions with " + firstSelected.getName(), aliViewWindow);
+
+		Thread thread = new Thread(new Runnable(){
+			public void run(){
+				try{
+					realigner.realign(progressFrame);
+				}finally{
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run(){
+							partitionRealignmentDone(realigner, progressFrame, partitionedAlignment);
+							setSoftLockGUIThroughMenuDisable(false);
+						}
+					});
+				}
+			}
+		});
+		// Lock GUI while partitions are realigned
+		setSoftLockGUIThroughMenuDisable(true);
+		thread.start();
+	}
+
+	private void partitionRealignmentDone(PartitionRealigner realigner, PartitionRealignFrame progressFrame, Alignment partitionedAlignment){
+		int realigned = 0;
+		int failed = 0;
+		for(PartitionRealignJob job: realigner.getJobs()){
+			if(job.getStatus() == PartitionRealignJob.DONE){
+				realigned ++;
+			}
+			else if(job.getStatus() == PartitionRealignJob.FAILED){
+				failed ++;
+			}
+		}
+		// alignment could have been replaced by another while aligning
+		int replaced = 0;
+		if(realigned > 0 && partitionedAlignment == alignment){
+			aliViewWindow.getUndoControler().pushUndoState();
+			alignment.beginChanges();
+			try{
+				replaced = realigner.putRealignedBlocksInto(alignment);
+				alignment.padAndTrimSequences();
+			}finally{
+				alignment.commitChanges();
+			}
+			requestPaneRepaint();
+		}
+		progressFrame.realignDone(replaced);
+
+		// failed partitions are listed in progress window, so only close it if everything went fine
+		if(failed == 0 && Settings.getHideProcessProgressWindowWhenDone().getBooleanValue()){
+			progressFrame.dispose();
+		}
+		logger.info("Finished partition realignment, replaced " + replaced + " failed " + failed);
+	}
+
 	public void reAlignEverythingWithAlignCommand(final CommandItem alignItem, final boolean asTranslatedAA, final boolean selection){
 
 		// ask if realign everything
@@ -1828,6 +2198,13 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 				return;
 			}
 		}
+		// Alignment is sent to aligner through stdin (translated or selection is saved in temp file)
+		if(alignItem.isStdinStdoutCommand() && ! asTranslatedAA && ! selection && ! alignment.isTranslatedOnePos()){
+			alignItem.setParameterStreams();
+			alignThroughStdinStdout(alignItem, alignment.getSequencesForExport(true), "Align with " + alignItem.getName(), false);
+			return;
+		}
+
 		try {
 			logger.info("alignWithDefault");
 
@@ -1937,8 +2314,13 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 				Alignment realignment = AlignmentFactory.createNewAlignment(newRealignedSelectionTempFile);
 				// restore selection (if changed by user during time)
 				alignment.setSelectionWithin(selectionBounds);
-				alignment.replaceSelectedCharactersWithThis(realignment);
-				alignment.padAndTrimSequences();
+				alignment.beginChanges();
+				try{
+					alignment.replaceSelectedCharactersWithThis(realignment);
+					alignment.padAndTrimSequences();
+				}finally{
+					alignment.commitChanges();
+				}
 				requestPaneRepaint();
 
 			}else{
@@ -1961,8 +2343,17 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 				try{
 					aliViewWindow.getUndoControler().pushUndoState();		
 					Alignment realignment = AlignmentFactory.createNewAlignment(newRealignedTempFile);			
-					alignment.realignNucleotidesUseThisAAAlignmentAsTemplate(realignment);
-					alignment.padAndTrimSequences();
+					List<String> notMatched;
+					alignment.beginChanges();
+					try{
+						notMatched = alignment.realignNucleotidesUseThisAAAlignmentAsTemplate(realignment);
+						alignment.padAndTrimSequences();
+					}finally{
+						alignment.commitChanges();
+					}
+					if(notMatched.size() > 0){
+						Messenger.showRealignAsTranslatedNotMatchingMessage(notMatched, aliViewWindow);
+					}
 				}catch(Exception exc){
 					exc.printStackTrace();
 					setSoftLockGUIThroughMenuDisable(false);
@@ -1982,11 +2373,19 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 	protected void realignmentOfSelectedSeqsDone(boolean wasProcessInterruptedByUser, File newRealignedTempFile) {
+		Alignment realignment = null;
+		// TO DO HANDLE bad loading of file better
+		if(! wasProcessInterruptedByUser && newRealignedTempFile.length() > 0){
+			realignment = AlignmentFactory.createNewAlignment(newRealignedTempFile);
+		}
+		realignmentOfSelectedSeqsDone(wasProcessInterruptedByUser, realignment);
+	}
+
+	protected void realignmentOfSelectedSeqsDone(boolean wasProcessInterruptedByUser, Alignment realignment) {
 		if(! wasProcessInterruptedByUser){
 
 			// Reload alignment
-			// TO DO HANDLE bad loading of file better
-			if(newRealignedTempFile.length() > 0){
+			if(realignment != null){
 
 				aliViewWindow.getUndoControler().pushUndoState();
 				// TODO storing this could be done slightly more unified
@@ -1997,7 +2396,7 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 				// Keep meta when realigning
 				AlignmentMeta storedMeta = alignment.getAlignentMetaCopy();
 
-				loadNewAlignmentFile(newRealignedTempFile);
+				loadNewAlignment(realignment);
 				// Restore
 				alignment.setAlignmentFile(storedAlignmentFile);
 				this.updateWindowTitle();
@@ -2021,10 +2420,18 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 	protected void realignmentDone(boolean wasProcessInterruptedByUser, File newRealignedTempFile) {
+		Alignment realignment = null;
+		if(! wasProcessInterruptedByUser && newRealignedTempFile.length() > 0){
+			realignment = AlignmentFactory.createNewAlignment(newRealignedTempFile);
+		}
+		realignmentDone(wasProcessInterruptedByUser, realignment);
+	}
+
+	protected void realignmentDone(boolean wasProcessInterruptedByUser, Alignment realignment) {
 		if(! wasProcessInterruptedByUser){
 
 			// Reload new alignment
-			if(newRealignedTempFile.length() > 0){
+			if(realignment != null){
 
 				aliViewWindow.getUndoControler().pushUndoState();
 				// TODO storing this could be done slightly more unified
@@ -2034,7 +2441,7 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 				// When realigning all don't keep alignment meta
 				// AlignmentMeta storedMeta = alignment.getAlignentMetaCopy();			
 
-				loadNewAlignmentFile(newRealignedTempFile);
+				loadNewAlignment(realignment);
 				// Restore
 				alignment.setAlignmentFile(storedAlignmentFile);
 				this.updateWindowTitle();
@@ -2057,12 +2464,8 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 
 
 	public static void logAllLogs(){
-		Enumeration enumer = Logger.getRootLogger().getAllAppenders();
-		while ( enumer.hasMoreElements() ){
-			Appender app = (Appender)enumer.nextElement();
-			if ( app instanceof FileAppender ){
-				System.out.println("File: " + ((FileAppender)app).getFile());
-			}
+		for(FileAppender app: LogUtils.getFileAppenders(Logger.getRootLogger())){
+			System.out.println("File: " + app.getFile());
 		}
 	}
 
@@ -2079,29 +2482,29 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 				if(nextLogger instanceof Logger)
 				{
 					Logger currentLogger = (Logger) nextLogger;
-					Enumeration allAppenders = currentLogger.getAllAppenders();
-					while(allAppenders.hasMoreElements())
+					// file appenders of root logger are behind an AsyncAppender
+					for(FileAppender fileAppender: LogUtils.getFileAppenders(currentLogger))
 					{
-						Object nextElement = allAppenders.nextElement();
-						if(nextElement instanceof FileAppender)
+						if(!flushedFileAppenders.contains(fileAppender) && !fileAppender.getImmediateFlush())
 						{
-							FileAppender fileAppender = (FileAppender) nextElement;
-							if(!flushedFileAppenders.contains(fileAppender) && !fileAppender.getImmediateFlush())
-							{
-								flushedFileAppenders.add(fileAppender);
-								//log.info("Appender "+fileAppender.getName()+" is not doing immediateFlush ");
-								fileAppender.setImmediateFlush(true);
-								currentLogger.info("FLUSH");
-								fileAppender.setImmediateFlush(false);
-							}
-							else
-							{
-								//log.info("fileAppender"+fileAppender.getName()+" is doing immediateFlush");
-							}
+							flushedFileAppenders.add(fileAppender);
+							//log.info("Appender "+fileAppender.getName()+" is not doing immediateFlush ");
+							fileAppender.setImmediateFlush(true);
+							currentLogger.info("FLUSH");
+						}
+						else
+						{
+							//log.info("fileAppender"+fileAppender.getName()+" is doing immediateFlush");
 						}
 					}
 				}
 			}
+			// wait until the buffered events (and the FLUSH above) are written
+			LogUtils.flushAsyncAppender();
+			for(FileAppender fileAppender: flushedFileAppenders)
+			{
+				fileAppender.setImmediateFlush(false);
+			}
 		}
 		catch(RuntimeException e)
 		{
@@ -2167,21 +2570,55 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 			}
 		}
 
-		ArrayList<Primer> primerResult = alignment.findPrimerInSelection();
+		final PrimerFinder primerFinder = alignment.createPrimerFinderForSelection();
+		if(primerFinder == null){
+			Messenger.showOKOnlyMessage(Messenger.NO_SELECTION, this);
+			return;
+		}
 
 		// kill old frame
 		if(primerResultsFrame != null){
 			primerResultsFrame.dispose();
 		}
 
-		// if results - else show message
-		if(primerResult != null && primerResult.size() > 0){
-			primerResultsFrame = new PrimerResultsFrame(primerResult, aliViewWindow);
-			primerResultsFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-		}else{
-			Messenger.showOKOnlyMessage(Messenger.NO_PRIMERS_FOUND, this);
-		}
+		// Results are streamed into frame while searching - and replaced by sorted result when done
+		final PrimerResultsFrame resultsFrame = new PrimerResultsFrame(aliViewWindow);
+		resultsFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+		resultsFrame.setPrimerFinder(primerFinder);
+		primerResultsFrame = resultsFrame;
 
+		Thread thread = new Thread(new Runnable(){
+			public void run(){
+				final ArrayList<Primer> primerResult = primerFinder.findPrimers(new PrimerFinderListener() {
+					public void primersFound(final List<Primer> primers) {
+						SwingUtilities.invokeLater(new Runnable() {
+							public void run(){
+								resultsFrame.addPrimers(primers);
+							}
+						});
+					}
+				});
+				// screen the reported candidates against each other for 3"-end dimers before showing final result
+				if(! primerFinder.isCancelled()){
+					new DimerScreen().screenAndAnnotate(primerResult, PrimerResultsFrame.MAX_NUMBER_OF_PRIMERS_REPORTED);
+				}
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run(){
+						if(primerFinder.isCancelled()){
+							return;
+						}
+						// if results - else show message
+						if(primerResult != null && primerResult.size() > 0){
+							resultsFrame.setPrimers(primerResult);
+						}else{
+							resultsFrame.dispose();
+							Messenger.showOKOnlyMessage(Messenger.NO_PRIMERS_FOUND, aliViewWindow);
+						}
+					}
+				});
+			}
+		});
+		thread.start();
 	}
 
 
@@ -2351,6 +2788,14 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		requestPaneRepaint();
 	}
 
+	/*
+	 * Bases are faded by quality, only sequences with qualities (FASTQ opened as file sequences) are shaded
+	 */
+	public void setShowQualityShading(boolean selected) {
+		alignmentPane.setShowQualityShading(selected);
+		requestPaneRepaint();
+	}
+
 	//private void setTranslationOnePos
 
 
@@ -2442,6 +2887,24 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		//requestPaneAndListRepaint();
 	}
 
+	public void sortSequencesByUngapedLength() {
+		aliViewWindow.getUndoControler().pushUndoState(new UndoSavedStateSequenceOrder(alignment.getSequences().getDelegateSequencesCopy(), alignment.getAlignentMetaCopy()));
+		alignment.sortSequencesByUngapedLength();
+		alignmentPane.validateSequenceOrder();
+	}
+
+	public void sortSequencesByGapCount() {
+		aliViewWindow.getUndoControler().pushUndoState(new UndoSavedStateSequenceOrder(alignment.getSequences().getDelegateSequencesCopy(), alignment.getAlignentMetaCopy()));
+		alignment.sortSequencesByGapCount();
+		alignmentPane.validateSequenceOrder();
+	}
+
+	public void sortSequencesByIdentityToSelected() {
+		aliViewWindow.getUndoControler().pushUndoState(new UndoSavedStateSequenceOrder(alignment.getSequences().getDelegateSequencesCopy(), alignment.getAlignentMetaCopy()));
+		alignment.sortSequencesByIdentityToSelected();
+		alignmentPane.validateSequenceOrder();
+	}
+
 	public void setSelectionAsNonCoding() {
 		//aliViewWindow.getUndoControler().pushUndoState(new UndoSavedStateMetaOnly(alignment.getAlignentMetaCopy()));
 		alignment.setSelectionAsNonCoding();
@@ -2634,6 +3097,13 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 	public void pasteFasta(int pasteAtIndex) {
+		// copied in this or another AliView window - no fasta text has to be created and read
+		FastaSelection fastaSelection = FastaSelection.getFromClipboard(Toolkit.getDefaultToolkit().getSystemClipboard());
+		if(fastaSelection != null && fastaSelection.size() > 0){
+			pasteSequences(fastaSelection, pasteAtIndex);
+			return;
+		}
+
 		String clipboardSelection = getClipboard();
 
 		// If empty or null return
@@ -2688,6 +3158,30 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		}
 	}
 
+	private void pasteSequences(FastaSelection fastaSelection, int pasteAtIndex) {
+		try {
+			// a new alignment is created from file
+			if(alignment.getSize() == 0){
+				File clipAsFile = AlignmentFile.createAliViewTempFile("clipboard-alignment", ".fasta");
+				FileUtils.copyInputStreamToFile(fastaSelection.createFastaInputStream(), clipAsFile);
+				addSequencesFromFile(clipAsFile, pasteAtIndex);
+			}
+			else{
+				// read before undo state is pushed, file of the copied sequences could be closed
+				List<Sequence> pasted = fastaSelection.createSequences();
+				aliViewWindow.getUndoControler().pushUndoState();
+				alignment.addSequences(pasted, pasteAtIndex);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			Messenger.showOKOnlyMessage(Messenger.ERROR_PASTE, LF + e.getLocalizedMessage(), aliViewWindow);
+		} catch (RuntimeException e) {
+			// e.g. reading copied sequences from a file that is no longer mapped
+			e.printStackTrace();
+			Messenger.showOKOnlyMessage(Messenger.ERROR_PASTE, LF + e.getLocalizedMessage(), aliViewWindow);
+		}
+	}
+
 	public void pasteFasta() {
 		// I commented out this because I find it more intuitive to paste at
 		// beginning with ctrl + v command
@@ -2702,9 +3196,14 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		List<Sequence> selected = alignment.getSelectedSequences();
 		if(selected.size() == 2){
 			aliViewWindow.getUndoControler().pushUndoState();
-			boolean isMerged = alignment.mergeTwoSequences(selected, true);
-			if(isMerged){
-				alignment.deleteSequence(selected.get(1));	
+			alignment.beginChanges();
+			try{
+				boolean isMerged = alignment.mergeTwoSequences(selected, true);
+				if(isMerged){
+					alignment.deleteSequence(selected.get(1));	
+				}
+			}finally{
+				alignment.commitChanges();
 			}
 		}
 		//requestRepaintAndRevalidateALL();
@@ -2729,6 +3228,27 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		//logger.info("alignment.getMaximumSequenceLength()" + alignment.getMaximumSequenceLength());
 	}
 
+	private String maxGapPercentTextFieldValue = "50";
+	public void deleteColumnsAboveGapThreshold() {
+		TextEditDialog gapPercentDlg = new TextEditDialog();
+		gapPercentDlg.showOKCancelTextEditor(maxGapPercentTextFieldValue, TextEditDialog.TITLE_MAX_GAP_PERCENT, this);
+
+		if(gapPercentDlg.getSelectedValue() == JOptionPane.OK_OPTION){
+			String percentText = gapPercentDlg.getEditText();
+			double percent;
+			try {
+				percent = Double.parseDouble(StringUtils.remove(percentText, '%').trim());
+			} catch (NumberFormatException e) {
+				return;
+			}
+			maxGapPercentTextFieldValue = percentText;
+			aliViewWindow.getUndoControler().pushUndoState();
+			int deleteCount = alignment.deleteColumnsAboveGapFraction(percent / 100);
+			logger.info("deleted columns:" + deleteCount);
+			requestPaneRepaint();
+		}
+	}
+
 	public void find() {
 		searchPanel.getSearchField().requestFocus();
 		searchPanel.getSearchField().selectAll();
@@ -2998,10 +3518,43 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		requestPaneRepaint();
 	}
 
+	/*
+	 * Statistics are calculated in a background thread, GUI is locked and translation is off meanwhile
+	 */
 	public void createStats(){
-		//alignment.getSequences().setTranslation(true);
-		alignment.getStats();
-		MemoryUtils.logMem();
+		final boolean wasTranslated = alignment.getSequences().isTranslated();
+		if(wasTranslated){
+			alignment.getSequences().setTranslation(false);
+		}
+		final String name = alignment.getAlignmentFile() == null ? "" : alignment.getAlignmentFile().getName();
+
+		Thread thread = new Thread(new Runnable(){
+			public void run(){
+				AlignmentStatistics stats = null;
+				try{
+					stats = alignment.getStats();
+				}catch(RuntimeException e){
+					logger.error("Could not calculate statistics", e);
+				}
+				final AlignmentStatistics result = stats;
+				SwingUtilities.invokeLater(new Runnable(){
+					public void run(){
+						if(wasTranslated){
+							alignment.getSequences().setTranslation(true);
+						}
+						setSoftLockGUIThroughMenuDisable(false);
+						if(result != null){
+							AlignmentStatisticsFrame statsFrame = new AlignmentStatisticsFrame(result, name, aliViewWindow);
+							statsFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+						}
+						MemoryUtils.logMem();
+					}
+				});
+			}
+		});
+		// Lock GUI while second thread is working
+		setSoftLockGUIThroughMenuDisable(true);
+		thread.start();
 
 		/* some old stuff
 		for(int n = 0; n < 100; n++){
@@ -3090,6 +3643,13 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		fireUndoRedoChange();
 	}
 
+	@Override
+	public void dispose() {
+		// undo states are not held after window is closed
+		undoList.clear();
+		super.dispose();
+	}
+
 	/*
 	private String getUndoSavedStateFastaString(){
 		StringWriter fastaWriter = new StringWriter();
@@ -4393,6 +4953,10 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 		Logger.getRootLogger().setLevel(Level.ALL);
 	}
 
+	public void setTraceToFile(boolean trace) {
+		LogUtils.setTraceToFile(trace, AliView.isDebugMode());
+	}
+
 	public void requestGB() {
 		System.gc();
 	}
@@ -4492,38 +5056,11 @@ public class AliViewWindow extends JFrame implements UndoControler, AlignmentLis
 	}
 
 	public void adjustReadingFrameMinimizeStop() {
-
-		AlignmentListModel origModel = alignment.getSequences();
-
-		for(Sequence origSequence: origModel){
-			Sequence seq = origSequence.getCopy();
-			ArrayList<Sequence> newSeqs = new ArrayList<Sequence>(1);
-			AlignmentListModel model = new AlignmentListModel(newSeqs);
-			Alignment newAliment = new Alignment(model);
-			int minStops = Integer.MAX_VALUE;
-			GeneticCode bestCode = GeneticCode.DEFAULT;
-			int bestFrame = 0;
-			for(int frame = 0; frame < 3; frame ++){
-				seq.insertGapAt(0);
-				for(GeneticCode genCode: GeneticCode.allCodesArray){
-					newAliment.setGeneticCode(genCode);				
-
-					int stops = seq.countStopCodon();	  
-					if(stops < minStops){
-						minStops = stops;
-						bestCode = genCode;
-						bestFrame = frame;
-					} 
-				}				
-			}
-
-			logger.info("stops = " + minStops + " genCode = " + bestCode.name + " readingFrame = " + bestFrame);
-
-			for(int n = 0; n < bestFrame; n++){
-				origSequence.insertGapAt(0);
-			}
+		if(! requestEditMode()){
+			return;
 		}
-
+		getUndoControler().pushUndoState();
+		alignment.adjustReadingFrameMinimizeStop();
 		repaint();
 	}
 
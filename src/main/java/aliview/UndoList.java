@@ -2,18 +2,41 @@ package aliview;
 
 import java.util.ArrayList;
 
+import aliview.metrics.PerformanceMetrics;
 import aliview.undo.UndoSavedState;
 import aliview.undo.UndoSavedStateEverything;
 
 public class UndoList{
 	private ArrayList<UndoSavedState> delegate = new ArrayList<UndoSavedState>();
 	private int positionPointer = -1;
+	private long estimatedSize;
 
 	public void add(UndoSavedState state) {
 		delegate.add(state);
+		addEstimatedSize(state);
 		positionPointer = delegate.size() - 1;
 	}
 
+	private void addEstimatedSize(UndoSavedState state){
+		long size = state.getEstimatedSize();
+		estimatedSize += size;
+		PerformanceMetrics.addUndoStackBytes(size);
+	}
+
+	public long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	/*
+	 * Removes all states (e.g. when window is closed)
+	 */
+	public void clear(){
+		delegate.clear();
+		positionPointer = -1;
+		PerformanceMetrics.addUndoStackBytes(-estimatedSize);
+		estimatedSize = 0;
+	}
+
 	public boolean hasAvailableUndos() {
 		if(delegate.size() > 0 && positionPointer >= 0){
 			return true;
@@ -30,6 +53,7 @@ public class UndoList{
 
 	public void addCurrentState(UndoSavedState state) {
 		delegate.add(state);
+		addEstimatedSize(state);
 		positionPointer = delegate.size() - 2;
 	}
 
@@ -0,0 +1,273 @@
+package aliview.aligner;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import aliview.NucleotideUtilities;
+import aliview.alignment.AlignmentFile;
+import aliview.externalcommands.CommandItem;
+import aliview.externalcommands.ExternalCommandExecutor;
+import aliview.importer.AlignmentImportException;
+import aliview.importer.SequencesFactory;
+import aliview.sequencelist.AlignmentListModel;
+import aliview.sequences.InMemorySequence;
+import aliview.sequences.Sequence;
+import aliview.subprocesses.SubProcessWindow;
+
+/*
+ *
+ * One block of columns (a charset or selected columns) that is realigned on its own by PartitionRealigner,
+ * the job keeps its status for the progress table and the realigned block until it is put back into alignment
+ *
+ */
+public class PartitionRealignJob {
+	private static final Logger logger = Logger.getLogger(PartitionRealignJob.class);
+	private static final String LF = System.getProperty("line.separator");
+	public static final String WAITING = "Waiting";
+	public static final String RUNNING = "Running";
+	public static final String DONE = "Done";
+	public static final String SKIPPED = "Skipped";
+	public static final String FAILED = "Failed";
+	public static final String CANCELLED = "Cancelled";
+
+	private final String name;
+	private final int startCol;
+	private final int endCol;
+	private final CommandItem cmdItem;
+	// no window - only used to keep track of (and destroy) the aligner process
+	private final SubProcessWindow processHandle = new SubProcessWindow((Process) null);
+	private volatile String status = WAITING;
+	private volatile String message = "";
+	private volatile long startTime;
+	private volatile long endTime;
+	private AlignmentListModel result;
+
+	public PartitionRealignJob(String name, int startCol, int endCol, CommandItem cmdItem) {
+		this.name = name;
+		this.startCol = startCol;
+		this.endCol = endCol;
+		this.cmdItem = cmdItem;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getStartCol() {
+		return startCol;
+	}
+
+	public int getEndCol() {
+		return endCol;
+	}
+
+	public int getWidth() {
+		return endCol + 1 - startCol;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public boolean isFinished() {
+		String current = status;
+		return current != WAITING && current != RUNNING;
+	}
+
+	public long getElapsedMillis() {
+		if(startTime == 0){
+			return 0;
+		}
+		if(endTime == 0){
+			return System.currentTimeMillis() - startTime;
+		}
+		return endTime - startTime;
+	}
+
+	/*
+	 * Realigned block, only when status is DONE
+	 */
+	public synchronized AlignmentListModel getResult() {
+		return result;
+	}
+
+	/*
+	 * A waiting job is never started, a running job has its aligner process destroyed
+	 */
+	public synchronized void cancel(){
+		if(status == WAITING){
+			status = CANCELLED;
+		}
+		else if(status == RUNNING){
+			processHandle.destroyActiveProcess();
+		}
+	}
+
+	private synchronized void finish(String newStatus, String newMessage, AlignmentListModel realigned){
+		endTime = System.currentTimeMillis();
+		result = realigned;
+		message = newMessage;
+		status = newStatus;
+	}
+
+	/*
+	 * Run in a PartitionRealigner worker thread, sequences are the whole (right padded) sequences
+	 */
+	void run(List<Sequence> sequences){
+		synchronized(this){
+			if(status != WAITING){
+				return;
+			}
+			startTime = System.currentTimeMillis();
+			status = RUNNING;
+		}
+
+		try{
+			HashMap<String, String> namesByID = new HashMap<String, String>();
+			List<Sequence> blockSeqs = createBlockSequences(sequences, namesByID);
+			// nothing for aligner to do
+			if(blockSeqs.size() < 2){
+				finish(SKIPPED, "Less than two sequences with residues in partition", null);
+				return;
+			}
+
+			AlignmentListModel realigned;
+			if(cmdItem.isStdinStdoutCommand()){
+				cmdItem.setParameterStreams();
+				realigned = ExternalCommandExecutor.executeStdinStdout(cmdItem, blockSeqs, processHandle);
+			}else{
+				realigned = executeWithTempFiles(blockSeqs);
+			}
+
+			if(processHandle.wasSubProcessDestrouedByUser()){
+				finish(CANCELLED, "", null);
+			}
+			else if(realigned == null || realigned.getSize() == 0){
+				finish(FAILED, "Aligner did not return any sequences", null);
+			}
+			else{
+				String missingName = findMissingName(blockSeqs, realigned, namesByID);
+				if(missingName != null){
+					finish(FAILED, "Sequence " + missingName + " is missing in aligner output", null);
+				}else{
+					int newWidth = realigned.getLongestSequenceLength();
+					finish(DONE, getWidth() + " -> " + newWidth + " columns", realigned);
+				}
+			}
+		}catch(Exception e){
+			if(processHandle.wasSubProcessDestrouedByUser()){
+				finish(CANCELLED, "", null);
+			}else{
+				logger.warn("Realignment of partition " + name + " failed", e);
+				finish(FAILED, e.getLocalizedMessage(), null);
+			}
+		}
+		logger.info("Partition " + name + " " + status + " took " + getElapsedMillis() + " milliseconds");
+	}
+
+	/*
+	 * The columns of this block in every sequence, named by sequence ID (names can be duplicated or changed
+	 * by aligner) and namesByID is filled with the real names. Sequences without residues in block are left out
+	 * (some aligners are removing or failing on empty sequences) - they are gap filled when block is put back
+	 */
+	private List<Sequence> createBlockSequences(List<Sequence> sequences, HashMap<String, String> namesByID){
+		List<Sequence> blockSeqs = new ArrayList<Sequence>();
+		for(Sequence seq: sequences){
+			if(seq.getLength() <= startCol){
+				continue;
+			}
+			byte[] blockBases = seq.getBasesBetween(startCol, Math.min(endCol, seq.getLength() - 1));
+			boolean hasResidues = false;
+			for(byte base: blockBases){
+				if(! NucleotideUtilities.isGap(base)){
+					hasResidues = true;
+					break;
+				}
+			}
+			if(hasResidues){
+				String id = Integer.toString(seq.getID());
+				namesByID.put(id, seq.getName());
+				blockSeqs.add(new InMemorySequence(id, blockBases));
+			}
+		}
+		return blockSeqs;
+	}
+
+	/*
+	 * Name of first sequence with residues that is not in aligner output (it must not be gap filled), null if all are there
+	 */
+	private static String findMissingName(List<Sequence> blockSeqs, AlignmentListModel realigned, HashMap<String, String> namesByID){
+		HashSet<String> realignedIDs = new HashSet<String>();
+		for(Sequence seq: realigned.getDelegateSequences()){
+			realignedIDs.add(seq.getName().trim());
+		}
+		for(Sequence blockSeq: blockSeqs){
+			if(! realignedIDs.contains(blockSeq.getName())){
+				return namesByID.get(blockSeq.getName());
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Aligners that are not reading stdin get block as a fasta file (whatever format the command is asking for)
+	 */
+	private AlignmentListModel executeWithTempFiles(List<Sequence> blockSeqs) throws IOException, AlignmentImportException{
+		File blockFile = AlignmentFile.createAliViewTempFile("partition", ".fasta");
+		File outFile = AlignmentFile.createAliViewTempFile("partition-alignment", ".fasta");
+		try{
+			writeFasta(blockSeqs, blockFile);
+			cmdItem.setParameterCurrentFile(blockFile);
+			cmdItem.setParameterOutputFile(outFile);
+			ExternalCommandExecutor.executeMultiple(cmdItem, processHandle);
+			if(processHandle.wasSubProcessDestrouedByUser() || outFile.length() == 0){
+				return null;
+			}
+			BufferedReader reader = new BufferedReader(new FileReader(outFile));
+			try{
+				return new SequencesFactory().createFastaSequencesFromStream(reader);
+			}finally{
+				reader.close();
+			}
+		}finally{
+			blockFile.delete();
+			outFile.delete();
+		}
+	}
+
+	private static void writeFasta(List<Sequence> sequences, File outFile) throws IOException{
+		Writer out = new BufferedWriter(new FileWriter(outFile));
+		try{
+			for(Sequence seq: sequences){
+				out.write('>');
+				out.write(seq.getName());
+				out.write(LF);
+				seq.writeBases(out);
+				out.write(LF);
+			}
+		}finally{
+			out.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionRealignJob [name=" + name + ", startCol=" + startCol + ", endCol=" + endCol + ", status=" + status + "]";
+	}
+
+}
@@ -0,0 +1,162 @@
+package aliview.aligner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import utils.nexus.CharSet;
+import utils.nexus.Range;
+import aliview.alignment.Alignment;
+import aliview.externalcommands.CommandItem;
+import aliview.sequencelist.Interval;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Realigns blocks of columns (selected whole columns, or the charsets of the alignment) separately with an
+ * align command, the blocks are realigned concurrently with at most parallelism aligner processes running
+ *
+ * Every block is a PartitionRealignJob with its own copy of the command and its own process, it can be cancelled
+ * on its own. When all jobs are finished the realigned blocks are put back into the alignment from right to left,
+ * so the columns of the blocks to the left are not moved when a block gets wider or narrower
+ *
+ */
+public class PartitionRealigner {
+	private static final Logger logger = Logger.getLogger(PartitionRealigner.class);
+	private final List<Sequence> sequences;
+	private final List<PartitionRealignJob> jobs;
+	private final int parallelism;
+
+	public PartitionRealigner(List<Sequence> sequences, List<PartitionRealignJob> jobs, int parallelism) {
+		this.sequences = sequences;
+		this.jobs = jobs;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public List<PartitionRealignJob> getJobs() {
+		return jobs;
+	}
+
+	/*
+	 * Selected whole columns if there are any, otherwise the charsets. Only continuous parts of charsets can be
+	 * realigned (codon position sets are skipped) and a block overlapping one that is already a job is skipped
+	 */
+	public static List<PartitionRealignJob> createJobs(Alignment alignment, CommandItem cmdItem){
+		int length = alignment.getMaximumSequenceLength();
+		List<PartitionRealignJob> candidates = new ArrayList<PartitionRealignJob>();
+
+		List<Interval> columnBlocks = alignment.getSelectedWholeColumnRanges();
+		if(columnBlocks.size() > 0){
+			for(Interval block: columnBlocks){
+				String name = "Columns " + (block.getStartPos() + 1) + "-" + (block.getEndPos() + 1);
+				candidates.add(new PartitionRealignJob(name, block.getStartPos(), block.getEndPos(), cmdItem.getCopy()));
+			}
+		}else{
+			for(CharSet charset: alignment.getAlignmentMeta().getCharsets()){
+				List<Range> continous = new ArrayList<Range>();
+				for(Range range: charset){
+					if(range.step == 1){
+						continous.add(range);
+					}else{
+						logger.info("Codon position range is not realigned " + charset.getName() + " " + range);
+					}
+				}
+				for(Range range: continous){
+					String name = charset.getName();
+					if(continous.size() > 1){
+						name += " " + (range.start + 1) + "-" + (range.end + 1);
+					}
+					candidates.add(new PartitionRealignJob(name, range.start, range.end, cmdItem.getCopy()));
+				}
+			}
+		}
+
+		Collections.sort(candidates, new Comparator<PartitionRealignJob>() {
+			public int compare(PartitionRealignJob o1, PartitionRealignJob o2) {
+				return o1.getStartCol() < o2.getStartCol() ? -1 : (o1.getStartCol() == o2.getStartCol() ? 0 : 1);
+			}
+		});
+
+		List<PartitionRealignJob> jobs = new ArrayList<PartitionRealignJob>();
+		int lastEndCol = -1;
+		for(PartitionRealignJob job: candidates){
+			if(job.getStartCol() <= lastEndCol || job.getStartCol() >= length){
+				logger.info("Partition is overlapping another partition or outside alignment and is not realigned " + job);
+				continue;
+			}
+			if(job.getEndCol() >= length){
+				job = new PartitionRealignJob(job.getName(), job.getStartCol(), length - 1, cmdItem.getCopy());
+			}
+			jobs.add(job);
+			lastEndCol = job.getEndCol();
+		}
+		return jobs;
+	}
+
+	/*
+	 * Blocks until all jobs are finished or cancelled, listener (if not null) is called from the worker threads
+	 */
+	public void realign(final PartitionRealignerListener listener){
+		long startTime = System.currentTimeMillis();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, jobs.size())));
+		for(final PartitionRealignJob job: jobs){
+			executor.execute(new Runnable() {
+				public void run() {
+					if(job.isFinished()){
+						// cancelled while waiting
+						return;
+					}
+					if(listener != null){
+						listener.jobChanged(job);
+					}
+					job.run(sequences);
+					if(listener != null){
+						listener.jobChanged(job);
+					}
+				}
+			});
+		}
+
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			cancelAll();
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		logger.info("Realigned " + jobs.size() + " partitions with " + parallelism + " parallel jobs, took " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+
+	public void cancelAll(){
+		for(PartitionRealignJob job: jobs){
+			job.cancel();
+		}
+	}
+
+	/*
+	 * Called on EDT when realign is done, blocks that failed or were cancelled are left as they are
+	 *
+	 * Returns number of blocks that were replaced
+	 */
+	public int putRealignedBlocksInto(Alignment alignment){
+		int replaced = 0;
+		for(int n = jobs.size() - 1; n >= 0; n--){
+			PartitionRealignJob job = jobs.get(n);
+			if(job.getStatus() == PartitionRealignJob.DONE && job.getResult() != null){
+				alignment.replaceColumnsWithThis(job.getStartCol(), job.getEndCol(), job.getResult());
+				replaced ++;
+			}
+		}
+		return replaced;
+	}
+
+}
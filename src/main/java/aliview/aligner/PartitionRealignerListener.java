@@ -0,0 +1,8 @@
+package aliview.aligner;
+
+public interface PartitionRealignerListener {
+
+	// Called from PartitionRealigner worker threads when a job is started or finished
+	public void jobChanged(PartitionRealignJob job);
+
+}
@@ -11,7 +11,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -48,13 +47,18 @@ import aliview.importer.SequencesFactory;
 import aliview.messenges.Messenger;
 import aliview.primer.Dimer;
 import aliview.primer.Primer;
+import aliview.primer.PrimerFinder;
 import aliview.sequencelist.AlignmentDataListener;
 import aliview.sequencelist.AlignmentSelectionEvent;
 import aliview.sequencelist.AlignmentSelectionListener;
+import aliview.sequencelist.FastaSelection;
 import aliview.sequencelist.FileSequenceAlignmentListModel;
 import aliview.sequencelist.FindObject;
 import aliview.sequencelist.MemorySequenceAlignmentListModel;
 import aliview.sequencelist.AlignmentListModel;
+import aliview.sequencelist.SequenceSortKey;
+import aliview.subprocesses.SubProcessWindow;
+import aliview.sequencelist.Interval;
 import aliview.sequencelist.FileSequenceLoadListener;
 import aliview.sequences.FastaFileSequence;
 import aliview.sequences.InMemorySequence;
@@ -233,7 +237,7 @@ public class Alignment implements FileSequenceLoadListener {
 		for(int pos = 0; pos < longSeq; pos += 60){
 
 			int endPos = pos + 59; // end is inclusive
-			endPos = Math.min(endPos, longSeq);
+			endPos = Math.min(endPos, longSeq - 1);
 
 			for(int n = 0; n < sequences.getSize(); n++){		
 				// Write name space and up to 60 residues
@@ -658,6 +662,8 @@ public class Alignment implements FileSequenceLoadListener {
 		}
 		// revert translation
 		setTranslationOnePos(wasTranslated);
+		// not all formats are writing through (and closing) out - do not leave file handle open (batch mode is saving thousands of files)
+		out.close();
 	}
 
 	/*
@@ -766,11 +772,21 @@ public class Alignment implements FileSequenceLoadListener {
 	}
 
 	public ArrayList<Primer> findPrimerInSelection(){
-		ArrayList<Primer> allPrimers = new ArrayList<Primer>();
+		PrimerFinder primerFinder = createPrimerFinderForSelection();
+		if(primerFinder == null){
+			return new ArrayList<Primer>();
+		}
+		return primerFinder.findPrimers(null);
+	}
+
+	/*
+	 * Returns a PrimerFinder for degenerate consensus of current selection or null if there is no selection
+	 */
+	public PrimerFinder createPrimerFinderForSelection(){
 
 		// no selection returm
 		if(! sequences.hasSelection()){
-			return allPrimers;
+			return null;
 		}
 
 		String selection = getSelectionAsNucleotides();
@@ -802,7 +818,6 @@ public class Alignment implements FileSequenceLoadListener {
 		// remove gaps in consensus
 		consensus = consensus.replaceAll("\\-", "");
 
-		// create primer put them in a list and sort list (on score)
 		// create all primer min-max bases long 
 		int primerMinLen = Settings.getMinPrimerLength().getIntValue();
 		int primerMaxLen = Settings.getMaxPrimerLength().getIntValue();
@@ -810,41 +825,9 @@ public class Alignment implements FileSequenceLoadListener {
 		int primerMaxTM = Settings.getPrimerMaxTM().getIntValue();
 		Dimer.setDimerLengthThreashold(Settings.getDimerReportThreashold().getIntValue());
 
-		long nCount = 0;
 		int selectionStartPos = getFirstSelectedPositionX();
-		for(int winSize = primerMinLen; winSize <= primerMaxLen; winSize ++){
-
-			int offset = 0;		
-			int startPos = offset;
-			int endPos = offset + winSize;
-
-			logger.info(consensus.length());
-			logger.info( endPos);
-
-			while(endPos <= consensus.length()){
-				String primerSeq = consensus.substring(startPos, endPos);
-				Primer aPrimer = new Primer(primerSeq, selectionStartPos + startPos);
-				// only add primers below score
-				long degenFold = aPrimer.getDegenerateFold();
-				double baseStackTM = aPrimer.getBaseStackingAvgTm();
-				if(degenFold <= PRIMER_MAX_DEGENERATE_SCORE){
-					if(baseStackTM >= primerMinTM && baseStackTM <= primerMaxTM){
-						allPrimers.add(aPrimer);
-					}
-				}
-				offset ++;
-				startPos = offset;
-				endPos = offset + winSize;
-				nCount ++;
-			}
-			logger.info("winSize=" + winSize);
-		}
-		logger.info("Primers tested:" + nCount);
 
-		Collections.sort(allPrimers);
-
-
-		return allPrimers;
+		return new PrimerFinder(consensus, selectionStartPos, primerMinLen, primerMaxLen, primerMinTM, primerMaxTM, PRIMER_MAX_DEGENERATE_SCORE);
 		// https://ecom.mwgdna.com/services/webgist/mops.tcl?ot=OLIGO_ALC_UNMOD&oligoSequence=RTTGCTYRAKACTCGGTRA&ShowModiTables=OFF&oligo_name=&mod3=&mod5=&modx=&modz=&ot=OLIGO_ALC_UNMOD&oligo_name=&oligoSequence=RTT+GCT+YYY+RAK+ACT+CGG+TRA&action=properties&next_url=
 
 	}
@@ -860,12 +843,13 @@ public class Alignment implements FileSequenceLoadListener {
 		return sequences.getSelectionAsNucleotides();
 	}
 
+	/*
+	 * Fasta text is created when it is pasted in other program (see FastaSelection)
+	 */
 	public void copySelectionToClipboardAsFasta(){
-		StringWriter writer = new StringWriter();
-		sequences.writeSelectionAsFasta(writer);
+		FastaSelection fastaSelection = sequences.createFastaSelection();
 		// Set to clipboard
-		StringSelection ss = new StringSelection(writer.toString());
-		Toolkit.getDefaultToolkit().getSystemClipboard().setContents(ss, null);
+		Toolkit.getDefaultToolkit().getSystemClipboard().setContents(fastaSelection, fastaSelection);
 	}
 
 	public void copySelectionToClipboardAsNucleotides(){
@@ -1006,30 +990,28 @@ public class Alignment implements FileSequenceLoadListener {
 	}
 
 	public void deleteVerticalGaps(){
-		String cons = getConsensus();
-
-		logger.info("done cons" + cons);
-
-		//logger.info('-' == cons.charAt(0));
-
-		// if there is a gap
-		if(cons.indexOf(SequenceUtils.GAP_SYMBOL) >= 0){		
+		boolean[] deleteMask = sequences.getColumnSummary().getAllGapMask();
+		deleteColumnsFromMask(deleteMask);
+	}
 
-			logger.info("there is a gap in cons");
+	/*
+	 * Delete all columns where fraction of gaps is above threshold (0.0 - 1.0),
+	 * returns number of deleted columns
+	 */
+	public int deleteColumnsAboveGapFraction(double threshold){
+		boolean[] deleteMask = sequences.getColumnSummary().getGapFractionAboveMask(threshold);
+		return deleteColumnsFromMask(deleteMask);
+	}
 
-			// create a bit-mask with pos to delete
-			boolean[] deleteMask = new boolean[cons.length()];
-			for(int n = 0; n < deleteMask.length; n++){
-				if(cons.charAt(n) == SequenceUtils.GAP_SYMBOL){
-					deleteMask[n] = true;
-				}
-			}	
+	private int deleteColumnsFromMask(boolean[] deleteMask){
+		int deleteCount = ArrayUtilities.count(deleteMask, true);
+		if(deleteCount > 0){
+			logger.info("delete columns:" + deleteCount);
 			sequences.deleteBasesInAllSequencesFromMask(deleteMask);
-
 			//and finally remove in AlignmentMeta(excludes, codonpos & charset)
 			alignmentMeta.deleteFromMask(deleteMask);
 		}
-
+		return deleteCount;
 	}
 
 	public void addFasta(String clipboardSelection) {
@@ -1076,6 +1058,10 @@ public class Alignment implements FileSequenceLoadListener {
 		addSequences(additionalFile, 0);
 	}
 
+	public void addSequences(List<Sequence> additionalSequences, int index) {
+		sequences.addAll(index, additionalSequences);
+	}
+
 	public void addSequences(File additionalFile, int index) {
 		try {
 			AlignmentListModel additionalSequences = seqFactory.createSequences(additionalFile);
@@ -1123,35 +1109,55 @@ public class Alignment implements FileSequenceLoadListener {
 	}
 
 	public List<Sequence> deleteGapMoveLeft(boolean undoable) {
-		List<Sequence> previousState = sequences.deleteGapMoveLeft(undoable);
-		if(previousState.size()> 0){
-			rightPadSequencesWithGapUntilEqualLength();
+		sequences.beginChanges();
+		try{
+			List<Sequence> previousState = sequences.deleteGapMoveLeft(undoable);
+			if(previousState.size()> 0){
+				rightPadSequencesWithGapUntilEqualLength();
+			}
+			return previousState;
+		}finally{
+			sequences.commitChanges();
 		}
-		return previousState;
 	}
 
 	public List<Sequence> deleteGapMoveRight(boolean undoable) {
-		List<Sequence> previousState = sequences.deleteGapMoveRight(undoable);
-		if(previousState.size()> 0){
-			rightPadSequencesWithGapUntilEqualLength();
+		sequences.beginChanges();
+		try{
+			List<Sequence> previousState = sequences.deleteGapMoveRight(undoable);
+			if(previousState.size()> 0){
+				rightPadSequencesWithGapUntilEqualLength();
+			}
+			return previousState;
+		}finally{
+			sequences.commitChanges();
 		}
-		return previousState;
 	}
 
 	public List<Sequence> insertGapLeftOfSelectionMoveRight(boolean undoable) {
-		List<Sequence> previousState = sequences.insertGapLeftOfSelectedBase(undoable);
-		if(previousState.size()> 0){
-			rightPadSequencesWithGapUntilEqualLength();
+		sequences.beginChanges();
+		try{
+			List<Sequence> previousState = sequences.insertGapLeftOfSelectedBase(undoable);
+			if(previousState.size()> 0){
+				rightPadSequencesWithGapUntilEqualLength();
+			}
+			return previousState;
+		}finally{
+			sequences.commitChanges();
 		}
-		return previousState;
 	}
 
 	public List<Sequence> insertGapRightOfSelectionMoveLeft(boolean undoable) {
-		List<Sequence> previousState = sequences.insertGapRightOfSelectedBase(undoable);
-		if(previousState.size()> 0){
-			leftPadSequencesWithGapUntilEqualLength();
+		sequences.beginChanges();
+		try{
+			List<Sequence> previousState = sequences.insertGapRightOfSelectedBase(undoable);
+			if(previousState.size()> 0){
+				leftPadSequencesWithGapUntilEqualLength();
+			}
+			return previousState;
+		}finally{
+			sequences.commitChanges();
 		}
-		return previousState;
 	}
 
 
@@ -1366,6 +1372,10 @@ public class Alignment implements FileSequenceLoadListener {
 		sequences.findAndSelectDuplicates();
 	}
 
+	public List<Sequence> deleteDuplicateSequences(){
+		return sequences.deleteDuplicatesKeepFirst();
+	}
+
 	public ArrayList<String> findDuplicateNames(){
 		if(sequences != null){
 			return sequences.findDuplicateNames();
@@ -1380,73 +1390,20 @@ public class Alignment implements FileSequenceLoadListener {
 
 
 	/*
-	 * 
-	 * This one is just dumpting to stdout
-	 * 
+	 * Statistics for whole alignment and every charset, bases are read as they are shown so
+	 * translation has to be turned off before (statistics are on nucleotides)
+	 *
+	 * Can be called from a worker thread while GUI is locked
 	 */
-	public void getStats() {
-
-		// TODO might not work if no charset
-		for(CharSet charSet: alignmentMeta.getCharsets()){
-
-			// Start with a prototype as consensus
-			int consensusVal[] = new int[sequences.getLongestSequenceLength()];
-			int missingCount = 0;
-			int nonemptySeqCount = 0;
-
-			for(Sequence seq: sequences){
-				boolean sequenceIsAllEmpty = true;
-				int sequenceMissingCount = 0;
-				for(int n = 0; n <consensusVal.length; n++){
-
-					if(charSet.contains(n)){
-
-						int baseVal = NucleotideUtilities.baseValFromBase(seq.getBaseAtPos(n));
-						// Create consensus by bitwise OR of the bases in the same column
-						// Skip if n or unknown
-						if(baseVal == NucleotideUtilities.N || baseVal == NucleotideUtilities.UNKNOWN || baseVal == NucleotideUtilities.GAP){
-							sequenceMissingCount ++;
-						}else{
-							consensusVal[n] = consensusVal[n] | baseVal;
-							sequenceIsAllEmpty = false;
-						}
-
-					}
-				}
-				if(! sequenceIsAllEmpty){
-					nonemptySeqCount ++;
-					missingCount += sequenceMissingCount;
-				}
-			}
-
-			// Create consensus from baseValues
-			StringBuilder consensusBuilder = new StringBuilder();
-			int invaribleCount = 0;
-			int varibleCount = 0;
-			for(int n = 0; n < consensusVal.length; n++){
-				if(charSet.contains(n)){
-					consensusBuilder.append(NucleotideUtilities.charFromBaseVal(consensusVal[n]));
-					if(consensusVal[n] == NucleotideUtilities.A || consensusVal[n] == NucleotideUtilities.C || consensusVal[n] == NucleotideUtilities.G || consensusVal[n] == NucleotideUtilities.T){
-						invaribleCount ++;
-					}
-					else{
-						varibleCount ++;
-					}
-				}
-			}
-			String consensus = consensusBuilder.toString();	
-
-			logger.info(charSet.getName());
-			logger.info("consensus" + consensus);
-			logger.info("invaribleCount" + invaribleCount);
-			logger.info("variableCount" + varibleCount);
-			logger.info("totalCount" + (invaribleCount + varibleCount));
-			logger.info("missingCount" + missingCount);
-			logger.info("nonemptySeqCount" + nonemptySeqCount);
-			double totalBases = (invaribleCount + varibleCount) * nonemptySeqCount;
-			double missingPercent = missingCount/totalBases;
-			logger.info("missingPercent" + missingPercent);
+	public AlignmentStatistics getStats() {
+		// Only one thread if filesequences - more threads make reading file slower
+		int nThreads = Runtime.getRuntime().availableProcessors();
+		if(isFileSequences()){
+			nThreads = 1;
 		}
+
+		AlignmentStatisticsCalculator calculator = new AlignmentStatisticsCalculator(alignmentMeta.getCharsets(), getMaximumSequenceLength(), isNucleotideAlignment());
+		return calculator.calculate(sequences.getDelegateSequences(), nThreads);
 	}
 
 
@@ -1524,8 +1481,11 @@ public class Alignment implements FileSequenceLoadListener {
 		sequences.selectEverythingWithinGaps(point);
 	}
 
-	public void realignNucleotidesUseThisAAAlignmentAsTemplate(Alignment realignment) throws Exception {
-		sequences.realignNucleotidesUseTheseAASequenceAsTemplate(realignment.getSequences());
+	/*
+	 * Returns names of sequences that could not be realigned (translation does not match amino acid alignment)
+	 */
+	public List<String> realignNucleotidesUseThisAAAlignmentAsTemplate(Alignment realignment) {
+		return sequences.realignNucleotidesUseTheseAASequenceAsTemplate(realignment.getSequences());
 	}
 
 	public void deleteAllGaps() {
@@ -1533,8 +1493,24 @@ public class Alignment implements FileSequenceLoadListener {
 	}
 
 	public void padAndTrimSequences(){
-		boolean wasPadded = sequences.rightPadWithGapUntilEqualLength();
-		boolean wasTrimed = sequences.rightTrimSequencesRemoveGapsUntilEqualLength();
+		sequences.beginChanges();
+		try{
+			boolean wasPadded = sequences.rightPadWithGapUntilEqualLength();
+			boolean wasTrimed = sequences.rightTrimSequencesRemoveGapsUntilEqualLength();
+		}finally{
+			sequences.commitChanges();
+		}
+	}
+
+	/*
+	 * Changes between begin and commit are sent to listeners as one event (see AlignmentListModel.beginChanges)
+	 */
+	public void beginChanges(){
+		sequences.beginChanges();
+	}
+
+	public void commitChanges(){
+		sequences.commitChanges();
 	}
 
 	public void trimSequences(){
@@ -1636,6 +1612,38 @@ public class Alignment implements FileSequenceLoadListener {
 		sequences.sortSequencesByCharInSelectedColumn(getHistogram());
 	}
 
+	/*
+	 * Of selected sequences, or all if less than two are selected
+	 */
+	public DistanceMatrix getDistanceMatrixOfSelected(SubProcessWindow progressWin) {
+		List<Sequence> seqs = getSelectedSequences();
+		if(seqs == null || seqs.size() < 2){
+			seqs = sequences.getDelegateSequences();
+		}
+		return sequences.getDistanceMatrix(seqs, progressWin);
+	}
+
+	public void sortSequencesByUngapedLength() {
+		sequences.sortSequences(SequenceSortKey.byUngapedLength().descending(), SequenceSortKey.byName());
+	}
+
+	public void sortSequencesByGapCount() {
+		sequences.sortSequences(SequenceSortKey.byGapCount(), SequenceSortKey.byName());
+	}
+
+	/*
+	 * Most similar to first selected sequence first (or first sequence if none is selected)
+	 */
+	public void sortSequencesByIdentityToSelected() {
+		Sequence reference = sequences.getFirstSelected();
+		if(reference == null && sequences.getSize() > 0){
+			reference = sequences.get(0);
+		}
+		if(reference != null){
+			sequences.sortSequences(SequenceSortKey.byDistance(sequences.getDistancesTo(reference)), SequenceSortKey.byName());
+		}
+	}
+
 	public AliHistogram getHistogram(){
 		return sequences.getHistogram();
 	}
@@ -1650,6 +1658,10 @@ public class Alignment implements FileSequenceLoadListener {
 		return affected;
 	}
 
+	public void replaceColumnsWithThis(int startCol, int endCol, AlignmentListModel realignedSequences) {
+		sequences.replaceColumnsWithThis(startCol, endCol, realignedSequences);
+	}
+
 	public void saveSelectedSequencesAsFastaFile(File outFile, boolean useIDAsName) throws IOException {
 		BufferedWriter buffWriter = new BufferedWriter(new FileWriter(outFile));
 		sequences.writeSelectedSequencesAsFasta(buffWriter, useIDAsName);
@@ -1657,6 +1669,22 @@ public class Alignment implements FileSequenceLoadListener {
 		buffWriter.close();
 	}
 
+	/*
+	 * Sequences to be written to an external program by another thread (e.g. to stdin of an aligner),
+	 * the list is a copy so later changes in the alignment list are not affecting it
+	 */
+	public List<Sequence> getSequencesForExport(boolean rightPadOrTrimIfNeeded) {
+		if(rightPadOrTrimIfNeeded && sequences.isEditable()){
+			sequences.rightPadWithGapUntilEqualLength();
+			sequences.rightTrimSequencesRemoveGapsUntilEqualLength();
+		}
+		return new ArrayList<Sequence>(sequences.getDelegateSequences());
+	}
+
+	public List<Sequence> getUnSelectedSequences() {
+		return sequences.getUnSelectedSequences();
+	}
+
 	public void saveUnSelectedSequencesAsFastaFile(File outFile, boolean useIDAsName) throws IOException {
 		BufferedWriter buffWriter = new BufferedWriter(new FileWriter(outFile));
 		sequences.writeUnSelectedSequencesAsFasta(buffWriter, useIDAsName);
@@ -1714,6 +1742,10 @@ public class Alignment implements FileSequenceLoadListener {
 		return sequences.getSelectedColumnCount();
 	}
 
+	public List<Interval> getSelectedWholeColumnRanges() {
+		return sequences.getSelectedWholeColumnRanges();
+	}
+
 	public int getSelectedSequencesCount() {
 		return sequences.getSelectedSequencesCount();
 	}
@@ -1747,9 +1779,8 @@ public class Alignment implements FileSequenceLoadListener {
 	public int countStopCodons() {
 		int totalCount = 0;
 		if(isNucleotideAlignment()){
-			for(Sequence seq: sequences){
-				totalCount += seq.countStopCodon();	
-			}
+			StopCodonCounts counts = countStopCodons(new GeneticCode[]{getGeneticCode()});
+			totalCount = (int) counts.getTotalStops(0, 0);
 		}else{
 			for(Sequence seq: sequences){
 				totalCount += seq.countChar('*');	
@@ -1758,6 +1789,44 @@ public class Alignment implements FileSequenceLoadListener {
 		return totalCount;
 	}
 
+	/*
+	 * Stop counts for every sequence in all three frames and in all these genetic codes
+	 */
+	private StopCodonCounts countStopCodons(GeneticCode[] geneticCodes){
+		// counter reads nucleotides - not translation
+		boolean wasTranslated = sequences.isTranslated();
+		if(wasTranslated){
+			sequences.setTranslation(false);
+		}
+
+		// Only one thread if filesequences - more threads make reading file slower
+		int nThreads = Runtime.getRuntime().availableProcessors();
+		if(isFileSequences()){
+			nThreads = 1;
+		}
+
+		StopCodonCounter counter = new StopCodonCounter(alignmentMeta.getCodonPositions(), geneticCodes);
+		StopCodonCounts counts = counter.countStops(sequences.getDelegateSequences(), nThreads);
+
+		if(wasTranslated){
+			sequences.setTranslation(true);
+		}
+		return counts;
+	}
+
+	/*
+	 * Shift every sequence (by inserting 0-2 gaps at start) into the frame that gives fewest stop codons in any genetic code
+	 */
+	public void adjustReadingFrameMinimizeStop() {
+		StopCodonCounts counts = countStopCodons(GeneticCode.allCodesArray);
+		int[] frames = new int[counts.getSequenceCount()];
+		for(int n = 0; n < frames.length; n++){
+			frames[n] = counts.getBestFrame(n);
+			logger.debug("stops = " + counts.getStops(n, frames[n], counts.getBestCode(n)) + " genCode = " + GeneticCode.allCodesArray[counts.getBestCode(n)].name + " readingFrame = " + frames[n]);
+		}
+		sequences.insertGapsAtStart(frames);
+	}
+
 	public void saveFastaIndex() {
 		logger.info("this.fileFormat");
 
@@ -12,6 +12,7 @@ import utils.nexus.CharSets;
 import utils.nexus.CodonPos;
 import utils.nexus.CodonPositions;
 import utils.nexus.Excludes;
+import utils.nexus.PositionRemap;
 
 public class AlignmentMeta {
 	private static final Logger logger = Logger.getLogger(AlignmentMeta.class);
@@ -130,14 +131,28 @@ public class AlignmentMeta {
 			return;
 		}
 
-		// remove reverse
-		for(int n = deleteMask.length - 1; n>= 0; n--){
-			if(deleteMask[n] == true){
-				deletePosition(n);
-			}		
+		// all ranges are moved in one pass (same as deletePosition from last to first)
+		remapPositions(PositionRemap.fromDeleteMask(deleteMask));
+	}
+
+	public void insertPositions(int pos, int count) {
+		if(count > 0){
+			remapPositions(PositionRemap.fromInsertedColumns(pos, count));
 		}
 	}
 
+	public void deletePositions(int first, int count) {
+		if(count > 0){
+			remapPositions(PositionRemap.fromDeletedColumns(first, count));
+		}
+	}
+
+	private void remapPositions(PositionRemap remap) {
+		excludes.remapPositions(remap);
+		codonPositions.remapPositions(remap);
+		charsets.remapPositions(remap);
+	}
+
 	public void deletePosition(int n) {	
 		excludes.deletePosition(n);
 		codonPositions.deletePosition(n);
@@ -0,0 +1,140 @@
+package aliview.alignment;
+
+/*
+ *
+ * Result of AlignmentStatisticsCalculator, set 0 is the whole alignment and the following sets
+ * are the charsets in the order of AlignmentMeta charsets
+ *
+ */
+public class AlignmentStatistics {
+	private final String[] setNames;
+	private final boolean nucleotide;
+	private final int[] setLengths;
+	private final int[] variableSites;
+	private final int[] informativeSites;
+	private final int[] sequencesWithData;
+	private final long[] presentCounts;
+	private final long[] gcCounts;
+	private final long[] baseCounts;
+	private final String[] sequenceNames;
+	private final int[][] sequencePresentCounts;
+
+	AlignmentStatistics(String[] setNames, int sequenceCount, boolean nucleotide) {
+		this.setNames = setNames;
+		this.nucleotide = nucleotide;
+		int nSets = setNames.length;
+		this.setLengths = new int[nSets];
+		this.variableSites = new int[nSets];
+		this.informativeSites = new int[nSets];
+		this.sequencesWithData = new int[nSets];
+		this.presentCounts = new long[nSets];
+		this.gcCounts = new long[nSets];
+		this.baseCounts = new long[nSets];
+		this.sequenceNames = new String[sequenceCount];
+		this.sequencePresentCounts = new int[sequenceCount][];
+	}
+
+	void setSetValues(int set, int length, int variable, int informative, long gc, long bases){
+		setLengths[set] = length;
+		variableSites[set] = variable;
+		informativeSites[set] = informative;
+		gcCounts[set] = gc;
+		baseCounts[set] = bases;
+	}
+
+	void setSequenceValues(int seqIndex, String name, int[] presentInSets){
+		sequenceNames[seqIndex] = name;
+		sequencePresentCounts[seqIndex] = presentInSets;
+		for(int set = 0; set < presentInSets.length; set++){
+			presentCounts[set] += presentInSets[set];
+			if(presentInSets[set] > 0){
+				sequencesWithData[set] ++;
+			}
+		}
+	}
+
+	public boolean isNucleotide() {
+		return nucleotide;
+	}
+
+	public int getSetCount(){
+		return setNames.length;
+	}
+
+	public String getSetName(int set){
+		return setNames[set];
+	}
+
+	public int getSetLength(int set){
+		return setLengths[set];
+	}
+
+	public int getVariableSites(int set){
+		return variableSites[set];
+	}
+
+	public int getParsimonyInformativeSites(int set){
+		return informativeSites[set];
+	}
+
+	public int getSequencesWithData(int set){
+		return sequencesWithData[set];
+	}
+
+	/*
+	 * Missing characters of all cells (sequences x columns) in set
+	 */
+	public double getMissingPercent(int set){
+		double cells = (double) setLengths[set] * sequenceNames.length;
+		if(cells == 0){
+			return 0;
+		}
+		return 100 * (cells - presentCounts[set]) / cells;
+	}
+
+	/*
+	 * GC of all unambiguous bases in set, NaN if amino acids or no bases
+	 */
+	public double getGCPercent(int set){
+		if(! nucleotide || baseCounts[set] == 0){
+			return Double.NaN;
+		}
+		return 100 * (double) gcCounts[set] / baseCounts[set];
+	}
+
+	public int getSequenceCount(){
+		return sequenceNames.length;
+	}
+
+	public String getSequenceName(int seqIndex){
+		return sequenceNames[seqIndex];
+	}
+
+	public int getSequencePresentCount(int seqIndex, int set){
+		return sequencePresentCounts[seqIndex][set];
+	}
+
+	/*
+	 * Present (not missing) characters of sequence in set
+	 */
+	public double getSequenceCompletenessPercent(int seqIndex, int set){
+		if(setLengths[set] == 0){
+			return 0;
+		}
+		return 100 * (double) sequencePresentCounts[seqIndex][set] / setLengths[set];
+	}
+
+	/*
+	 * Number of charsets (whole alignment not included) where sequence has data
+	 */
+	public int getSetsWithData(int seqIndex){
+		int count = 0;
+		for(int set = 1; set < setNames.length; set++){
+			if(sequencePresentCounts[seqIndex][set] > 0){
+				count ++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,288 @@
+package aliview.alignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import utils.nexus.CharSet;
+import utils.nexus.CharSets;
+import utils.nexus.Range;
+import aliview.AminoAcid;
+import aliview.NucleotideUtilities;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Calculates statistics for the whole alignment and every charset in parallel
+ *
+ * The columns of every charset are resolved once from the charset ranges (instead of calling
+ * charSet.contains() for every sequence and column). Every charset is one job (the whole alignment
+ * is split into one column block per thread), a job reads only the bases from first to last column
+ * of its charset and counts character states per column and present (not missing) characters per
+ * sequence - so a job only allocates counts for its own span and jobs never share counters.
+ *
+ * A site is variable if it has at least two different unambiguous states and parsimony-informative
+ * if at least two of the states occur in at least two sequences each. Gap, N and ? (X, ? for amino acids)
+ * are missing data, ambiguity codes are present data but not counted as a state.
+ *
+ */
+public class AlignmentStatisticsCalculator {
+	private static final Logger logger = Logger.getLogger(AlignmentStatisticsCalculator.class);
+	public static final String WHOLE_ALIGNMENT_NAME = "Whole alignment";
+	private static final byte MISSING = -1;
+	private static final byte AMBIGUOUS = -2;
+	private static final int NUCLEOTIDE_STATES = 4;
+	private static final int AMINO_ACID_STATES = 20;
+	// A=0, C=1, G=2, T/U=3
+	private static final byte STATE_C = 1;
+	private static final byte STATE_G = 2;
+	private static final byte[] NUCLEOTIDE_STATE_INDEX = createNucleotideStateIndex();
+	private static final byte[] AMINO_ACID_STATE_INDEX = createAminoAcidStateIndex();
+	private final boolean nucleotide;
+	private final int nStates;
+	private final byte[] stateIndex;
+	private final String[] setNames;
+	private final int[][] setColumns;
+
+	public AlignmentStatisticsCalculator(CharSets charsets, int alignmentLength, boolean nucleotide) {
+		this.nucleotide = nucleotide;
+		if(nucleotide){
+			this.nStates = NUCLEOTIDE_STATES;
+			this.stateIndex = NUCLEOTIDE_STATE_INDEX;
+		}else{
+			this.nStates = AMINO_ACID_STATES;
+			this.stateIndex = AMINO_ACID_STATE_INDEX;
+		}
+
+		List<String> names = new ArrayList<String>();
+		List<int[]> columns = new ArrayList<int[]>();
+
+		int[] allColumns = new int[alignmentLength];
+		for(int n = 0; n < alignmentLength; n++){
+			allColumns[n] = n;
+		}
+		names.add(WHOLE_ALIGNMENT_NAME);
+		columns.add(allColumns);
+
+		if(charsets != null){
+			for(CharSet charSet: charsets){
+				names.add(charSet.getName());
+				columns.add(getColumns(charSet, alignmentLength));
+			}
+		}
+
+		this.setNames = names.toArray(new String[names.size()]);
+		this.setColumns = columns.toArray(new int[columns.size()][]);
+	}
+
+	private static byte[] createNucleotideStateIndex(){
+		byte[] index = new byte[256];
+		for(int n = 0; n < 256; n++){
+			int baseVal = NucleotideUtilities.baseValFromBase((byte) n);
+			if(baseVal == NucleotideUtilities.A){
+				index[n] = 0;
+			}else if(baseVal == NucleotideUtilities.C){
+				index[n] = STATE_C;
+			}else if(baseVal == NucleotideUtilities.G){
+				index[n] = STATE_G;
+			}else if(baseVal == NucleotideUtilities.TU){
+				index[n] = 3;
+			}else if(baseVal == NucleotideUtilities.GAP || baseVal == NucleotideUtilities.N || baseVal == NucleotideUtilities.UNKNOWN){
+				index[n] = MISSING;
+			}else{
+				index[n] = AMBIGUOUS;
+			}
+		}
+		return index;
+	}
+
+	private static byte[] createAminoAcidStateIndex(){
+		byte[] index = new byte[256];
+		for(int n = 0; n < 256; n++){
+			AminoAcid acid = AminoAcid.getAminoAcidFromByte((byte) n);
+			if(acid == null || acid == AminoAcid.GAP || acid == AminoAcid.X){
+				index[n] = MISSING;
+			}else if(acid.intVal < AMINO_ACID_STATES){
+				index[n] = (byte) acid.intVal;
+			}else{
+				index[n] = AMBIGUOUS;
+			}
+		}
+		return index;
+	}
+
+	/*
+	 * All alignment columns in charset, in order
+	 */
+	private static int[] getColumns(CharSet charSet, int alignmentLength){
+		boolean[] inSet = new boolean[alignmentLength];
+		int count = 0;
+		for(Range range: charSet){
+			int end = Math.min(range.end, alignmentLength - 1);
+			for(int n = Math.max(0, range.start); n <= end; n++){
+				if(! inSet[n] && range.contains(n)){
+					inSet[n] = true;
+					count ++;
+				}
+			}
+		}
+		int[] columns = new int[count];
+		int index = 0;
+		for(int n = 0; n < alignmentLength; n++){
+			if(inSet[n]){
+				columns[index] = n;
+				index ++;
+			}
+		}
+		return columns;
+	}
+
+	/*
+	 * One job counts the columns of one charset (whole alignment is split into one job per thread),
+	 * state counts of a job only cover the span from first to last column of the job
+	 */
+	private class SetJob implements Runnable{
+		final int set;
+		final int[] columns;
+		final int firstColumn;
+		final int lastColumn;
+		final List<Sequence> sequences;
+		final int[] presentCounts;
+		long gcCount;
+		long baseCount;
+		int variableCount;
+		int informativeCount;
+
+		SetJob(int set, int[] columns, List<Sequence> sequences){
+			this.set = set;
+			this.columns = columns;
+			this.firstColumn = columns.length == 0 ? 0 : columns[0];
+			this.lastColumn = columns.length == 0 ? -1 : columns[columns.length - 1];
+			this.sequences = sequences;
+			this.presentCounts = new int[sequences.size()];
+		}
+
+		public void run() {
+			int[] stateCounts = new int[(lastColumn - firstColumn + 1) * nStates];
+			for(int seqIndex = 0; seqIndex < sequences.size(); seqIndex ++){
+				Sequence seq = sequences.get(seqIndex);
+				int end = Math.min(lastColumn, seq.getLength() - 1);
+				byte[] bases = null;
+				if(end >= firstColumn){
+					bases = seq.getBasesBetween(firstColumn, end);
+				}
+				// shorter sequences are missing data at the end
+				int basesEnd = bases == null ? firstColumn : firstColumn + bases.length;
+				int present = 0;
+				for(int x: columns){
+					if(x >= basesEnd){
+						break;
+					}
+					byte state = stateIndex[bases[x - firstColumn] & 0xFF];
+					if(state != MISSING){
+						present ++;
+						if(state >= 0){
+							stateCounts[(x - firstColumn) * nStates + state] ++;
+							baseCount ++;
+							if(state == STATE_C || state == STATE_G){
+								gcCount ++;
+							}
+						}
+					}
+				}
+				presentCounts[seqIndex] = present;
+			}
+
+			for(int x: columns){
+				int offset = (x - firstColumn) * nStates;
+				int statesFound = 0;
+				int statesFoundTwice = 0;
+				for(int state = 0; state < nStates; state++){
+					int count = stateCounts[offset + state];
+					if(count > 0){
+						statesFound ++;
+						if(count > 1){
+							statesFoundTwice ++;
+						}
+					}
+				}
+				if(statesFound >= 2){
+					variableCount ++;
+				}
+				if(statesFoundTwice >= 2){
+					informativeCount ++;
+				}
+			}
+		}
+	}
+
+	public AlignmentStatistics calculate(final List<Sequence> sequences, int nThreads){
+		long startTime = System.currentTimeMillis();
+
+		final int nSeqs = sequences.size();
+		final int nSets = setNames.length;
+		nThreads = Math.max(1, nThreads);
+
+		List<SetJob> jobs = new ArrayList<SetJob>();
+		// whole alignment in one column block per thread
+		int[] allColumns = setColumns[0];
+		int columnsPerJob = Math.max(1, (allColumns.length + nThreads - 1) / nThreads);
+		for(int jobStart = 0; jobStart < allColumns.length; jobStart += columnsPerJob){
+			int jobEnd = Math.min(jobStart + columnsPerJob, allColumns.length);
+			jobs.add(new SetJob(0, Arrays.copyOfRange(allColumns, jobStart, jobEnd), sequences));
+		}
+		for(int set = 1; set < nSets; set++){
+			jobs.add(new SetJob(set, setColumns[set], sequences));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(SetJob job: jobs){
+			executor.execute(job);
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		// Add together the jobs of every set
+		int[][] presentCounts = new int[nSeqs][nSets];
+		int[] variableCounts = new int[nSets];
+		int[] informativeCounts = new int[nSets];
+		long[] gcCounts = new long[nSets];
+		long[] baseCounts = new long[nSets];
+		for(SetJob job: jobs){
+			variableCounts[job.set] += job.variableCount;
+			informativeCounts[job.set] += job.informativeCount;
+			gcCounts[job.set] += job.gcCount;
+			baseCounts[job.set] += job.baseCount;
+			for(int seqIndex = 0; seqIndex < nSeqs; seqIndex++){
+				presentCounts[seqIndex][job.set] += job.presentCounts[seqIndex];
+			}
+		}
+
+		AlignmentStatistics stats = new AlignmentStatistics(setNames, nSeqs, nucleotide);
+		for(int set = 0; set < nSets; set++){
+			if(! nucleotide){
+				gcCounts[set] = 0;
+				baseCounts[set] = 0;
+			}
+			stats.setSetValues(set, setColumns[set].length, variableCounts[set], informativeCounts[set], gcCounts[set], baseCounts[set]);
+		}
+		for(int seqIndex = 0; seqIndex < nSeqs; seqIndex++){
+			stats.setSequenceValues(seqIndex, sequences.get(seqIndex).getName(), presentCounts[seqIndex]);
+		}
+
+		logger.info("Statistics of " + nSeqs + " sequences and " + (nSets - 1) + " charsets took " + (System.currentTimeMillis() - startTime) + " ms");
+
+		return stats;
+	}
+
+}
@@ -0,0 +1,94 @@
+package aliview.alignment;
+
+import aliview.sequences.SequenceUtils;
+
+/*
+ *
+ * Consensus and gap count of every alignment column (result of ColumnSummaryCalculator)
+ *
+ */
+public class ColumnSummary {
+	private final byte[] consensus;
+	private final int[] gapCounts;
+	private final int sequenceCount;
+
+	ColumnSummary(byte[] consensus, int[] gapCounts, int sequenceCount) {
+		this.consensus = consensus;
+		this.gapCounts = gapCounts;
+		this.sequenceCount = sequenceCount;
+	}
+
+	public int getLength(){
+		return consensus.length;
+	}
+
+	public int getSequenceCount() {
+		return sequenceCount;
+	}
+
+	public String getConsensus(){
+		return new String(consensus);
+	}
+
+	public byte getConsensusAt(int x){
+		return consensus[x];
+	}
+
+	public int getGapCount(int x){
+		return gapCounts[x];
+	}
+
+	public double getGapFraction(int x){
+		if(sequenceCount == 0){
+			return 0;
+		}
+		return (double) gapCounts[x] / sequenceCount;
+	}
+
+	public boolean isAllGap(int x){
+		return consensus[x] == SequenceUtils.GAP_SYMBOL;
+	}
+
+	public boolean hasAllGapColumn(){
+		for(int x = 0; x < consensus.length; x++){
+			if(isAllGap(x)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Mask with all columns that are only gaps
+	 */
+	public boolean[] getAllGapMask(){
+		boolean[] mask = new boolean[consensus.length];
+		for(int x = 0; x < mask.length; x++){
+			mask[x] = isAllGap(x);
+		}
+		return mask;
+	}
+
+	/*
+	 * Mask with the all-gap columns at the end of alignment
+	 */
+	public boolean[] getTrailingAllGapMask(){
+		boolean[] mask = new boolean[consensus.length];
+		for(int x = mask.length - 1; x >= 0 && isAllGap(x); x--){
+			mask[x] = true;
+		}
+		return mask;
+	}
+
+	/*
+	 * Mask with all columns where the fraction of gaps is above threshold (0.0 - 1.0)
+	 */
+	public boolean[] getGapFractionAboveMask(double threshold){
+		boolean[] mask = new boolean[consensus.length];
+		for(int x = 0; x < mask.length; x++){
+			mask[x] = getGapFraction(x) > threshold;
+		}
+		return mask;
+	}
+
+}
@@ -0,0 +1,200 @@
+package aliview.alignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import aliview.AminoAcid;
+import aliview.NucleotideUtilities;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Calculates consensus and gap count of every alignment column in one pass over the sequences
+ *
+ * Sequences are split into one block per thread, every block folds its sequences into a consensus
+ * and gap count array of alignment length (bases are read straight from the sequence byte array
+ * and looked up in tables, no per-sequence base value arrays are created). The block results are
+ * merged in sequence order when all blocks are done.
+ *
+ * Consensus is the same as the one AlignmentListModel calculated before: bitwise OR of nucleotide
+ * base values, and for amino acids the residue if all non-gap residues are the same, X if not.
+ * Positions after the end of a sequence count as gaps.
+ *
+ */
+public class ColumnSummaryCalculator {
+	private static final Logger logger = Logger.getLogger(ColumnSummaryCalculator.class);
+	private static final byte[] NUCLEOTIDE_BASE_VAL = createNucleotideBaseValTable();
+	private static final byte[] AMINO_ACID_KEY = createAminoAcidKeyTable();
+	private static final byte AMINO_ACID_GAP_KEY = (byte) AminoAcid.GAP.intVal;
+	private final boolean aminoAcid;
+
+	public ColumnSummaryCalculator(boolean aminoAcid) {
+		this.aminoAcid = aminoAcid;
+	}
+
+	private static byte[] createNucleotideBaseValTable(){
+		byte[] table = new byte[256];
+		for(int n = 0; n < 256; n++){
+			table[n] = (byte) NucleotideUtilities.baseValFromBase((byte) n);
+		}
+		return table;
+	}
+
+	private static byte[] createAminoAcidKeyTable(){
+		byte[] table = new byte[256];
+		for(int n = 0; n < 256; n++){
+			table[n] = (byte) AminoAcid.getAminoAcidFromByte((byte) n).intVal;
+		}
+		return table;
+	}
+
+	public ColumnSummary calculate(final List<Sequence> sequences, int nThreads){
+		long startTime = System.currentTimeMillis();
+
+		int longest = 0;
+		for(Sequence seq: sequences){
+			longest = Math.max(longest, seq.getLength());
+		}
+		final int length = longest;
+		final int nSeqs = sequences.size();
+
+		nThreads = Math.max(1, Math.min(nThreads, nSeqs));
+		int seqsPerJob = Math.max(1, (nSeqs + nThreads - 1) / nThreads);
+		final List<byte[]> jobConsensus = new ArrayList<byte[]>();
+		final List<int[]> jobGapCounts = new ArrayList<int[]>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int jobStart = 0; jobStart < nSeqs; jobStart += seqsPerJob){
+			final int firstSeq = jobStart;
+			final int lastSeq = Math.min(jobStart + seqsPerJob, nSeqs);
+			final byte[] consensus = createEmptyConsensus(length);
+			final int[] gapCounts = new int[length];
+			jobConsensus.add(consensus);
+			jobGapCounts.add(gapCounts);
+			executor.execute(new Runnable() {
+				public void run() {
+					for(int seqIndex = firstSeq; seqIndex < lastSeq; seqIndex ++){
+						byte[] bases = sequences.get(seqIndex).getAllBasesAsByteArray();
+						if(aminoAcid){
+							addAminoAcids(bases, consensus, gapCounts);
+						}else{
+							addNucleotides(bases, consensus, gapCounts);
+						}
+					}
+					// positions after end of sequences are gaps
+					for(int seqIndex = firstSeq; seqIndex < lastSeq; seqIndex ++){
+						int seqLen = Math.min(sequences.get(seqIndex).getLength(), length);
+						for(int x = seqLen; x < length; x++){
+							gapCounts[x] ++;
+						}
+					}
+				}
+			});
+		}
+
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		// merge jobs in sequence order
+		byte[] consensus = createEmptyConsensus(length);
+		int[] gapCounts = new int[length];
+		for(int job = 0; job < jobConsensus.size(); job++){
+			if(aminoAcid){
+				mergeAminoAcids(jobConsensus.get(job), consensus);
+			}else{
+				mergeNucleotides(jobConsensus.get(job), consensus);
+			}
+			int[] jobGaps = jobGapCounts.get(job);
+			for(int x = 0; x < length; x++){
+				gapCounts[x] += jobGaps[x];
+			}
+		}
+
+		if(! aminoAcid){
+			for(int x = 0; x < length; x++){
+				consensus[x] = (byte) NucleotideUtilities.charFromBaseVal(consensus[x]);
+			}
+		}
+
+		logger.info("Column summary of " + nSeqs + " sequences took " + (System.currentTimeMillis() - startTime) + " ms");
+
+		return new ColumnSummary(consensus, gapCounts, nSeqs);
+	}
+
+	/*
+	 * Nucleotide consensus is kept as base values until all sequences are added
+	 */
+	private byte[] createEmptyConsensus(int length){
+		byte[] consensus = new byte[length];
+		if(aminoAcid){
+			Arrays.fill(consensus, AminoAcid.GAP.getCodeByteVal());
+		}else{
+			Arrays.fill(consensus, (byte) NucleotideUtilities.GAP);
+		}
+		return consensus;
+	}
+
+	private static void addNucleotides(byte[] bases, byte[] consensus, int[] gapCounts){
+		int len = Math.min(bases.length, consensus.length);
+		for(int x = 0; x < len; x++){
+			byte baseVal = NUCLEOTIDE_BASE_VAL[bases[x] & 0xFF];
+			consensus[x] |= baseVal;
+			if(baseVal == NucleotideUtilities.GAP){
+				gapCounts[x] ++;
+			}
+		}
+	}
+
+	private static void mergeNucleotides(byte[] from, byte[] consensus){
+		for(int x = 0; x < consensus.length; x++){
+			consensus[x] |= from[x];
+		}
+	}
+
+	private static void addAminoAcids(byte[] bases, byte[] consensus, int[] gapCounts){
+		int len = Math.min(bases.length, consensus.length);
+		for(int x = 0; x < len; x++){
+			byte base = bases[x];
+			if(AMINO_ACID_KEY[base & 0xFF] == AMINO_ACID_GAP_KEY){
+				gapCounts[x] ++;
+			}
+			consensus[x] = getAminoAcidConsensus(base, consensus[x]);
+		}
+	}
+
+	private static void mergeAminoAcids(byte[] from, byte[] consensus){
+		for(int x = 0; x < consensus.length; x++){
+			consensus[x] = getAminoAcidConsensus(from[x], consensus[x]);
+		}
+	}
+
+	/*
+	 * Same as AminoAcid.getConsensusFromByteVal() but with table lookup
+	 */
+	private static byte getAminoAcidConsensus(byte base, byte consensus){
+		byte baseKey = AMINO_ACID_KEY[base & 0xFF];
+		byte consensusKey = AMINO_ACID_KEY[consensus & 0xFF];
+		if(baseKey == consensusKey){
+			return base;
+		}
+		if(baseKey == AMINO_ACID_GAP_KEY){
+			return consensus;
+		}
+		if(consensusKey == AMINO_ACID_GAP_KEY){
+			return base;
+		}
+		return AminoAcid.X.getCodeByteVal();
+	}
+
+}
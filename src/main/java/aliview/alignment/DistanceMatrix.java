@@ -0,0 +1,128 @@
+package aliview.alignment;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/*
+ *
+ * Symmetric matrix of pairwise p-distances (identity is 1 - distance), NaN when two sequences have no
+ * compared positions. Only the lower triangle is stored, row i has i values (20 000 sequences is ~800 MB)
+ *
+ */
+public class DistanceMatrix {
+	private static final String LF = System.getProperty("line.separator");
+	private static final int PHYLIP_NAME_LENGTH = 10;
+	private static final int DECIMALS = 6;
+	private final String[] names;
+	private final float[][] lowerTriangle;
+
+	public DistanceMatrix(String[] names) {
+		this.names = names;
+		this.lowerTriangle = new float[names.length][];
+		for(int row = 0; row < names.length; row++){
+			lowerTriangle[row] = new float[row];
+		}
+	}
+
+	public int getSize(){
+		return names.length;
+	}
+
+	public String getName(int index){
+		return names[index];
+	}
+
+	public float getDistance(int index1, int index2){
+		if(index1 == index2){
+			return 0;
+		}
+		if(index1 > index2){
+			return lowerTriangle[index1][index2];
+		}
+		return lowerTriangle[index2][index1];
+	}
+
+	public float getIdentity(int index1, int index2){
+		return 1 - getDistance(index1, index2);
+	}
+
+	void setDistance(int row, int col, float distance){
+		lowerTriangle[row][col] = distance;
+	}
+
+	/*
+	 * Square matrix, names are padded to 10 characters but not cut (relaxed PHYLIP)
+	 */
+	public void writePhylip(Writer out, boolean identity) throws IOException{
+		int size = getSize();
+		out.write("    " + size + LF);
+		StringBuilder line = new StringBuilder();
+		for(int row = 0; row < size; row++){
+			line.setLength(0);
+			line.append(names[row]);
+			for(int n = names[row].length(); n < PHYLIP_NAME_LENGTH; n++){
+				line.append(' ');
+			}
+			for(int col = 0; col < size; col++){
+				line.append(' ');
+				appendValue(line, identity ? getIdentity(row, col) : getDistance(row, col));
+			}
+			line.append(LF);
+			out.write(line.toString());
+		}
+		out.flush();
+	}
+
+	public void writeCSV(Writer out, boolean identity) throws IOException{
+		int size = getSize();
+		StringBuilder line = new StringBuilder();
+		for(int col = 0; col < size; col++){
+			line.append(',');
+			appendCSVName(line, names[col]);
+		}
+		line.append(LF);
+		out.write(line.toString());
+		for(int row = 0; row < size; row++){
+			line.setLength(0);
+			appendCSVName(line, names[row]);
+			for(int col = 0; col < size; col++){
+				line.append(',');
+				appendValue(line, identity ? getIdentity(row, col) : getDistance(row, col));
+			}
+			line.append(LF);
+			out.write(line.toString());
+		}
+		out.flush();
+	}
+
+	private static void appendCSVName(StringBuilder line, String name){
+		if(name.indexOf(',') >= 0 || name.indexOf('"') >= 0){
+			line.append('"').append(name.replace("\"", "\"\"")).append('"');
+		}else{
+			line.append(name);
+		}
+	}
+
+	/*
+	 * Fixed number of decimals without String.format (that is too slow for 400M values)
+	 */
+	static void appendValue(StringBuilder line, float value){
+		if(Float.isNaN(value)){
+			line.append("NaN");
+			return;
+		}
+		long scaled = Math.round(value * 1000000d);
+		if(scaled < 0){
+			line.append('-');
+			scaled = -scaled;
+		}
+		line.append(scaled / 1000000);
+		line.append('.');
+		String decimals = Long.toString(scaled % 1000000);
+		for(int n = decimals.length(); n < DECIMALS; n++){
+			line.append('0');
+		}
+		line.append(decimals);
+	}
+
+}
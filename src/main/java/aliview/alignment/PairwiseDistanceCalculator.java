@@ -0,0 +1,275 @@
+package aliview.alignment;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import aliview.AminoAcid;
+import aliview.NucleotideUtilities;
+import aliview.sequences.Sequence;
+import aliview.subprocesses.SubProcessWindow;
+
+/*
+ *
+ * Calculates uncorrected p-distance (different / compared positions) between sequences, positions where
+ * one of the sequences has a gap (or unknown residue) are not compared. Residues are compared on their
+ * code like SequenceUtils.countDifferentNucleotideOverlap (IUPAC codes are only equal to the same code).
+ *
+ * Every sequence is encoded bit-sliced: one long per plane covers 64 positions, and the planes hold the
+ * bits of the residue code (4 planes for nucleotide base values, 5 for amino acids), a missing position
+ * has code 0. For 64 positions at a time: compared = (OR of planes seq1) & (OR of planes seq2) and
+ * different = compared & (OR of plane XORs), counted with Long.bitCount.
+ *
+ * The matrix is calculated in tiles of TILE_SIZE x TILE_SIZE sequences, within a tile the words are
+ * run through in chunks so the encoded chunks of the tile sequences stay in cache. Tiles are spread
+ * over the threads.
+ *
+ */
+public class PairwiseDistanceCalculator {
+	private static final Logger logger = Logger.getLogger(PairwiseDistanceCalculator.class);
+	private static final int TILE_SIZE = 32;
+	private static final int WORDS_PER_CHUNK = 128;
+	private static final int NUCLEOTIDE_PLANES = 4;
+	private static final int AMINO_ACID_PLANES = 5;
+	private static final byte[] NUCLEOTIDE_CODE = createNucleotideCodeTable();
+	private static final byte[] AMINO_ACID_CODE = createAminoAcidCodeTable();
+	private final boolean aminoAcid;
+	private final int nPlanes;
+	private final byte[] codeTable;
+
+	public PairwiseDistanceCalculator(boolean aminoAcid) {
+		this.aminoAcid = aminoAcid;
+		this.nPlanes = aminoAcid ? AMINO_ACID_PLANES : NUCLEOTIDE_PLANES;
+		this.codeTable = aminoAcid ? AMINO_ACID_CODE : NUCLEOTIDE_CODE;
+	}
+
+	private static byte[] createNucleotideCodeTable(){
+		byte[] table = new byte[256];
+		for(int n = 0; n < 256; n++){
+			int baseVal = NucleotideUtilities.baseValFromBase((byte) n);
+			// gap is 0 already, unknown is outside the 4 bits
+			table[n] = (byte) (baseVal == NucleotideUtilities.UNKNOWN ? 0 : baseVal & 0x0F);
+		}
+		return table;
+	}
+
+	private static byte[] createAminoAcidCodeTable(){
+		byte[] table = new byte[256];
+		for(int n = 0; n < 256; n++){
+			AminoAcid acid = AminoAcid.getAminoAcidFromByte((byte) n);
+			if(acid == AminoAcid.GAP || acid == AminoAcid.X){
+				table[n] = 0;
+			}else{
+				table[n] = (byte) (acid.intVal + 1);
+			}
+		}
+		return table;
+	}
+
+	public boolean isAminoAcid() {
+		return aminoAcid;
+	}
+
+	/*
+	 * progressWin can be null, with parallelRead false sequences are read (encoded) in one thread
+	 */
+	public DistanceMatrix calculate(List<Sequence> sequences, int nThreads, boolean parallelRead, final SubProcessWindow progressWin){
+		long startTime = System.currentTimeMillis();
+		final int nSeqs = sequences.size();
+		nThreads = Math.max(1, nThreads);
+		final long[][] encoded = encode(sequences, parallelRead ? nThreads : 1);
+		final int nWords = getWordCount(encoded);
+
+		String[] names = new String[nSeqs];
+		for(int n = 0; n < nSeqs; n++){
+			names[n] = sequences.get(n).getName();
+		}
+		final DistanceMatrix matrix = new DistanceMatrix(names);
+
+		final int nTiles = (nSeqs + TILE_SIZE - 1) / TILE_SIZE;
+		final int totalTilePairs = nTiles * (nTiles + 1) / 2;
+		final AtomicInteger tilePairsDone = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int tileRow = 0; tileRow < nTiles; tileRow ++){
+			for(int tileCol = 0; tileCol <= tileRow; tileCol ++){
+				final int firstRow = tileRow * TILE_SIZE;
+				final int firstCol = tileCol * TILE_SIZE;
+				executor.execute(new Runnable() {
+					public void run() {
+						calculateTile(encoded, nWords, firstRow, firstCol, matrix);
+						int done = tilePairsDone.incrementAndGet();
+						if(progressWin != null && done % 100 == 0){
+							progressWin.setOutput("Calculating pairwise distances of " + nSeqs + " sequences" + "\n" +
+									(int) (100.0 * done / totalTilePairs) + "% done");
+						}
+					}
+				});
+			}
+		}
+		awaitDone(executor);
+
+		logger.info("Pairwise distances of " + nSeqs + " sequences took " + (System.currentTimeMillis() - startTime) + " ms");
+		return matrix;
+	}
+
+	/*
+	 * Distance of every sequence to reference (one row of the matrix), NaN if nothing to compare
+	 */
+	public float[] calculateDistancesTo(Sequence reference, final List<Sequence> sequences, int nThreads, boolean parallelRead){
+		final long[] referenceWords = encode(reference.getAllBasesAsByteArray());
+		final int nSeqs = sequences.size();
+		final float[] distances = new float[nSeqs];
+		nThreads = parallelRead ? Math.max(1, Math.min(nThreads, nSeqs)) : 1;
+		int seqsPerJob = Math.max(1, (nSeqs + nThreads - 1) / nThreads);
+
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int jobStart = 0; jobStart < nSeqs; jobStart += seqsPerJob){
+			final int firstSeq = jobStart;
+			final int lastSeq = Math.min(jobStart + seqsPerJob, nSeqs);
+			executor.execute(new Runnable() {
+				public void run() {
+					int[] counts = new int[2];
+					for(int index = firstSeq; index < lastSeq; index++){
+						long[] words = encode(sequences.get(index).getAllBasesAsByteArray());
+						counts[0] = 0;
+						counts[1] = 0;
+						countOverlap(referenceWords, words, 0, Math.min(referenceWords.length, words.length) / nPlanes, counts);
+						distances[index] = toDistance(counts[0], counts[1]);
+					}
+				}
+			});
+		}
+		awaitDone(executor);
+		return distances;
+	}
+
+	private long[][] encode(final List<Sequence> sequences, int nThreads){
+		final int nSeqs = sequences.size();
+		final long[][] encoded = new long[nSeqs][];
+		nThreads = Math.max(1, Math.min(nThreads, nSeqs));
+		int seqsPerJob = Math.max(1, (nSeqs + nThreads - 1) / nThreads);
+
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int jobStart = 0; jobStart < nSeqs; jobStart += seqsPerJob){
+			final int firstSeq = jobStart;
+			final int lastSeq = Math.min(jobStart + seqsPerJob, nSeqs);
+			executor.execute(new Runnable() {
+				public void run() {
+					for(int index = firstSeq; index < lastSeq; index++){
+						encoded[index] = encode(sequences.get(index).getAllBasesAsByteArray());
+					}
+				}
+			});
+		}
+		awaitDone(executor);
+		return encoded;
+	}
+
+	/*
+	 * Word w, plane p is at index w * nPlanes + p (planes of the same positions next to each other)
+	 */
+	long[] encode(byte[] bases){
+		int nWords = (bases.length + 63) / 64;
+		long[] words = new long[nWords * nPlanes];
+		for(int pos = 0; pos < bases.length; pos++){
+			int code = codeTable[bases[pos] & 0xFF];
+			if(code != 0){
+				int wordStart = (pos >>> 6) * nPlanes;
+				long bit = 1L << (pos & 63);
+				for(int plane = 0; plane < nPlanes; plane++){
+					if((code & (1 << plane)) != 0){
+						words[wordStart + plane] |= bit;
+					}
+				}
+			}
+		}
+		return words;
+	}
+
+	private int getWordCount(long[][] encoded){
+		int longest = 0;
+		for(long[] words: encoded){
+			longest = Math.max(longest, words.length);
+		}
+		return longest / nPlanes;
+	}
+
+	private void calculateTile(long[][] encoded, int nWords, int firstRow, int firstCol, DistanceMatrix matrix){
+		int lastRow = Math.min(firstRow + TILE_SIZE, encoded.length);
+		int lastCol = Math.min(firstCol + TILE_SIZE, encoded.length);
+		boolean diagonalTile = firstRow == firstCol;
+		int[][] counts = new int[TILE_SIZE * TILE_SIZE][2];
+
+		for(int chunkStart = 0; chunkStart < nWords; chunkStart += WORDS_PER_CHUNK){
+			int chunkEnd = Math.min(chunkStart + WORDS_PER_CHUNK, nWords);
+			for(int row = firstRow; row < lastRow; row++){
+				long[] rowWords = encoded[row];
+				int colEnd = diagonalTile ? row : lastCol;
+				for(int col = firstCol; col < colEnd; col++){
+					long[] colWords = encoded[col];
+					// sequences can be shorter than longest
+					int end = Math.min(chunkEnd, Math.min(rowWords.length, colWords.length) / nPlanes);
+					if(end > chunkStart){
+						countOverlap(rowWords, colWords, chunkStart, end, counts[(row - firstRow) * TILE_SIZE + (col - firstCol)]);
+					}
+				}
+			}
+		}
+
+		for(int row = firstRow; row < lastRow; row++){
+			int colEnd = diagonalTile ? row : lastCol;
+			for(int col = firstCol; col < colEnd; col++){
+				int[] pairCounts = counts[(row - firstRow) * TILE_SIZE + (col - firstCol)];
+				matrix.setDistance(row, col, toDistance(pairCounts[0], pairCounts[1]));
+			}
+		}
+	}
+
+	/*
+	 * Adds compared positions to counts[0] and different positions to counts[1]
+	 */
+	private void countOverlap(long[] words1, long[] words2, int firstWord, int endWord, int[] counts){
+		int compared = 0;
+		int different = 0;
+		for(int word = firstWord; word < endWord; word++){
+			int start = word * nPlanes;
+			long present1 = 0;
+			long present2 = 0;
+			long diff = 0;
+			for(int plane = start; plane < start + nPlanes; plane++){
+				long bits1 = words1[plane];
+				long bits2 = words2[plane];
+				present1 |= bits1;
+				present2 |= bits2;
+				diff |= bits1 ^ bits2;
+			}
+			long both = present1 & present2;
+			compared += Long.bitCount(both);
+			different += Long.bitCount(both & diff);
+		}
+		counts[0] += compared;
+		counts[1] += different;
+	}
+
+	private static float toDistance(int compared, int different){
+		if(compared == 0){
+			return Float.NaN;
+		}
+		return different / (float) compared;
+	}
+
+	private static void awaitDone(ExecutorService executor){
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
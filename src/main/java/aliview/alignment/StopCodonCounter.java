@@ -0,0 +1,182 @@
+package aliview.alignment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import utils.nexus.CodonPositions;
+import aliview.AminoAcid;
+import aliview.GeneticCode;
+import aliview.NucleotideUtilities;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Counts stop codons for several reading frames and genetic codes in one pass over every sequence
+ *
+ * Every full codon (as defined by CodonPositions) is encoded into a 6-bit codon index (same index as
+ * GeneticCode.acidTranslation) once per frame and collected in a codon histogram, stops for every genetic
+ * code are then counted from the histogram with a stop lookup table per code - no sequence is translated.
+ *
+ * Frame n means the sequence is read as if n gaps were inserted at the start of it
+ * (frame 0 gives the same count as Sequence.countStopCodon()).
+ *
+ */
+public class StopCodonCounter {
+	private static final Logger logger = Logger.getLogger(StopCodonCounter.class);
+	public static final int FRAMES = 3;
+	private static final int SEQUENCES_PER_JOB = 64;
+	// All codons that are not made of only A,C,G,T/U get this index (translates to X or GAP)
+	private static final int NOT_A_CODON = 64;
+	private static final int CODON_INDEX_SIZE = 65;
+	private static final byte[] CODON_BASE_INDEX = createCodonBaseIndex();
+	private final CodonPositions codonPositions;
+	private final GeneticCode[] geneticCodes;
+	private final boolean[][] isStop;
+
+	public StopCodonCounter(CodonPositions codonPositions, GeneticCode[] geneticCodes) {
+		this.codonPositions = codonPositions;
+		this.geneticCodes = geneticCodes;
+		this.isStop = new boolean[geneticCodes.length][CODON_INDEX_SIZE];
+		for(int code = 0; code < geneticCodes.length; code++){
+			for(int codon = 0; codon < NOT_A_CODON; codon++){
+				isStop[code][codon] = geneticCodes[code].acidTranslation[codon] == AminoAcid.STOP;
+			}
+		}
+	}
+
+	/*
+	 * T=0, C=1, A=2, G=3 as in AminoAcid.getAminoAcidFromCodon, -1 for everything else
+	 */
+	private static byte[] createCodonBaseIndex(){
+		byte[] index = new byte[256];
+		for(int n = 0; n < 256; n++){
+			int baseVal = NucleotideUtilities.baseValFromChar((char) n);
+			if(baseVal == NucleotideUtilities.T){
+				index[n] = 0;
+			}else if(baseVal == NucleotideUtilities.C){
+				index[n] = 1;
+			}else if(baseVal == NucleotideUtilities.A){
+				index[n] = 2;
+			}else if(baseVal == NucleotideUtilities.G){
+				index[n] = 3;
+			}else{
+				index[n] = -1;
+			}
+		}
+		return index;
+	}
+
+	public GeneticCode[] getGeneticCodes() {
+		return geneticCodes;
+	}
+
+	/*
+	 * Start positions of all full coding codons in an alignment of this length, in translation order
+	 */
+	private int[] getCodonStarts(int alignmentLength){
+		int[] starts = new int[alignmentLength / 3 + 1];
+		int count = 0;
+		int x = 0;
+		while(x < alignmentLength){
+			if(codonPositions.isFullCodonStartingAt(x)){
+				starts[count] = x;
+				count ++;
+				x = x + 3;
+			}else{
+				x = x + 1;
+			}
+		}
+		int[] trimmed = new int[count];
+		System.arraycopy(starts, 0, trimmed, 0, count);
+		return trimmed;
+	}
+
+	private static int codonIndex(byte[] bases, int start){
+		if(start < 0 || start + 2 >= bases.length){
+			return NOT_A_CODON;
+		}
+		int b0 = CODON_BASE_INDEX[bases[start] & 0xFF];
+		int b1 = CODON_BASE_INDEX[bases[start + 1] & 0xFF];
+		int b2 = CODON_BASE_INDEX[bases[start + 2] & 0xFF];
+		if(b0 < 0 || b1 < 0 || b2 < 0){
+			return NOT_A_CODON;
+		}
+		return b0 * 16 + b1 * 4 + b2;
+	}
+
+	/*
+	 * Counts stops in all sequences for every frame and every genetic code of this counter
+	 */
+	public StopCodonCounts countStops(final List<Sequence> sequences, int nThreads){
+		long startTime = System.currentTimeMillis();
+
+		int longest = 0;
+		for(Sequence seq: sequences){
+			longest = Math.max(longest, seq.getLength());
+		}
+		final int[] codonStarts = getCodonStarts(longest + FRAMES);
+		final StopCodonCounts counts = new StopCodonCounts(sequences.size(), geneticCodes.length);
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, nThreads));
+		for(int jobStart = 0; jobStart < sequences.size(); jobStart += SEQUENCES_PER_JOB){
+			final int firstSeq = jobStart;
+			final int lastSeq = Math.min(jobStart + SEQUENCES_PER_JOB, sequences.size());
+			executor.execute(new Runnable() {
+				public void run() {
+					int[][] codonHistogram = new int[FRAMES][CODON_INDEX_SIZE];
+					for(int seqIndex = firstSeq; seqIndex < lastSeq; seqIndex ++){
+						byte[] bases = sequences.get(seqIndex).getAllBasesAsByteArray();
+						countCodons(bases, codonStarts, codonHistogram);
+						storeStops(seqIndex, codonHistogram, counts);
+					}
+				}
+			});
+		}
+
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		logger.info("Count stop codons in " + sequences.size() + " sequences took " + (System.currentTimeMillis() - startTime) + " ms");
+
+		return counts;
+	}
+
+	private void countCodons(byte[] bases, int[] codonStarts, int[][] codonHistogram){
+		for(int frame = 0; frame < FRAMES; frame++){
+			int[] histogram = codonHistogram[frame];
+			Arrays.fill(histogram, 0);
+			// with frame gaps inserted first - codon at x starts at x - frame in unshifted sequence
+			int lastStart = bases.length + frame - 3;
+			for(int n = 0; n < codonStarts.length && codonStarts[n] <= lastStart; n++){
+				histogram[codonIndex(bases, codonStarts[n] - frame)] ++;
+			}
+		}
+	}
+
+	private void storeStops(int seqIndex, int[][] codonHistogram, StopCodonCounts counts){
+		for(int frame = 0; frame < FRAMES; frame++){
+			int[] histogram = codonHistogram[frame];
+			for(int code = 0; code < geneticCodes.length; code++){
+				boolean[] codeStops = isStop[code];
+				int stops = 0;
+				for(int codon = 0; codon < NOT_A_CODON; codon++){
+					if(codeStops[codon]){
+						stops += histogram[codon];
+					}
+				}
+				counts.set(seqIndex, frame, code, stops);
+			}
+		}
+	}
+
+}
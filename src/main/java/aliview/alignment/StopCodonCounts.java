@@ -0,0 +1,66 @@
+package aliview.alignment;
+
+/*
+ * Result of StopCodonCounter - stop count for every sequence, frame and genetic code
+ * (code index is the index in the GeneticCode array the counter was created with)
+ */
+public class StopCodonCounts {
+	private final int sequenceCount;
+	private final int codeCount;
+	private final int[] counts;
+
+	public StopCodonCounts(int sequenceCount, int codeCount) {
+		this.sequenceCount = sequenceCount;
+		this.codeCount = codeCount;
+		this.counts = new int[sequenceCount * StopCodonCounter.FRAMES * codeCount];
+	}
+
+	void set(int seqIndex, int frame, int code, int stops){
+		counts[(seqIndex * StopCodonCounter.FRAMES + frame) * codeCount + code] = stops;
+	}
+
+	public int getStops(int seqIndex, int frame, int code){
+		return counts[(seqIndex * StopCodonCounter.FRAMES + frame) * codeCount + code];
+	}
+
+	public int getSequenceCount() {
+		return sequenceCount;
+	}
+
+	public long getTotalStops(int frame, int code){
+		long total = 0;
+		for(int seqIndex = 0; seqIndex < sequenceCount; seqIndex++){
+			total += getStops(seqIndex, frame, code);
+		}
+		return total;
+	}
+
+	/*
+	 * Frame with fewest stops for this sequence in any code (lowest frame and code wins if equal)
+	 */
+	public int getBestFrame(int seqIndex){
+		return getBestFrameAndCode(seqIndex)[0];
+	}
+
+	public int getBestCode(int seqIndex){
+		return getBestFrameAndCode(seqIndex)[1];
+	}
+
+	private int[] getBestFrameAndCode(int seqIndex){
+		int minStops = Integer.MAX_VALUE;
+		int bestFrame = 0;
+		int bestCode = 0;
+		for(int frame = 0; frame < StopCodonCounter.FRAMES; frame ++){
+			for(int code = 0; code < codeCount; code++){
+				int stops = getStops(seqIndex, frame, code);
+				if(stops < minStops){
+					minStops = stops;
+					bestFrame = frame;
+					bestCode = code;
+				}
+			}
+		}
+		return new int[]{bestFrame, bestCode};
+	}
+
+}
@@ -0,0 +1,390 @@
+package aliview.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import aliview.alignment.Alignment;
+import aliview.importer.AlignmentFactory;
+import aliview.importer.FileFormat;
+
+/*
+ *
+ * Headless batch mode - java -jar aliview.jar --batch [options] file...
+ *
+ * Every input file is read into an Alignment, the operations are applied in the order they are given on the
+ * command line and the alignment is saved in the output format. Files are processed in parallel (one file per
+ * thread) and nothing in here is touching AWT/Swing, so it can run on a server without display
+ *
+ */
+public class BatchProcessor {
+	private static final Logger logger = Logger.getLogger(BatchProcessor.class);
+	private static final String LF = System.getProperty("line.separator");
+	public static final String BATCH_ARG = "--batch";
+
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_FAILED_FILES = 1;
+	public static final int EXIT_USAGE = 2;
+
+	private static final String OP_DELETE_VERTICAL_GAPS = "--delete-vertical-gaps";
+	private static final String OP_DELETE_EMPTY = "--delete-empty";
+	private static final String OP_REMOVE_DUPLICATES = "--remove-duplicates";
+	private static final String OP_TRIM = "--trim";
+	private static final String OP_PAD_AND_TRIM = "--pad-and-trim";
+	private static final String[] OPERATIONS = new String[]{OP_DELETE_VERTICAL_GAPS, OP_DELETE_EMPTY, OP_REMOVE_DUPLICATES, OP_TRIM, OP_PAD_AND_TRIM};
+
+	private static final Map<String, FileFormat> OUTPUT_FORMATS = new LinkedHashMap<String, FileFormat>();
+	static{
+		OUTPUT_FORMATS.put("fasta", FileFormat.FASTA);
+		OUTPUT_FORMATS.put("nexus", FileFormat.NEXUS);
+		OUTPUT_FORMATS.put("nexus-simple", FileFormat.NEXUS_SIMPLE);
+		OUTPUT_FORMATS.put("nexus-codonpos", FileFormat.NEXUS_CODONPOS_CHARSET);
+		OUTPUT_FORMATS.put("phylip", FileFormat.PHYLIP_RELAXED_PADDED_AKA_LONG_NAME_SEQUENTIAL);
+		OUTPUT_FORMATS.put("phylip-interleaved", FileFormat.PHYLIP_RELAXED_PADDED_INTERLEAVED_AKA_LONG_NAME_INTERLEAVED);
+		OUTPUT_FORMATS.put("phylip-strict", FileFormat.PHYLIP_STRICT_SEQUENTIAL_AKA_SHORT_NAME_SEQUENTIAL);
+		OUTPUT_FORMATS.put("clustal", FileFormat.CLUSTAL);
+		OUTPUT_FORMATS.put("msf", FileFormat.MSF);
+	}
+
+	private final PrintStream out;
+	private final List<String> operations = new ArrayList<String>();
+	private final List<File> inputFiles = new ArrayList<File>();
+	private FileFormat outputFormat = FileFormat.FASTA;
+	private File outputDir;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean translate;
+	private boolean writeFastaIndex;
+	private boolean writeRaxMLPartitions;
+
+	public BatchProcessor(PrintStream out) {
+		this.out = out;
+	}
+
+	/*
+	 * Called from AliView.main before anything in the GUI is created, returns exit code
+	 */
+	public static int run(String[] args){
+		BatchProcessor processor = new BatchProcessor(System.out);
+		String error = processor.parseArgs(args);
+		if(error != null){
+			System.err.println(error);
+			System.err.println(getUsage());
+			return EXIT_USAGE;
+		}
+		return processor.processAll();
+	}
+
+	public static String getUsage(){
+		StringBuilder usage = new StringBuilder();
+		usage.append("Usage: java -jar aliview.jar " + BATCH_ARG + " [options] [operations] file..." + LF);
+		usage.append(LF);
+		usage.append("Options:" + LF);
+		usage.append("  --format <name>         output format: ");
+		boolean first = true;
+		for(String name: OUTPUT_FORMATS.keySet()){
+			usage.append(first ? "" : ", ").append(name);
+			first = false;
+		}
+		usage.append(" (default fasta)" + LF);
+		usage.append("  --out-dir <dir>         directory for output files (default same as input file)" + LF);
+		usage.append("  --threads <n>           number of files processed in parallel (default number of processors)" + LF);
+		usage.append("  --translate             save nucleotides translated to amino acids (fasta or phylip)" + LF);
+		usage.append("  --fasta-index           write a .fai index next to fasta output" + LF);
+		usage.append("  --raxml-partitions      write charsets as a RAxML partition file (<output>.partitions)" + LF);
+		usage.append(LF);
+		usage.append("Operations (applied in the order given):" + LF);
+		usage.append("  " + OP_DELETE_VERTICAL_GAPS + "  delete columns that only contain gaps" + LF);
+		usage.append("  " + OP_DELETE_EMPTY + "          delete sequences without residues" + LF);
+		usage.append("  " + OP_REMOVE_DUPLICATES + "     delete sequences identical to one before them" + LF);
+		usage.append("  " + OP_TRIM + "                  remove gap columns at end so sequences are equal length" + LF);
+		usage.append("  " + OP_PAD_AND_TRIM + "          pad short sequences with gaps, then trim" + LF);
+		return usage.toString();
+	}
+
+	/*
+	 * Returns error message or null if args are ok
+	 */
+	String parseArgs(String[] args){
+		for(int n = 0; n < args.length; n++){
+			String arg = args[n];
+			if(BATCH_ARG.equals(arg) || "debug".equalsIgnoreCase(arg)){
+				continue;
+			}
+			if(isOperation(arg)){
+				operations.add(arg);
+			}
+			else if("--format".equals(arg)){
+				if(n + 1 >= args.length){
+					return "Missing value for --format";
+				}
+				outputFormat = OUTPUT_FORMATS.get(args[++n].toLowerCase());
+				if(outputFormat == null){
+					return "Unknown output format: " + args[n];
+				}
+			}
+			else if("--out-dir".equals(arg)){
+				if(n + 1 >= args.length){
+					return "Missing value for --out-dir";
+				}
+				outputDir = new File(args[++n]);
+			}
+			else if("--threads".equals(arg)){
+				if(n + 1 >= args.length){
+					return "Missing value for --threads";
+				}
+				try{
+					threads = Math.max(1, Integer.parseInt(args[++n]));
+				}catch(NumberFormatException e){
+					return "Not a number for --threads: " + args[n];
+				}
+			}
+			else if("--translate".equals(arg)){
+				translate = true;
+			}
+			else if("--fasta-index".equals(arg)){
+				writeFastaIndex = true;
+			}
+			else if("--raxml-partitions".equals(arg)){
+				writeRaxMLPartitions = true;
+			}
+			else if("--help".equals(arg) || "-h".equals(arg)){
+				return "";
+			}
+			else if(arg.startsWith("--")){
+				return "Unknown option: " + arg;
+			}
+			else{
+				inputFiles.add(new File(arg));
+			}
+		}
+
+		if(inputFiles.isEmpty()){
+			return "No input files";
+		}
+		if(translate){
+			outputFormat = getTranslatedFormat(outputFormat);
+			if(outputFormat == null){
+				return "--translate is only possible with fasta or phylip output";
+			}
+		}
+		if(writeFastaIndex && ! isFastaFormat(outputFormat)){
+			return "--fasta-index is only possible with fasta output";
+		}
+		if(outputDir != null){
+			outputDir.mkdirs();
+			if(! outputDir.isDirectory()){
+				return "Could not create output directory: " + outputDir;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isOperation(String arg){
+		for(String op: OPERATIONS){
+			if(op.equals(arg)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static FileFormat getTranslatedFormat(FileFormat format){
+		if(format == FileFormat.FASTA){
+			return FileFormat.FASTA_TRANSLATED_AMINO_ACID;
+		}
+		if(format == FileFormat.PHYLIP_RELAXED_PADDED_AKA_LONG_NAME_SEQUENTIAL){
+			return FileFormat.PHYLIP_TRANSLATED_AMINO_ACID;
+		}
+		return null;
+	}
+
+	private static boolean isFastaFormat(FileFormat format){
+		return format == FileFormat.FASTA || format == FileFormat.FASTA_TRANSLATED_AMINO_ACID;
+	}
+
+	/*
+	 * Returns EXIT_OK if all files were processed
+	 */
+	int processAll(){
+		long startTime = System.currentTimeMillis();
+		final AtomicInteger failedCount = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, inputFiles.size()));
+		for(final File inFile: inputFiles){
+			executor.execute(new Runnable() {
+				public void run() {
+					long fileStartTime = System.currentTimeMillis();
+					try{
+						String result = processFile(inFile);
+						out.println("OK     " + inFile + " -> " + result + " (" + (System.currentTimeMillis() - fileStartTime) + " ms)");
+					}catch(Throwable e){
+						failedCount.incrementAndGet();
+						logger.debug("Batch processing of " + inFile + " failed", e);
+						out.println("FAILED " + inFile + ": " + e.getLocalizedMessage());
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		int failed = failedCount.get();
+		out.println("Processed " + inputFiles.size() + " files (" + failed + " failed) with " + threads + " threads in " + (System.currentTimeMillis() - startTime) + " ms");
+		return failed == 0 ? EXIT_OK : EXIT_FAILED_FILES;
+	}
+
+	/*
+	 * Returns a description of what was written
+	 */
+	String processFile(File inFile) throws Exception{
+		if(! inFile.isFile()){
+			throw new IOException("File does not exist");
+		}
+		Alignment alignment = AlignmentFactory.createNewAlignmentWithoutMessages(inFile);
+
+		for(String op: operations){
+			if(OP_DELETE_VERTICAL_GAPS.equals(op)){
+				alignment.deleteVerticalGaps();
+			}
+			else if(OP_DELETE_EMPTY.equals(op)){
+				alignment.deleteEmptySequences();
+			}
+			else if(OP_REMOVE_DUPLICATES.equals(op)){
+				alignment.deleteDuplicateSequences();
+			}
+			else if(OP_TRIM.equals(op)){
+				alignment.trimSequences();
+			}
+			else if(OP_PAD_AND_TRIM.equals(op)){
+				alignment.padAndTrimSequences();
+			}
+		}
+
+		if(translate && ! alignment.isNucleotideAlignment()){
+			throw new IOException("Only nucleotide alignments can be translated");
+		}
+
+		File outFile = createOutputFile(inFile);
+		alignment.saveAlignmentAsFile(outFile, outputFormat, true);
+		String result = outFile.getPath() + " (" + alignment.getSequences().getSize() + " sequences)";
+
+		if(writeFastaIndex){
+			File indexFile = new File(outFile.getAbsolutePath() + ".fai");
+			writeFastaIndex(outFile, indexFile);
+			result += ", " + indexFile.getName();
+		}
+		if(writeRaxMLPartitions){
+			File partitionsFile = new File(outFile.getAbsolutePath() + ".partitions");
+			alignment.exportPartitionsFileRaxMLFormat(partitionsFile);
+			result += ", " + partitionsFile.getName();
+		}
+		return result;
+	}
+
+	private File createOutputFile(File inFile) throws IOException{
+		File dir = outputDir;
+		if(dir == null){
+			dir = inFile.getAbsoluteFile().getParentFile();
+		}
+		String name = FileFormat.stripFileSuffixFromName(inFile.getName()) + "." + outputFormat.getSuffix();
+		File outFile = new File(dir, name);
+		if(outFile.getCanonicalFile().equals(inFile.getCanonicalFile())){
+			throw new IOException("Output would overwrite input file (use --out-dir or another --format)");
+		}
+		return outFile;
+	}
+
+	/*
+	 * samtools faidx index (name, length, offset, residues per line, bytes per line) of a written fasta file,
+	 * the file is streamed so it does not matter how big it is
+	 */
+	static void writeFastaIndex(File fastaFile, File indexFile) throws IOException{
+		InputStream in = new BufferedInputStream(new FileInputStream(fastaFile), 64 * 1024);
+		Writer indexOut = new BufferedWriter(new FileWriter(indexFile));
+		try{
+			StringBuilder name = null;
+			boolean inName = false;
+			long pos = 0;
+			long seqOffset = 0;
+			long seqLength = 0;
+			int lineResidues = 0;
+			int lineBytes = 0;
+			int firstLineResidues = -1;
+			int firstLineBytes = -1;
+			int b;
+			while((b = in.read()) != -1){
+				pos ++;
+				if(b == '>' && lineBytes == 0 && ! inName){
+					if(name != null){
+						writeIndexLine(indexOut, name, seqLength, seqOffset, firstLineResidues, firstLineBytes);
+					}
+					name = new StringBuilder();
+					inName = true;
+					seqLength = 0;
+					firstLineResidues = -1;
+					firstLineBytes = -1;
+					continue;
+				}
+				if(inName){
+					if(b == '\n'){
+						inName = false;
+						seqOffset = pos;
+					}else if(b != '\r'){
+						name.append((char) b);
+					}
+					continue;
+				}
+				lineBytes ++;
+				if(b == '\n'){
+					if(firstLineResidues == -1 && lineResidues > 0){
+						firstLineResidues = lineResidues;
+						firstLineBytes = lineBytes;
+					}
+					lineResidues = 0;
+					lineBytes = 0;
+				}else if(b != '\r'){
+					lineResidues ++;
+					seqLength ++;
+				}
+			}
+			if(name != null){
+				if(firstLineResidues == -1){
+					firstLineResidues = lineResidues;
+					firstLineBytes = lineBytes;
+				}
+				writeIndexLine(indexOut, name, seqLength, seqOffset, firstLineResidues, firstLineBytes);
+			}
+		}finally{
+			in.close();
+			indexOut.close();
+		}
+	}
+
+	private static void writeIndexLine(Writer out, StringBuilder header, long length, long offset, int lineResidues, int lineBytes) throws IOException{
+		// name is the header up to first white space
+		String name = header.toString().trim().split("\\s+", 2)[0];
+		out.write(name + "\t" + length + "\t" + offset + "\t" + Math.max(0, lineResidues) + "\t" + Math.max(0, lineBytes) + "\n");
+	}
+
+}
@@ -0,0 +1,461 @@
+package aliview.exporter;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.log4j.Logger;
+
+import aliview.gui.pane.AlignmentPane;
+import aliview.importer.FileFormat;
+import aliview.subprocesses.SubProcessWindow;
+
+/*
+ *
+ * Exports the alignment pane as a PNG or TIFF image of any size - the pane is painted tile by tile and written
+ * to the file band by band (a number of image rows at a time), so memory use is the same for a small alignment and
+ * a 10000 x 50000 one, instead of one BufferedImage the size of the whole pane
+ *
+ * With a downsample factor > 1 every factor x factor pixels are averaged into one pixel (overview image)
+ *
+ */
+public class TiledImageExporter {
+	private static final Logger logger = Logger.getLogger(TiledImageExporter.class);
+	private static final String LF = System.getProperty("line.separator");
+	// pixels painted at a time
+	private static final int MAX_TILE_PIXELS = 4 * 1024 * 1024;
+	// max height of painted tile, so tiles are not getting too narrow
+	private static final int MAX_TILE_HEIGHT = 4096;
+	// pixels of output image kept before written to file
+	private static final int MAX_BAND_PIXELS = 8 * 1024 * 1024;
+	private static final int OVERVIEW_SUGGESTED_MAX_SIDE = 4000;
+	public static final int[] OVERVIEW_FACTORS = new int[]{2,4,8,16,32,64,128,256};
+
+	/*
+	 * Smallest of OVERVIEW_FACTORS that is making the longest side of image shorter than OVERVIEW_SUGGESTED_MAX_SIDE
+	 */
+	public static int getSuggestedDownsampleFactor(AlignmentPane aliPane){
+		int longestSide = Math.max(aliPane.getWidth(), aliPane.getHeight());
+		for(int factor: OVERVIEW_FACTORS){
+			if(longestSide / factor <= OVERVIEW_SUGGESTED_MAX_SIDE){
+				return factor;
+			}
+		}
+		return OVERVIEW_FACTORS[OVERVIEW_FACTORS.length - 1];
+	}
+
+	/*
+	 * Called from a background thread (while GUI is locked), progressWin can be null
+	 */
+	public static void writeAlignmentPaneAsImage(File outFile, FileFormat fileFormat, AlignmentPane aliPane, int downsampleFactor, SubProcessWindow progressWin) throws IOException{
+		long startTime = System.currentTimeMillis();
+		int factor = Math.max(1, downsampleFactor);
+		int paneWidth = aliPane.getWidth();
+		int paneHeight = aliPane.getHeight();
+		if(paneWidth <= 0 || paneHeight <= 0){
+			throw new IOException("Nothing to export (alignment is empty)");
+		}
+		int outWidth = (paneWidth + factor - 1) / factor;
+		int outHeight = (paneHeight + factor - 1) / factor;
+
+		// band and tile sizes in painted (pane) pixels are multiples of factor, except at the end of pane
+		int outBandRows = Math.max(1, Math.min(outHeight, Math.min(MAX_BAND_PIXELS / outWidth, MAX_TILE_HEIGHT / factor)));
+		int bandHeight = outBandRows * factor;
+		int tileWidth = Math.max(factor, (MAX_TILE_PIXELS / bandHeight) / factor * factor);
+		tileWidth = Math.min(tileWidth, outWidth * factor);
+
+		BandWriter writer;
+		if(fileFormat == FileFormat.IMAGE_TIFF){
+			writer = new TiffBandWriter(outFile, outWidth, outHeight, outBandRows);
+		}else{
+			writer = new PngBandWriter(outFile, outWidth, outHeight);
+		}
+
+		BufferedImage tile = new BufferedImage(tileWidth, bandHeight, BufferedImage.TYPE_INT_RGB);
+		int[] tilePixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+		int[] bandPixels = new int[outWidth * outBandRows];
+
+		try{
+			for(int bandY = 0; bandY < paneHeight; bandY += bandHeight){
+				int paintHeight = Math.min(bandHeight, paneHeight - bandY);
+				int bandRows = (paintHeight + factor - 1) / factor;
+				for(int tileX = 0; tileX < paneWidth; tileX += tileWidth){
+					int paintWidth = Math.min(tileWidth, paneWidth - tileX);
+					paintTile(aliPane, tile, new Rectangle(tileX, bandY, paintWidth, paintHeight));
+					downsampleInto(tilePixels, tileWidth, paintWidth, paintHeight, factor, bandPixels, outWidth, tileX / factor);
+				}
+				writer.writeRows(bandPixels, bandRows);
+				if(progressWin != null){
+					progressWin.setOutput("Exporting image: " + outFile.getAbsolutePath() + LF +
+							"Size: " + outWidth + " x " + outHeight + " pixels" + LF +
+							"Rows written: " + (bandY / factor + bandRows) + " of " + outHeight);
+				}
+			}
+			writer.close();
+		}catch(IOException e){
+			writer.closeQuietly();
+			outFile.delete();
+			throw e;
+		}catch(RuntimeException e){
+			writer.closeQuietly();
+			outFile.delete();
+			throw e;
+		}
+
+		logger.info("Exported image " + outWidth + "x" + outHeight + " (factor " + factor + ") took " + (System.currentTimeMillis() - startTime) + " milliseconds");
+	}
+
+	private static void paintTile(AlignmentPane aliPane, BufferedImage tile, Rectangle area){
+		Graphics2D g2 = tile.createGraphics();
+		try{
+			// First draw a background
+			g2.setColor(Color.WHITE);
+			g2.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+			g2.translate(-area.x, -area.y);
+			g2.setClip(area);
+			aliPane.paintAreaForExport(g2, area);
+		}finally{
+			g2.dispose();
+		}
+	}
+
+	/*
+	 * Every factor x factor block of tile is averaged into one pixel of band (a block at the right or lower
+	 * edge of tile can be smaller), with factor 1 it is a copy
+	 */
+	private static void downsampleInto(int[] tilePixels, int tileScanWidth, int paintWidth, int paintHeight, int factor, int[] bandPixels, int bandWidth, int bandXOffset){
+		int outCols = (paintWidth + factor - 1) / factor;
+		int outRows = (paintHeight + factor - 1) / factor;
+		for(int oy = 0; oy < outRows; oy++){
+			int yStart = oy * factor;
+			int yEnd = Math.min(yStart + factor, paintHeight);
+			for(int ox = 0; ox < outCols; ox++){
+				int xStart = ox * factor;
+				int xEnd = Math.min(xStart + factor, paintWidth);
+				int rgb;
+				if(factor == 1){
+					rgb = tilePixels[yStart * tileScanWidth + xStart];
+				}else{
+					int r = 0;
+					int g = 0;
+					int b = 0;
+					for(int y = yStart; y < yEnd; y++){
+						int rowOffset = y * tileScanWidth;
+						for(int x = xStart; x < xEnd; x++){
+							int pixel = tilePixels[rowOffset + x];
+							r += (pixel >> 16) & 0xFF;
+							g += (pixel >> 8) & 0xFF;
+							b += pixel & 0xFF;
+						}
+					}
+					int count = (yEnd - yStart) * (xEnd - xStart);
+					rgb = ((r / count) << 16) | ((g / count) << 8) | (b / count);
+				}
+				bandPixels[oy * bandWidth + bandXOffset + ox] = rgb;
+			}
+		}
+	}
+
+	/*
+	 * Rows of RGB pixels are written from top to bottom
+	 */
+	private static abstract class BandWriter{
+		abstract void writeRows(int[] pixels, int rows) throws IOException;
+		abstract void close() throws IOException;
+
+		void closeQuietly(){
+			try{
+				close();
+			}catch(IOException e){
+				logger.warn("Could not close image file: " + e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * 8 bit RGB PNG - rows are filtered (Sub) and deflated into IDAT chunks as they come
+	 */
+	private static class PngBandWriter extends BandWriter{
+		private static final byte[] SIGNATURE = new byte[]{(byte)137, 80, 78, 71, 13, 10, 26, 10};
+		private static final int IDAT_CHUNK_SIZE = 256 * 1024;
+		private static final byte FILTER_SUB = 1;
+		private final int width;
+		private final DataOutputStream fileOut;
+		private final DeflaterOutputStream idatOut;
+		private final Deflater deflater;
+		private final byte[] rowBytes;
+
+		public PngBandWriter(File outFile, int width, int height) throws IOException {
+			this.width = width;
+			this.rowBytes = new byte[1 + width * 3];
+			fileOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+			fileOut.write(SIGNATURE);
+
+			ByteArrayChunk ihdr = new ByteArrayChunk(13);
+			ihdr.writeInt(width);
+			ihdr.writeInt(height);
+			ihdr.write(8); // bit depth
+			ihdr.write(2); // color type RGB
+			ihdr.write(0); // compression
+			ihdr.write(0); // filter
+			ihdr.write(0); // interlace
+			writeChunk(fileOut, "IHDR", ihdr.getBytes(), ihdr.size());
+
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+			idatOut = new DeflaterOutputStream(new IdatOutputStream(fileOut), deflater, IDAT_CHUNK_SIZE);
+		}
+
+		void writeRows(int[] pixels, int rows) throws IOException {
+			for(int row = 0; row < rows; row++){
+				rowBytes[0] = FILTER_SUB;
+				int offset = row * width;
+				int prevR = 0;
+				int prevG = 0;
+				int prevB = 0;
+				int pos = 1;
+				for(int x = 0; x < width; x++){
+					int pixel = pixels[offset + x];
+					int r = (pixel >> 16) & 0xFF;
+					int g = (pixel >> 8) & 0xFF;
+					int b = pixel & 0xFF;
+					rowBytes[pos++] = (byte)(r - prevR);
+					rowBytes[pos++] = (byte)(g - prevG);
+					rowBytes[pos++] = (byte)(b - prevB);
+					prevR = r;
+					prevG = g;
+					prevB = b;
+				}
+				idatOut.write(rowBytes);
+			}
+		}
+
+		void close() throws IOException {
+			try{
+				// writes the last IDAT chunk
+				idatOut.close();
+				writeChunk(fileOut, "IEND", new byte[0], 0);
+			}finally{
+				deflater.end();
+				fileOut.close();
+			}
+		}
+
+		private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException{
+			byte[] typeBytes = type.getBytes("US-ASCII");
+			CRC32 crc = new CRC32();
+			crc.update(typeBytes);
+			crc.update(data, 0, length);
+			out.writeInt(length);
+			out.write(typeBytes);
+			out.write(data, 0, length);
+			out.writeInt((int) crc.getValue());
+		}
+
+		/*
+		 * Compressed data is collected and written as IDAT chunks, closing it is not closing file
+		 */
+		private static class IdatOutputStream extends OutputStream{
+			private final DataOutputStream out;
+			private final ByteArrayChunk buffer = new ByteArrayChunk(IDAT_CHUNK_SIZE);
+
+			public IdatOutputStream(DataOutputStream out) {
+				this.out = out;
+			}
+
+			public void write(int b) throws IOException {
+				buffer.write(b);
+				if(buffer.size() == IDAT_CHUNK_SIZE){
+					flushChunk();
+				}
+			}
+
+			public void write(byte[] b, int off, int len) throws IOException {
+				while(len > 0){
+					int count = Math.min(len, IDAT_CHUNK_SIZE - buffer.size());
+					buffer.write(b, off, count);
+					off += count;
+					len -= count;
+					if(buffer.size() == IDAT_CHUNK_SIZE){
+						flushChunk();
+					}
+				}
+			}
+
+			private void flushChunk() throws IOException{
+				if(buffer.size() > 0){
+					writeChunk(out, "IDAT", buffer.getBytes(), buffer.size());
+					buffer.reset();
+				}
+			}
+
+			public void close() throws IOException {
+				flushChunk();
+			}
+		}
+	}
+
+	/*
+	 * Fixed size byte buffer that gives access to its array without copying
+	 */
+	private static class ByteArrayChunk{
+		private final byte[] bytes;
+		private int size;
+
+		public ByteArrayChunk(int capacity) {
+			this.bytes = new byte[capacity];
+		}
+
+		void write(int b){
+			bytes[size++] = (byte) b;
+		}
+
+		void write(byte[] b, int off, int len){
+			System.arraycopy(b, off, bytes, size, len);
+			size += len;
+		}
+
+		void writeInt(int value){
+			write(value >>> 24);
+			write(value >>> 16);
+			write(value >>> 8);
+			write(value);
+		}
+
+		byte[] getBytes(){
+			return bytes;
+		}
+
+		int size(){
+			return size;
+		}
+
+		void reset(){
+			size = 0;
+		}
+	}
+
+	/*
+	 * Uncompressed baseline RGB TIFF (big endian) with one strip per band, the strip offsets are known
+	 * from the start so the image data is written first and the IFD after it
+	 */
+	private static class TiffBandWriter extends BandWriter{
+		private static final long MAX_TIFF_SIZE = 0xFFFFFFFFL;
+		private static final short TYPE_SHORT = 3;
+		private static final short TYPE_LONG = 4;
+		private static final int IFD_ENTRY_COUNT = 10;
+		private final int width;
+		private final int height;
+		private final int rowsPerStrip;
+		private final DataOutputStream out;
+		private final byte[] rowBytes;
+		private final long dataSize;
+
+		public TiffBandWriter(File outFile, int width, int height, int rowsPerStrip) throws IOException {
+			this.width = width;
+			this.height = height;
+			this.rowsPerStrip = rowsPerStrip;
+			this.rowBytes = new byte[width * 3];
+			this.dataSize = (long) width * height * 3;
+
+			int stripCount = getStripCount();
+			long ifdOffset = 8 + dataSize + (dataSize % 2);
+			long fileSize = ifdOffset + 2 + IFD_ENTRY_COUNT * 12 + 4 + 6 + stripCount * 8;
+			if(fileSize > MAX_TIFF_SIZE){
+				throw new IOException("Image is too large for a TIFF file (more than 4 GB), export a downsampled overview instead");
+			}
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+			out.writeByte('M');
+			out.writeByte('M');
+			out.writeShort(42);
+			out.writeInt((int) ifdOffset);
+		}
+
+		private int getStripCount(){
+			return (height + rowsPerStrip - 1) / rowsPerStrip;
+		}
+
+		void writeRows(int[] pixels, int rows) throws IOException {
+			for(int row = 0; row < rows; row++){
+				int offset = row * width;
+				int pos = 0;
+				for(int x = 0; x < width; x++){
+					int pixel = pixels[offset + x];
+					rowBytes[pos++] = (byte)(pixel >> 16);
+					rowBytes[pos++] = (byte)(pixel >> 8);
+					rowBytes[pos++] = (byte)pixel;
+				}
+				out.write(rowBytes);
+			}
+		}
+
+		void close() throws IOException {
+			try{
+				if(dataSize % 2 == 1){
+					out.writeByte(0);
+				}
+				long ifdOffset = 8 + dataSize + (dataSize % 2);
+				int stripCount = getStripCount();
+				long bitsPerSampleOffset = ifdOffset + 2 + IFD_ENTRY_COUNT * 12 + 4;
+				long stripOffsetsOffset = bitsPerSampleOffset + 6;
+				long stripByteCountsOffset = stripOffsetsOffset + stripCount * 4;
+				long stripBytes = (long) rowsPerStrip * width * 3;
+
+				out.writeShort(IFD_ENTRY_COUNT);
+				writeEntry(256, TYPE_LONG, 1, width); // ImageWidth
+				writeEntry(257, TYPE_LONG, 1, height); // ImageLength
+				writeEntry(258, TYPE_SHORT, 3, bitsPerSampleOffset); // BitsPerSample
+				writeShortEntry(259, 1); // Compression none
+				writeShortEntry(262, 2); // Photometric RGB
+				writeEntry(273, TYPE_LONG, stripCount, stripCount == 1 ? 8 : stripOffsetsOffset); // StripOffsets
+				writeShortEntry(277, 3); // SamplesPerPixel
+				writeEntry(278, TYPE_LONG, 1, rowsPerStrip); // RowsPerStrip
+				writeEntry(279, TYPE_LONG, stripCount, stripCount == 1 ? dataSize : stripByteCountsOffset); // StripByteCounts
+				writeShortEntry(284, 1); // PlanarConfiguration chunky
+				out.writeInt(0); // no next IFD
+
+				out.writeShort(8);
+				out.writeShort(8);
+				out.writeShort(8);
+				for(int n = 0; n < stripCount; n++){
+					out.writeInt((int)(8 + n * stripBytes));
+				}
+				for(int n = 0; n < stripCount; n++){
+					out.writeInt((int) Math.min(stripBytes, dataSize - n * stripBytes));
+				}
+			}finally{
+				out.close();
+			}
+		}
+
+		private void writeEntry(int tag, short type, int count, long value) throws IOException{
+			out.writeShort(tag);
+			out.writeShort(type);
+			out.writeInt(count);
+			out.writeInt((int) value);
+		}
+
+		/*
+		 * A single SHORT value is left justified in the 4 value bytes
+		 */
+		private void writeShortEntry(int tag, int value) throws IOException{
+			out.writeShort(tag);
+			out.writeShort(TYPE_SHORT);
+			out.writeInt(1);
+			out.writeShort(value);
+			out.writeShort(0);
+		}
+	}
+
+}
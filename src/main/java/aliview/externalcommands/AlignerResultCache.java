@@ -0,0 +1,283 @@
+package aliview.externalcommands;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.log4j.Logger;
+
+import aliview.aligner.MuscleWrapper;
+import aliview.sequencelist.AlignmentListModel;
+import aliview.sequences.Sequence;
+import aliview.settings.Settings;
+
+/*
+ *
+ * Output of external aligners kept on disk in the AliView user data directory, so that the same realignment
+ * of the same sequences (e.g. after undo or when going back to earlier parameters) is loaded instead of run again
+ *
+ * The key is a hash of the command (program and command template with the parameter names, not the temp file paths)
+ * and the content of the input files or sequences. A file is touched every time it is used and the least
+ * recently used files are deleted when the cache is larger than the max size (setting, 0 turns cache off)
+ *
+ */
+public class AlignerResultCache {
+	private static final Logger logger = Logger.getLogger(AlignerResultCache.class);
+	private static final String LF = System.getProperty("line.separator");
+	private static final String CACHE_DIR_NAME = "aligner-cache";
+	private static final String RESULT_SUFFIX = ".fasta";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final long BYTES_PER_MB = 1024 * 1024;
+	private static final int HASH_BLOCK_SIZE = 64 * 1024;
+
+	public static boolean isEnabled(){
+		return getMaxSizeBytes() > 0;
+	}
+
+	private static long getMaxSizeBytes(){
+		return Settings.getAlignerResultCacheMaxMB().getIntValue() * BYTES_PER_MB;
+	}
+
+	public static File getCacheDirectory(){
+		return new File(MuscleWrapper.getAliViewUserDataDirectory(), CACHE_DIR_NAME);
+	}
+
+	/*
+	 * Key of a command that is reading the current alignment file (and second file) and writing the output file,
+	 * null if command can not be cached
+	 */
+	public static String createKey(CommandItem cmdItem){
+		if(! isEnabled() || cmdItem.hasInternalCommand() || cmdItem.getParameterCurrentFile() == null || cmdItem.getParameterOutputFile() == null){
+			return null;
+		}
+		try{
+			MessageDigest digest = createCommandDigest(cmdItem);
+			addFile(digest, cmdItem.getParameterCurrentFile());
+			addFile(digest, cmdItem.getParameterSecondFile());
+			return toHex(digest.digest());
+		}catch(IOException e){
+			logger.warn("Could not create aligner cache key: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/*
+	 * Key of a command that is reading the sequences from stdin (and maybe a second file)
+	 */
+	public static String createKey(CommandItem cmdItem, List<Sequence> inputSequences){
+		if(! isEnabled() || cmdItem.hasInternalCommand()){
+			return null;
+		}
+		try{
+			MessageDigest digest = createCommandDigest(cmdItem);
+			DigestOutputStream digestOut = new DigestOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, digest);
+			Writer out = new BufferedWriter(new OutputStreamWriter(digestOut));
+			for(Sequence seq: inputSequences){
+				out.write('>');
+				out.write(seq.getName());
+				out.write('\n');
+				seq.writeBases(out);
+				out.write('\n');
+			}
+			out.flush();
+			addFile(digest, cmdItem.getParameterSecondFile());
+			return toHex(digest.digest());
+		}catch(IOException e){
+			logger.warn("Could not create aligner cache key: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static MessageDigest createCommandDigest(CommandItem cmdItem) throws UnsupportedEncodingException{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		addString(digest, cmdItem.getProgramPath());
+		addString(digest, cmdItem.getCommand());
+		// a new version of the program is not giving the same result
+		if(cmdItem.getProgramPath() != null){
+			File program = new File(cmdItem.getProgramPath());
+			if(program.isFile()){
+				addString(digest, program.length() + ":" + program.lastModified());
+			}
+		}
+		return digest;
+	}
+
+	private static void addString(MessageDigest digest, String text) throws UnsupportedEncodingException{
+		if(text != null){
+			digest.update(text.getBytes("UTF-8"));
+		}
+		digest.update((byte) 0);
+	}
+
+	private static void addFile(MessageDigest digest, File file) throws IOException{
+		if(file == null){
+			digest.update((byte) 0);
+			return;
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(file), HASH_BLOCK_SIZE);
+		try{
+			byte[] buffer = new byte[HASH_BLOCK_SIZE];
+			int nRead;
+			while((nRead = in.read(buffer)) != -1){
+				digest.update(buffer, 0, nRead);
+			}
+		}finally{
+			in.close();
+		}
+		digest.update((byte) 0);
+	}
+
+	private static String toHex(byte[] hash){
+		StringBuilder hex = new StringBuilder(hash.length * 2);
+		for(byte b: hash){
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/*
+	 * Cached result for key or null, the file is touched so it is the last to be evicted
+	 */
+	public static synchronized File get(String key){
+		if(key == null){
+			return null;
+		}
+		File cached = new File(getCacheDirectory(), key + RESULT_SUFFIX);
+		if(cached.isFile() && cached.length() > 0){
+			cached.setLastModified(System.currentTimeMillis());
+			logger.info("Aligner result found in cache " + cached);
+			return cached;
+		}
+		return null;
+	}
+
+	/*
+	 * Copies cached result to outFile, returns false if there is no cached result
+	 */
+	public static boolean loadInto(String key, File outFile) throws IOException{
+		File cached = get(key);
+		if(cached == null){
+			return false;
+		}
+		FileUtils.copyFile(cached, outFile);
+		return true;
+	}
+
+	public static void put(String key, File resultFile){
+		if(key == null || resultFile == null || resultFile.length() == 0){
+			return;
+		}
+		try{
+			File temp = createTempInCache(key);
+			FileUtils.copyFile(resultFile, temp);
+			store(key, temp);
+		}catch(IOException e){
+			logger.warn("Could not store aligner result in cache: " + e.getMessage());
+		}
+	}
+
+	public static void put(String key, AlignmentListModel result){
+		if(key == null || result == null || result.getSize() == 0){
+			return;
+		}
+		try{
+			File temp = createTempInCache(key);
+			Writer out = new BufferedWriter(new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(temp))));
+			try{
+				for(Sequence seq: result.getDelegateSequences()){
+					out.write('>');
+					out.write(seq.getName());
+					out.write(LF);
+					seq.writeBases(out);
+					out.write(LF);
+				}
+			}finally{
+				out.close();
+			}
+			store(key, temp);
+		}catch(IOException e){
+			logger.warn("Could not store aligner result in cache: " + e.getMessage());
+		}
+	}
+
+	/*
+	 * Result is written to a temp file and then renamed, so a cached file is never half written
+	 */
+	private static File createTempInCache(String key) throws IOException{
+		File dir = getCacheDirectory();
+		dir.mkdirs();
+		return File.createTempFile(key, TEMP_SUFFIX, dir);
+	}
+
+	private static synchronized void store(String key, File temp){
+		File cached = new File(getCacheDirectory(), key + RESULT_SUFFIX);
+		cached.delete();
+		if(! temp.renameTo(cached)){
+			logger.warn("Could not store aligner result in cache " + cached);
+			temp.delete();
+			return;
+		}
+		cached.setLastModified(System.currentTimeMillis());
+		evictLeastRecentlyUsed();
+	}
+
+	private static void evictLeastRecentlyUsed(){
+		File[] files = getCacheDirectory().listFiles();
+		if(files == null){
+			return;
+		}
+		long totalSize = 0;
+		for(File file: files){
+			totalSize += file.length();
+		}
+		long maxSize = getMaxSizeBytes();
+		if(totalSize <= maxSize){
+			return;
+		}
+
+		// oldest first
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File o1, File o2) {
+				long diff = o1.lastModified() - o2.lastModified();
+				return diff < 0 ? -1 : (diff == 0 ? 0 : 1);
+			}
+		});
+		for(File file: files){
+			if(totalSize <= maxSize){
+				break;
+			}
+			// temp files are being written by other threads
+			if(file.getName().endsWith(TEMP_SUFFIX)){
+				continue;
+			}
+			long size = file.length();
+			if(file.delete()){
+				totalSize -= size;
+				logger.info("Evicted from aligner cache " + file.getName());
+			}
+		}
+	}
+
+}
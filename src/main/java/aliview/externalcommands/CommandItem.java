@@ -34,6 +34,10 @@ public class CommandItem{
 	public static final String CURRENT_ALIGNMENT_FASTA_TRANSLATED_AA = "CURRENT_ALIGNMENT_FASTA_TRANSLATED_AA";
 	public static final String SECOND_FILE = "SECOND_FILE";
 	public static final String SECOND_SEQUENCES = "SECOND_SEQUENCES";
+	// Current alignment is written to stdin and new alignment is read from stdout of program (no temp files)
+	public static final String ALIGNMENT_STDIN = "ALIGNMENT_STDIN";
+	public static final String ALIGNMENT_STDOUT = "ALIGNMENT_STDOUT";
+	private static final String STDIN_ARGUMENT = "-";
 
 	private String name;
 	private String programPath;
@@ -41,6 +45,9 @@ public class CommandItem{
 	private String commandAlternative;
 	private boolean isActivated;
 	private boolean showCommandWindow;
+	private File parameterCurrentFile;
+	private File parameterSecondFile;
+	private File parameterOutputFile;
 
 	private ArrayList<String[]> parsedCommand =  new ArrayList<String[]>();
 
@@ -53,6 +60,13 @@ public class CommandItem{
 		this.showCommandWindow = showCommandWindow;
 	}
 
+	/*
+	 * Parameters are replaced in the parsed command, a copy is needed when the same command is run with different files
+	 */
+	public CommandItem getCopy() {
+		return new CommandItem(name, programPath, command, isActivated, showCommandWindow);
+	}
+
 	public void setProgramPath(String programPath) {
 		this.programPath = programPath;
 	}
@@ -172,11 +186,13 @@ public class CommandItem{
 	}
 
 	public void setParameterSecondFile(File secondFile) {
+		this.parameterSecondFile = secondFile;
 		replaceInCommand(CommandItem.SECOND_FILE, secondFile.getAbsolutePath());
 		replaceInCommand(CommandItem.SECOND_SEQUENCES, secondFile.getAbsolutePath());
 	}
 
 	public void setParameterCurrentFile(File currentFile) {
+		this.parameterCurrentFile = currentFile;
 		replaceInCommand(CommandItem.CURRENT_ALIGNMENT_TEMP, currentFile.getAbsolutePath());
 		replaceInCommand(CommandItem.CURRENT_ALIGNMENT_FASTA, currentFile.getAbsolutePath());
 		replaceInCommand(CommandItem.CURRENT_ALIGNMENT_PHYLIP, currentFile.getAbsolutePath());
@@ -185,9 +201,62 @@ public class CommandItem{
 	}
 
 	public void setParameterOutputFile(File outputFile) {
+		this.parameterOutputFile = outputFile;
 		replaceInCommand(CommandItem.OUTPUT_FILE, outputFile.getAbsolutePath());
 	}
 
+	public File getParameterCurrentFile() {
+		return parameterCurrentFile;
+	}
+
+	public File getParameterSecondFile() {
+		return parameterSecondFile;
+	}
+
+	public File getParameterOutputFile() {
+		return parameterOutputFile;
+	}
+
+	/*
+	 * Internal commands (e.g. ALIVIEW_OPEN) are doing more than creating output
+	 */
+	public boolean hasInternalCommand() {
+		for(String[] line: parsedCommand){
+			if(line.length > 0 && StringUtils.startsWith(line[0], "ALIVIEW_")){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * A command of one line with both ALIGNMENT_STDIN and ALIGNMENT_STDOUT is run with streams instead of temp files
+	 */
+	public boolean isStdinStdoutCommand() {
+		return getCommand() != null && getParsedCommands().size() == 1 &&
+				getCommand().contains(ALIGNMENT_STDIN) && getCommand().contains(ALIGNMENT_STDOUT);
+	}
+
+	/*
+	 * ALIGNMENT_STDIN is replaced with - (read from stdin) and ALIGNMENT_STDOUT is removed (most aligners write to stdout when no output file)
+	 */
+	public void setParameterStreams() {
+		replaceInCommand(ALIGNMENT_STDIN, STDIN_ARGUMENT);
+		removeFromCommand(ALIGNMENT_STDOUT);
+	}
+
+	public void removeFromCommand(String target){
+		for(int n = 0; n < parsedCommand.size(); n++){
+			List<String> kept = new ArrayList<String>();
+			for(String arg: parsedCommand.get(n)){
+				if(! arg.equals(target)){
+					kept.add(arg);
+				}
+			}
+			parsedCommand.set(n, kept.toArray(new String[kept.size()]));
+		}
+	}
+
 	public boolean commandContainsIgnoreCase(String target) {
 		return getCommand().toLowerCase().contains(target.toLowerCase());
 	}
@@ -1,13 +1,22 @@
 package aliview.externalcommands;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,31 +30,52 @@ import org.apache.log4j.Logger;
 import aliview.AliView;
 import aliview.aligner.Aligner;
 import aliview.aligner.MuscleWrapper;
+import aliview.importer.AlignmentImportException;
+import aliview.importer.SequencesFactory;
+import aliview.metrics.PerformanceMetrics;
+import aliview.sequencelist.AlignmentListModel;
+import aliview.sequences.Sequence;
 import aliview.subprocesses.SubProcessWindow;
 
 public class ExternalCommandExecutor {
 
 	private static final Logger logger = Logger.getLogger(ExternalCommandExecutor.class);
 	private static final String LF = System.getProperty("line.separator");
+	private static final int FILE_SINK_BUFFER_SIZE = 1024 * 1024;
+	private static final int FILE_SINK_BLOCK_SIZE = 64 * 1024;
 
 
 	public static boolean executeMultiple(CommandItem cmdItem, SubProcessWindow subProcessWin) throws IOException {
-		// TODO Auto-generated method stub
+
+		// same command has been run on same input before
+		String cacheKey = AlignerResultCache.createKey(cmdItem);
+		if(AlignerResultCache.loadInto(cacheKey, cmdItem.getParameterOutputFile())){
+			subProcessWin.appendOutput("Result of identical alignment was found in cache - program was not run" + LF);
+			return false;
+		}
 
 		boolean wasProcessInterrupted = false;
+		boolean allCommandsSucceeded = true;
 		for(String[] commandLine: cmdItem.getParsedCommands()){
 
 			if(StringUtils.startsWith(commandLine[0], "ALIVIEW_")){
 				executeInternalCommand(commandLine, subProcessWin);
 			}
 			else{
-				wasProcessInterrupted = executeCommand(commandLine, subProcessWin);
+				int exitValue = executeCommand(commandLine, subProcessWin);
 				if(subProcessWin.wasSubProcessDestrouedByUser()){
 					wasProcessInterrupted = true;
 					break;
 				}
+				if(exitValue != 0){
+					allCommandsSucceeded = false;
+				}
 			}
 		}
+		// a failed program might have written part of the output - that is never cached
+		if(! wasProcessInterrupted && allCommandsSucceeded){
+			AlignerResultCache.put(cacheKey, cmdItem.getParameterOutputFile());
+		}
 		return wasProcessInterrupted;
 	}
 
@@ -68,16 +98,19 @@ public class ExternalCommandExecutor {
 		}
 	}
 
-	private static boolean executeCommand(String[] commandArray, final SubProcessWindow subProcessWin) throws IOException{
+	/*
+	 * Returns exit value of the program (-1 if it could not be waited for)
+	 */
+	private static int executeCommand(String[] commandArray, final SubProcessWindow subProcessWin) throws IOException{
 
-		boolean wasProcessInterrupted = false;
+		int exitValue = -1;
 
 		// check for piped output in command
 		File pipedOut = null;
 		for(int i = 0; i < commandArray.length; i++){
 			if(commandArray[i].equals(">")){
 				logger.info("found pipe");
-				if(commandArray.length >= i+1){
+				if(commandArray.length > i+1){
 					pipedOut = new File(commandArray[i+1]);
 					commandArray = (String[]) ArrayUtils.subarray(commandArray, 0, i);
 					break;
@@ -93,8 +126,10 @@ public class ExternalCommandExecutor {
 
 		ProcessBuilder probuilder = new ProcessBuilder( commandArray );
 
-		probuilder.redirectErrorStream(true);
+		// when output is redirected to file only error stream is shown in console (like in a shell)
+		probuilder.redirectErrorStream(pipedOut == null);
 
+		long startTime = PerformanceMetrics.startTimer();
 		Process subprocess = probuilder.start();
 
 		// so that process gets killed when window destroys
@@ -102,64 +137,27 @@ public class ExternalCommandExecutor {
 
 		subProcessWin.appendOutput("command:" + LF + cmdAsString + LF);
 
-		final Scanner sc = new Scanner(subprocess.getInputStream());
-		//	final Scanner errorSc = new Scanner(subprocess.getErrorStream());
-
-		//		
-		//		final File finalPipedOut = pipedOut;
-		//		
-		//		// read output in separate thread so nothing gets blocked
-		//		Thread pipedOutThread = new Thread(new Runnable(){
-		//			public void run(){
-		//			
-		//			// if pipped out then read output into file
-		//			if(finalPipedOut != null){
-		//				try {
-		//					logger.info("piped out");
-		//					BufferedWriter buffOut = new BufferedWriter(new FileWriter(finalPipedOut));	
-		//					while (sc.hasNext()){
-		//						logger.info("beforeNextLine");
-		//						String nextLine = sc.nextLine();
-		//						logger.info("afterNextLine");
-		//						buffOut.append(nextLine + LF);
-		//						//logger.info((nextLine));
-		//					}
-		//					sc.close();
-		//					buffOut.close();
-		//					logger.info(("done with piped out"));
-		//				} catch (IOException e) {
-		//					// TODO Auto-generated catch block
-		//					e.printStackTrace();
-		//				}
-		//			}
-		//			// else just dump output to screen
-		//			else{
-		//				try {
-		//					logger.info(("going into scanner loop"));
-		//					while (sc.hasNext()){
-		//						logger.info("wait for");
-		//						String nextLine = sc.nextLine();
-		//						subProcessWin.appendOutput(nextLine + LF);
-		//						logger.info((nextLine));
-		//					}
-		//					sc.close();
-		//				} catch (Exception e) {
-		//					// TODO Auto-generated catch block
-		//					e.printStackTrace();
-		//				}
-		//			}
-		//			logger.info("outthreaddone");
-		//			}
-		//		});
-		//		pipedOutThread.start();
-		//		
-		while (sc.hasNext()){
-			//logger.info(errorSc.nextLine());
-			String nextLine = sc.nextLine();
-			subProcessWin.appendOutput(nextLine + LF);
-			System.out.println(nextLine);
+		try{
+			if(pipedOut != null){
+				subProcessWin.appendOutput("output is written to: " + pipedOut.getAbsolutePath() + LF);
+				// read errors in separate thread so process is not blocked when its error output is not read
+				Thread errorReaderThread = startConsoleReaderThread(subprocess.getErrorStream(), subProcessWin);
+				copyStreamToFile(subprocess.getInputStream(), pipedOut);
+				try {
+					errorReaderThread.join();
+				} catch (InterruptedException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
+				}
+			}else{
+				copyLinesToConsole(subprocess.getInputStream(), subProcessWin);
+			}
+			exitValue = waitForExitValue(subprocess, subProcessWin);
+		}finally{
+			// clean up external process (also when output could not be read or written)
+			subprocess.destroy();
 		}
-		sc.close();
+		PerformanceMetrics.recordSince(getMetricName(commandArray), startTime);
 		logger.info("errorReaderThread-finished");
 		logger.info("before wait for subprocess");
 
@@ -185,14 +183,177 @@ public class ExternalCommandExecutor {
 		}
 		 */
 
-		subprocess.destroy();
-
 		logger.info("done");
 
-		return wasProcessInterrupted;
+		return exitValue;
 
 	}
 
+	/*
+	 * Output of program has been read, so it is about to exit
+	 */
+	private static int waitForExitValue(Process subprocess, SubProcessWindow subProcessWin){
+		try {
+			int exitValue = subprocess.waitFor();
+			if(exitValue != 0 && ! subProcessWin.wasSubProcessDestrouedByUser()){
+				subProcessWin.appendOutput("program exited with status " + exitValue + LF);
+			}
+			return exitValue;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	/*
+	 * Runs a command that reads sequences from stdin and writes the new alignment as fasta to stdout.
+	 * Sequences are written to the process by a separate thread while the output is parsed, so nothing
+	 * is written to or read from temp files. Error output of the program is shown in console.
+	 */
+	public static AlignmentListModel executeStdinStdout(CommandItem cmdItem, final List<Sequence> inputSequences, final SubProcessWindow subProcessWin) throws IOException, AlignmentImportException{
+
+		String cacheKey = AlignerResultCache.createKey(cmdItem, inputSequences);
+		File cached = AlignerResultCache.get(cacheKey);
+		if(cached != null){
+			subProcessWin.appendOutput("Result of identical alignment was found in cache - program was not run" + LF);
+			Reader cachedReader = new BufferedReader(new FileReader(cached));
+			try{
+				return new SequencesFactory().createFastaSequencesFromStream(cachedReader);
+			}finally{
+				cachedReader.close();
+			}
+		}
+
+		String[] commandArray = cmdItem.getParsedCommands().get(0);
+
+		String cmdAsString ="";
+		for(String part: commandArray){
+			cmdAsString += " " + part;
+		}
+		logger.info(cmdAsString);
+
+		ProcessBuilder probuilder = new ProcessBuilder( commandArray );
+		long startTime = PerformanceMetrics.startTimer();
+		final Process subprocess = probuilder.start();
+
+		// so that process gets killed when window destroys
+		subProcessWin.setActiveProcess(subprocess);
+
+		subProcessWin.appendOutput("command:" + LF + cmdAsString + LF);
+		subProcessWin.appendOutput("sequences are sent to program through stdin" + LF);
+
+		try{
+			Thread errorReaderThread = startConsoleReaderThread(subprocess.getErrorStream(), subProcessWin);
+
+			Thread writerThread = new Thread(new Runnable(){
+				public void run(){
+					writeSequencesAsFasta(inputSequences, subprocess.getOutputStream(), subProcessWin);
+				}
+			});
+			writerThread.start();
+
+			SequencesFactory seqFactory = new SequencesFactory();
+			AlignmentListModel alignedSequences = seqFactory.createFastaSequencesFromStream(new InputStreamReader(subprocess.getInputStream()));
+
+			try {
+				writerThread.join();
+				errorReaderThread.join();
+			} catch (InterruptedException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+			int exitValue = waitForExitValue(subprocess, subProcessWin);
+			PerformanceMetrics.recordSince(getMetricName(commandArray), startTime);
+			// a failed program might have written part of the alignment - that is never cached
+			if(! subProcessWin.wasSubProcessDestrouedByUser() && exitValue == 0){
+				AlignerResultCache.put(cacheKey, alignedSequences);
+			}
+			return alignedSequences;
+		}finally{
+			subprocess.destroy();
+		}
+	}
+
+	/*
+	 * Durations are recorded per program (name of executable)
+	 */
+	private static String getMetricName(String[] commandArray){
+		return PerformanceMetrics.EXTERNAL_COMMAND_PREFIX + new File(commandArray[0]).getName();
+	}
+
+	private static void writeSequencesAsFasta(List<Sequence> sequences, OutputStream processIn, SubProcessWindow subProcessWin){
+		Writer out = new BufferedWriter(new OutputStreamWriter(processIn), FILE_SINK_BUFFER_SIZE);
+		try{
+			for(Sequence seq: sequences){
+				out.write('>');
+				out.write(seq.getName());
+				out.write(LF);
+				seq.writeBases(out);
+				out.write(LF);
+			}
+		}catch(IOException e){
+			// program has stopped reading (e.g. it failed or was cancelled) - reason is in its error output
+			if(! subProcessWin.wasSubProcessDestrouedByUser()){
+				logger.warn("Could not write sequences to program: " + e.getMessage());
+			}
+		}finally{
+			// close so program knows there is no more input
+			try {
+				out.close();
+			} catch (IOException e) {
+				logger.info("stdin of program was already closed");
+			}
+		}
+	}
+
+	/*
+	 * Output of sub process straight to file in large blocks (nothing is sent to console)
+	 */
+	private static void copyStreamToFile(InputStream in, File outFile) throws IOException{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile), FILE_SINK_BUFFER_SIZE);
+		try{
+			byte[] buffer = new byte[FILE_SINK_BLOCK_SIZE];
+			int count;
+			while((count = in.read(buffer)) != -1){
+				out.write(buffer, 0, count);
+			}
+		}finally{
+			out.close();
+		}
+		logger.info("done with piped out");
+	}
+
+	/*
+	 * Lines of sub process output to console, the console is batching updates so this is
+	 * not creating one EDT-event per line
+	 */
+	private static void copyLinesToConsole(InputStream in, SubProcessWindow subProcessWin) throws IOException{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+		try{
+			String nextLine;
+			while((nextLine = reader.readLine()) != null){
+				subProcessWin.appendOutput(nextLine + LF);
+			}
+		}finally{
+			reader.close();
+		}
+	}
+
+	private static Thread startConsoleReaderThread(final InputStream in, final SubProcessWindow subProcessWin){
+		Thread readerThread = new Thread(new Runnable(){
+			public void run(){
+				try {
+					copyLinesToConsole(in, subProcessWin);
+				} catch (IOException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
+				}
+			}
+		});
+		readerThread.start();
+		return readerThread;
+	}
+
 	/*
 	 private static boolean executeCommand(String[] commandArray, final SubProcessWindow subProcessWin) throws IOException{
 
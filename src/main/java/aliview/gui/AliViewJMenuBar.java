@@ -55,6 +55,7 @@ import aliview.sequencelist.FileSequenceAlignmentListModel;
 import aliview.sequences.SequenceUtils;
 import aliview.settings.Settings;
 import aliview.settings.SettingsListener;
+import aliview.utils.LogUtils;
 
 public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, AlignmentDataListener, AlignmentSelectionListener, SettingsListener{
 	private static final Logger logger = Logger.getLogger(AliViewJMenuBar.class);
@@ -351,8 +352,35 @@ public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, Alig
 		mnFile.add(mntmExportAlignmentAsImage);
 		loadedAlignmentFunctions.add(mntmExportAlignmentAsImage);
 
+		JMenuItem mntmExportAlignmentAsTiff = new JMenuItem("Export alignment as TIFF image");
+		mntmExportAlignmentAsTiff.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.saveAlignmentAsFileViaChooser(FileFormat.IMAGE_TIFF, true);
+			}
+		});
+		mnFile.add(mntmExportAlignmentAsTiff);
+		loadedAlignmentFunctions.add(mntmExportAlignmentAsTiff);
+
+		JMenuItem mntmExportOverviewImage = new JMenuItem("Export alignment overview image (downsampled)");
+		mntmExportOverviewImage.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.exportAlignmentOverviewImageViaChooser();
+			}
+		});
+		mnFile.add(mntmExportOverviewImage);
+		loadedAlignmentFunctions.add(mntmExportOverviewImage);
+
 		mnFile.add(new JSeparator());
 
+		JMenuItem mntmExportDistanceMatrix = new JMenuItem("Export pairwise distance matrix (PHYLIP or CSV)");
+		mntmExportDistanceMatrix.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.exportDistanceMatrixViaChooser();
+			}
+		});
+		mnFile.add(mntmExportDistanceMatrix);
+		loadedAlignmentFunctions.add(mntmExportDistanceMatrix);
+
 		JMenuItem mntmExportRaxMLFile = new JMenuItem("Export RaxML partition file");
 		mntmExportRaxMLFile.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
@@ -408,6 +436,27 @@ public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, Alig
 		mnFile.add(mntmLogFile);
 		alwaysAvailableFunctions.add(mntmLogFile);
 
+		JMenuItem mntmPerformance = new JMenuItem("Show performance metrics");
+		mntmPerformance.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.showPerformanceMetrics();
+			}
+		});
+		mnFile.add(mntmPerformance);
+		alwaysAvailableFunctions.add(mntmPerformance);
+
+		JCheckBoxMenuItem mntmTraceToFile = new JCheckBoxMenuItem("Trace to log file (slow)");
+		mntmTraceToFile.setToolTipText("Log everything with line numbers, also painting and other frequent events");
+		mntmTraceToFile.setSelected(LogUtils.isTraceToFile());
+		mntmTraceToFile.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JCheckBoxMenuItem cbxItem = (JCheckBoxMenuItem) e.getSource();
+				aliViewWindow.setTraceToFile(cbxItem.isSelected());
+			}
+		});
+		mnFile.add(mntmTraceToFile);
+		alwaysAvailableFunctions.add(mntmTraceToFile);
+
 		mnFile.add(new JSeparator());
 
 
@@ -600,6 +649,16 @@ public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, Alig
 		editFunctions.add(mntmRemoveVerticalGaps);
 		loadedAlignmentFunctions.add(mntmRemoveVerticalGaps);
 
+		JMenuItem mntmRemoveGappyColumns = new JMenuItem("Delete columns with gaps above threshold...");
+		mntmRemoveGappyColumns.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.deleteColumnsAboveGapThreshold();
+			}
+		});
+		mnEdit.add(mntmRemoveGappyColumns);
+		editFunctions.add(mntmRemoveGappyColumns);
+		loadedAlignmentFunctions.add(mntmRemoveGappyColumns);
+
 		JMenuItem mntmRemoveAllGaps = new JMenuItem("Delete all gaps in all sequences");
 		mntmRemoveAllGaps.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
@@ -1091,6 +1150,16 @@ public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, Alig
 		mnViewMenu.add(highlightDiff);
 		loadedAlignmentFunctions.add(highlightDiff);
 
+		JCheckBoxMenuItem showQualityShading = new JCheckBoxMenuItem("Shade bases by quality (FASTQ)");
+		showQualityShading.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent e){
+				JCheckBoxMenuItem  btn = (JCheckBoxMenuItem ) e.getSource();
+				aliViewWindow.setShowQualityShading(btn.isSelected());
+			}
+		});
+		mnViewMenu.add(showQualityShading);
+		loadedAlignmentFunctions.add(showQualityShading);
+
 		mnViewMenu.add(new JSeparator());	
 
 		JMenuItem mntmSortSequencesByName = new JMenuItem("Sort sequences by name");
@@ -1113,6 +1182,36 @@ public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, Alig
 		reorderAndDeleteFunctions.add(mntmSortSequencesByCharColumn);
 		loadedAlignmentFunctions.add(mntmSortSequencesByCharColumn);
 
+		JMenuItem mntmSortSequencesByUngapedLength = new JMenuItem("Sort sequences by ungapped length (longest first)");
+		mntmSortSequencesByUngapedLength.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.sortSequencesByUngapedLength();
+			}
+		});
+		mnViewMenu.add(mntmSortSequencesByUngapedLength);
+		reorderAndDeleteFunctions.add(mntmSortSequencesByUngapedLength);
+		loadedAlignmentFunctions.add(mntmSortSequencesByUngapedLength);
+
+		JMenuItem mntmSortSequencesByGapCount = new JMenuItem("Sort sequences by number of gaps (fewest first)");
+		mntmSortSequencesByGapCount.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.sortSequencesByGapCount();
+			}
+		});
+		mnViewMenu.add(mntmSortSequencesByGapCount);
+		reorderAndDeleteFunctions.add(mntmSortSequencesByGapCount);
+		loadedAlignmentFunctions.add(mntmSortSequencesByGapCount);
+
+		JMenuItem mntmSortSequencesByIdentity = new JMenuItem("Sort sequences by identity to selected sequence");
+		mntmSortSequencesByIdentity.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.sortSequencesByIdentityToSelected();
+			}
+		});
+		mnViewMenu.add(mntmSortSequencesByIdentity);
+		reorderAndDeleteFunctions.add(mntmSortSequencesByIdentity);
+		loadedAlignmentFunctions.add(mntmSortSequencesByIdentity);
+
 
 		mnViewMenu.add(new JSeparator());
 
@@ -1403,6 +1502,16 @@ public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, Alig
 		editFunctions.add(mntmReAlignSelectedSequence);
 		loadedAlignmentFunctions.add(mntmReAlignSelectedSequence);
 
+		JMenuItem mntmReAlignPartitions = new JMenuItem("Realign charsets or selected columns separately (in parallel)");
+		mntmReAlignPartitions.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.reAlignPartitionsInParallel();
+			}
+		});
+		mnAlign.add(mntmReAlignPartitions);
+		editFunctions.add(mntmReAlignPartitions);
+		loadedAlignmentFunctions.add(mntmReAlignPartitions);
+
 		JMenuItem mntmAlign = new JMenuItem("Realign everything");
 		mntmAlign.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
@@ -1610,15 +1719,15 @@ public class AliViewJMenuBar extends JMenuBar implements AlignmentListener, Alig
 		mnPrimer.add(mntmFindPrimerSettings);
 		alwaysAvailableFunctions.add(mntmFindPrimerSettings);
 
-		//		JMenuItem mntmMinimizeStop = new JMenuItem("Minimize stop codons");
-		//		mntmMinimizeStop.addActionListener(new ActionListener() {
-		//			public void actionPerformed(ActionEvent e) {
-		//				aliViewWindow.adjustReadingFrameMinimizeStop();
-		//			}
-		//		});
-		//		mnTools.add(mntmMinimizeStop);
-		//		loadedAlignmentFunctions.add(mntmMinimizeStop);
-		//		nucleotideFunctions.add(mntmMinimizeStop);
+		JMenuItem mntmMinimizeStop = new JMenuItem("Minimize stop codons");
+		mntmMinimizeStop.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				aliViewWindow.adjustReadingFrameMinimizeStop();
+			}
+		});
+		mnTools.add(mntmMinimizeStop);
+		loadedAlignmentFunctions.add(mntmMinimizeStop);
+		nucleotideFunctions.add(mntmMinimizeStop);
 
 		//
 		// Menu with External Commands
@@ -0,0 +1,268 @@
+package aliview.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import utils.FileUtilities;
+import aliview.alignment.AlignmentStatistics;
+import aliview.messenges.Messenger;
+import aliview.settings.Settings;
+
+/*
+ *
+ * Shows AlignmentStatistics as one table with charsets and one with sequences, click on column header to sort,
+ * the table that is showing can be exported as CSV (rows in the sorted order)
+ *
+ */
+public class AlignmentStatisticsFrame extends JFrame {
+	private static final Logger logger = Logger.getLogger(AlignmentStatisticsFrame.class);
+	private static final String LF = System.getProperty("line.separator");
+	private JTabbedPane tabbedPane;
+	private JTable charsetTable;
+	private JTable sequenceTable;
+
+	public AlignmentStatisticsFrame(AlignmentStatistics stats, String alignmentName, Component parent){
+
+		charsetTable = createTable(new CharsetTableModel(stats));
+		sequenceTable = createTable(new SequenceTableModel(stats));
+
+		tabbedPane = new JTabbedPane();
+		tabbedPane.addTab("Charsets", new JScrollPane(charsetTable));
+		tabbedPane.addTab("Sequences", new JScrollPane(sequenceTable, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED));
+		getContentPane().add(tabbedPane, BorderLayout.CENTER);
+
+		JButton btnExport = new JButton("Export table as CSV...");
+		btnExport.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				exportVisibleTableAsCSV();
+			}
+		});
+		JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		buttonPanel.add(btnExport);
+		getContentPane().add(buttonPanel, BorderLayout.SOUTH);
+
+		this.setTitle("Statistics - " + alignmentName);
+		this.setIconImage(AppIcons.getProgramIconImage());
+		this.setPreferredSize(new Dimension(800,500));
+		this.placeFrameupperLeftLocationOfThis(parent);
+		this.pack();
+		this.setVisible(true);
+	}
+
+	private JTable createTable(AbstractTableModel model){
+		JTable table = new JTable(model);
+		table.setAutoCreateRowSorter(true);
+		if(model.getColumnCount() > 8){
+			table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+		}
+		table.getColumnModel().getColumn(0).setPreferredWidth(200);
+		return table;
+	}
+
+	private static Double round(double value){
+		if(Double.isNaN(value)){
+			return null;
+		}
+		return Math.round(value * 100) / 100.0;
+	}
+
+	private JTable getVisibleTable(){
+		if(tabbedPane.getSelectedIndex() == 1){
+			return sequenceTable;
+		}
+		return charsetTable;
+	}
+
+	private void exportVisibleTableAsCSV(){
+		String suggestedName = "statistics-" + tabbedPane.getTitleAt(tabbedPane.getSelectedIndex()).toLowerCase() + ".csv";
+		File suggestedFile = new File(Settings.getSaveAlignmentDirectory(), suggestedName);
+		File selectedFile = FileUtilities.selectSaveFileViaChooser(suggestedFile, this);
+		if(selectedFile == null){
+			return;
+		}
+		if(selectedFile.exists()){
+			String message = "File already exists - do you want to overwrite?";
+			int retVal = JOptionPane.showConfirmDialog(this, message, "Overwrite?", JOptionPane.OK_CANCEL_OPTION);
+			if(retVal != JOptionPane.OK_OPTION){
+				return;
+			}
+		}
+		BufferedWriter writer = null;
+		try {
+			writer = new BufferedWriter(new FileWriter(selectedFile));
+			writeTableAsCSV(getVisibleTable(), writer);
+			writer.close();
+			logger.info("Statistics exported to " + selectedFile);
+		} catch (IOException e) {
+			e.printStackTrace();
+			Messenger.showOKOnlyMessage(Messenger.FILE_SAVE_ERROR, LF + e.getLocalizedMessage(), this);
+		} finally {
+			IOUtils.closeQuietly(writer);
+		}
+	}
+
+	/*
+	 * Rows in the order they are shown (sorted)
+	 */
+	private static void writeTableAsCSV(JTable table, Writer writer) throws IOException{
+		int nCols = table.getModel().getColumnCount();
+		for(int col = 0; col < nCols; col++){
+			if(col > 0){
+				writer.write(',');
+			}
+			writer.write(csvQuote(table.getModel().getColumnName(col)));
+		}
+		writer.write(LF);
+		for(int viewRow = 0; viewRow < table.getRowCount(); viewRow++){
+			int modelRow = table.convertRowIndexToModel(viewRow);
+			for(int col = 0; col < nCols; col++){
+				if(col > 0){
+					writer.write(',');
+				}
+				Object value = table.getModel().getValueAt(modelRow, col);
+				if(value instanceof String){
+					writer.write(csvQuote((String) value));
+				}else if(value != null){
+					writer.write(value.toString());
+				}
+			}
+			writer.write(LF);
+		}
+	}
+
+	private static String csvQuote(String text){
+		if(text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0){
+			return "\"" + text.replace("\"", "\"\"") + "\"";
+		}
+		return text;
+	}
+
+	public void placeFrameupperLeftLocationOfThis(Component parent){
+		if(parent != null){
+			int newX = parent.getX() + 100;
+			int newY = parent.getY() + 100;
+			this.setLocation(newX, newY);
+		}
+	}
+
+	/*
+	 * Values are read from the AlignmentStatistics arrays when a cell is asked for (no row objects),
+	 * not editable and with column classes so numbers sort as numbers
+	 */
+	private static class CharsetTableModel extends AbstractTableModel{
+		private static final String[] HEADERS = new String[]{"Name", "Length", "Variable sites", "Parsimony-informative sites", "Sequences with data", "Missing %", "GC %"};
+		private static final Class<?>[] CLASSES = new Class<?>[]{String.class, Integer.class, Integer.class, Integer.class, Integer.class, Double.class, Double.class};
+		private final AlignmentStatistics stats;
+
+		public CharsetTableModel(AlignmentStatistics stats) {
+			this.stats = stats;
+		}
+
+		public int getRowCount() {
+			return stats.getSetCount();
+		}
+
+		public int getColumnCount() {
+			return HEADERS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return HEADERS[column];
+		}
+
+		@Override
+		public Class<?> getColumnClass(int columnIndex) {
+			return CLASSES[columnIndex];
+		}
+
+		public Object getValueAt(int set, int column) {
+			switch(column){
+			case 0: return stats.getSetName(set);
+			case 1: return stats.getSetLength(set);
+			case 2: return stats.getVariableSites(set);
+			case 3: return stats.getParsimonyInformativeSites(set);
+			case 4: return stats.getSequencesWithData(set);
+			case 5: return round(stats.getMissingPercent(set));
+			default: return round(stats.getGCPercent(set));
+			}
+		}
+	}
+
+	/*
+	 * Name, characters, completeness and (if there are charsets) charsets with data and completeness in every charset
+	 */
+	private static class SequenceTableModel extends AbstractTableModel{
+		private final AlignmentStatistics stats;
+		private final int nSets;
+
+		public SequenceTableModel(AlignmentStatistics stats) {
+			this.stats = stats;
+			this.nSets = stats.getSetCount();
+		}
+
+		public int getRowCount() {
+			return stats.getSequenceCount();
+		}
+
+		public int getColumnCount() {
+			if(nSets > 1){
+				return 3 + nSets;
+			}
+			return 3;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			switch(column){
+			case 0: return "Name";
+			case 1: return "Characters";
+			case 2: return "Completeness %";
+			case 3: return "Charsets with data";
+			default: return stats.getSetName(column - 3) + " %";
+			}
+		}
+
+		@Override
+		public Class<?> getColumnClass(int column) {
+			switch(column){
+			case 0: return String.class;
+			case 1: return Integer.class;
+			case 3: return Integer.class;
+			default: return Double.class;
+			}
+		}
+
+		public Object getValueAt(int seqIndex, int column) {
+			switch(column){
+			case 0: return stats.getSequenceName(seqIndex);
+			case 1: return stats.getSequencePresentCount(seqIndex, 0);
+			case 2: return round(stats.getSequenceCompletenessPercent(seqIndex, 0));
+			case 3: return stats.getSetsWithData(seqIndex);
+			default: return round(stats.getSequenceCompletenessPercent(seqIndex, column - 3));
+			}
+		}
+	}
+
+}
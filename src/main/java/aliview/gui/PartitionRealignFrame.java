@@ -0,0 +1,202 @@
+package aliview.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import org.apache.log4j.Logger;
+
+import aliview.aligner.PartitionRealignJob;
+import aliview.aligner.PartitionRealigner;
+import aliview.aligner.PartitionRealignerListener;
+
+/*
+ *
+ * Progress of a PartitionRealigner - one row for every partition with status and time,
+ * selected partitions (or all) can be cancelled while the others keep running
+ *
+ */
+public class PartitionRealignFrame extends JFrame implements PartitionRealignerListener {
+	private static final Logger logger = Logger.getLogger(PartitionRealignFrame.class);
+	private static final int TIME_UPDATE_INTERVAL_MILLIS = 1000;
+	private final PartitionRealigner realigner;
+	private final JobTableModel tableModel;
+	private final JTable table;
+	private final JLabel lblSummary = new JLabel();
+	private final JButton btnCancelSelected = new JButton("Cancel selected");
+	private final JButton btnCancelAll = new JButton("Cancel all");
+	private final Timer timeUpdateTimer;
+	private boolean isRealignDone;
+
+	public PartitionRealignFrame(final PartitionRealigner realigner, String title, Component parent){
+		this.realigner = realigner;
+
+		tableModel = new JobTableModel(realigner.getJobs());
+		table = new JTable(tableModel);
+		table.getColumnModel().getColumn(0).setPreferredWidth(200);
+		table.getColumnModel().getColumn(4).setPreferredWidth(200);
+		getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+
+		btnCancelSelected.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				for(int viewRow: table.getSelectedRows()){
+					realigner.getJobs().get(table.convertRowIndexToModel(viewRow)).cancel();
+				}
+				tableModel.fireAllRowsUpdated();
+			}
+		});
+		btnCancelAll.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				realigner.cancelAll();
+				tableModel.fireAllRowsUpdated();
+			}
+		});
+		JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		buttonPanel.add(lblSummary);
+		buttonPanel.add(btnCancelSelected);
+		buttonPanel.add(btnCancelAll);
+		getContentPane().add(buttonPanel, BorderLayout.SOUTH);
+
+		// running times
+		timeUpdateTimer = new Timer(TIME_UPDATE_INTERVAL_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				tableModel.fireAllRowsUpdated();
+			}
+		});
+		timeUpdateTimer.start();
+
+		// closing window is cancelling what is not finished
+		this.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+		this.addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {
+				if(! isRealignDone){
+					realigner.cancelAll();
+				}
+			}
+			public void windowClosed(WindowEvent e) {
+				timeUpdateTimer.stop();
+			}
+		});
+
+		updateSummary();
+		this.setTitle(title);
+		this.setIconImage(AppIcons.getProgramIconImage());
+		this.setPreferredSize(new Dimension(650,350));
+		this.placeFrameupperLeftLocationOfThis(parent);
+		this.pack();
+		this.setVisible(true);
+	}
+
+	public void jobChanged(PartitionRealignJob job) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				tableModel.fireAllRowsUpdated();
+				updateSummary();
+			}
+		});
+	}
+
+	/*
+	 * Called on EDT when realigned partitions have been put back into alignment
+	 */
+	public void realignDone(int replacedCount){
+		isRealignDone = true;
+		timeUpdateTimer.stop();
+		btnCancelSelected.setEnabled(false);
+		btnCancelAll.setEnabled(false);
+		tableModel.fireAllRowsUpdated();
+		lblSummary.setText("Done - " + replacedCount + " of " + realigner.getJobs().size() + " partitions realigned");
+	}
+
+	private void updateSummary(){
+		if(isRealignDone){
+			return;
+		}
+		int finished = 0;
+		int running = 0;
+		for(PartitionRealignJob job: realigner.getJobs()){
+			if(job.isFinished()){
+				finished ++;
+			}
+			else if(job.getStatus() == PartitionRealignJob.RUNNING){
+				running ++;
+			}
+		}
+		lblSummary.setText(finished + " of " + realigner.getJobs().size() + " finished, " + running + " running");
+	}
+
+	public void placeFrameupperLeftLocationOfThis(Component parent){
+		if(parent != null){
+			int newX = parent.getX() + 100;
+			int newY = parent.getY() + 100;
+			this.setLocation(newX, newY);
+		}
+	}
+
+	/*
+	 * Rows are read from jobs every time (status is changed by worker threads)
+	 */
+	private static class JobTableModel extends AbstractTableModel{
+		private static final String[] HEADERS = new String[]{"Partition", "Columns", "Status", "Time (s)", "Message"};
+		private final List<PartitionRealignJob> jobs;
+
+		public JobTableModel(List<PartitionRealignJob> jobs) {
+			this.jobs = jobs;
+		}
+
+		/*
+		 * Not fireTableDataChanged - that is clearing the selected rows
+		 */
+		public void fireAllRowsUpdated(){
+			if(jobs.size() > 0){
+				fireTableRowsUpdated(0, jobs.size() - 1);
+			}
+		}
+
+		public int getRowCount() {
+			return jobs.size();
+		}
+
+		public int getColumnCount() {
+			return HEADERS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return HEADERS[column];
+		}
+
+		public Object getValueAt(int rowIndex, int columnIndex) {
+			PartitionRealignJob job = jobs.get(rowIndex);
+			switch(columnIndex){
+			case 0:
+				return job.getName();
+			case 1:
+				return (job.getStartCol() + 1) + "-" + (job.getEndCol() + 1);
+			case 2:
+				return job.getStatus();
+			case 3:
+				return job.getElapsedMillis() / 1000;
+			default:
+				return job.getMessage();
+			}
+		}
+	}
+
+}
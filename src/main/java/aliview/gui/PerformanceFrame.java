@@ -0,0 +1,116 @@
+package aliview.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+
+import org.apache.log4j.Logger;
+
+import utils.OSNativeUtils;
+import aliview.AliViewWindow;
+import aliview.metrics.PerformanceMetrics;
+
+/*
+ *
+ * Performance metrics of this session (same as in JMX), refreshed every second while window is open
+ *
+ */
+public class PerformanceFrame extends JFrame{
+	private static final Logger logger = Logger.getLogger(PerformanceFrame.class);
+	private static final int REFRESH_INTERVAL_MILLIS = 1000;
+	private JTextArea metricsArea;
+	private Timer refreshTimer;
+
+	public PerformanceFrame(AliViewWindow aliViewWin) {
+		metricsArea = new JTextArea();
+		metricsArea.setEditable(false);
+		metricsArea.setFont(new Font(OSNativeUtils.getMonospacedFontName(), Font.PLAIN, metricsArea.getFont().getSize()));
+
+		refreshMetrics();
+
+		JScrollPane scrollPane = new JScrollPane(metricsArea, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+		this.getContentPane().add(scrollPane, BorderLayout.CENTER);
+
+		JButton btnReset = new JButton("Reset");
+		btnReset.setToolTipText("Clear all recorded metrics");
+		btnReset.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e){
+				PerformanceMetrics.reset();
+				refreshMetrics();
+			}
+		});
+
+		final JButton btnEnable = new JButton();
+		updateEnableButtonText(btnEnable);
+		btnEnable.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e){
+				PerformanceMetrics.setEnabled(! PerformanceMetrics.isEnabled());
+				updateEnableButtonText(btnEnable);
+				refreshMetrics();
+			}
+		});
+
+		JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		buttonPanel.add(btnReset);
+		buttonPanel.add(btnEnable);
+		this.getContentPane().add(buttonPanel, BorderLayout.SOUTH);
+
+		refreshTimer = new Timer(REFRESH_INTERVAL_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				refreshMetrics();
+			}
+		});
+		refreshTimer.start();
+
+		this.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+		this.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed(WindowEvent e) {
+				refreshTimer.stop();
+			}
+		});
+
+		this.setPreferredSize(new Dimension(900,450));
+		this.pack();
+		this.setTitle("Performance");
+		this.setIconImage(AppIcons.getProgramIconImage());
+		this.centerLocationToThisComponent(aliViewWin);
+	}
+
+	private void updateEnableButtonText(JButton btnEnable){
+		if(PerformanceMetrics.isEnabled()){
+			btnEnable.setText("Stop recording");
+		}else{
+			btnEnable.setText("Start recording");
+		}
+	}
+
+	protected void refreshMetrics() {
+		int caretPos = metricsArea.getCaretPosition();
+		metricsArea.setText(PerformanceMetrics.createReport());
+		metricsArea.setCaretPosition(Math.min(caretPos, metricsArea.getDocument().getLength()));
+	}
+
+	public void centerLocationToThisComponent(Component parent){
+		// align to middle of parent window
+		if(parent != null){
+			int newX = parent.getX() + parent.getWidth()/2 - this.getWidth()/2;
+			int newY = parent.getY() + parent.getHeight()/2 - this.getHeight()/2;
+			this.setLocation(newX, newY);
+		}
+	}
+}
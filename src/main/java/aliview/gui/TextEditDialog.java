@@ -18,6 +18,7 @@ public class TextEditDialog {
 	private static final String LF = System.getProperty("line.separator");
 	public static final String TITLE_EDIT_SEQUENCE_NAME = "Rename sequence";
 	public static final String TITLE_GO_TO_POS = "Go to position (x) or (,y) or (x,y)";
+	public static final String TITLE_MAX_GAP_PERCENT = "Delete columns with more gaps than (%)";
 	private static JTextField textEdit;
 	protected Integer selectedValue = -1;
 	private Point preferredPos;
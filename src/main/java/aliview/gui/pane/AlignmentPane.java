@@ -14,6 +14,7 @@ import java.awt.print.PrinterException;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
 import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
@@ -26,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.ToolTipManager;
 
 import org.apache.log4j.Logger;
@@ -44,11 +46,14 @@ import aliview.alignment.NucleotideHistogram;
 import aliview.color.ColorScheme;
 import aliview.color.ColorSchemeFactory;
 import aliview.color.ColorUtils;
+import aliview.gui.pane.AlignmentRenderer.RenderedFrame;
 import aliview.messenges.Messenger;
+import aliview.metrics.PerformanceMetrics;
 import aliview.sequences.AminoAcidAndPosition;
 import aliview.sequences.Sequence;
 import aliview.settings.Settings;
 import aliview.utils.ArrayUtilities;
+import aliview.utils.LogUtils;
 
 
 // HAS to be JPanel - JComponent is not enough for only partial cliprect when in jscrollpane when painting
@@ -87,12 +92,16 @@ public class AlignmentPane extends JPanel{
 	boolean highlightDiffTrace = false;
 	boolean highlightNonCons;
 	boolean highlightCons;
+	private volatile boolean showQualityShading;
 	private boolean ignoreGapInTranslation;
 	private byte byteToDraw;
 	private long endTime; // performance measure
 	private int drawCounter = 0; // performance measure
 	private int DRAWCOUNT_LOF_INTERVAL = 1; // performance measure
 	private int fontCase = Settings.getFontCase().getIntValue();
+	// increased on every repaint, used to know if a frame rendered in background is current
+	private volatile int contentVersion;
+	private AlignmentRenderer renderer = new AlignmentRenderer(this);
 
 	CharPixelsContainer charPixDefaultNuc;
 	CharPixelsContainer charPixSelectedNuc;
@@ -160,6 +169,14 @@ public class AlignmentPane extends JPanel{
 		return highlightCons;
 	}
 
+	public boolean isShowQualityShading() {
+		return showQualityShading;
+	}
+
+	public void setShowQualityShading(boolean showQualityShading) {
+		this.showQualityShading = showQualityShading;
+	}
+
 	public void setDrawCodonPosOnRuler(boolean drawCodonPosOnRuler) {
 		this.drawCodonPosOnRuler = drawCodonPosOnRuler;
 	}
@@ -557,6 +574,7 @@ public class AlignmentPane extends JPanel{
 
 	public void setAlignment(Alignment alignment){
 		this.alignment = alignment;
+		renderer.clear();
 		//		this.infoLabel.setAlignment(alignment);
 		this.validateSize();
 	}
@@ -572,10 +590,36 @@ public class AlignmentPane extends JPanel{
 		paintAlignment(g);
 	}
 
+	/*
+	 * Every repaint of the pane (from data, selection or settings change) is a new content version,
+	 * frames rendered in background for an older version are not drawn as final frames
+	 */
+	@Override
+	public void repaint(long tm, int x, int y, int width, int height) {
+		contentVersion ++;
+		super.repaint(tm, x, y, width, height);
+	}
+
+	private void repaintRenderedArea(Rectangle area){
+		super.repaint(0, area.x, area.y, area.width, area.height);
+	}
+
+	/*
+	 * Called from renderer thread when a frame is published
+	 */
+	void frameRendered(AlignmentRenderRequest request){
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				repaintRenderedArea(getVisibleRect());
+			}
+		});
+	}
+
 
 	public void paintAlignment(Graphics g){
 		drawCounter ++;
 		long startTime = System.currentTimeMillis();	
+		long frameStartNanos = PerformanceMetrics.startTimer();
 		if(AliView.isDebugMode() && drawCounter % DRAWCOUNT_LOF_INTERVAL == 0){
 			logger.info("Inside paintAlignment: Time from last endTim " + (startTime - endTime) + " milliseconds");
 			System.out.println("Inside paintAlignment: Time from last endTim " + (startTime - endTime) + " milliseconds");
@@ -586,6 +630,110 @@ public class AlignmentPane extends JPanel{
 		// What part of alignment matrix is in view (what part of matrix is in graphical view)
 		Rectangle clip = g2d.getClipBounds();
 
+		if(isRenderInBackground(g2d, clip)){
+			paintRenderedFrame(g2d, clip);
+		}else{
+			AlignmentRenderRequest request = createRenderRequest(clip);
+			RGBArray clipRGB = createRGBArray(request);
+
+			// HERE FILL RGB-ARRAY DRAW...
+			fillRGBArrayMultithreaded(request, clipRGB, 1000);
+
+			// Now draw the pixels onto the image
+			Image img = createImage(new MemoryImageSource(clipRGB.getScanWidth(), clipRGB.getHeight(), clipRGB.getBackend(), 0, clipRGB.getScanWidth()));
+			// First fill background
+			g2d.setColor(this.getBackground());
+			g2d.fill(clip);
+			drawRenderedImage(g2d, img, clipRGB.getScanWidth(), clipRGB.getHeight(), request);
+			drawExcludes(g2d, clip, request);
+		}
+
+		PerformanceMetrics.recordSince(PerformanceMetrics.PAINT_FRAME, frameStartNanos);
+		if(clip.x != lastClip.x || clip.y != lastClip.y){
+			PerformanceMetrics.scrollFrameShown();
+		}
+
+		if(LogUtils.isDiagnostic() && drawCounter % DRAWCOUNT_LOF_INTERVAL == 0){
+			endTime = System.currentTimeMillis();
+			logger.info("Alignment pane PaintComponent took " + (endTime - startTime) + " milliseconds");
+		}
+
+		// repaint ruler also if needed
+		if(clip.x != lastClip.x || clip.width != lastClip.width || rulerIsDirty){
+			alignmentRuler.repaint();
+			charsetRuler.repaint();
+			rulerIsDirty = false;
+		}
+		lastClip = clip;
+
+	}
+
+	/*
+	 * File sequences are rendered in background when painting on screen, when painting into
+	 * an image (export) or printer the alignment is rendered directly
+	 */
+	private boolean isRenderInBackground(Graphics2D g2d, Rectangle clip){
+		if(! alignment.isFileSequences() || isPaintingForPrint()){
+			return false;
+		}
+		if(g2d.getDeviceConfiguration().getDevice().getType() != GraphicsDevice.TYPE_RASTER_SCREEN){
+			return false;
+		}
+		return getVisibleRect().contains(clip);
+	}
+
+	/*
+	 * Blit latest frame from renderer and ask for a new one if it is not matching what is in view,
+	 * until the new frame is ready the latest one is a preview (scaled if char size has changed)
+	 */
+	private void paintRenderedFrame(Graphics2D g2d, Rectangle clip){
+		AlignmentRenderRequest request = createRenderRequest(getVisibleRect());
+		RenderedFrame frame = renderer.getLatestFrame();
+
+		g2d.setColor(this.getBackground());
+		g2d.fill(clip);
+		if(frame != null){
+			drawRenderedImage(g2d, frame.getImage(), frame.getImage().getWidth(), frame.getImage().getHeight(), frame.getRequest());
+		}
+		if(frame == null || ! frame.getRequest().isSameRender(request)){
+			renderer.render(request);
+		}
+		drawExcludes(g2d, clip, request);
+	}
+
+	/*
+	 * Called from renderer thread and image export
+	 */
+	BufferedImage renderImage(AlignmentRenderRequest request){
+		if(request.getWidth() <= 0 || request.getHeight() <= 0){
+			return null;
+		}
+		RGBArray clipRGB = createRGBArray(request);
+		boolean completed = fillRGBArrayMultithreaded(request, clipRGB, 0);
+		if(! completed){
+			return null;
+		}
+		BufferedImage img = new BufferedImage(clipRGB.getScanWidth(), clipRGB.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		img.setRGB(0, 0, clipRGB.getScanWidth(), clipRGB.getHeight(), clipRGB.getBackend(), 0, clipRGB.getScanWidth());
+		return img;
+	}
+
+	/*
+	 * Paints area of pane into g2d the same way as on screen but rendered directly and without timeout,
+	 * used by TiledImageExporter that is painting the alignment tile by tile from a background thread
+	 */
+	public void paintAreaForExport(Graphics2D g2d, Rectangle area){
+		AlignmentRenderRequest request = createRenderRequest(area);
+		g2d.setColor(this.getBackground());
+		g2d.fill(area);
+		BufferedImage img = renderImage(request);
+		if(img != null){
+			drawRenderedImage(g2d, img, img.getWidth(), img.getHeight(), request);
+		}
+		drawExcludes(g2d, area, request);
+	}
+
+	private AlignmentRenderRequest createRenderRequest(Rectangle clip){
 
 		Rectangle matrixClip = paneCoordToMatrixCoord(clip);
 
@@ -635,47 +783,38 @@ public class AlignmentPane extends JPanel{
 			height = clip.height;
 			width = clip.width;
 		}
-		//
-		//				logger.info("yMax" + yMax);
-		//				logger.info("yMin" + yMin);
-		//				logger.info("width" + width);
-		//				logger.info("clipHeight" + clip.height);
-		//				logger.info("width" + width);
-		//				logger.info("height" + height);
 
+		return new AlignmentRenderRequest(clip, xMin, xMax, yMin, yMax, width, height, charWidth, charHeight, contentVersion);
+	}
 
+	private RGBArray createRGBArray(AlignmentRenderRequest request){
 		// TODO adjust for retina
-
+		int width = request.getWidth();
+		int height = request.getHeight();
 		int[] pixArray = new int[width* highDPIScaleFactor * height * highDPIScaleFactor];
 		//	logger.info(pixArray.length);
-		RGBArray clipRGB = new RGBArray(pixArray, width*highDPIScaleFactor, height*highDPIScaleFactor);
-
-		// HERE FILL RGB-ARRAY DRAW...
-		//		fillRGBArrayAndPaint(xMin, xMax, yMin, yMax, clipRGB, clip, g2d);
-		fillRGBArrayAndPaintMultithreaded(xMin, xMax, yMin, yMax, clipRGB, clip, g2d);
-
-		if(drawCounter % DRAWCOUNT_LOF_INTERVAL == 0){
-			endTime = System.currentTimeMillis();
-			logger.info("Alignment pane PaintComponent took " + (endTime - startTime) + " milliseconds");
-		}
-
-		// repaint ruler also if needed
-		if(clip.x != lastClip.x || clip.width != lastClip.width || rulerIsDirty){
-			alignmentRuler.repaint();
-			charsetRuler.repaint();
-			rulerIsDirty = false;
-		}
-		lastClip = clip;
-
+		return new RGBArray(pixArray, width*highDPIScaleFactor, height*highDPIScaleFactor);
 	}
 
-	private void fillRGBArrayAndPaintMultithreaded(int xMin, int xMax, int yMin, int yMax, RGBArray clipRGB, Rectangle clip, Graphics2D g2d){
+	/*
+	 * Returns false if request was cancelled or timeout (if timeout > 0) before all rows were painted
+	 */
+	private boolean fillRGBArrayMultithreaded(AlignmentRenderRequest request, RGBArray clipRGB, long timeoutMillis){
 		// these vals are not going to change so get it only once
 		boolean isNucleotideAlignment = alignment.isNucleotideAlignment();
+		double charWidth = request.getCharWidth();
+		double charHeight = request.getCharHeight();
 		double seqPerPixX = 1/(double)charWidth;
 		double seqPerPixY = 1/(double)charWidth;
-
-		logger.info("Runtime.getRuntime().availableProcessors()" + Runtime.getRuntime().availableProcessors());
+		Rectangle clip = request.getArea();
+		int xMin = request.getXMin();
+		int xMax = request.getXMax();
+		int yMin = request.getYMin();
+		int yMax = request.getYMax();
+
+		if(LogUtils.isDiagnostic()){
+			logger.info("Runtime.getRuntime().availableProcessors()" + Runtime.getRuntime().availableProcessors());
+		}
 		int nThreads = 1;
 
 		// Only one thread if filesequences - more threads make reading file slower
@@ -690,19 +829,18 @@ public class AlignmentPane extends JPanel{
 			}
 		}
 
-
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
 
 
 		// small chars have their own loop here
 		if(charWidth < 1){
-			ExecutorService executor = Executors.newFixedThreadPool(nThreads);
 
 			// No longer: Always start at closest even 10
 			//			double startY = clip.y;
 			//			startY = Math.floor(startY/100) * 100;
 
 			int clipYPos = 0;
-			for(int y = clip.y; y < clip.getMaxY(); y ++){
+			for(int y = clip.y; y < clip.getMaxY() && ! request.isCancelled(); y ++){
 
 				int ySeq = (int)((double)(y) * seqPerPixY);
 
@@ -745,22 +883,13 @@ public class AlignmentPane extends JPanel{
 
 
 				}
-				else{
+				else if(LogUtils.isDiagnostic()){
 					logger.info("outside");
 				}
 
 				clipYPos ++;
 			}
 
-
-			executor.shutdown();
-			try {
-				executor.awaitTermination(1000, TimeUnit.MILLISECONDS);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-
 		}	
 
 
@@ -771,12 +900,9 @@ public class AlignmentPane extends JPanel{
 		/////////////////////////
 		else{
 
-
-			ExecutorService executor = Executors.newFixedThreadPool(nThreads);
-
 			int clipYPos = 0;
 			// Loop rows (The sequence painter is painting a row in its own thread)
-			for(int y = yMin; y < yMax; y = y + 1){
+			for(int y = yMin; y < yMax && ! request.isCancelled(); y = y + 1){
 
 				int seqYPos = y;
 				Sequence seq = alignment.getSequences().get(seqYPos);
@@ -818,14 +944,26 @@ public class AlignmentPane extends JPanel{
 
 				clipYPos ++;
 			}
+		}
 
-			executor.shutdown();
-			try {
-				executor.awaitTermination(1000, TimeUnit.MILLISECONDS);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+		executor.shutdown();
+		try {
+			if(timeoutMillis > 0){
+				return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
 			}
+			// no timeout when rendering in background, but stop as soon as request is cancelled
+			while(! executor.awaitTermination(50, TimeUnit.MILLISECONDS)){
+				if(request.isCancelled()){
+					executor.shutdownNow();
+					return false;
+				}
+			}
+			return ! request.isCancelled();
+		} catch (InterruptedException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+			executor.shutdownNow();
+			return false;
 		}
 
 		//
@@ -853,48 +991,61 @@ public class AlignmentPane extends JPanel{
 		//				}
 		//			}
 		//		}
+	}
 
+	/*
+	 * Draws pixels rendered for request at its position, if char size has been changed
+	 * since then the image is scaled to the current size
+	 */
+	private void drawRenderedImage(Graphics2D g2d, Image img, int imgWidth, int imgHeight, AlignmentRenderRequest request){
 
-		// Now draw the pixels onto the image
-		Image img = createImage(new MemoryImageSource(clipRGB.getScanWidth(), clipRGB.getHeight(), clipRGB.getBackend(), 0, clipRGB.getScanWidth()));
-		// First fill background
-		g2d.setColor(this.getBackground());
-		g2d.fill(clip);
-
-
-
+		Rectangle clip = request.getArea();
 		int clipRGBXPos = clip.x;
 		int clipRGBYPos = clip.y;
 		// Adjust because we start always on exact char upp to one pos before
-		if(charWidth > 1){
-			clipRGBXPos = (int)(xMin * charWidth);
-			clipRGBYPos = (int)(yMin * charHeight);
+		if(request.getCharWidth() > 1){
+			clipRGBXPos = (int)(request.getXMin() * request.getCharWidth());
+			clipRGBYPos = (int)(request.getYMin() * request.getCharHeight());
 		}
 
-		if (img != null){	
-			// Mac retina screen
-			if(highDPIScaleFactor > 1){
-				int dx1 = clipRGBXPos;
-				int dx2 = dx1 + clipRGB.getScanWidth() / highDPIScaleFactor;
-				int dy1 = clipRGBYPos;
-				int dy2 = dy1 + clipRGB.getHeight() / highDPIScaleFactor;
+		if (img != null){
+			int dx1 = clipRGBXPos;
+			int dx2 = dx1 + imgWidth / highDPIScaleFactor;
+			int dy1 = clipRGBYPos;
+			int dy2 = dy1 + imgHeight / highDPIScaleFactor;
+
+			boolean isPreview = request.getCharWidth() != charWidth || request.getCharHeight() != charHeight;
+			if(isPreview){
+				double scaleX = charWidth / request.getCharWidth();
+				double scaleY = charHeight / request.getCharHeight();
+				dx1 = (int)(dx1 * scaleX);
+				dx2 = (int)(dx2 * scaleX);
+				dy1 = (int)(dy1 * scaleY);
+				dy2 = (int)(dy2 * scaleY);
+			}
 
+			// Mac retina screen (or preview)
+			if(highDPIScaleFactor > 1 || isPreview){
 				int sx1 = 0;
-				int sx2 = sx1 + clipRGB.getScanWidth();
+				int sx2 = sx1 + imgWidth;
 				int sy1 = 0;
-				int sy2 = sy1 + clipRGB.getHeight();
+				int sy2 = sy1 + imgHeight;
 				g2d.drawImage(img,dx1,dy1,dx2,dy2,sx1,sy1,sx2,sy2, null);
 			}else{
 				g2d.drawImage(img, clipRGBXPos, clipRGBYPos, null);
 			}
 		}
+	}
 
+	private void drawExcludes(Graphics2D g2d, Rectangle clip, AlignmentRenderRequest request){
+		int xMin = request.getXMin();
+		int xMax = request.getXMax();
 
 		// Draw excludes	
 		if(isShowTranslationOnePos()){
 
 			// calculate height for excludes (this is to avoid drawing below alignment if alignment is not filling panel)
-			int drawExcludesHeight = (int) Math.min(this.getVisibleRect().getHeight(), alignment.getSize()  * charHeight);
+			int drawExcludesHeight = (int) Math.max(0, Math.min(clip.getHeight(), alignment.getSize() * charHeight - clip.y));
 
 			// Two versions depending on if it is small chars or not
 			if(charWidth < 1){
@@ -902,7 +1053,7 @@ public class AlignmentPane extends JPanel{
 					int xPos =(int)((double)x * (1/(double)charWidth));
 					if(alignment.isExcluded(xPos) == true){
 						g2d.setColor(ColorScheme.GREY_TRANSPARENT);
-						g2d.fillRect(x, this.getVisibleRect().y, 1, drawExcludesHeight);
+						g2d.fillRect(x, clip.y, 1, drawExcludesHeight);
 						//				logger.info("drawExclude");
 					}
 				}
@@ -910,14 +1061,14 @@ public class AlignmentPane extends JPanel{
 				for(int x = xMin; x < xMax ; x++){
 					if(alignment.isExcluded(x) == true){
 						g2d.setColor(ColorScheme.GREY_TRANSPARENT);
-						g2d.fillRect((int)(x * charWidth), this.getVisibleRect().y, (int)charWidth, drawExcludesHeight);				
+						g2d.fillRect((int)(x * charWidth), clip.y, (int)charWidth, drawExcludesHeight);				
 					}
 				}
 			}
 		}
 		else{
 			// calculate height for excludes (this is to avoid drawing below alignment if alignment is not filling panel)
-			int drawExcludesHeight = (int) Math.min(this.getVisibleRect().getHeight(), alignment.getSize()  * charHeight);
+			int drawExcludesHeight = (int) Math.max(0, Math.min(clip.getHeight(), alignment.getSize() * charHeight - clip.y));
 
 			// Two versions depending on if it is small chars or not
 			if(charWidth < 1){
@@ -927,7 +1078,7 @@ public class AlignmentPane extends JPanel{
 
 					if(alignment.isExcluded(xPos) == true){
 						g2d.setColor(ColorScheme.GREY_TRANSPARENT);
-						g2d.fillRect(x, this.getVisibleRect().y, 1, drawExcludesHeight);
+						g2d.fillRect(x, clip.y, 1, drawExcludesHeight);
 						//				logger.info("drawExclude");
 					}
 				}
@@ -935,7 +1086,7 @@ public class AlignmentPane extends JPanel{
 				for(int x = xMin; x < xMax ; x++){
 					if(alignment.isExcluded(x) == true){
 						g2d.setColor(ColorScheme.GREY_TRANSPARENT);
-						g2d.fillRect((int)(x * charWidth), this.getVisibleRect().y, (int)charWidth, drawExcludesHeight);				
+						g2d.fillRect((int)(x * charWidth), clip.y, (int)charWidth, drawExcludesHeight);				
 					}
 				}
 			}
@@ -943,7 +1094,9 @@ public class AlignmentPane extends JPanel{
 
 		}
 
-		logger.info("done");
+		if(LogUtils.isDiagnostic()){
+			logger.info("done");
+		}
 
 
 	}
@@ -1568,7 +1721,9 @@ public class AlignmentPane extends JPanel{
 				//				}
 
 				int maxVisibleSeq = (int)matrixClip.getMaxX();
-				logger.info("maxVisibleSeq" + maxVisibleSeq + 200);
+				if(LogUtils.isDiagnostic()){
+					logger.info("maxVisibleSeq" + maxVisibleSeq + 200);
+				}
 
 				int lastTextEndPos = 0;
 
@@ -1634,7 +1789,9 @@ public class AlignmentPane extends JPanel{
 			} // end draw small char
 
 			long endTime = System.currentTimeMillis();
-			logger.info("Ruler PaintComponent took " + (endTime - startTime) + " milliseconds");
+			if(LogUtils.isDiagnostic()){
+				logger.info("Ruler PaintComponent took " + (endTime - startTime) + " milliseconds");
+			}
 
 
 		}
@@ -1669,7 +1826,9 @@ public class AlignmentPane extends JPanel{
 
 		@Override
 		public Dimension getPreferredSize(){
-			logger.info("get pref size");
+			if(LogUtils.isDiagnostic()){
+				logger.info("get pref size");
+			}
 			if(!isVisible()){
 				return new Dimension(0,0);
 			}else{
@@ -1709,7 +1868,9 @@ public class AlignmentPane extends JPanel{
 			CharSets charsets = alignment.getAlignmentMeta().getCharsets();
 
 			int maxCharsetOverlapCount = charsets.getMaxOverlapCount();
-			logger.info("maxCharsetOverlapCount" + maxCharsetOverlapCount); 
+			if(LogUtils.isDiagnostic()){
+				logger.info("maxCharsetOverlapCount" + maxCharsetOverlapCount);
+			}
 
 			int maxX = Math.min(alignment.getMaxX(), (int) matrixClip.getMaxX());
 			int minX = (int) matrixClip.getMinX();
@@ -1718,11 +1879,15 @@ public class AlignmentPane extends JPanel{
 			int charsetIndex = 0;
 			for(CharSet charSet: charsets){
 				if(charSet.intersects(minX,maxX)){
-					logger.info("intersects" + charSet.getName());
+					if(LogUtils.isDiagnostic()){
+						logger.info("intersects" + charSet.getName());
+					}
 
 					int lineHeight = CHARSET_LINE_HEIGHT;
 					int charsetLineYPos = (charsetIndex % (maxCharsetOverlapCount + 1)) * lineHeight;
-					logger.info("charsetLineYPos" + charsetLineYPos);
+					if(LogUtils.isDiagnostic()){
+						logger.info("charsetLineYPos" + charsetLineYPos);
+					}
 
 					int charSetMinX = charSet.getMinimumStartPos();
 					int charSetMaxX = charSet.getMaximumEndPos();
@@ -1745,7 +1910,9 @@ public class AlignmentPane extends JPanel{
 			}
 
 			long endTime = System.currentTimeMillis();
-			logger.info("CharsetRuler PaintComponent took " + (endTime - startTime) + " milliseconds");
+			if(LogUtils.isDiagnostic()){
+				logger.info("CharsetRuler PaintComponent took " + (endTime - startTime) + " milliseconds");
+			}
 		}
 
 
@@ -0,0 +1,109 @@
+package aliview.gui.pane;
+
+import java.awt.Rectangle;
+
+/*
+ *
+ * Part of alignment to render into pixels - area is in pane coordinates and xMin-xMax, yMin-yMax
+ * is the part of alignment matrix that is drawn (width and height are size of pixel array before highDPI scaling)
+ *
+ * contentVersion is the repaint count of AlignmentPane when the request was made, a frame rendered
+ * with an older version is only used as a preview while the new one is rendering
+ *
+ */
+public class AlignmentRenderRequest {
+	private final Rectangle area;
+	private final int xMin;
+	private final int xMax;
+	private final int yMin;
+	private final int yMax;
+	private final int width;
+	private final int height;
+	private final double charWidth;
+	private final double charHeight;
+	private final int contentVersion;
+	private volatile boolean cancelled;
+
+	public AlignmentRenderRequest(Rectangle area, int xMin, int xMax, int yMin, int yMax, int width, int height,
+			double charWidth, double charHeight, int contentVersion) {
+		this.area = new Rectangle(area);
+		this.xMin = xMin;
+		this.xMax = xMax;
+		this.yMin = yMin;
+		this.yMax = yMax;
+		this.width = width;
+		this.height = height;
+		this.charWidth = charWidth;
+		this.charHeight = charHeight;
+		this.contentVersion = contentVersion;
+	}
+
+	public Rectangle getArea() {
+		return new Rectangle(area);
+	}
+
+	public int getXMin() {
+		return xMin;
+	}
+
+	public int getXMax() {
+		return xMax;
+	}
+
+	public int getYMin() {
+		return yMin;
+	}
+
+	public int getYMax() {
+		return yMax;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public double getCharWidth() {
+		return charWidth;
+	}
+
+	public double getCharHeight() {
+		return charHeight;
+	}
+
+	public int getContentVersion() {
+		return contentVersion;
+	}
+
+	public void cancel(){
+		cancelled = true;
+	}
+
+	public boolean isCancelled(){
+		return cancelled;
+	}
+
+	/*
+	 * Same part of alignment in the same char size
+	 */
+	public boolean isSameArea(AlignmentRenderRequest other){
+		return other != null && area.equals(other.area) && charWidth == other.charWidth && charHeight == other.charHeight;
+	}
+
+	/*
+	 * Same area and same content - the frame of other can be drawn as it is
+	 */
+	public boolean isSameRender(AlignmentRenderRequest other){
+		return isSameArea(other) && contentVersion == other.contentVersion;
+	}
+
+	@Override
+	public String toString() {
+		return "AlignmentRenderRequest [area=" + area + ", xMin=" + xMin + ", xMax=" + xMax + ", yMin=" + yMin + ", yMax=" + yMax
+				+ ", contentVersion=" + contentVersion + ", cancelled=" + cancelled + "]";
+	}
+
+}
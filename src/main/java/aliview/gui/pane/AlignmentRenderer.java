@@ -0,0 +1,150 @@
+package aliview.gui.pane;
+
+import java.awt.image.BufferedImage;
+
+import org.apache.log4j.Logger;
+
+import aliview.utils.LogUtils;
+
+/*
+ *
+ * Renders the alignment pane in a background thread so the Event Dispatch Thread is not blocked
+ * when sequences are slow to read (file sequences)
+ *
+ * Only the latest request is kept - a request that is waiting is replaced, and a running request is
+ * cancelled if the new one is for another part of the alignment (user has scrolled past it). A running
+ * request for the same area but older content is allowed to finish so there is something to show while
+ * the user is changing the alignment.
+ *
+ * Finished frames are published and AlignmentPane is asked to repaint, it then draws the latest frame
+ * (or the last frame as a preview if it is not matching what is in view)
+ *
+ */
+public class AlignmentRenderer {
+	private static final Logger logger = Logger.getLogger(AlignmentRenderer.class);
+	private final AlignmentPane aliPane;
+	private final Object lock = new Object();
+	private AlignmentRenderRequest pending;
+	private AlignmentRenderRequest running;
+	private AlignmentRenderRequest lastSubmitted;
+	private Thread renderThread;
+	private volatile RenderedFrame latestFrame;
+
+	public AlignmentRenderer(AlignmentPane aliPane) {
+		this.aliPane = aliPane;
+	}
+
+	public RenderedFrame getLatestFrame() {
+		return latestFrame;
+	}
+
+	/*
+	 * Called on EDT from paint, a request that is the same as the last one submitted is ignored
+	 */
+	public void render(AlignmentRenderRequest request){
+		synchronized(lock){
+			if(lastSubmitted != null && ! lastSubmitted.isCancelled() && lastSubmitted.isSameRender(request)){
+				return;
+			}
+			if(running != null && ! running.isSameArea(request)){
+				running.cancel();
+			}
+			if(pending != null){
+				pending.cancel();
+			}
+			pending = request;
+			lastSubmitted = request;
+
+			// Thread is only alive while there are requests
+			if(renderThread == null){
+				renderThread = new Thread(new Runnable() {
+					public void run() {
+						renderPendingRequests();
+					}
+				}, "AlignmentRenderer");
+				renderThread.setDaemon(true);
+				renderThread.start();
+			}
+		}
+	}
+
+	/*
+	 * Cancel everything, e.g. when alignment is changed
+	 */
+	public void clear(){
+		synchronized(lock){
+			if(running != null){
+				running.cancel();
+			}
+			if(pending != null){
+				pending.cancel();
+			}
+			pending = null;
+			lastSubmitted = null;
+			latestFrame = null;
+		}
+	}
+
+	private void renderPendingRequests(){
+		while(true){
+			AlignmentRenderRequest request;
+			synchronized(lock){
+				if(pending == null){
+					renderThread = null;
+					return;
+				}
+				request = pending;
+				pending = null;
+				running = request;
+			}
+
+			long startTime = System.currentTimeMillis();
+			BufferedImage image = null;
+			try{
+				image = aliPane.renderImage(request);
+			}catch(RuntimeException e){
+				// alignment might have been changed while rendering, a new request will come with the repaint
+				logger.warn("Could not render alignment " + request, e);
+			}
+
+			// checked and stored together so a clear() (alignment changed) is never overwritten by an old frame
+			boolean stored = false;
+			synchronized(lock){
+				running = null;
+				if(image != null && ! request.isCancelled()){
+					latestFrame = new RenderedFrame(image, request);
+					stored = true;
+				}
+			}
+
+			if(stored){
+				if(LogUtils.isDiagnostic()){
+					logger.info("Rendered alignment frame in background took " + (System.currentTimeMillis() - startTime) + " milliseconds");
+				}
+				aliPane.frameRendered(request);
+			}
+		}
+	}
+
+	/*
+	 * A finished back buffer and the request it was rendered for
+	 */
+	public static class RenderedFrame{
+		private final BufferedImage image;
+		private final AlignmentRenderRequest request;
+
+		public RenderedFrame(BufferedImage image, AlignmentRenderRequest request) {
+			this.image = image;
+			this.request = request;
+		}
+
+		public BufferedImage getImage() {
+			return image;
+		}
+
+		public AlignmentRenderRequest getRequest() {
+			return request;
+		}
+	}
+
+}
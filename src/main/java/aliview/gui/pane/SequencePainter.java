@@ -6,11 +6,15 @@ import aliview.AminoAcid;
 import aliview.NucleotideUtilities;
 import aliview.alignment.Alignment;
 import aliview.alignment.NucleotideHistogram;
+import aliview.metrics.PerformanceMetrics;
 import aliview.sequences.AminoAcidAndPosition;
 import aliview.sequences.Sequence;
+import aliview.sequences.SequenceWithQualities;
 
 public abstract class SequencePainter implements Runnable{
 	private static final Logger logger = Logger.getLogger(SequencePainter.class);
+	private static final int FULL_QUALITY = 30;
+	private static final double MAX_QUALITY_FADE = 0.75;
 
 	private Sequence seq;
 	private int seqYPos;
@@ -47,7 +51,9 @@ public abstract class SequencePainter implements Runnable{
 	public void run(){
 		// TODO maybe check before that sequence not is null
 		if(seq != null){
+			long startTime = PerformanceMetrics.startTimer();
 			drawSequence(seq, seqYPos, clipPosY, xMinSeqPos, xMaxSeqPos, seqPerPix, charWidth, charHeight, highDPIScaleFactor, clipRGB, aliPane, alignment);
+			PerformanceMetrics.recordSince(PerformanceMetrics.getPainterLatency(getClass()), startTime);
 		}
 	}
 
@@ -56,6 +62,14 @@ public abstract class SequencePainter implements Runnable{
 
 		// Make sure not outside length of seq
 		int seqLength = seq.getLength();
+
+		// qualities are only read for the part of the row that is painted
+		byte[] qualities = null;
+		int firstQualityPos = Math.max(0, (int)((double)xMin * seqPerPix));
+		if(aliPane.isShowQualityShading() && seq instanceof SequenceWithQualities && ((SequenceWithQualities) seq).hasQualities()){
+			qualities = ((SequenceWithQualities) seq).getQualities(firstQualityPos, (int)((double)(xMax - 1) * seqPerPix));
+		}
+
 		int clipPosX = 0;
 		for(int x = xMin; x < xMax && x >=0 ; x ++){
 			int seqXPos = (int)((double)x * seqPerPix);
@@ -65,12 +79,45 @@ public abstract class SequencePainter implements Runnable{
 
 				if(pixelPosX < clipRGB.getScanWidth() && pixelPosY < clipRGB.getHeight()){
 					copyPixels(seq, clipRGB, seqXPos, seqYPos,pixelPosX, pixelPosY, aliPane, alignment);
+					int qualityIndex = seqXPos - firstQualityPos;
+					if(qualities != null && qualityIndex >= 0 && qualityIndex < qualities.length){
+						int cellWidth = (int)((clipPosX + 1)*charWidth*highDPIScaleFactor) - pixelPosX;
+						int cellHeight = (int)((clipPosY + 1)*charHeight*highDPIScaleFactor) - pixelPosY;
+						shadeByQuality(clipRGB, pixelPosX, pixelPosY, Math.max(1, cellWidth), Math.max(1, cellHeight), qualities[qualityIndex]);
+					}
 				}
 			}
 			clipPosX ++;
 		}
 	}
 
+	/*
+	 * Low quality bases are faded towards white, phred score FULL_QUALITY and above is not changed
+	 */
+	private static void shadeByQuality(RGBArray clipRGB, int pixelPosX, int pixelPosY, int width, int height, int quality){
+		if(quality >= FULL_QUALITY){
+			return;
+		}
+		int fade = (int)(MAX_QUALITY_FADE * 256 * (FULL_QUALITY - Math.max(0, quality)) / FULL_QUALITY);
+		int[] pixels = clipRGB.getBackend();
+		int scanWidth = clipRGB.getScanWidth();
+		int maxX = Math.min(pixelPosX + width, scanWidth);
+		int maxY = Math.min(pixelPosY + height, clipRGB.getHeight());
+		for(int y = pixelPosY; y < maxY; y++){
+			int rowStart = y * scanWidth;
+			for(int x = pixelPosX; x < maxX; x++){
+				int argb = pixels[rowStart + x];
+				int r = (argb >> 16) & 0xFF;
+				int g = (argb >> 8) & 0xFF;
+				int b = argb & 0xFF;
+				r += ((255 - r) * fade) >> 8;
+				g += ((255 - g) * fade) >> 8;
+				b += ((255 - b) * fade) >> 8;
+				pixels[rowStart + x] = (argb & 0xFF000000) | (r << 16) | (g << 8) | b;
+			}
+		}
+	}
+
 
 
 
@@ -72,7 +72,7 @@ public class SequencePainterAminoAcid extends SequencePainter {
 				isPointWithinSelectionRect = true;
 			}
 		}
-		if(seq.isBaseSelected(seqXPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){
+		if(alignment.isBaseSelected(seqXPos,seqYPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){
 			pixContainerToUse = aliPane.charPixSelectedAA;
 		}
 
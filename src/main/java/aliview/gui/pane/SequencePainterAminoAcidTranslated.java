@@ -41,7 +41,7 @@ public class SequencePainterAminoAcidTranslated extends SequencePainter {
 				isPointWithinSelectionRect = true;
 			}
 		}
-		if(seq.isBaseSelected(seqXPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){		
+		if(alignment.isBaseSelected(seqXPos,seqYPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){		
 			pixContainerToUse = aliPane.charPixTranslationSelected;
 			pixLetterContainerToUse = aliPane.charPixTranslationSelectedLetter;			
 		}
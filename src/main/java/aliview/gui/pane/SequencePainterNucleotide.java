@@ -74,7 +74,7 @@ public class SequencePainterNucleotide extends SequencePainter {
 				isPointWithinSelectionRect = true;
 			}
 		}
-		if(seq.isBaseSelected(seqXPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){
+		if(alignment.isBaseSelected(seqXPos,seqYPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){
 			pixContainerToUse = aliPane.charPixSelectedNuc;
 		}
 
@@ -46,7 +46,7 @@ public class SequencePainterNucleotideTranslatedShowNucAndAcid extends SequenceP
 			}
 		}
 		boolean isSelected = false;
-		if(seq.isBaseSelected(seqXPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){
+		if(alignment.isBaseSelected(seqXPos,seqYPos) || (alignment.getTempSelection() != null && isPointWithinSelectionRect)){
 			isSelected = true;
 		}
 
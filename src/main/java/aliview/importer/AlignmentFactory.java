@@ -53,40 +53,20 @@ public class AlignmentFactory {
 		Alignment alignment = null;
 		try {
 
-			AlignmentListModel sequences = seqFactory.createSequences(alignmentFile);			
-			Excludes excludes = new Excludes();
-			CodonPositions codonPositions = new CodonPositions();
-			CharSets charsets = new CharSets();
-			logger.info("sequences.getLongestSequenceLength()" + sequences.getLongestSequenceLength());
-
+			AlignmentListModel sequences = seqFactory.createSequences(alignmentFile);
+			AlignmentMeta aliMeta;
 			try {
-				// Try to read Excludes etc. from alignmentfile	
-				if(NexusUtilities.isNexusFile(alignmentFile) && sequences instanceof FileSequenceAlignmentListModel == false && sequences.get(0) instanceof NexusSequence == false){
-					NexusUtilities.updateExcludesFromFile(alignmentFile,excludes);
-					NexusUtilities.updateCodonPositionsFromNexusFile(alignmentFile, codonPositions);
-					charsets = NexusUtilities.createCharsetsFromNexusFile(alignmentFile, sequences.getLongestSequenceLength());
-				}
-				// Try to read Excludes etc. from metaFile
-				else{
-					// Try to read Excludes from metaFile
-					File metaFile = new File(alignmentFile.getAbsolutePath()+ ".meta");
-					if(metaFile.exists()){
-						NexusUtilities.updateExcludesFromFile(metaFile,excludes);
-						NexusUtilities.updateCodonPositionsFromNexusFile(metaFile, codonPositions);
-						charsets = NexusUtilities.createCharsetsFromNexusFile(metaFile, sequences.getLongestSequenceLength());
-					}
-				}
+				aliMeta = readAlignmentMeta(alignmentFile, sequences);
 			} catch (NexusAlignmentImportException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 				logger.error(e);
 				Messenger.showOKOnlyMessage(Messenger.ALIGNMENT_META_READ_ERROR,
-						LF + e.getLocalizedMessage());	
+						LF + e.getLocalizedMessage());
+				aliMeta = new AlignmentMeta(new Excludes(), new CodonPositions(), new CharSets(), GeneticCode.DEFAULT);
 			}
 
-
 			MemoryUtils.logMem();
-			AlignmentMeta aliMeta = new AlignmentMeta(excludes, codonPositions, charsets, GeneticCode.DEFAULT);
 
 			// Set sequence type if specified
 			if(sequenceType != SequenceUtils.TYPE_UNKNOWN){
@@ -109,6 +89,62 @@ public class AlignmentFactory {
 		}
 
 		// Check if unique names - otherwise warn
+		warnIfDuplicateNames(alignment);
+
+		long endTime = System.currentTimeMillis();
+		System.out.println("Importing sequences took " + (endTime - startTime) + " milliseconds");
+
+		return alignment;
+	}
+
+	/*
+	 * Excludes, codon positions and charsets from a nexus alignment file or from the .meta file next to it
+	 */
+	private static AlignmentMeta readAlignmentMeta(File alignmentFile, AlignmentListModel sequences) throws NexusAlignmentImportException{
+		Excludes excludes = new Excludes();
+		CodonPositions codonPositions = new CodonPositions();
+		CharSets charsets = new CharSets();
+		// Try to read Excludes etc. from alignmentfile
+		if(NexusUtilities.isNexusFile(alignmentFile) && sequences instanceof FileSequenceAlignmentListModel == false && sequences.get(0) instanceof NexusSequence == false){
+			NexusUtilities.updateExcludesFromFile(alignmentFile,excludes);
+			NexusUtilities.updateCodonPositionsFromNexusFile(alignmentFile, codonPositions);
+			charsets = NexusUtilities.createCharsetsFromNexusFile(alignmentFile, sequences.getLongestSequenceLength());
+		}
+		// Try to read Excludes etc. from metaFile
+		else{
+			File metaFile = new File(alignmentFile.getAbsolutePath()+ ".meta");
+			if(metaFile.exists()){
+				NexusUtilities.updateExcludesFromFile(metaFile,excludes);
+				NexusUtilities.updateCodonPositionsFromNexusFile(metaFile, codonPositions);
+				charsets = NexusUtilities.createCharsetsFromNexusFile(metaFile, sequences.getLongestSequenceLength());
+			}
+		}
+		return new AlignmentMeta(excludes, codonPositions, charsets, GeneticCode.DEFAULT);
+	}
+
+	/*
+	 * Same as createNewAlignment but without any dialogs (batch mode is headless), problems are thrown instead.
+	 * Sequences are always read into memory
+	 */
+	public static Alignment createNewAlignmentWithoutMessages(File alignmentFile) throws AlignmentImportException, NexusAlignmentImportException{
+		AlignmentListModel sequences = seqFactory.createSequences(alignmentFile, false);
+		if(sequences == null || sequences.getSize() == 0){
+			throw new AlignmentImportException("Could not find sequences in file: " + alignmentFile);
+		}
+		AlignmentMeta aliMeta = readAlignmentMeta(alignmentFile, sequences);
+		return new Alignment(alignmentFile, sequences, aliMeta);
+	}
+
+	/*
+	 * Alignment of sequences that were not read from a file (e.g. read from output stream of an aligner)
+	 */
+	public static Alignment createNewAlignment(AlignmentListModel sequences){
+		Alignment alignment = new Alignment(sequences);
+		warnIfDuplicateNames(alignment);
+		return alignment;
+	}
+
+	private static void warnIfDuplicateNames(Alignment alignment){
 		if(alignment != null){
 			boolean hideMessage = Settings.getHideDuplicateSeqNamesMessage().getBooleanValue();
 			if(! hideMessage){
@@ -119,11 +155,6 @@ public class AlignmentFactory {
 				}
 			}
 		}
-
-		long endTime = System.currentTimeMillis();
-		System.out.println("Importing sequences took " + (endTime - startTime) + " milliseconds");
-
-		return alignment;
 	}
 
 	// ToDO maybe throw something if not working
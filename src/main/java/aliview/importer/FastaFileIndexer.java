@@ -1,161 +1,197 @@
 package aliview.importer;
 
-import java.util.ArrayList;
-
 import org.apache.log4j.Logger;
 
 import it.unimi.dsi.io.ByteBufferInpStream;
+import aliview.sequencelist.FileSequenceCatalog;
 import aliview.sequencelist.MemoryMappedSequencesFile;
-import aliview.sequences.FastaFileSequence;
-import aliview.sequences.FileSequence;
-import aliview.sequences.Sequence;
 import aliview.subprocesses.SubThreadProgressWindow;
 
 public class FastaFileIndexer implements FileIndexer{
 	private static final Logger logger = Logger.getLogger(FastaFileIndexer.class);
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
 	long estimateTotalSeqInFile = 0;
 	long fileSize = -1;
 
-	public ArrayList<Sequence> findSequencesInFile(MemoryMappedSequencesFile sequencesFile, long filePointerStart, int seqOffset, int nSeqsToRetrieve,
+	/*
+	 * Indexes up to nSeqsToRetrieve sequences starting at filePointerStart into catalog
+	 *
+	 * File is read in blocks (mapped buffer lock is only held while a block is copied) and for every
+	 * sequence the number of residues and the line geometry is saved, if not all lines (except last)
+	 * have the same length the sequence is saved as raw bytes between name line and next sequence
+	 *
+	 * returns file position of next sequence not indexed or -1 when end of file is reached
+	 */
+	public long indexSequencesInFile(MemoryMappedSequencesFile sequencesFile, long filePointerStart, FileSequenceCatalog catalog, int nSeqsToRetrieve,
 			SubThreadProgressWindow progressWin) {
 
-		ByteBufferInpStream mappedBuff = sequencesFile.getMappedBuff();
-
-		this.fileSize = mappedBuff.length();
+		this.fileSize = sequencesFile.getFileSize();
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
 		int nSeqCount = 0;
-		ArrayList<Sequence> allSeqs = new ArrayList<Sequence>();
-		for(int n = 0; n < nSeqsToRetrieve; n++){
-
-			FileSequence seq = findSequenceInFile(sequencesFile, filePointerStart, seqOffset);
-			if(seq == null){
-				break;
-			}		
-
-			long seqLength = seq.getLength();
-
-			allSeqs.add(seq);
-			seqOffset ++;
-			filePointerStart = seq.getEndPointer() + 1;
-			nSeqCount ++;
-
-			int MESSAGE_FREQUENCE = 1;
-			if(estimateTotalSeqInFile > 500){
-				MESSAGE_FREQUENCE = 100;
-			}
-			if(estimateTotalSeqInFile > 5000){
-				MESSAGE_FREQUENCE = 1000;
-			}
-			if(nSeqCount % MESSAGE_FREQUENCE == 0 && nSeqCount > 1){
-
-				int lastSeqIndex = seqOffset;	
-				long lastSeqEndPointer = seq.getEndPointer();		
-				long oneSeqFileSizeSize = (lastSeqEndPointer +1) / (lastSeqIndex + 1);
-				estimateTotalSeqInFile = fileSize / oneSeqFileSizeSize;
-				final int current = lastSeqIndex;
-				progressWin.setMessage("Indexing file " + current + " out of ~" + estimateTotalSeqInFile);
-
-			}
 
-			if(progressWin.wasSubThreadInterruptedByUser()){
-				Thread.currentThread().interrupt();
-				break;
-			}
-
-
-			// TODO check if window is closed - then kill thread
-
-			// if other thread is waiting for mapped buffer (e.g. main Thread, pause indexing for 200ms)
-			// this is done by releasing lock and sleeping a short while
-			if(sequencesFile.getMappedBuffLock().hasQueuedThreads()){
-				sequencesFile.getMappedBuffLock().unlock();
-				try {
-					Thread.sleep(200);
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+		byte previousByte = 0;
+		int nameLength = 0;
+		// name length is counted in characters (UTF-8 continuation bytes are skipped)
+		int nameContinuationBytes = 0;
+		boolean inName = false;
+		boolean inSequence = false;
+		boolean atLineStart = true;
+		long nameStart = 0;
+		long seqStart = 0;
+		long lastResidueEnd = 0;
+		int residues = 0;
+		int lineResidues = 0;
+		int lineCRs = 0;
+		int firstLineResidues = -1;
+		int firstLineTerminator = 0;
+		boolean sameLineLengths = true;
+		boolean sawShortLine = false;
+
+		long bufferStart = filePointerStart;
+		while(bufferStart < fileSize){
+			int bufferLength = (int) Math.min(READ_BUFFER_SIZE, fileSize - bufferStart);
+			sequencesFile.readBytesInFile(bufferStart, bufferLength, buffer);
+
+			for(int n = 0; n < bufferLength; n++){
+				byte nextByte = buffer[n];
+				long pos = bufferStart + n;
+
+				if(inName){
+					if(nextByte == '\n'){
+						nameLength = (int)(pos - nameStart);
+						if(previousByte == '\r'){
+							nameLength --;
+						}
+						catalog.updateLongestNameLength(nameLength - nameContinuationBytes);
+						inName = false;
+						inSequence = true;
+						atLineStart = true;
+						seqStart = pos + 1;
+						lastResidueEnd = seqStart;
+						residues = 0;
+						lineResidues = 0;
+						lineCRs = 0;
+						firstLineResidues = -1;
+						firstLineTerminator = 0;
+						sameLineLengths = true;
+						sawShortLine = false;
+					}
+					else if((nextByte & 0xC0) == 0x80){
+						nameContinuationBytes ++;
+					}
 				}
-				sequencesFile.getMappedBuffLock().lock();
-			}
-
-		}
-
-		return allSeqs;
-	}
-
-	public FileSequence findSequenceInFile(MemoryMappedSequencesFile sequencesFile, long filePointerStart, int seqOffset){
-		StringBuilder name = new StringBuilder();
-		FileSequence sequence = null;
-		boolean bytesUntilNextLFAreName = false;
-		byte nextByte;
-		ByteBufferInpStream mappedBuff = sequencesFile.getMappedBuff();
-		mappedBuff.position(filePointerStart);
-		int lineLength = 0;
-
-		while ((nextByte = (byte)mappedBuff.read()) != -1) {
-
-			boolean findNextLF = false;
-
-			// Find name start
-			if(nextByte == '>' && bytesUntilNextLFAreName == false){	
-
-				// save and return last seq
-				if(sequence != null){
-					sequence.setEndPointer(mappedBuff.position() -2); // remove > and LF
-					return sequence;
+				else if(nextByte == '>' && (atLineStart || ! inSequence)){
+					if(inSequence){
+						addToCatalog(catalog, nameStart, seqStart, residues, lastResidueEnd, lineResidues, firstLineResidues, firstLineTerminator, sameLineLengths, sawShortLine);
+						inSequence = false;
+						nSeqCount ++;
+						if(nSeqCount >= nSeqsToRetrieve || showProgressAndCheckInterrupted(catalog, pos, progressWin)){
+							return pos;
+						}
+					}
+					inName = true;
+					nameStart = pos + 1;
+					nameContinuationBytes = 0;
 				}
-
-				// start new one
-				name = new StringBuilder(250);
-				sequence = new FastaFileSequence(sequencesFile, mappedBuff.position()); // skip >		
-				bytesUntilNextLFAreName = true;
-
-			}
-
-			// line feed - end of name
-			if((nextByte == '\n')){
-				if(bytesUntilNextLFAreName){
-					// take care of name
-					sequence.setName(name.toString());
-					sequence.setSequenceAfterNameStartPointer(mappedBuff.position() + 1); // exlude LF
-					bytesUntilNextLFAreName = false;
-					// jump over sequence to next name if possible 
-
-					//					if(seekOffset > 0){			
-					//						seekStartPos = mappedBuff.position();
-					//						seekToPos = seekStartPos + seekOffset + 1;
-					//						mappedBuff.position(seekToPos);
-					//						// if next pos not is newline then sequences are not aligned and we
-					//						// go back and loop through all positions
-					//						byte checkByte =(byte) mappedBuff.read();
-					//						if(checkByte != '\n' && checkByte != '\r'){
-					//							// rewind
-					//							mappedBuff.position(seekStartPos);
-					//							seekOffset = 0;
-					//						}		
-					//					}
-
+				else if(inSequence){
+					if(nextByte == '\n'){
+						int lineTerminator = lineCRs + 1;
+						if(lineResidues > 0){
+							if(sawShortLine){
+								sameLineLengths = false;
+							}
+							if(firstLineResidues < 0){
+								firstLineResidues = lineResidues;
+								firstLineTerminator = lineTerminator;
+							}else if(lineResidues > firstLineResidues || lineTerminator != firstLineTerminator){
+								sameLineLengths = false;
+							}else if(lineResidues < firstLineResidues){
+								sawShortLine = true;
+							}
+						}else{
+							sawShortLine = true;
+						}
+						lineResidues = 0;
+						lineCRs = 0;
+						atLineStart = true;
+					}
+					else if(nextByte == '\r'){
+						lineCRs ++;
+					}
+					else{
+						if(lineCRs > 0){
+							sameLineLengths = false;
+						}
+						residues ++;
+						lineResidues ++;
+						lastResidueEnd = pos + 1;
+						atLineStart = false;
+					}
 				}
+				previousByte = nextByte;
 			}
+			bufferStart += bufferLength;
+		}
 
-			lineLength ++;
-
-			// build name
-			if(bytesUntilNextLFAreName){
-				name.append((char) nextByte);
+		// EOF
+		if(inName){
+			// name without sequence
+			nameLength = (int)(fileSize - nameStart);
+			if(previousByte == '\r'){
+				nameLength --;
 			}
-
+			catalog.updateLongestNameLength(nameLength - nameContinuationBytes);
+			seqStart = fileSize + 1;
+			lastResidueEnd = seqStart;
+			residues = 0;
+			lineResidues = 0;
+			firstLineResidues = -1;
+			inSequence = true;
+		}
+		if(inSequence){
+			addToCatalog(catalog, nameStart, seqStart, residues, lastResidueEnd, lineResidues, firstLineResidues, firstLineTerminator, sameLineLengths, sawShortLine);
+			nSeqCount ++;
+			logger.info("EOF=" + fileSize);
 		}
+		return -1;
+	}
 
-		// EOF
-		if(nextByte == -1){
-			if(sequence != null){
-				logger.info("EOF=" + mappedBuff.position());
-				//logger.info("sequence.getStartPointer()" + sequence.getStartPointer());
-				sequence.setEndPointer(mappedBuff.position() - 1); // remove EOF
+	private void addToCatalog(FileSequenceCatalog catalog, long nameStart, long seqStart, int residues, long lastResidueEnd, int lastLineResidues,
+			int firstLineResidues, int firstLineTerminator, boolean sameLineLengths, boolean sawShortLine){
+		// last line without line terminator
+		if(lastLineResidues > 0 && firstLineResidues > 0){
+			if(sawShortLine || lastLineResidues > firstLineResidues){
+				sameLineLengths = false;
 			}
 		}
+		int nameOffset = (int)(seqStart - nameStart);
+		if(firstLineResidues > 0 && sameLineLengths){
+			catalog.add(seqStart, residues, nameOffset, firstLineResidues, firstLineTerminator);
+		}else{
+			// one line without line terminator, or lines of different length - read all bytes (also line breaks) as residues
+			catalog.add(seqStart, (int)(lastResidueEnd - seqStart), nameOffset, 0, 0);
+		}
+	}
 
-		return sequence;
+	private boolean showProgressAndCheckInterrupted(FileSequenceCatalog catalog, long pos, SubThreadProgressWindow progressWin){
+		int nIndexed = catalog.size();
+		int MESSAGE_FREQUENCE = 1;
+		if(estimateTotalSeqInFile > 500){
+			MESSAGE_FREQUENCE = 100;
+		}
+		if(estimateTotalSeqInFile > 5000){
+			MESSAGE_FREQUENCE = 1000;
+		}
+		if(nIndexed % MESSAGE_FREQUENCE == 0 && nIndexed > 1){
+			long oneSeqFileSizeSize = Math.max(1, pos / nIndexed);
+			estimateTotalSeqInFile = fileSize / oneSeqFileSizeSize;
+			progressWin.setMessage("Indexing file " + nIndexed + " out of ~" + estimateTotalSeqInFile);
+		}
+		if(progressWin.wasSubThreadInterruptedByUser()){
+			Thread.currentThread().interrupt();
+			return true;
+		}
+		return false;
 	}
 
 }
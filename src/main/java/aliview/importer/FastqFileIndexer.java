@@ -0,0 +1,321 @@
+package aliview.importer;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import aliview.sequencelist.FileSequenceCatalog;
+import aliview.sequencelist.MemoryMappedSequencesFile;
+import aliview.subprocesses.SubThreadProgressWindow;
+
+/*
+ *
+ * Indexes a (4-line) FASTQ file into a FileSequenceCatalog: for every read the start and length of the
+ * sequence line, the offset back to the name and the offset to the quality line are saved. Qualities are
+ * not decoded when indexing.
+ *
+ * A small number of reads (first batch) is indexed in calling thread. When all reads are asked for, the
+ * next PARALLEL_BATCH_SIZE bytes of the file are split at record boundaries and the parts are indexed
+ * in parallel and added to catalog in file order. A record boundary is a line starting with @ where the
+ * line two lines down starts with + (a quality line can start with @ but is never followed by a sequence
+ * line and a + line)
+ *
+ */
+public class FastqFileIndexer implements FileIndexer{
+	private static final Logger logger = Logger.getLogger(FastqFileIndexer.class);
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final long PARALLEL_BATCH_SIZE = 256L * 1024 * 1024;
+	private static final long MIN_BYTES_PER_THREAD = 4L * 1024 * 1024;
+	private volatile String errorMessage;
+
+	/*
+	 * Indexes up to nSeqsToRetrieve reads starting at filePointerStart (Integer.MAX_VALUE = next parallel batch)
+	 *
+	 * returns file position of next read not indexed or -1 when end of file is reached (or file is not valid FASTQ)
+	 */
+	public long indexSequencesInFile(final MemoryMappedSequencesFile sequencesFile, long filePointerStart, FileSequenceCatalog catalog, int nSeqsToRetrieve,
+			SubThreadProgressWindow progressWin) {
+
+		final long fileSize = sequencesFile.getFileSize();
+		if(filePointerStart < 0 || filePointerStart >= fileSize){
+			return -1;
+		}
+
+		long nextStart;
+		if(nSeqsToRetrieve < Integer.MAX_VALUE){
+			ReadRecords records = new ReadRecords();
+			nextStart = indexRecords(new BlockReader(sequencesFile, fileSize), filePointerStart, fileSize, nSeqsToRetrieve, records);
+			records.addTo(catalog);
+		}
+		else{
+			BlockReader reader = new BlockReader(sequencesFile, fileSize);
+			long batchEnd = Math.min(fileSize, filePointerStart + PARALLEL_BATCH_SIZE);
+			if(batchEnd < fileSize){
+				batchEnd = findRecordStart(reader, batchEnd, fileSize);
+			}
+			long batchLength = batchEnd - filePointerStart;
+			int nThreads = (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), batchLength / MIN_BYTES_PER_THREAD));
+
+			final long[] bounds = new long[nThreads + 1];
+			bounds[0] = filePointerStart;
+			bounds[nThreads] = batchEnd;
+			for(int n = 1; n < nThreads; n++){
+				bounds[n] = Math.max(bounds[n - 1], findRecordStart(reader, filePointerStart + n * (batchLength / nThreads), batchEnd));
+			}
+
+			final ReadRecords[] results = new ReadRecords[nThreads];
+			final long[] ends = new long[nThreads];
+			ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+			for(int n = 0; n < nThreads; n++){
+				final int part = n;
+				results[part] = new ReadRecords();
+				executor.execute(new Runnable() {
+					public void run() {
+						ends[part] = indexRecords(new BlockReader(sequencesFile, fileSize), bounds[part], bounds[part + 1], Integer.MAX_VALUE, results[part]);
+					}
+				});
+			}
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				return -1;
+			}
+
+			// in file order, stop at a part that could not be read to its end
+			nextStart = batchEnd;
+			for(int n = 0; n < nThreads; n++){
+				results[n].addTo(catalog);
+				if(ends[n] < 0){
+					nextStart = -1;
+					break;
+				}
+			}
+		}
+
+		if(errorMessage != null){
+			logger.error(errorMessage);
+			if(progressWin != null){
+				progressWin.setMessage(errorMessage);
+			}
+			return -1;
+		}
+		if(progressWin != null){
+			if(nextStart > 0){
+				progressWin.setMessage("Indexing file " + catalog.size() + " reads (" + (int)(100 * nextStart / fileSize) + "%)");
+			}
+			if(progressWin.wasSubThreadInterruptedByUser()){
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(nextStart >= fileSize){
+			return -1;
+		}
+		return nextStart;
+	}
+
+	/*
+	 * Reads records starting before end, returns start of next record, or -1 at end of file or error
+	 */
+	private long indexRecords(BlockReader reader, long start, long end, int maxRecords, ReadRecords records){
+		int line = 0;
+		boolean atLineStart = true;
+		int previous = 0;
+		long lineStart = start;
+		long nameStart = 0;
+		long seqStart = 0;
+		int seqLength = 0;
+		long qualityStart = 0;
+		int count = 0;
+		// name length is counted in characters (UTF-8 continuation bytes are skipped)
+		int nameContinuationBytes = 0;
+		long pos = start;
+		int next;
+		while((next = reader.get(pos)) >= 0){
+			if(atLineStart){
+				if(line == 0){
+					// empty lines between records
+					if(next == '\n' || next == '\r'){
+						pos ++;
+						continue;
+					}
+					if(pos >= end || count >= maxRecords){
+						return pos;
+					}
+					if(next != '@'){
+						setError("Expected @ at start of FASTQ record at file position " + pos);
+						return -1;
+					}
+					nameStart = pos + 1;
+				}
+				else if(line == 2 && next != '+'){
+					setError("Expected + line after sequence in FASTQ record at file position " + nameStart + " (only 4-line FASTQ is supported)");
+					return -1;
+				}
+				atLineStart = false;
+				lineStart = pos;
+			}
+			if(line == 0 && (next & 0xC0) == 0x80){
+				nameContinuationBytes ++;
+			}
+			if(next == '\n'){
+				int contentLength = (int)(pos - lineStart) - (previous == '\r' ? 1 : 0);
+				if(line == 0){
+					records.updateLongestNameLength(contentLength - 1 - nameContinuationBytes);
+					nameContinuationBytes = 0;
+					seqStart = pos + 1;
+				}else if(line == 1){
+					seqLength = Math.max(0, contentLength);
+				}else if(line == 2){
+					qualityStart = pos + 1;
+				}else{
+					if(! addRecord(records, nameStart, seqStart, seqLength, qualityStart, contentLength)){
+						return -1;
+					}
+					count ++;
+				}
+				line = (line + 1) % 4;
+				atLineStart = true;
+			}
+			previous = next;
+			pos ++;
+		}
+
+		// EOF - last quality line without line terminator
+		if(line == 3 && ! atLineStart){
+			int contentLength = (int)(pos - lineStart) - (previous == '\r' ? 1 : 0);
+			addRecord(records, nameStart, seqStart, seqLength, qualityStart, contentLength);
+		}
+		else if(line != 0){
+			setError("FASTQ file ends inside record at file position " + nameStart);
+		}
+		return -1;
+	}
+
+	private boolean addRecord(ReadRecords records, long nameStart, long seqStart, int seqLength, long qualityStart, int qualityLength){
+		if(qualityLength != seqLength){
+			setError("Sequence and quality of FASTQ record at file position " + nameStart + " are not of same length");
+			return false;
+		}
+		records.add(seqStart, seqLength, (int)(seqStart - nameStart), (int)(qualityStart - seqStart));
+		return true;
+	}
+
+	private void setError(String message){
+		if(errorMessage == null){
+			errorMessage = message;
+		}
+	}
+
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/*
+	 * First record start at or after from, limit if none is found before it
+	 */
+	static long findRecordStart(BlockReader reader, long from, long limit){
+		long pos = from;
+		if(pos > 0 && reader.get(pos - 1) != '\n'){
+			pos = nextLineStart(reader, pos);
+		}
+		while(pos >= 0 && pos < limit){
+			if(reader.get(pos) == '@'){
+				long second = nextLineStart(reader, pos);
+				long third = second < 0 ? -1 : nextLineStart(reader, second);
+				if(third >= 0 && reader.get(third) == '+'){
+					return pos;
+				}
+			}
+			pos = nextLineStart(reader, pos);
+		}
+		return limit;
+	}
+
+	private static long nextLineStart(BlockReader reader, long pos){
+		int next;
+		while((next = reader.get(pos)) >= 0){
+			pos ++;
+			if(next == '\n'){
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Reads file in blocks (mapped buffer lock is only held while a block is copied)
+	 */
+	static class BlockReader{
+		private final MemoryMappedSequencesFile sequencesFile;
+		private final long fileSize;
+		private final byte[] block = new byte[READ_BUFFER_SIZE];
+		private long blockStart = -1;
+		private int blockLength;
+
+		BlockReader(MemoryMappedSequencesFile sequencesFile, long fileSize) {
+			this.sequencesFile = sequencesFile;
+			this.fileSize = fileSize;
+		}
+
+		/*
+		 * -1 at end of file
+		 */
+		int get(long pos){
+			if(pos < blockStart || pos >= blockStart + blockLength){
+				if(pos < 0 || pos >= fileSize){
+					return -1;
+				}
+				blockStart = pos;
+				blockLength = (int) Math.min(READ_BUFFER_SIZE, fileSize - pos);
+				sequencesFile.readBytesInFile(pos, blockLength, block);
+			}
+			return block[(int)(pos - blockStart)];
+		}
+	}
+
+	/*
+	 * Records of one part of the file before they are added to catalog
+	 */
+	private static class ReadRecords{
+		private long[] seqStarts = new long[1024];
+		private int[] lengths = new int[1024];
+		private int[] nameOffsets = new int[1024];
+		private int[] qualityOffsets = new int[1024];
+		private int size;
+		private int longestNameLength;
+
+		void add(long seqStart, int length, int nameOffset, int qualityOffset){
+			if(size == seqStarts.length){
+				int newCapacity = size * 2;
+				seqStarts = Arrays.copyOf(seqStarts, newCapacity);
+				lengths = Arrays.copyOf(lengths, newCapacity);
+				nameOffsets = Arrays.copyOf(nameOffsets, newCapacity);
+				qualityOffsets = Arrays.copyOf(qualityOffsets, newCapacity);
+			}
+			seqStarts[size] = seqStart;
+			lengths[size] = length;
+			nameOffsets[size] = nameOffset;
+			qualityOffsets[size] = qualityOffset;
+			size ++;
+		}
+
+		void updateLongestNameLength(int nameLength){
+			longestNameLength = Math.max(longestNameLength, nameLength);
+		}
+
+		void addTo(FileSequenceCatalog catalog){
+			catalog.updateLongestNameLength(longestNameLength);
+			for(int n = 0; n < size; n++){
+				// sequence is one line - residues per line 0 means all bytes from start are residues
+				catalog.add(seqStarts[n], lengths[n], nameOffsets[n], 0, 0, qualityOffsets[n]);
+			}
+		}
+	}
+
+}
@@ -36,6 +36,7 @@ public class FileFormat {
 	public static final FileFormat CLUSTAL = new FileFormat("Clustal", "aln", "aln");
 
 	public static final FileFormat IMAGE_PNG = new FileFormat("png-image", "png", "png");
+	public static final FileFormat IMAGE_TIFF = new FileFormat("tiff-image", "tif", "tif");
 
 	// TODO should be different when not translated AminoAcid
 	public static final FileFormat PHYLIP_TRANSLATED_AMINO_ACID = new FileFormat("PhylipAminoAcid", "translated.phy", "translated.phy");
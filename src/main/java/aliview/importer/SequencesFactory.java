@@ -3,6 +3,7 @@ package aliview.importer;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +52,14 @@ public class SequencesFactory {
 	//
 	//
 	public AlignmentListModel createSequences(File alignmentFile) throws AlignmentImportException{
+		return createSequences(alignmentFile, true);
+	}
+
+	/*
+	 * Without allowFileSequences a file that is too big for memory is not opened as file sequences (they are indexed
+	 * in a background thread with a progress window) - an AlignmentImportException is thrown instead
+	 */
+	public AlignmentListModel createSequences(File alignmentFile, boolean allowFileSequences) throws AlignmentImportException{
 
 		// Check if file is to large - then create OnFile sequences instead of InMemory
 		String importErrorMessage = "";
@@ -285,6 +294,10 @@ public class SequencesFactory {
 			}
 		}
 
+		if(!memorySequences && !allowFileSequences){
+			throw new AlignmentImportException("File is too big to be read into memory: " + alignmentFile + LF + "(increase max memory with java -Xmx option)");
+		}
+
 		//
 		// FILE SEQUENCES
 		//
@@ -292,7 +305,7 @@ public class SequencesFactory {
 
 			FileFormat foundFormat = FileFormat.isFileOfAlignmentFormat(alignmentFile);
 
-			if(foundFormat == FileFormat.FASTA || foundFormat == FileFormat.PHYLIP || 
+			if(foundFormat == FileFormat.FASTA || foundFormat == FileFormat.FASTQ || foundFormat == FileFormat.PHYLIP ||
 					foundFormat == FileFormat.NEXUS || foundFormat == FileFormat.CLUSTAL ||
 					foundFormat == FileFormat.MSF){
 				try{
@@ -312,6 +325,17 @@ public class SequencesFactory {
 		return model;
 	}
 
+	/*
+	 * Fasta read from a stream (e.g. output of an aligner), sequences are parsed while stream is read
+	 */
+	public AlignmentListModel createFastaSequencesFromStream(Reader reader) throws AlignmentImportException {
+		FastFastaImporter fastaImporter = new FastFastaImporter(reader);
+		AlignmentListModel model = new MemorySequenceAlignmentListModel();
+		model.setSequences(fastaImporter.importSequences());
+		model.setFileFormat(FileFormat.FASTA);
+		return model;
+	}
+
 	public AlignmentListModel createFastaSequences(StringReader stringReader) throws AlignmentImportException {
 		AlignmentListModel model = new MemorySequenceAlignmentListModel();
 
@@ -6,6 +6,7 @@ import java.awt.Dimension;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JCheckBox;
 import javax.swing.JDialog;
@@ -93,6 +94,8 @@ public class Messenger {
 	public static final Message FAILED_SEQUENCE_DETECTION = new Message("Sequence type could not be automatically detected for" + LF +
 			"this alignment file. Please set sequence type manually:" + LF +
 			"Menu \"Edit\" -> \"Set Alignment Sequence Type\"", "Unknown sequence type");
+	public static final Message NO_PARTITIONS_TO_REALIGN = new Message("There are no partitions to realign - select whole columns" + LF +
+			"or define charsets (continuous ranges) first.", "No partitions");
 	public static final Message SUBPROCESS_CANCELLED_SUCCESSFULLY = new Message("Subprocess cancelled sucessfully", "Subprocess cancelled");
 	public static final Message PAD_OR_TRIM_ALIGNMENT_TO_EQUAL_LENGTH = new Message("Sequences are of different length." + LF +
 			"Sometimes alignments with different length sequences" + LF + 
@@ -291,6 +294,27 @@ public class Messenger {
 
 	}
 
+	public static void showRealignAsTranslatedNotMatchingMessage(List<String> notMatchedNames, JFrame parentFrame){
+		String namesString = "";
+		int count = 0;
+		for(String name: notMatchedNames){
+			namesString += name + LF;
+
+			// Only list 10 names
+			count ++;
+			if(count == 10){
+				break;
+			}
+		}
+		if(notMatchedNames.size() > count){
+			namesString += "(and " + (notMatchedNames.size() - count) + " more)" + LF;
+		}
+
+		Message notMatchingMessage = new Message("Translation of " + notMatchedNames.size() + " sequence(s) did not match the aligned" + LF +
+				"amino acids, these sequences were not realigned:" + LF + namesString, "Alignments not matching");
+		showOKOnlyMessage(notMatchingMessage, parentFrame);
+	}
+
 	public static boolean showHideAlignmentProgramInvalidCharsInfoMessage(String invalidChars){
 
 		boolean hideMessage =  Settings.getHideAlignmentProgramInvalidCharsInfoMessage().getBooleanValue();
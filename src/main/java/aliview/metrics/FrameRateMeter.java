@@ -0,0 +1,59 @@
+package aliview.metrics;
+
+/*
+ *
+ * Frames per second, counted in whole seconds. Only seconds where frames were shown are counted, so the
+ * rate is the one while scrolling and not lowered by the time the pane is idle
+ *
+ */
+public class FrameRateMeter {
+	private static final long SECOND_NANOS = 1000000000L;
+	private long currentSecondStart = -1;
+	private int framesInCurrentSecond;
+	private int lastFramesPerSecond;
+	private int minFramesPerSecond = Integer.MAX_VALUE;
+	private int maxFramesPerSecond;
+	private long totalFrames;
+
+	public synchronized void frameShown(){
+		long now = System.nanoTime();
+		if(currentSecondStart < 0 || now - currentSecondStart >= SECOND_NANOS){
+			// a second is only counted when next frame came right after it (still scrolling)
+			if(currentSecondStart >= 0 && now - currentSecondStart < 2 * SECOND_NANOS){
+				lastFramesPerSecond = framesInCurrentSecond;
+				minFramesPerSecond = Math.min(minFramesPerSecond, framesInCurrentSecond);
+				maxFramesPerSecond = Math.max(maxFramesPerSecond, framesInCurrentSecond);
+			}
+			currentSecondStart = now;
+			framesInCurrentSecond = 0;
+		}
+		framesInCurrentSecond ++;
+		totalFrames ++;
+	}
+
+	public synchronized int getLastFramesPerSecond() {
+		return lastFramesPerSecond;
+	}
+
+	public synchronized int getMinFramesPerSecond() {
+		return minFramesPerSecond == Integer.MAX_VALUE ? 0 : minFramesPerSecond;
+	}
+
+	public synchronized int getMaxFramesPerSecond() {
+		return maxFramesPerSecond;
+	}
+
+	public synchronized long getTotalFrames() {
+		return totalFrames;
+	}
+
+	public synchronized void reset(){
+		currentSecondStart = -1;
+		framesInCurrentSecond = 0;
+		lastFramesPerSecond = 0;
+		minFramesPerSecond = Integer.MAX_VALUE;
+		maxFramesPerSecond = 0;
+		totalFrames = 0;
+	}
+
+}
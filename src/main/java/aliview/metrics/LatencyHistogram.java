@@ -0,0 +1,102 @@
+package aliview.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ *
+ * Durations counted in buckets of doubling size (1-2 us, 2-4 us, 4-8 us...), recording is a few atomic
+ * increments without locks so it can be called from paint threads for every row. Percentiles are
+ * the upper limit of the bucket, so they are correct within a factor of two
+ *
+ */
+public class LatencyHistogram {
+	private static final int BUCKET_COUNT = 40;
+	private final String name;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void record(long nanos){
+		if(nanos < 0){
+			return;
+		}
+		long micros = nanos / 1000;
+		int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+		buckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		long max = maxNanos.get();
+		while(nanos > max && ! maxNanos.compareAndSet(max, nanos)){
+			max = maxNanos.get();
+		}
+	}
+
+	public void recordSince(long startNanos){
+		record(System.nanoTime() - startNanos);
+	}
+
+	public long getCount(){
+		return count.get();
+	}
+
+	public double getTotalMillis(){
+		return totalNanos.get() / 1000000d;
+	}
+
+	public double getMeanMillis(){
+		long n = count.get();
+		if(n == 0){
+			return 0;
+		}
+		return totalNanos.get() / (double) n / 1000000d;
+	}
+
+	public double getMaxMillis(){
+		return maxNanos.get() / 1000000d;
+	}
+
+	/*
+	 * Upper limit of bucket where percentile (0-100) is, in milliseconds
+	 */
+	public double getPercentileMillis(double percentile){
+		long n = 0;
+		long[] snapshot = new long[BUCKET_COUNT];
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			snapshot[i] = buckets.get(i);
+			n += snapshot[i];
+		}
+		if(n == 0){
+			return 0;
+		}
+		long target = (long) Math.ceil(n * percentile / 100d);
+		long cumulative = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			cumulative += snapshot[i];
+			if(cumulative >= target){
+				// bucket i is micros below 2^i, never more than the max recorded
+				return Math.min((1L << i) / 1000d, getMaxMillis());
+			}
+		}
+		return getMaxMillis();
+	}
+
+	public void reset(){
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+
+}
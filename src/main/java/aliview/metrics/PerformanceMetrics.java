@@ -0,0 +1,248 @@
+package aliview.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.log4j.Logger;
+
+/*
+ *
+ * Registry of performance metrics of the running program: latencies (painting, histogram, external commands,
+ * waiting for the mapped file), frame rate while scrolling, indexing throughput and memory of undo stack.
+ * Recording is a few atomic operations so it is always on, shown in the performance window and through JMX
+ *
+ */
+public class PerformanceMetrics {
+	private static final Logger logger = Logger.getLogger(PerformanceMetrics.class);
+	private static final String LF = System.getProperty("line.separator");
+	public static final String MBEAN_NAME = "aliview:type=PerformanceMetrics";
+
+	public static final String PAINT_FRAME = "Paint alignment frame";
+	public static final String PAINT_ROW_PREFIX = "Paint row ";
+	public static final String HISTOGRAM_REBUILD = "Histogram rebuild";
+	public static final String MAPPED_BUFFER_LOCK_WAIT = "Mapped file lock wait";
+	public static final String EXTERNAL_COMMAND_PREFIX = "External command ";
+
+	private static volatile boolean enabled = true;
+	private static final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+	private static final ConcurrentHashMap<Class<?>, LatencyHistogram> painterLatencies = new ConcurrentHashMap<Class<?>, LatencyHistogram>();
+	private static final FrameRateMeter scrollFrameRate = new FrameRateMeter();
+	private static final ThroughputMeter indexingThroughput = new ThroughputMeter();
+	private static final AtomicLong undoStackBytes = new AtomicLong();
+	private static boolean isMBeanRegistered;
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		PerformanceMetrics.enabled = enabled;
+	}
+
+	/*
+	 * Start time for recordSince, 0 when metrics are off
+	 */
+	public static long startTimer(){
+		if(! enabled){
+			return 0;
+		}
+		return System.nanoTime();
+	}
+
+	public static void recordSince(String name, long startNanos){
+		if(! enabled || startNanos == 0){
+			return;
+		}
+		getLatency(name).recordSince(startNanos);
+	}
+
+	public static void recordSince(LatencyHistogram latency, long startNanos){
+		if(! enabled || startNanos == 0){
+			return;
+		}
+		latency.recordSince(startNanos);
+	}
+
+	public static LatencyHistogram getLatency(String name){
+		LatencyHistogram latency = latencies.get(name);
+		if(latency == null){
+			latency = new LatencyHistogram(name);
+			LatencyHistogram existing = latencies.putIfAbsent(name, latency);
+			if(existing != null){
+				latency = existing;
+			}
+		}
+		return latency;
+	}
+
+	/*
+	 * One histogram per painter class, looked up by class so nothing is created when painting a row
+	 */
+	public static LatencyHistogram getPainterLatency(Class<?> painterClass){
+		LatencyHistogram latency = painterLatencies.get(painterClass);
+		if(latency == null){
+			latency = getLatency(PAINT_ROW_PREFIX + painterClass.getSimpleName());
+			painterLatencies.putIfAbsent(painterClass, latency);
+		}
+		return latency;
+	}
+
+	public static void scrollFrameShown(){
+		if(enabled){
+			scrollFrameRate.frameShown();
+		}
+	}
+
+	public static void recordIndexed(long bytes, long sequences, long nanos){
+		if(enabled){
+			indexingThroughput.record(bytes, sequences, nanos);
+		}
+	}
+
+	public static void addUndoStackBytes(long delta){
+		undoStackBytes.addAndGet(delta);
+	}
+
+	public static FrameRateMeter getScrollFrameRate() {
+		return scrollFrameRate;
+	}
+
+	public static ThroughputMeter getIndexingThroughput() {
+		return indexingThroughput;
+	}
+
+	public static long getUndoStackBytes(){
+		return undoStackBytes.get();
+	}
+
+	public static List<String> getLatencyNames(){
+		List<String> names = new ArrayList<String>(latencies.keySet());
+		Collections.sort(names);
+		return names;
+	}
+
+	public static void reset(){
+		for(LatencyHistogram latency: latencies.values()){
+			latency.reset();
+		}
+		scrollFrameRate.reset();
+		indexingThroughput.reset();
+		// undo stack size is current state, not reset
+	}
+
+	public static String createReport(){
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-45s %8s %10s %10s %10s %10s", "Latency", "count", "mean ms", "p50 ms", "p95 ms", "max ms"));
+		report.append(LF);
+		for(String name: getLatencyNames()){
+			LatencyHistogram latency = latencies.get(name);
+			report.append(String.format("%-45s %8d %10.3f %10.3f %10.3f %10.3f", name, latency.getCount(), latency.getMeanMillis(),
+					latency.getPercentileMillis(50), latency.getPercentileMillis(95), latency.getMaxMillis()));
+			report.append(LF);
+		}
+		report.append(LF);
+		report.append(String.format("Frames per second while scrolling: last=%d min=%d max=%d (frames=%d)", scrollFrameRate.getLastFramesPerSecond(),
+				scrollFrameRate.getMinFramesPerSecond(), scrollFrameRate.getMaxFramesPerSecond(), scrollFrameRate.getTotalFrames()));
+		report.append(LF);
+		report.append(String.format("Indexing: %.1f MB/s %.0f sequences/s (last batch %.1f MB/s %.0f sequences/s, total %d MB %d sequences)",
+				indexingThroughput.getMegabytesPerSecond(), indexingThroughput.getItemsPerSecond(), indexingThroughput.getLastMegabytesPerSecond(),
+				indexingThroughput.getLastItemsPerSecond(), indexingThroughput.getTotalBytes() / (1024 * 1024), indexingThroughput.getTotalItems()));
+		report.append(LF);
+		report.append(String.format("Undo stack (estimated): %.1f MB", undoStackBytes.get() / (1024d * 1024d)));
+		report.append(LF);
+		if(! enabled){
+			report.append("Recording is turned off");
+			report.append(LF);
+		}
+		return report.toString();
+	}
+
+	/*
+	 * Metrics in platform MBean server (visible in jconsole/VisualVM)
+	 */
+	public static synchronized void registerMBean(){
+		if(isMBeanRegistered){
+			return;
+		}
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(new StandardMBean(new MBeanAdapter(), PerformanceMetricsMBean.class), new ObjectName(MBEAN_NAME));
+			isMBeanRegistered = true;
+		}catch(Exception e){
+			logger.warn("Could not register performance metrics MBean: " + e.getMessage());
+		}
+	}
+
+	private static class MBeanAdapter implements PerformanceMetricsMBean{
+
+		// unknown names from a JMX client are not added to registry
+		private LatencyHistogram findLatency(String name){
+			LatencyHistogram latency = latencies.get(name);
+			if(latency == null){
+				return new LatencyHistogram(name);
+			}
+			return latency;
+		}
+
+		public boolean isEnabled() {
+			return PerformanceMetrics.isEnabled();
+		}
+
+		public void setEnabled(boolean enabled) {
+			PerformanceMetrics.setEnabled(enabled);
+		}
+
+		public String[] getLatencyNames() {
+			return PerformanceMetrics.getLatencyNames().toArray(new String[0]);
+		}
+
+		public long getLatencyCount(String name) {
+			return findLatency(name).getCount();
+		}
+
+		public double getLatencyMeanMillis(String name) {
+			return findLatency(name).getMeanMillis();
+		}
+
+		public double getLatencyPercentileMillis(String name, double percentile) {
+			return findLatency(name).getPercentileMillis(percentile);
+		}
+
+		public double getLatencyMaxMillis(String name) {
+			return findLatency(name).getMaxMillis();
+		}
+
+		public int getScrollFramesPerSecond() {
+			return scrollFrameRate.getLastFramesPerSecond();
+		}
+
+		public double getIndexingMegabytesPerSecond() {
+			return indexingThroughput.getMegabytesPerSecond();
+		}
+
+		public double getIndexingSequencesPerSecond() {
+			return indexingThroughput.getItemsPerSecond();
+		}
+
+		public long getUndoStackEstimatedBytes() {
+			return undoStackBytes.get();
+		}
+
+		public String getReport() {
+			return createReport();
+		}
+
+		public void reset() {
+			PerformanceMetrics.reset();
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package aliview.metrics;
+
+/*
+ *
+ * Performance metrics as seen in JMX (e.g. jconsole), registered as aliview:type=PerformanceMetrics
+ *
+ */
+public interface PerformanceMetricsMBean {
+	public boolean isEnabled();
+	public void setEnabled(boolean enabled);
+	public String[] getLatencyNames();
+	public long getLatencyCount(String name);
+	public double getLatencyMeanMillis(String name);
+	public double getLatencyPercentileMillis(String name, double percentile);
+	public double getLatencyMaxMillis(String name);
+	public int getScrollFramesPerSecond();
+	public double getIndexingMegabytesPerSecond();
+	public double getIndexingSequencesPerSecond();
+	public long getUndoStackEstimatedBytes();
+	public String getReport();
+	public void reset();
+}
@@ -0,0 +1,66 @@
+package aliview.metrics;
+
+/*
+ *
+ * Bytes and items (e.g. sequences) processed over time, total and for the last recorded batch
+ *
+ */
+public class ThroughputMeter {
+	private static final double BYTES_PER_MB = 1024 * 1024;
+	private long totalBytes;
+	private long totalItems;
+	private long totalNanos;
+	private long lastBytes;
+	private long lastItems;
+	private long lastNanos;
+
+	public synchronized void record(long bytes, long items, long nanos){
+		totalBytes += bytes;
+		totalItems += items;
+		totalNanos += nanos;
+		lastBytes = bytes;
+		lastItems = items;
+		lastNanos = nanos;
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public synchronized long getTotalItems() {
+		return totalItems;
+	}
+
+	public synchronized double getMegabytesPerSecond(){
+		return perSecond(totalBytes / BYTES_PER_MB, totalNanos);
+	}
+
+	public synchronized double getItemsPerSecond(){
+		return perSecond(totalItems, totalNanos);
+	}
+
+	public synchronized double getLastMegabytesPerSecond(){
+		return perSecond(lastBytes / BYTES_PER_MB, lastNanos);
+	}
+
+	public synchronized double getLastItemsPerSecond(){
+		return perSecond(lastItems, lastNanos);
+	}
+
+	private static double perSecond(double amount, long nanos){
+		if(nanos <= 0){
+			return 0;
+		}
+		return amount / (nanos / 1000000000d);
+	}
+
+	public synchronized void reset(){
+		totalBytes = 0;
+		totalItems = 0;
+		totalNanos = 0;
+		lastBytes = 0;
+		lastItems = 0;
+		lastNanos = 0;
+	}
+
+}
@@ -0,0 +1,55 @@
+package aliview.primer;
+
+/*
+ * Result of DimerScreen - longest 3"-end dimer length for every primer pair (row primer 3"-end binding
+ * to column primer), values are stored as bytes since primers are short
+ */
+public class DimerMatrix {
+	private final int size;
+	private final byte[] end3DimerLengths;
+
+	public DimerMatrix(int size) {
+		this.size = size;
+		this.end3DimerLengths = new byte[size * size];
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	void set3EndDimerLength(int row, int col, int length){
+		end3DimerLengths[row * size + col] = (byte) Math.min(length, Byte.MAX_VALUE);
+	}
+
+	public int get3EndDimerLength(int row, int col){
+		return end3DimerLengths[row * size + col];
+	}
+
+	public int getSelf3EndDimerLength(int index){
+		return get3EndDimerLength(index, index);
+	}
+
+	/*
+	 * Number of other primers that this primer forms a 3"-end dimer with (in either direction)
+	 */
+	public int getCross3EndDimerCount(int index){
+		int count = 0;
+		for(int other = 0; other < size; other++){
+			if(other != index && (get3EndDimerLength(index, other) > 0 || get3EndDimerLength(other, index) > 0)){
+				count ++;
+			}
+		}
+		return count;
+	}
+
+	public int getMaxCross3EndDimerLength(int index){
+		int max = 0;
+		for(int other = 0; other < size; other++){
+			if(other != index){
+				max = Math.max(max, Math.max(get3EndDimerLength(index, other), get3EndDimerLength(other, index)));
+			}
+		}
+		return max;
+	}
+
+}
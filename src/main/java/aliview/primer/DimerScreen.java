@@ -0,0 +1,218 @@
+package aliview.primer;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import aliview.NucleotideUtilities;
+
+/*
+ *
+ * All-vs-all 3"-end dimer screening of primer candidates
+ *
+ * Gives the same 3"-end dimer lengths as Dimer(primer1, revComp(primer2)).get3EndDimerMaxLength()
+ * but every primer is encoded once as 64-bit position masks per base value (the NucleotideUtilities
+ * base-value flags) and every offset of every pair is tested with a few AND/OR and a bitCount
+ * instead of character by character, no strings or DimerResult are created.
+ *
+ * Primers longer than 64 bases are checked with Dimer instead.
+ *
+ */
+public class DimerScreen {
+	private static final Logger logger = Logger.getLogger(DimerScreen.class);
+	private static final int MAX_BITS = 64;
+	private static final int ROWS_PER_JOB = 16;
+	private static final int NUMBER_OF_ONE_BASE_GAPS_ALLOWED = 1;
+	// Same binding rule as NucleotideUtilities.getDimerBinding() for all base-value combinations
+	private static final boolean[][] BINDS = createBindTable();
+	private final int minDimerLength;
+
+	public DimerScreen() {
+		this(Dimer.getDimerLengthThreashold());
+	}
+
+	public DimerScreen(int minDimerLength) {
+		this.minDimerLength = minDimerLength;
+	}
+
+	private static boolean[][] createBindTable(){
+		boolean[][] binds = new boolean[16][16];
+		for(int val1 = 1; val1 < 16; val1++){
+			for(int val2 = 1; val2 < 16; val2++){
+				char char1 = NucleotideUtilities.charFromBaseVal(val1);
+				char char2 = NucleotideUtilities.charFromBaseVal(val2);
+				binds[val1][val2] = NucleotideUtilities.getDimerBinding(char1, char2) >= 1;
+			}
+		}
+		return binds;
+	}
+
+	private static int baseValIgnoreUnknown(char base){
+		int baseVal = NucleotideUtilities.baseValFromChar(base);
+		if((baseVal & NucleotideUtilities.UNKNOWN) != 0){
+			return NucleotideUtilities.GAP;
+		}
+		return baseVal;
+	}
+
+	private static int complementBaseVal(int baseVal){
+		// A <-> T and C <-> G
+		return ((baseVal & NucleotideUtilities.A) << 3) | ((baseVal & NucleotideUtilities.TU) >> 3) |
+				((baseVal & NucleotideUtilities.C) << 1) | ((baseVal & NucleotideUtilities.G) >> 1);
+	}
+
+	/*
+	 * One primer as bit masks (bit n is sequence position n)
+	 */
+	private static class EncodedPrimer{
+		final String sequence;
+		final int length;
+		// base values present in primer and the positions of each of them (when primer is 5" strand)
+		final int[] presentVals;
+		final long[] presentMasks;
+		// for every base value - positions in reverse complement of primer it binds to (when primer is partner)
+		final long[] bindMasks = new long[16];
+
+		EncodedPrimer(String sequence){
+			this.sequence = sequence;
+			this.length = sequence.length();
+
+			long[] valMasks = new long[16];
+			for(int n = 0; n < length && n < MAX_BITS; n++){
+				valMasks[baseValIgnoreUnknown(sequence.charAt(n))] |= 1L << n;
+			}
+			int count = 0;
+			for(int val = 1; val < 16; val++){
+				if(valMasks[val] != 0){
+					count ++;
+				}
+			}
+			presentVals = new int[count];
+			presentMasks = new long[count];
+			int index = 0;
+			for(int val = 1; val < 16; val++){
+				if(valMasks[val] != 0){
+					presentVals[index] = val;
+					presentMasks[index] = valMasks[val];
+					index ++;
+				}
+			}
+
+			for(int n = 0; n < length && n < MAX_BITS; n++){
+				int revCompVal = complementBaseVal(baseValIgnoreUnknown(sequence.charAt(length - 1 - n)));
+				for(int val = 1; val < 16; val++){
+					if(BINDS[val][revCompVal]){
+						bindMasks[val] |= 1L << n;
+					}
+				}
+			}
+		}
+
+		boolean fitsInBits(){
+			return length <= MAX_BITS;
+		}
+	}
+
+	/*
+	 * Longest 3"-end dimer between primer1 and reverse complement of primer2, 0 if none
+	 *
+	 * A 3"-end dimer starts on first base of revcomp and ends on last base of primer1 and has
+	 * at most one non binding position (same as Dimer with one base gap allowed)
+	 */
+	private int get3EndDimerMaxLength(EncodedPrimer primer1, EncodedPrimer primer2){
+
+		if(! primer1.fitsInBits() || ! primer2.fitsInBits()){
+			return new Dimer(primer1.sequence, NucleotideUtilities.revComp(primer2.sequence)).get3EndDimerMaxLength();
+		}
+
+		int len1 = primer1.length;
+		int len2 = primer2.length;
+
+		// overlap has to be shorter than revcomp (Dimer only reports dimers that end before revcomp does)
+		int firstOffset = Math.max(0, len1 - len2 + 1);
+		int lastOffset = Math.min(len1 - 1, len1 - minDimerLength);
+		long lastBit = 1L << (len1 - 1);
+
+		// longest overlap first
+		for(int offset = firstOffset; offset <= lastOffset; offset++){
+			long firstBit = 1L << offset;
+			int overlap = len1 - offset;
+			long window = ((-1L) >>> (MAX_BITS - overlap)) << offset;
+
+			long binding = 0;
+			for(int n = 0; n < primer1.presentVals.length; n++){
+				binding |= primer1.presentMasks[n] & (primer2.bindMasks[primer1.presentVals[n]] << offset);
+			}
+			binding &= window;
+
+			if((binding & firstBit) != 0 && (binding & lastBit) != 0){
+				int nonBinding = overlap - Long.bitCount(binding);
+				if(nonBinding <= NUMBER_OF_ONE_BASE_GAPS_ALLOWED && overlap - nonBinding >= minDimerLength){
+					return overlap;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * Screens the first maxPrimers of the (sorted) primers against each other and stores
+	 * self and cross 3"-end dimer results in the primers
+	 */
+	public DimerMatrix screenAndAnnotate(List<Primer> primers, int maxPrimers){
+		List<Primer> screened = primers.subList(0, Math.min(maxPrimers, primers.size()));
+		DimerMatrix matrix = screen(screened);
+		for(int n = 0; n < screened.size(); n++){
+			Primer primer = screened.get(n);
+			primer.set3EndDimerMaxLength(matrix.getSelf3EndDimerLength(n));
+			primer.setCross3EndDimerCount(matrix.getCross3EndDimerCount(n));
+		}
+		return matrix;
+	}
+
+	/*
+	 * Screens all primers against each other (and themselves) using all available cores
+	 */
+	public DimerMatrix screen(List<Primer> primers){
+		long startTime = System.currentTimeMillis();
+		final int size = primers.size();
+		final EncodedPrimer[] encoded = new EncodedPrimer[size];
+		for(int n = 0; n < size; n++){
+			encoded[n] = new EncodedPrimer(primers.get(n).getSequence());
+		}
+
+		final DimerMatrix matrix = new DimerMatrix(size);
+
+		int nThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int jobStart = 0; jobStart < size; jobStart += ROWS_PER_JOB){
+			final int firstRow = jobStart;
+			final int lastRow = Math.min(jobStart + ROWS_PER_JOB, size);
+			executor.execute(new Runnable() {
+				public void run() {
+					for(int row = firstRow; row < lastRow; row ++){
+						for(int col = 0; col < size; col ++){
+							matrix.set3EndDimerLength(row, col, get3EndDimerMaxLength(encoded[row], encoded[col]));
+						}
+					}
+				}
+			});
+		}
+
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		logger.info("Dimer screen of " + size + " primers took " + (System.currentTimeMillis() - startTime) + " ms");
+
+		return matrix;
+	}
+
+}
@@ -17,6 +17,24 @@ public class OligoCalc {
 	 */
 	private static final Logger logger = Logger.getLogger(OligoCalc.class);
 
+	// Nearest-neighbor tables (same values as getEnthalpy/getEntropy) indexed by
+	// base index A=0, C=1, G=2, T=3 - first base is row, second base is column
+	static final double[][] NN_ENTHALPY = new double[][]{
+		{ -7.9,  -8.4,  -7.8,  -7.2 },
+		{ -8.5,  -8.0, -10.6,  -7.8 },
+		{ -8.2, -10.6,  -8.0,  -8.4 },
+		{ -7.2,  -8.2,  -8.5,  -7.9 }};
+
+	static final double[][] NN_ENTROPY = new double[][]{
+		{ -22.2, -22.4, -21.0, -20.4 },
+		{ -22.7, -19.9, -27.2, -21.0 },
+		{ -22.2, -27.2, -19.9, -22.4 },
+		{ -21.3, -22.2, -22.7, -22.2 }};
+
+	// terminal corrections. Santalucia 1998 (indexed as above)
+	static final double[] TERMINAL_ENTHALPY = new double[]{ 2.3, 0.1, 0.1, 2.3 };
+	static final double[] TERMINAL_ENTROPY = new double[]{ 4.1, -2.8, -2.8, 4.1 };
+
 	public static void main(String[] args){
 		double conc_primer = 200;// nM 
 		double conc_salt = 50; //mM
@@ -130,6 +148,17 @@ public class OligoCalc {
 		return tm;
 	}
 
+	/*
+	 * Same formula as getBaseStackingTM but with enthalpy and entropy of the stacks (and terminal corrections)
+	 * already summed up - this way callers can extend an oligo one base at a time without recalculating
+	 */
+	public static double getBaseStackingTM(double h, double s, int length, double conc_primer, double conc_salt, double conc_mg){
+		double salt_effect = conc_salt/1000 + conc_mg/1000 * 140;
+		s += 0.368 * (length -1) * Math.log(salt_effect);
+		double tm=((1000*h)/(s+(1.987*Math.log(conc_primer/2000000000))))-273.15;
+		return tm;
+	}
+
 	public static double getEurofinsTM(String sequence){
 
 		sequence = sequence.toUpperCase();
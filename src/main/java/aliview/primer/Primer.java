@@ -12,8 +12,16 @@ public class Primer implements Comparable<Primer> {
 	private static final Logger logger = Logger.getLogger(Primer.class);
 	private static final String LF = System.getProperty("line.separator");
 	DecimalFormat DEC_FORMAT = new DecimalFormat("#.#");
+	static final double CONC_PRIMER = 200;// nM 
+	static final double CONC_SALT = 50; //mM
+	static final double CONC_MG = 0; //mM
 	String sequence;
 	private int position;
+	private boolean hasTmRange;
+	private double minTM;
+	private double maxTM;
+	private int end3DimerMaxLength = -1;
+	private int cross3EndDimerCount = -1;
 
 	public Primer(String sequence, int position) {
 		super();
@@ -49,42 +57,39 @@ public class Primer implements Comparable<Primer> {
 	}
 
 	public double getBaseStackingAvgTm(){
-		double conc_primer = 200;// nM 
-		double conc_salt = 50; //mM
-		double conc_mg = 0; //mM
+		calculateBaseStackingTmRangeIfNeeded();
+		return (minTM/2+maxTM/2);
+	}
+
+	/*
+	 * Expand all primers and get max and min tm, result is kept since expansion is
+	 * exponential in degenerate positions (PrimerFinder sets range directly when it is known)
+	 */
+	private void calculateBaseStackingTmRangeIfNeeded(){
+		if(hasTmRange){
+			return;
+		}
 
-		// expand all primers
 		ArrayList<String> regenerated = NucleotideUtilities.regenerateDegenerated(sequence);
 
-		// loop through and get max and min tm
-		double minTM = Double.MAX_VALUE;
-		double maxTM = Double.MIN_VALUE;
+		double min = Double.MAX_VALUE;
+		double max = Double.MIN_VALUE;
 		for(String thisSeq: regenerated){
-			double tm = OligoCalc.getBaseStackingTM(thisSeq, conc_primer, conc_salt, conc_mg);
-			minTM = Math.min(tm, minTM);
-			maxTM = Math.max(tm, maxTM);
+			double tm = OligoCalc.getBaseStackingTM(thisSeq, CONC_PRIMER, CONC_SALT, CONC_MG);
+			min = Math.min(tm, min);
+			max = Math.max(tm, max);
 		}
+		setBaseStackingTmRange(min, max);
+	}
 
-		return (minTM/2+maxTM/2);
+	void setBaseStackingTmRange(double minTM, double maxTM){
+		this.minTM = minTM;
+		this.maxTM = maxTM;
+		this.hasTmRange = true;
 	}
 
 	public String getBaseStackingTmAsString(){
-		double conc_primer = 200;// nM 
-		double conc_salt = 50; //mM
-		double conc_mg = 0; //mM
-
-		// expand all primers
-		ArrayList<String> regenerated = NucleotideUtilities.regenerateDegenerated(sequence);
-
-		// loop through and get max and min tm
-		double minTM = Double.MAX_VALUE;
-		double maxTM = Double.MIN_VALUE;
-		for(String thisSeq: regenerated){
-			double tm = OligoCalc.getBaseStackingTM(thisSeq, conc_primer, conc_salt, conc_mg);
-			//logger.info("tm=" + tm);
-			minTM = Math.min(tm, minTM);
-			maxTM = Math.max(tm, maxTM);
-		}
+		calculateBaseStackingTmRangeIfNeeded();
 
 		String tmString = "";
 		if(minTM == maxTM){
@@ -98,22 +103,7 @@ public class Primer implements Comparable<Primer> {
 	}
 
 	public String getTmAsString(){
-		double conc_primer = 200;// nM 
-		double conc_salt = 50; //mM
-		double conc_mg = 0; //mM
-
-		// expand all primers
-		ArrayList<String> regenerated = NucleotideUtilities.regenerateDegenerated(sequence);
-
-		// loop through and get max and min tm
-		double minTM = Double.MAX_VALUE;
-		double maxTM = Double.MIN_VALUE;
-		for(String thisSeq: regenerated){
-			double tm = OligoCalc.getBaseStackingTM(thisSeq, conc_primer, conc_salt, conc_mg);
-			//logger.info("tm=" + tm);
-			minTM = Math.min(tm, minTM);
-			maxTM = Math.max(tm, maxTM);
-		}
+		calculateBaseStackingTmRangeIfNeeded();
 
 		String tmString = "baseStack ";
 		if(minTM == maxTM){
@@ -162,8 +152,26 @@ public class Primer implements Comparable<Primer> {
 	}
 
 	public int get3EndDimerMaxLength() {
-		Dimer d = new Dimer(this.getSequence(), NucleotideUtilities.revComp(this.getSequence()));
-		return d.get3EndDimerMaxLength();
+		if(end3DimerMaxLength < 0){
+			Dimer d = new Dimer(this.getSequence(), NucleotideUtilities.revComp(this.getSequence()));
+			end3DimerMaxLength = d.get3EndDimerMaxLength();
+		}
+		return end3DimerMaxLength;
+	}
+
+	void set3EndDimerMaxLength(int length) {
+		this.end3DimerMaxLength = length;
+	}
+
+	/*
+	 * Number of other candidates this primer forms 3"-end dimers with, -1 if not screened (see DimerScreen)
+	 */
+	public int getCross3EndDimerCount() {
+		return cross3EndDimerCount;
+	}
+
+	void setCross3EndDimerCount(int count) {
+		this.cross3EndDimerCount = count;
 	}
 
 
@@ -200,6 +208,9 @@ public class Primer implements Comparable<Primer> {
 		data += "gc-content:" + this.getGCcontent() + LF;
 		data += "max 3\"-end-dimer:" + this.get3EndDimerMaxLength() + LF;
 		data += "max dimer length:" + this.getDimerMaxLength() +  LF;
+		if(this.getCross3EndDimerCount() >= 0){
+			data += "3\"-end-dimers with other candidates:" + this.getCross3EndDimerCount() + LF;
+		}
 		data += "below are all dimers above threshold length (" + this.getDimerLengthThreashold() + "):" + LF;
 		data += LF;
 		for(String line: this.getAllDimersAsText()){
@@ -0,0 +1,241 @@
+package aliview.primer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import aliview.NucleotideUtilities;
+
+/*
+ *
+ * Finds primers in a (gap-removed) degenerate consensus sequence
+ *
+ * Every start position is a separate job that extends the window one base at a time from min to max length,
+ * the nearest-neighbor enthalpy and entropy are summed incrementally while walking through every expanded
+ * (non-degenerate) version of the window, so each expanded oligo gets its Tm calculated once from
+ * the sums of the shorter prefix it shares with the others. Windows above max degenerate fold are
+ * never expanded since degenerate fold only grows as window is extended.
+ *
+ */
+public class PrimerFinder {
+	private static final Logger logger = Logger.getLogger(PrimerFinder.class);
+	private static final int START_POSITIONS_PER_JOB = 32;
+	private static final int NO_BASE = -1;
+	private final String consensus;
+	private final int positionOffset;
+	private final int minLength;
+	private final int maxLength;
+	private final double minTM;
+	private final double maxTM;
+	private final long maxDegenerateFold;
+	// base index A=0,C=1,G=2,T=3 for every possible base in every consensus position
+	private final int[][] expandedBases;
+	private final int[] degenFolds;
+	private volatile boolean cancelled;
+	private final AtomicLong testedCount = new AtomicLong();
+
+	public PrimerFinder(String consensus, int positionOffset, int minLength, int maxLength, double minTM, double maxTM, long maxDegenerateFold) {
+		this.consensus = consensus;
+		this.positionOffset = positionOffset;
+		this.minLength = minLength;
+		this.maxLength = maxLength;
+		this.minTM = minTM;
+		this.maxTM = maxTM;
+		this.maxDegenerateFold = maxDegenerateFold;
+
+		this.expandedBases = new int[consensus.length()][];
+		this.degenFolds = new int[consensus.length()];
+		for(int n = 0; n < consensus.length(); n++){
+			char base = consensus.charAt(n);
+			expandedBases[n] = expandedBaseIndices(NucleotideUtilities.baseValFromChar(base));
+			degenFolds[n] = NucleotideUtilities.degenFoldFromChar(base);
+		}
+	}
+
+	private static int[] expandedBaseIndices(int baseVal){
+		// Unknown or gap has no bases to expand into and does not contribute to Tm (same as OligoCalc)
+		if(baseVal == NucleotideUtilities.GAP || (baseVal & NucleotideUtilities.UNKNOWN) != 0){
+			return new int[]{NO_BASE};
+		}
+		int count = Integer.bitCount(baseVal);
+		int[] indices = new int[count];
+		int pos = 0;
+		for(int index = 0; index < 4; index ++){
+			if((baseVal & (1 << index)) != 0){
+				indices[pos] = index;
+				pos ++;
+			}
+		}
+		return indices;
+	}
+
+	public void cancel(){
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled(){
+		return cancelled;
+	}
+
+	public long getTestedCount() {
+		return testedCount.get();
+	}
+
+	/*
+	 * Blocks until all start positions are searched (or search is cancelled), listener (if not null)
+	 * is called from the worker threads with every batch of primers as soon as it is found
+	 *
+	 * Returned list is sorted the same way as before (on score, then length, then position)
+	 */
+	public ArrayList<Primer> findPrimers(final PrimerFinderListener listener){
+		long startTime = System.currentTimeMillis();
+		final List<Primer> allPrimers = Collections.synchronizedList(new ArrayList<Primer>());
+
+		int nThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+
+		int lastStart = consensus.length() - minLength;
+		for(int jobStart = 0; jobStart <= lastStart; jobStart += START_POSITIONS_PER_JOB){
+			final int firstPos = jobStart;
+			final int lastPos = Math.min(jobStart + START_POSITIONS_PER_JOB - 1, lastStart);
+			executor.execute(new Runnable() {
+				public void run() {
+					ArrayList<Primer> found = new ArrayList<Primer>();
+					for(int startPos = firstPos; startPos <= lastPos && !cancelled; startPos ++){
+						findPrimersAtStart(startPos, found);
+					}
+					if(found.size() > 0){
+						allPrimers.addAll(found);
+						if(listener != null && !cancelled){
+							listener.primersFound(found);
+						}
+					}
+				}
+			});
+		}
+
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			cancelled = true;
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		ArrayList<Primer> result = new ArrayList<Primer>(allPrimers);
+		sortPrimers(result);
+
+		logger.info("Primers tested:" + testedCount.get() + " found:" + result.size() + " took " + (System.currentTimeMillis() - startTime) + " ms");
+
+		return result;
+	}
+
+	/*
+	 * Same order as the single threaded search gave: Primers were created window size by window size
+	 * and then stable sorted on score
+	 */
+	public static void sortPrimers(List<Primer> primers){
+		Collections.sort(primers, new Comparator<Primer>() {
+			public int compare(Primer o1, Primer o2) {
+				if(o1.getLength() != o2.getLength()){
+					return o1.getLength() < o2.getLength() ? -1 : 1;
+				}
+				if(o1.getPosition() != o2.getPosition()){
+					return o1.getPosition() < o2.getPosition() ? -1 : 1;
+				}
+				return 0;
+			}
+		});
+		Collections.sort(primers);
+	}
+
+	private void findPrimersAtStart(int startPos, ArrayList<Primer> found){
+
+		int maxLen = Math.min(maxLength, consensus.length() - startPos);
+
+		// degenerate fold only grows with length - stop extending when above max
+		int lastLen = 0;
+		long fold = 1;
+		for(int len = 1; len <= maxLen; len ++){
+			fold = fold * degenFolds[startPos + len - 1];
+			if(fold > maxDegenerateFold){
+				break;
+			}
+			lastLen = len;
+		}
+
+		testedCount.addAndGet(Math.max(0, maxLen - minLength + 1));
+
+		if(lastLen < minLength){
+			return;
+		}
+
+		double[] minTMs = new double[lastLen + 1];
+		double[] maxTMs = new double[lastLen + 1];
+		for(int n = 0; n <= lastLen; n++){
+			minTMs[n] = Double.MAX_VALUE;
+			maxTMs[n] = Double.MIN_VALUE;
+		}
+
+		for(int firstBase: expandedBases[startPos]){
+			double h = 0;
+			double s = 0;
+			if(firstBase != NO_BASE){
+				h = OligoCalc.TERMINAL_ENTHALPY[firstBase];
+				s = OligoCalc.TERMINAL_ENTROPY[firstBase];
+			}
+			extend(startPos, 1, firstBase, h, s, lastLen, minTMs, maxTMs);
+		}
+
+		for(int len = minLength; len <= lastLen; len ++){
+			double avgTM = minTMs[len]/2 + maxTMs[len]/2;
+			if(avgTM >= minTM && avgTM <= maxTM){
+				Primer primer = new Primer(consensus.substring(startPos, startPos + len), positionOffset + startPos);
+				primer.setBaseStackingTmRange(minTMs[len], maxTMs[len]);
+				found.add(primer);
+			}
+		}
+	}
+
+	/*
+	 * Depth first through all expansions of the window, h and s are the sums for the stacks
+	 * of the current prefix plus the terminal correction of the first base
+	 */
+	private void extend(int startPos, int len, int prevBase, double h, double s, int lastLen, double[] minTMs, double[] maxTMs){
+
+		if(len >= minLength){
+			double endH = h;
+			double endS = s;
+			if(prevBase != NO_BASE){
+				endH += OligoCalc.TERMINAL_ENTHALPY[prevBase];
+				endS += OligoCalc.TERMINAL_ENTROPY[prevBase];
+			}
+			double tm = OligoCalc.getBaseStackingTM(endH, endS, len, Primer.CONC_PRIMER, Primer.CONC_SALT, Primer.CONC_MG);
+			minTMs[len] = Math.min(tm, minTMs[len]);
+			maxTMs[len] = Math.max(tm, maxTMs[len]);
+		}
+
+		if(len == lastLen){
+			return;
+		}
+
+		for(int nextBase: expandedBases[startPos + len]){
+			double nextH = h;
+			double nextS = s;
+			if(prevBase != NO_BASE && nextBase != NO_BASE){
+				nextH += OligoCalc.NN_ENTHALPY[prevBase][nextBase];
+				nextS += OligoCalc.NN_ENTROPY[prevBase][nextBase];
+			}
+			extend(startPos, len + 1, nextBase, nextH, nextS, lastLen, minTMs, maxTMs);
+		}
+	}
+
+}
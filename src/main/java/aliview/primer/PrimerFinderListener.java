@@ -0,0 +1,10 @@
+package aliview.primer;
+
+import java.util.List;
+
+public interface PrimerFinderListener {
+
+	// Called from PrimerFinder worker threads
+	public void primersFound(List<Primer> primers);
+
+}
@@ -34,6 +34,7 @@ public class PrimerResultTableRow {
 		headers.add("TM(base-stacking)");
 		headers.add("3-end-dimer-len");
 		headers.add("dimer-len");
+		headers.add("cross-3-end-dimers");
 		headers.add("Sequence");
 
 		return headers;
@@ -50,6 +51,7 @@ public class PrimerResultTableRow {
 		sizes.add(new Integer(150));
 		sizes.add(new Integer(30));
 		sizes.add(new Integer(30));
+		sizes.add(new Integer(30));
 		sizes.add(new Integer(100));
 
 		return sizes;
@@ -101,6 +103,14 @@ public class PrimerResultTableRow {
 		lblDimer.setFont(baseFont);
 		row.add(lblDimer);
 
+		String crossDimers = "";
+		if(primer.getCross3EndDimerCount() >= 0){
+			crossDimers = "" + primer.getCross3EndDimerCount();
+		}
+		JLabel lblCrossDimers = new JLabel(crossDimers);
+		lblCrossDimers.setFont(baseFont);
+		row.add(lblCrossDimers);
+
 		JLabel lblSequence = new JLabel(primer.getSequence());
 		lblSequence.setFont(baseFont);
 		row.add(lblSequence);
@@ -7,6 +7,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -25,18 +26,27 @@ import aliview.gui.AppIcons;
 
 public class PrimerResultsFrame extends JFrame {
 	private static final Logger logger = Logger.getLogger(PrimerResultsFrame.class);
-	private static final int MAX_NUMBER_OF_PRIMERS_REPORTED = 1000;
+	public static final int MAX_NUMBER_OF_PRIMERS_REPORTED = 1000;
 	JPanel mainPanel = new JPanel();
 	private final AliViewWindow aliViewWindow;
 	JTable mainTable;
 	PrimerDetailFrame primerDetailFrame;
-	private ArrayList<Primer> primerResult;
+	private ArrayList<Primer> primerResult = new ArrayList<Primer>();
+	private DefaultTableModel tm;
+	private PrimerFinder primerFinder;
 
 	public PrimerResultsFrame(ArrayList<Primer> primRes,AliViewWindow aliViewWin){
+		this(aliViewWin);
+		setPrimers(primRes);
+	}
+
+	/*
+	 * Creates an empty frame, primers are streamed in with addPrimers() while PrimerFinder is searching
+	 */
+	public PrimerResultsFrame(AliViewWindow aliViewWin){
 		this.aliViewWindow = aliViewWin;
-		this.primerResult = primRes;
 
-		DefaultTableModel tm = new DefaultTableModel(PrimerResultTableRow.getColumnHeaders().toArray(),0);
+		tm = new DefaultTableModel(PrimerResultTableRow.getColumnHeaders().toArray(),0);
 
 		mainTable = new JTable(tm);
 		mainTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -91,26 +101,43 @@ public class PrimerResultsFrame extends JFrame {
 		JScrollPane scrollPane = new JScrollPane(mainTable, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 		getContentPane().add(scrollPane, BorderLayout.CENTER);
 
-		int nCount = 0;
-		for(Primer primer: primRes){
-			if(primer.getScore() <= 1000 && nCount < MAX_NUMBER_OF_PRIMERS_REPORTED){
+		this.setTitle("Primer finds");
+		this.setIconImage(AppIcons.getProgramIconImage());
+		this.setPreferredSize(new Dimension(700,400));
+		this.placeFrameupperLeftLocationOfThis(aliViewWin);
+		this.pack();
+		this.setVisible(true);
+
+	}
+
+	public void setPrimerFinder(PrimerFinder primerFinder) {
+		this.primerFinder = primerFinder;
+		this.setTitle("Primer finds (searching...)");
+	}
+
+	/*
+	 * Append primers as they arrive (in the order they arrive), has to be called from EDT
+	 */
+	public void addPrimers(List<Primer> primers){
+		for(Primer primer: primers){
+			if(primer.getScore() <= 1000 && primerResult.size() < MAX_NUMBER_OF_PRIMERS_REPORTED){
 				//logger.info("AddingPanel");
 				//tm.addRow(new Object[]{new PrimerPanel(primer)});
 				//logger.info("AddingRow");
 				tm.addRow( new PrimerResultTableRow(primer).getRow().toArray() );
-				nCount ++;
-
+				primerResult.add(primer);
 			}
 		}
+	}
 
-
+	/*
+	 * Replace all rows, e.g. with the final sorted result when search is done, has to be called from EDT
+	 */
+	public void setPrimers(List<Primer> primers){
+		primerResult.clear();
+		tm.setRowCount(0);
+		addPrimers(primers);
 		this.setTitle("Primer finds");
-		this.setIconImage(AppIcons.getProgramIconImage());
-		this.setPreferredSize(new Dimension(700,400));
-		this.placeFrameupperLeftLocationOfThis(aliViewWin);
-		this.pack();
-		this.setVisible(true);
-
 	}
 
 	public void placeFrameupperLeftLocationOfThis(Component parent){
@@ -124,6 +151,9 @@ public class PrimerResultsFrame extends JFrame {
 	protected void displaySelectedPrimerDetailWindow() {
 		int colIndex = 0;	  
 		int rowIndex = mainTable.getSelectedRow();    	
+		if(rowIndex < 0 || rowIndex >= primerResult.size()){
+			return;
+		}
 		Primer selectedPrimer = primerResult.get(rowIndex);     	
 
 		//PrimerPanel selected = (PrimerPanel) mainTable.getModel().getValueAt(mainTable.getSelectedRow(),0);
@@ -144,6 +174,9 @@ public class PrimerResultsFrame extends JFrame {
 	@Override
 	public void dispose() {
 		super.dispose();
+		if(primerFinder != null){
+			primerFinder.cancel();
+		}
 		if(primerDetailFrame != null){
 			primerDetailFrame.dispose();
 		}
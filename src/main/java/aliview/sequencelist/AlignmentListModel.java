@@ -12,9 +12,14 @@ import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EventListener;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import javax.swing.AbstractListModel;
@@ -45,16 +50,24 @@ import aliview.alignment.NotUsed_AATranslator;
 import aliview.alignment.AliHistogram;
 import aliview.alignment.Alignment;
 import aliview.alignment.AlignmentMeta;
+import aliview.alignment.ColumnSummary;
+import aliview.alignment.ColumnSummaryCalculator;
+import aliview.alignment.DistanceMatrix;
 import aliview.alignment.NucleotideHistogram;
+import aliview.alignment.PairwiseDistanceCalculator;
 import aliview.gui.TextEditDialog;
 import aliview.importer.AlignmentImportException;
 import aliview.importer.FileFormat;
+import aliview.metrics.PerformanceMetrics;
+import aliview.sequences.CatalogFileSequence;
 import aliview.sequences.FileSequence;
 import aliview.sequences.BasicSequence;
 import aliview.sequences.InMemorySequence;
 import aliview.sequences.Sequence;
 import aliview.sequences.SequenceUtils;
+import aliview.subprocesses.SubProcessWindow;
 import aliview.undo.UndoSavedStateEditedSequences;
+import aliview.utils.LogUtils;
 
 public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
@@ -71,8 +84,15 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	// with the double lock synch strategy
 	// see: http://www.cs.umd.edu/~pugh/java/memoryModel/DoubleCheckedLocking.html
 	private volatile AliHistogram cachedHistogram;
-	private volatile int cachedLongestSequenceName;
+	private volatile int cachedLongestSequenceName = -1;
 	private volatile int cachedLongestSequenceLength = -1;
+	private volatile int cachedShortestSequenceLength = -1;
+	// batched change events, see beginChanges
+	private final Object changeLock = new Object();
+	private int changeDepth;
+	private Rectangle pendingChangedRect;
+	private int pendingMinRow = Integer.MAX_VALUE;
+	private int pendingMaxRow = -1;
 	private boolean isTranslated;
 	private Alignment alignment;
 
@@ -226,7 +246,9 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 				seq.setAlignmentModel(this);
 			}
 
+			selectionModel.flattenRangeSelection();
 			this.delegateSequences = list;
+			invalidateLongestSequenceName();
 			fireSequencesChangedAllNew();
 		}
 	}
@@ -285,7 +307,11 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	// is adjusting method
 	public Sequence set(int index, Sequence sequence){
 		sequence.setAlignmentModel(this);
+		selectionModel.sequenceOrderWillChange();
 		Sequence previous = delegateSequences.set(index, sequence);
+		if(previous != null){
+			sequenceNameLengthChanged(previous.getName().length(), sequence.getName().length());
+		}
 		// TODO Maybe add an adjusting parameter...
 		fireSequencesChanged(index, index);
 		return previous;
@@ -309,11 +335,15 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	}
 
 	public void addAll(int index, AlignmentListModel otherSeqModel) {
-		for(Sequence seq: otherSeqModel.getDelegateSequencesCopy()){
+		addAll(index, otherSeqModel.getDelegateSequencesCopy());
+	}
+
+	public void addAll(int index, List<Sequence> moreSeqs) {
+		for(Sequence seq: moreSeqs){
 			seq.setAlignmentModel(this);
 		}
-		delegateSequences.addAll(index, otherSeqModel.getDelegateSequencesCopy());
-		fireSequenceIntervalAdded(index, index + otherSeqModel.getDelegateSequencesCopy().size());
+		delegateSequences.addAll(index, moreSeqs);
+		fireSequenceIntervalAdded(index, index + moreSeqs.size() - 1);
 	}
 
 	public void addAll(List<Sequence> moreSeqs, boolean setSelected) {
@@ -348,12 +378,17 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 			synchronized(this){
 				if(cachedLongestSequenceLength <0){
 					int maxLen = 0;
+					int minLen = Integer.MAX_VALUE;
 					for(int n = 0; n < delegateSequences.size(); n++){
 						int len = delegateSequences.get(n).getLength();
 						if(len > maxLen){
 							maxLen = len;
 						}
+						if(len < minLen){
+							minLen = len;
+						}
 					}
+					cachedShortestSequenceLength = Math.min(minLen, maxLen);
 					cachedLongestSequenceLength = maxLen;
 				}
 			}
@@ -361,6 +396,14 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		return cachedLongestSequenceLength;
 	}
 
+	/*
+	 * Shortest length is calculated together with (and cached as) longest length
+	 */
+	public boolean hasEqualSequenceLengths() {
+		int longest = getLongestSequenceLength();
+		return cachedShortestSequenceLength == longest;
+	}
+
 	public int getShortestSequenceLength() {
 		int minLen = getLongestSequenceLength();
 		for(int n = 0; n < delegateSequences.size(); n++){
@@ -458,14 +501,18 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	}
 
 	public void deleteSequence(Sequence seq) {
+		selectionModel.sequenceOrderWillChange();
 		delegateSequences.remove(seq);	
+		invalidateLongestSequenceName();
 		fireSequencesChangedAll();
 	}
 
 	public void deleteSequences(List<Sequence> toDelete) {
+		selectionModel.sequenceOrderWillChange();
 		for(Sequence seq: toDelete){
 			delegateSequences.remove(seq);
 		}	
+		invalidateLongestSequenceName();
 		fireSequencesChangedAll();
 	}
 
@@ -527,6 +574,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
 	public void moveSequencesToBottom(List<Sequence> seqs) {
 		logger.info("removeAll");
+		selectionModel.sequenceOrderWillChange();
 		delegateSequences.removeAll(seqs);
 		logger.info("addAll");
 		delegateSequences.addAll(seqs);
@@ -539,6 +587,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
 
 	public void moveSequencesToTop(List<Sequence> seqs) {
+		selectionModel.sequenceOrderWillChange();
 		delegateSequences.removeAll(seqs);
 		delegateSequences.addAll(0, seqs);
 		if(seqs.size() > 0){
@@ -585,6 +634,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		if(seqs == null || seqs.size() == 0){
 			return;
 		}
+		selectionModel.sequenceOrderWillChange();
 		for(Sequence seq: seqs){
 			int index = delegateSequences.indexOf(seq);
 			// break if we are at top
@@ -608,6 +658,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		if(seqs == null || seqs.size() == 0){
 			return;
 		}
+		selectionModel.sequenceOrderWillChange();
 		// Has to be done reverse (otherwise index problem)
 		for(int n = seqs.size() - 1; n >=0 ; n--){
 			Sequence seq = seqs.get(n);
@@ -656,6 +707,32 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		logger.info("Write done");
 	}
 
+	/*
+	 * Selection for clipboard, selected bases of editable sequences are copied now, a continuous selection
+	 * in sequences indexed from file is kept as catalog index and positions and read when it is pasted
+	 */
+	public FastaSelection createFastaSelection() {
+		FastaSelection fastaSelection = new FastaSelection();
+		boolean readWhenNeeded = ! isEditable() && ! isTranslated();
+		for(Sequence sequence : selectionModel.getSelectedSequences()){
+			int first = sequence.getFirstSelectedPosition();
+			int last = sequence.getLastSelectedPosition();
+			if(first < 0 || last < first){
+				continue;
+			}
+			boolean continuous = sequence.countSelectedPositions(first, last) == last - first + 1;
+			if(continuous && readWhenNeeded && sequence instanceof CatalogFileSequence){
+				CatalogFileSequence catalogSequence = (CatalogFileSequence) sequence;
+				fastaSelection.addReadWhenNeeded(catalogSequence.getCatalog(), catalogSequence.getCatalogIndex(), first, last);
+			}else if(continuous){
+				fastaSelection.add(sequence.getName(), sequence.getBasesBetween(first, last));
+			}else{
+				fastaSelection.add(sequence.getName(), sequence.getSelectedBasesAsByte());
+			}
+		}
+		return fastaSelection;
+	}
+
 	public void writeSelectedSequencesAsFasta(Writer out) {
 		writeSelectedSequencesAsFasta(out, false);
 	}
@@ -663,7 +740,9 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	public void writeSelectedSequencesAsFasta(Writer out, boolean useIDAsName) {
 		List <Sequence> selectedSequences = selectionModel.getSelectedSequences();
 		for(Sequence sequence : selectedSequences){
-			logger.info("has sel");
+			if(LogUtils.isDiagnostic()){
+				logger.info("has sel");
+			}
 			writeSequenceAsFasta(sequence,out, useIDAsName);
 		}
 		logger.info("Write done");
@@ -1119,63 +1198,65 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		return editedSequences;
 	}
 
-	public void realignNucleotidesUseTheseAASequenceAsTemplate(AlignmentListModel templateSeqs) throws Exception{
-
-		// make sure this alignment is translated
-		setTranslation(true);
-
-		for(Sequence templateSeq: templateSeqs.getDelegateSequencesCopy()){
-
-			// do partial name since it if being cut by some programs....
-			Sequence nucSeq =  this.getSequenceByName(templateSeq.getName());
-			logger.info("nucSeq=" + nucSeq.getName() + nucSeq.getBasesAsString());
-			logger.info("templateSeq=" + templateSeq.getName() + templateSeq.getBasesAsString());
-
-			realignNucleotidesUseThisAASequenceAsTemplate(nucSeq, templateSeq);
-
-
-		}
-		// show result as nucleotides
-		setTranslation(false);
-
-		fireSequencesChangedAll();
-	}
-
-	private void realignNucleotidesUseThisAASequenceAsTemplate(Sequence nucSeq, Sequence template) throws Exception {
-
-		if(nucSeq instanceof InMemorySequence){
+	/*
+	 * Returns names of template sequences that could not be matched, the nucleotides of those are not changed
+	 */
+	public List<String> realignNucleotidesUseTheseAASequenceAsTemplate(AlignmentListModel templateSeqs){
+		beginChanges();
+		try{
 
-			StringBuilder newSeq = new StringBuilder(nucSeq.getLength());
-			int nextFindStartPos = 0;
-			for(int n = 0; n < template.getLength(); n++){
-				byte nextAAByte = template.getBaseAtPos(n);
-				AminoAcid aaTemplate = AminoAcid.getAminoAcidFromByte(nextAAByte);
+			// show result as nucleotides (bases are read untranslated)
+			setTranslation(false);
 
+			// same match as getSequenceByName (first one, ignore case) without searching the list for every template
+			HashMap<String, Sequence> seqsByName = new HashMap<String, Sequence>();
+			for(Sequence seq: delegateSequences){
+				String key = seq.getName().toLowerCase();
+				if(! seqsByName.containsKey(key)){
+					seqsByName.put(key, seq);
+				}
+			}
 
-				//			logger.info("aaTemplate.getCodeCharVal()" + aaTemplate.getCodeCharVal());
-				if(aaTemplate.getCodeCharVal() == AminoAcid.GAP.getCodeCharVal()){
-					newSeq.append((char)SequenceUtils.GAP_SYMBOL);
-					newSeq.append((char)SequenceUtils.GAP_SYMBOL);
-					newSeq.append((char)SequenceUtils.GAP_SYMBOL);
+			List<Sequence> templates = templateSeqs.getDelegateSequencesCopy();
+			List<Sequence> nucSeqs = new ArrayList<Sequence>(templates.size());
+			List<byte[]> nucleotides = new ArrayList<byte[]>(templates.size());
+			List<byte[]> templateBases = new ArrayList<byte[]>(templates.size());
+			int longest = 0;
+			for(Sequence templateSeq: templates){
+				Sequence nucSeq = seqsByName.get(templateSeq.getName().toLowerCase());
+				nucSeqs.add(nucSeq);
+				if(nucSeq instanceof InMemorySequence){
+					byte[] bases = nucSeq.getAllBasesAsByteArray();
+					longest = Math.max(longest, bases.length);
+					nucleotides.add(bases);
 				}else{
+					nucleotides.add(null);
+				}
+				templateBases.add(templateSeq.getAllBasesAsByteArray());
+			}
 
-					//				logger.info("search for " + aaTemplate.getCodeCharVal() + " in seq " + nucSeq.getName() + " from pos " + nextFindStartPos);
-					int posFound = nucSeq.find(aaTemplate.getCodeByteVal(), nextFindStartPos); 
-					if(posFound == -1){
-						logger.info("posnotfound");
-						throw new Exception("Alignments not matching-exception, when trying to align sequences");
-					}
-					byte[] nextNucs = nucSeq.getGapPaddedCodonInTranslatedPos(posFound);
-					newSeq.append(new String(nextNucs));
-					nextFindStartPos = posFound + 1;		
+			CodonBackTranslator translator = new CodonBackTranslator(getAlignmentMeta().getCodonPositions(), getAlignmentMeta().getGeneticCode(), longest);
+			byte[][] realigned = translator.backTranslate(nucleotides, templateBases, getThreadCount());
+
+			ArrayList<String> notMatched = new ArrayList<String>();
+			for(int n = 0; n < templates.size(); n++){
+				if(realigned[n] != null){
+					((InMemorySequence) nucSeqs.get(n)).setBases(realigned[n]);
+				}else if(nucSeqs.get(n) == null || nucleotides.get(n) != null){
+					notMatched.add(templates.get(n).getName());
 				}
 			}
-			logger.info("newSeq.length()" + newSeq.length());
+			if(notMatched.size() > 0){
+				logger.info("Alignments not matching when trying to align sequences, not matched: " + notMatched.size());
+			}
 
-			((InMemorySequence) nucSeq).setBases(newSeq.toString().getBytes());
-			fireSequencesChanged(nucSeq);
+			fireSequencesChangedAll();
+			return notMatched;
+		}finally{
+			commitChanges();
 		}
 	}
+
 	/*
 	private void realignNucleotidesUseThisAASequenceAsTemplate(Sequence nucSeq, Sequence template) throws Exception {
 
@@ -1264,6 +1345,23 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		}
 	}
 
+	/*
+	 * Insert gapCounts[n] gaps at start of sequence n
+	 */
+	public void insertGapsAtStart(int[] gapCounts) {
+		ArrayList<Sequence> paddedSeqs = new ArrayList<Sequence>();
+		for(int n = 0; n < gapCounts.length && n < delegateSequences.size(); n++){
+			if(gapCounts[n] > 0){
+				Sequence sequence = delegateSequences.get(n);
+				sequence.leftPadSequenceWithGaps(sequence.getLength() + gapCounts[n]);
+				paddedSeqs.add(sequence);
+			}
+		}
+		if(paddedSeqs.size() > 0){
+			fireSequencesChanged(paddedSeqs);
+		}
+	}
+
 	public boolean leftPadWithGapUntilEqualLength() {
 		int longLen = getLongestSequenceLength();
 		ArrayList<Sequence> paddedSeqs = new ArrayList<Sequence>();
@@ -1311,78 +1409,77 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	 */
 	public boolean rightTrimSequencesRemoveGapsUntilEqualLength(){
 		boolean wasTrimmed = false;
-		String cons = getConsensus();	
-		logger.info("cons=" + cons);
-		// check if there are any
-		if(cons.indexOf(SequenceUtils.GAP_SYMBOL) > 0){		
-			// create a bit-mask with pos to delete
-			boolean[] deleteMask = new boolean[cons.length()];
-
-			for(int n = deleteMask.length - 1; n>=0 ;n--){
-				if(cons.charAt(n) == SequenceUtils.GAP_SYMBOL){
-					deleteMask[n] = true;
-				}else{
-					break; // break out of for loop
-				}
-			}			
-			if(ArrayUtils.contains(deleteMask, true)){
-				deleteBasesInAllSequencesFromMask(deleteMask);
-				wasTrimmed = true;
-			}	
-		}
-		if(wasTrimmed){
-			fireSequencesChangedAll();
+		boolean[] deleteMask = getColumnSummary().getTrailingAllGapMask();
+		if(ArrayUtils.contains(deleteMask, true)){
+			deleteBasesInAllSequencesFromMask(deleteMask);
+			wasTrimmed = true;
 		}
 		return wasTrimmed;
 	}
 
 
-	public void deleteBasesInAllSequencesFromMask(boolean[] deleteMask) {
-		for(Sequence sequence : delegateSequences){
-			sequence.deleteBasesFromMask(deleteMask);
+	/*
+	 * Every sequence is rewritten once - in parallel when sequences are in memory
+	 * The range selection is flattened here first, otherwise every job would try to
+	 * flatten it into all rows while the other jobs are shifting their own selection
+	 */
+	public void deleteBasesInAllSequencesFromMask(final boolean[] deleteMask) {
+		selectionModel.flattenRangeSelection();
+		ExecutorService executor = Executors.newFixedThreadPool(getThreadCount());
+		for(final Sequence sequence : delegateSequences){
+			executor.execute(new Runnable() {
+				public void run() {
+					sequence.deleteBasesFromMask(deleteMask);
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
 		}
 		fireSequencesChangedAll();
 	}
 
-	public String getConsensus() {
-		if(isTranslated || getSequenceType() == SequenceUtils.TYPE_AMINO_ACID){
-			return getAminoAcidConsensus();
-		}
-		else{
-			return getNucleotideConsensus();
+	/*
+	 * Only one thread if filesequences - more threads make reading file slower
+	 */
+	private int getThreadCount(){
+		if(! isEditable()){
+			return 1;
 		}
+		return Runtime.getRuntime().availableProcessors();
 	}
 
-	private String getAminoAcidConsensus() {
-		byte[] consVals = new byte[getLongestSequenceLength()];
-		Arrays.fill(consVals, AminoAcid.GAP.getCodeByteVal());
-		for(Sequence sequence : delegateSequences){
-			for(int n = 0; n < sequence.getLength(); n++){
-				consVals[n] = AminoAcid.getConsensusFromByteVal(sequence.getBaseAtPos(n), (byte)consVals[n]);
-			}
-		}
-
-		String consAsString = new String(consVals);
+	/*
+	 * Consensus and gaps of every column (translated if translation is on)
+	 */
+	public ColumnSummary getColumnSummary() {
+		boolean aminoAcid = isTranslated || getSequenceType() == SequenceUtils.TYPE_AMINO_ACID;
+		return new ColumnSummaryCalculator(aminoAcid).calculate(delegateSequences, getThreadCount());
+	}
 
-		logger.info(consAsString);
+	/*
+	 * Pairwise p-distances (untranslated), progressWin can be null
+	 */
+	public DistanceMatrix getDistanceMatrix(List<Sequence> seqs, SubProcessWindow progressWin) {
+		PairwiseDistanceCalculator calculator = new PairwiseDistanceCalculator(getSequenceType() == SequenceUtils.TYPE_AMINO_ACID);
+		boolean parallelRead = getThreadCount() > 1;
+		return calculator.calculate(seqs, Runtime.getRuntime().availableProcessors(), parallelRead, progressWin);
+	}
 
-		return consAsString;
+	/*
+	 * p-distance of every sequence in list order to reference
+	 */
+	public float[] getDistancesTo(Sequence reference) {
+		PairwiseDistanceCalculator calculator = new PairwiseDistanceCalculator(getSequenceType() == SequenceUtils.TYPE_AMINO_ACID);
+		return calculator.calculateDistancesTo(reference, delegateSequences, getThreadCount(), getThreadCount() > 1);
 	}
 
-	private String getNucleotideConsensus(){
-		int[] consVals = new int[getLongestSequenceLength()];
-		for(Sequence sequence : delegateSequences){
-			int[] baseVals = sequence.getSequenceAsBaseVals();
-			// bitwise add everything
-			for(int n = 0; n < baseVals.length; n++){
-				consVals[n] = consVals[n] | baseVals[n];
-			}
-		}
-		char[] cons = new char[consVals.length];
-		for(int n = 0; n < cons.length; n++){
-			cons[n] = NucleotideUtilities.charFromBaseVal(consVals[n]);
-		}
-		return new String(cons);
+	public String getConsensus() {
+		return getColumnSummary().getConsensus();
 	}
 
 	public void reverseComplement() {
@@ -1413,26 +1510,60 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	}
 
 	public int getLongestSequenceName() {
-		long startTime = System.currentTimeMillis();
-		if(cachedLongestSequenceName <= 0){
+		if(cachedLongestSequenceName < 0){
 			// this is double locked to avoid synchronized block after the cached initialization of variacle
 			// cached variable has to be declared volatile above
 			// see: http://www.cs.umd.edu/~pugh/java/memoryModel/DoubleCheckedLocking.html and http://en.wikipedia.org/wiki/Double-checked_locking
 			synchronized(this){
-				if(cachedLongestSequenceName <=0){
+				if(cachedLongestSequenceName < 0){
+					long startTime = System.currentTimeMillis();
 					int maxlen = 0;
 					for(Sequence seq: delegateSequences){
 						maxlen = Math.max(maxlen, seq.getName().length());
 					}
 					cachedLongestSequenceName = maxlen;
+					long endTime = System.currentTimeMillis();
+					if(LogUtils.isDiagnostic()){
+						logger.info("getLongestSequenceName took " + (endTime - startTime) + " milliseconds");
+					}
 				}
 			}
 		}
-		long endTime = System.currentTimeMillis();
-		logger.info("getLongestSequenceName took " + (endTime - startTime) + " milliseconds");	
 		return cachedLongestSequenceName;
 	}
 
+	/*
+	 * Longest name is only calculated again when the sequence with longest name might have been
+	 * removed or renamed, added sequences are compared with the cached value
+	 */
+	private void updateLongestSequenceName(int index0, int index1){
+		if(cachedLongestSequenceName < 0){
+			return;
+		}
+		synchronized(this){
+			int maxlen = cachedLongestSequenceName;
+			int lastIndex = Math.min(index1, delegateSequences.size() - 1);
+			for(int n = index0; n <= lastIndex; n++){
+				maxlen = Math.max(maxlen, delegateSequences.get(n).getName().length());
+			}
+			cachedLongestSequenceName = maxlen;
+		}
+	}
+
+	public void sequenceNameLengthChanged(int oldLength, int newLength){
+		if(newLength > cachedLongestSequenceName){
+			if(cachedLongestSequenceName >= 0){
+				cachedLongestSequenceName = newLength;
+			}
+		}else if(oldLength >= cachedLongestSequenceName && newLength < oldLength){
+			invalidateLongestSequenceName();
+		}
+	}
+
+	private void invalidateLongestSequenceName(){
+		cachedLongestSequenceName = -1;
+	}
+
 	public boolean isPositionValid(int x, int y) {
 		return rangeCheck(x,y);
 	}
@@ -1462,20 +1593,45 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
 
 	public void sortSequencesByName() {
-		//logger.info(sequences);
-		Collections.sort(delegateSequences);
-
-		fireSequencesOrderChangedAll();
+		sortSequences(SequenceSortKey.byName());
 	}
 
 	public void sortSequencesByCharInSelectedColumn(AliHistogram histogram) {
 		// get first selected column
 		Point selPos = selectionModel.getFirstSelectedPos();
-		Collections.sort(delegateSequences, new SequencePositionComparator(selPos.x, getHistogram()));
+		if(selPos == null){
+			return;
+		}
+		sortSequences(SequenceSortKey.byCharInColumn(selPos.x, getHistogram()));
+	}
+
+	/*
+	 * Sorts on keys in order (next key is used when previous are equal), keys are extracted once
+	 * per sequence and the new order is set in one step
+	 */
+	public void sortSequences(SequenceSortKey... keys) {
+		selectionModel.sequenceOrderWillChange();
+		// file sequences are read from one file - more threads make reading file slower
+		boolean parallelRead = !(this instanceof FileSequenceAlignmentListModel);
+		List<Sequence> sorted = new SequenceSorter(keys).sort(delegateSequences, parallelRead);
+		setSequenceOrder(sorted);
 
 		fireSequencesOrderChangedAll();
 	}
 
+	private void setSequenceOrder(List<Sequence> sorted){
+		// sequences could have been appended (file still indexing) - they are kept last
+		if(delegateSequences instanceof CopyOnWriteArrayList){
+			List<Sequence> newOrder = new ArrayList<Sequence>(sorted);
+			newOrder.addAll(delegateSequences.subList(sorted.size(), delegateSequences.size()));
+			delegateSequences = new CopyOnWriteArrayList<Sequence>(newOrder);
+		}else{
+			for(int n = 0; n < sorted.size(); n++){
+				delegateSequences.set(n, sorted.get(n));
+			}
+		}
+	}
+
 	public AliHistogram getHistogram(){
 		if(cachedHistogram == null){
 			// this is double locked to avoid synchronized block after the lazy initialization of Histogram object
@@ -1493,6 +1649,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
 	private AliHistogram createHistogram(){
 		long startTime = System.currentTimeMillis();
+		long startNanos = PerformanceMetrics.startTimer();
 		AliHistogram histogram = null;
 		if(sequenceType == SequenceUtils.TYPE_AMINO_ACID || isTranslated){
 			histogram = new AAHistogram(getLongestSequenceLength());
@@ -1507,6 +1664,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 				histogram.addSequence(seq);
 			}
 		}
+		PerformanceMetrics.recordSince(PerformanceMetrics.HISTOGRAM_REBUILD, startNanos);
 		long endTime = System.currentTimeMillis();
 		logger.info("Create histogram took " + (endTime - startTime) + " milliseconds");
 		return histogram;
@@ -1553,6 +1711,50 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
 
 
+	/*
+	 * Columns startCol-endCol (inclusive) in all sequences are replaced with the sequences in newOnes, that are named
+	 * by the ID of the sequence they replace. Sequences not in newOnes (left out for having no residues in block) are
+	 * gap filled. The block can become wider or narrower - positions in AlignmentMeta (excludes, codonpos, charsets)
+	 * are moved with it
+	 */
+	public void replaceColumnsWithThis(int startCol, int endCol, AlignmentListModel newOnes) {
+		int newWidth = newOnes.getLongestSequenceLength();
+		HashMap<Integer, Sequence> newByID = new HashMap<Integer, Sequence>();
+		for(Sequence newSeq: newOnes.getDelegateSequences()){
+			try{
+				newByID.put(Integer.valueOf(newSeq.getName().trim()), newSeq);
+			}catch(NumberFormatException e){
+				logger.warn("Realigned sequence is not named by ID: " + newSeq.getName());
+			}
+		}
+		for(Sequence seq: delegateSequences){
+			Sequence realignedSeq = newByID.get(Integer.valueOf(seq.getID()));
+			byte[] realignedBases;
+			if(realignedSeq != null){
+				realignedBases = realignedSeq.getAllBasesAsByteArray();
+			}else{
+				realignedBases = SequenceUtils.createGapByteArray(newWidth);
+			}
+			if(realignedBases.length < newWidth){
+				int oldLength = realignedBases.length;
+				realignedBases = Arrays.copyOf(realignedBases, newWidth);
+				Arrays.fill(realignedBases, oldLength, newWidth, SequenceUtils.GAP_SYMBOL);
+			}
+			seq.rightPadSequenceWithGaps(endCol + 1);
+			seq.replaceBases(startCol, endCol, realignedBases);
+		}
+
+		// block is ending at endCol - grow or shrink the meta ranges there
+		int diff = newWidth - (endCol + 1 - startCol);
+		if(diff > 0){
+			getAlignmentMeta().insertPositions(endCol, diff);
+		}else if(diff < 0){
+			getAlignmentMeta().deletePositions(endCol + diff + 1, -diff);
+		}
+
+		fireSequencesChangedAll();
+	}
+
 	public boolean mergeTwoSequences(InMemorySequence seq1, InMemorySequence seq2, boolean allowOverlap){		
 		if(sequenceType == SequenceUtils.TYPE_NUCLEIC_ACID){
 			return mergeTwoNucleotideSequences(seq1, seq2, allowOverlap);
@@ -1712,6 +1914,42 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
 
 
+	/*
+	 * Deletes sequences that have the same residues as a sequence above them (as in findDuplicates), the first one
+	 * is kept. Sequences are grouped on a hash of the residues so only sequences in the same group are compared
+	 */
+	public List<Sequence> deleteDuplicatesKeepFirst(){
+		HashMap<Integer, List<Sequence>> keptByHash = new HashMap<Integer, List<Sequence>>();
+		List<Sequence> toDelete = new ArrayList<Sequence>();
+		for(Sequence seq: delegateSequences){
+			int hash = seq.getLength();
+			for(int n = 0; n < seq.getLength(); n++){
+				hash = 31 * hash + Character.toLowerCase(seq.getCharAtPos(n));
+			}
+			List<Sequence> kept = keptByHash.get(hash);
+			if(kept == null){
+				kept = new ArrayList<Sequence>();
+				keptByHash.put(hash, kept);
+			}
+			boolean isDupe = false;
+			for(Sequence keptSeq: kept){
+				if(SequenceUtils.isSeqResiduesIdentical(keptSeq, seq)){
+					isDupe = true;
+					break;
+				}
+			}
+			if(isDupe){
+				toDelete.add(seq);
+			}else{
+				kept.add(seq);
+			}
+		}
+		if(toDelete.size() > 0){
+			deleteSequences(toDelete);
+		}
+		return toDelete;
+	}
+
 	public ArrayList<Sequence> findDuplicates(){
 
 		HashSet<Sequence> dupeSequences = new HashSet<Sequence>();
@@ -1731,15 +1969,12 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 						dupeSequences.add(otherSeq);
 					}
 				}
-				else{
+				else if(LogUtils.isDiagnostic()){
 					logger.debug("wrong len");
 				}
 			}
-
-
-			logger.info("dupeSequences.size()" + dupeSequences.size());
-
 		}
+		logger.info("dupeSequences.size()" + dupeSequences.size());
 		ArrayList<Sequence> dupeList = new ArrayList<Sequence>(dupeSequences);
 		return dupeList;
 	}
@@ -1756,6 +1991,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 
 	private AliHistogram createTranslatedHistogram() {
 		long startTime = System.currentTimeMillis();
+		long startNanos = PerformanceMetrics.startTimer();
 
 		boolean wasTranslated = isTranslated;
 		setTranslation(true);
@@ -1772,6 +2008,7 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 			setTranslation(false);
 		}
 
+		PerformanceMetrics.recordSince(PerformanceMetrics.HISTOGRAM_REBUILD + " (translated)", startNanos);
 		long endTime = System.currentTimeMillis();
 		logger.info("Create translated histogram took " + (endTime - startTime) + " milliseconds");
 		return histogram;
@@ -1898,6 +2135,10 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		return selectionModel.getSelectedColumnCount();
 	}
 
+	public List<Interval> getSelectedWholeColumnRanges() {
+		return selectionModel.getSelectedWholeColumnRanges();
+	}
+
 	public int getSelectedSequencesCount() {
 		return selectionModel.getSelectedSequencesCount();
 	}
@@ -1906,6 +2147,10 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 		return selectionModel.getSelectedSequences();
 	}
 
+	public List<Sequence> getUnSelectedSequences() {
+		return selectionModel.getUnSelectedSequences();
+	}
+
 	public String getSelectionNames() {
 		return selectionModel.getSelectionNames();
 	}
@@ -2087,18 +2332,71 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	// ****************** SEQUENCES CHANGED EVENTS
 	//
 
+	/*
+	 * Change events are held back from beginChanges until the matching commitChanges (calls can be nested),
+	 * then listeners get one event with the union of the changed bounds instead of one event (and repaint)
+	 * per changed part. Cached values are still cleared at every change, so they are correct when read
+	 * during the changes, but they are only recalculated when read and the width of the changed rows is
+	 * calculated once at commit.
+	 *
+	 * Use with try/finally so commitChanges is always called
+	 */
+	public void beginChanges(){
+		synchronized(changeLock){
+			changeDepth ++;
+		}
+	}
+
+	public void commitChanges(){
+		Rectangle changedRect = null;
+		int minRow;
+		int maxRow;
+		synchronized(changeLock){
+			if(changeDepth == 0){
+				logger.warn("commitChanges without beginChanges");
+				return;
+			}
+			changeDepth --;
+			if(changeDepth > 0){
+				return;
+			}
+			changedRect = pendingChangedRect;
+			minRow = pendingMinRow;
+			maxRow = pendingMaxRow;
+			pendingChangedRect = null;
+			pendingMinRow = Integer.MAX_VALUE;
+			pendingMaxRow = -1;
+		}
+		if(maxRow >= 0){
+			Rectangle rowsRect = new Rectangle(0, minRow, this.getLongestSequenceLength(), maxRow + 1);
+			changedRect = changedRect == null ? rowsRect : changedRect.union(rowsRect);
+		}
+		if(changedRect != null){
+			sequencesChanged(changedRect);
+		}
+	}
+
 	private void fireSequencesChanged(Sequence seq) {
 		int index = delegateSequences.indexOf(seq);
 		fireSequencesChanged(index, index);
 	}
 
 	private void fireSequencesChanged(List<Sequence> seqs) {
+		if(seqs.size() == 1){
+			fireSequencesChanged(seqs.get(0));
+			return;
+		}
 		int minIndex = delegateSequences.size();
 		int maxIndex = 0;
-		for(Sequence seq: seqs){
-			int index = delegateSequences.indexOf(seq);
-			minIndex = Math.min(index, minIndex);
-			maxIndex = Math.max(index, maxIndex);
+		// one pass through alignment instead of indexOf for every changed sequence
+		HashSet<Sequence> changed = new HashSet<Sequence>(seqs);
+		int index = 0;
+		for(Sequence seq: delegateSequences){
+			if(changed.contains(seq)){
+				minIndex = Math.min(index, minIndex);
+				maxIndex = Math.max(index, maxIndex);
+			}
+			index ++;
 		}
 
 		fireSequencesChanged(minIndex, maxIndex);
@@ -2106,31 +2404,50 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	}
 
 	private void fireSequencesChanged(int minIndex, int maxIndex) {
-		// TODO this might be a bit ugly...
-		cachedLongestSequenceLength = -1;
+		clearChangedCaches();
+		synchronized(changeLock){
+			if(changeDepth > 0){
+				pendingMinRow = Math.min(pendingMinRow, minIndex);
+				pendingMaxRow = Math.max(pendingMaxRow, maxIndex);
+				return;
+			}
+		}
 		Rectangle rect = new Rectangle(0,minIndex, this.getLongestSequenceLength(), maxIndex + 1);
-		fireSequencesChanged(rect);
-
+		sequencesChanged(rect);
 	}
 
 	private void fireSequencesChanged(Rectangle rect) {
+		clearChangedCaches();
+		synchronized(changeLock){
+			if(changeDepth > 0){
+				pendingChangedRect = pendingChangedRect == null ? new Rectangle(rect) : pendingChangedRect.union(rect);
+				return;
+			}
+		}
 		sequencesChanged(rect);
 	}
 
-	private void sequencesChanged(Rectangle rect) {
-		logger.info("sequencesChanged");
-		// clear cached values
-		cachedLongestSequenceName = -1;
+	/*
+	 * Longest name is kept up to date when sequences are added, removed or renamed
+	 */
+	private void clearChangedCaches(){
 		cachedLongestSequenceLength = -1;
 		cachedHistogram = null;
+	}
 
+	private void sequencesChanged(Rectangle rect) {
+		if(LogUtils.isDiagnostic()){
+			logger.info("sequencesChanged");
+		}
 
 		Object[] listeners = listenerList.getListenerList();
 		AlignmentDataEvent e = null;
 
 		for (int i = listeners.length - 2; i >= 0; i -= 2) {
 
-			logger.info("listeners[i]" + listeners[i]);
+			if(LogUtils.isDiagnostic()){
+				logger.info("listeners[i]" + listeners[i]);
+			}
 			
 			if (listeners[i] == AlignmentDataListener.class) {
 				if (e == null) {
@@ -2160,15 +2477,18 @@ public class AlignmentListModel implements ListModel, Iterable<Sequence>{
 	}
 
 	private void fireSequenceIntervalRemoved(int index0, int index1){
+		invalidateLongestSequenceName();
 		fireSequencesChanged(index0, index1);
 	}
 
-	private void fireSequenceIntervalAdded(int index0, int index1) {
+	protected void fireSequenceIntervalAdded(int index0, int index1) {
 		
 
 		if(index0 < 0 || index1 < 0){
 			return;
 		}
+		updateLongestSequenceName(index0, index1);
+		selectionModel.sequencesInserted(index0, index1);
 		fireSequencesChanged(index0, index1);
 	}
 
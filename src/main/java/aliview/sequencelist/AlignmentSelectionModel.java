@@ -23,13 +23,16 @@ import org.apache.log4j.Logger;
 
 import aliview.AliView;
 import aliview.alignment.AlignmentMeta;
+import aliview.sequences.DefaultSequenceSelectionModel;
 import aliview.sequences.Sequence;
 import aliview.sequencelist.Interval;
 import aliview.utils.Utils;
 
 /**
  * 
- * This model is delegating to the sequences themself to keep track of selection
+ * This model is delegating to the sequences themself to keep track of irregular selections,
+ * select all, whole columns, whole sequences and rectangles are kept in one RangeSelection
+ * (see RowSelectionModel for how a sequence combines the two)
  * 
  * 
  */
@@ -43,6 +46,9 @@ public class AlignmentSelectionModel{
 	private Rectangle tempSelectionRect;
 	private Rectangle tempSelectionMaxRect;
 	private SequenceListSelectionModel sequenceListSelectionModel;
+	private volatile RangeSelection rangeSelection;
+	// true when any sequence might have own selected positions (otherwise only rangeSelection is selected)
+	private volatile boolean hasSequenceSelection;
 
 	public AlignmentSelectionModel(AlignmentListModel sequenceListModel) {
 		this.sequences = sequenceListModel;
@@ -56,6 +62,13 @@ public class AlignmentSelectionModel{
 
 
 	public ArrayList<Integer> getIndicesOfSequencesWithSelection() {
+		if(! hasSequenceSelection){
+			ArrayList<Integer> indices = new ArrayList<Integer>();
+			if(rangeSelection != null && rangeSelection.hasColumns()){
+				indices.addAll(rangeSelection.getRowIndices());
+			}
+			return indices;
+		}
 		ArrayList<Integer> indices = new ArrayList<Integer>();
 		for(int n = 0; n < sequences.size(); n++){
 			if(sequences.get(n).hasSelection()){
@@ -76,9 +89,13 @@ public class AlignmentSelectionModel{
 	}
 
 	public boolean isBaseSelected(int x, int y) {
-		//logger.info("isBaseSel" + sequences.get(y));
-		boolean isSel = sequences.get(y).isBaseSelected(x);
-		//		if(isSel){ logger.info("isSel" + sequences.get(y));};
+		RangeSelection ranges = rangeSelection;
+		if(ranges != null && ranges.isColumnSelected(x) && ranges.containsRow(y)){
+			return true;
+		}
+		if(! hasSequenceSelection){
+			return false;
+		}
 		return sequences.get(y).isBaseSelected(x);
 	}
 
@@ -124,12 +141,23 @@ public class AlignmentSelectionModel{
 
 		// value is adjusting true
 
-		for(int n = 0; n < sequences.size(); n++){
+		if(clearFirst || oldSelectRect == null){
+			// a new rectangle is kept as one range selection
+			clearAllSelectionInternal();
+			int lastRow = Math.min(newRect.y + newRect.height, sequences.size() - 1);
+			if(newRect.y >= 0 && newRect.y <= lastRow){
+				RangeSelection rect = RangeSelection.createRowRange(sequences, newRect.y, lastRow);
+				rect.addColumns(newRect.x, newRect.x + newRect.width);
+				rangeSelection = rect;
+			}
+		}else{
+			for(int n = 0; n < sequences.size(); n++){
 
-			if(n>= newRect.getMinY() && n <= newRect.getMaxY()){
-				sequences.get(n).setSelection(newRect.x, newRect.x + newRect.width, clearFirst);
-			}else{
-				sequences.get(n).clearAllSelection();
+				if(n>= newRect.getMinY() && n <= newRect.getMaxY()){
+					sequences.get(n).setSelection(newRect.x, newRect.x + newRect.width, clearFirst);
+				}else{
+					sequences.get(n).clearAllSelection();
+				}
 			}
 		}
 
@@ -163,12 +191,12 @@ public class AlignmentSelectionModel{
 		int minIndex = Math.min(index0, index1);
 		int maxIndex = Math.max(index0, index1);
 
-		for(int n = 0; n < sequences.size(); n++){
-
-			if(n>= minIndex && n<= maxIndex){
+		RangeSelection ranges = rangeSelection;
+		if(! hasSequenceSelection && ranges != null && (ranges.isAllRows() || ranges.hasRowRanges())){
+			ranges.removeRows(minIndex, maxIndex);
+		}else{
+			for(int n = minIndex; n <= maxIndex && n < sequences.size(); n++){
 				sequences.get(n).clearAllSelection();
-			}else{
-				// nothing
 			}
 		}
 
@@ -185,16 +213,11 @@ public class AlignmentSelectionModel{
 	private void changeSelection(List<Sequence> toSelect, boolean clearFirst){
 		Rectangle oldSelect = getSelectionBounds();
 		logger.info("toSelect.size()" + toSelect.size());
-		for(Sequence seq: sequences){
-
-			if(toSelect.contains(seq)){
-				logger.debug("select" + seq);
-				seq.selectAllBases();
-			}
-			else if(clearFirst){
-				seq.clearAllSelection();
-			}
-
+		if(clearFirst){
+			clearAllSelectionInternal();
+		}
+		for(Sequence seq: toSelect){
+			seq.selectAllBases();
 		}
 		Rectangle newSelect = getSelectionBounds();
 		logger.info("newSelect" + newSelect);		
@@ -210,16 +233,23 @@ public class AlignmentSelectionModel{
 
 		// set value is adjusting true
 		int minIndex = Math.min(index0, index1);
-		int maxIndex = Math.max(index0, index1);
-
-		for(int n = 0; n < sequences.size(); n++){
-
-			if(n>= minIndex && n<= maxIndex){
+		int maxIndex = Math.min(Math.max(index0, index1), sequences.size() - 1);
+
+		if(clearFirst || ! hasSelection()){
+			// whole sequences are kept as one range selection
+			clearAllSelectionInternal();
+			if(minIndex <= maxIndex){
+				RangeSelection rows = RangeSelection.createRowRange(sequences, minIndex, maxIndex);
+				rows.selectAllColumns();
+				rangeSelection = rows;
+			}
+		}
+		else if(isRangeSelectionOnly() && rangeSelection.isAllColumns() && rangeSelection.hasRowRanges()){
+			rangeSelection.addRows(minIndex, maxIndex);
+		}
+		else{
+			for(int n = minIndex; n <= maxIndex; n++){
 				sequences.get(n).selectAllBases();
-			}else{
-				if(clearFirst){
-					sequences.get(n).clearAllSelection();
-				}
 			}
 		}
 
@@ -236,6 +266,9 @@ public class AlignmentSelectionModel{
 
 
 	public long getSelectionSize(){
+		if(! hasSequenceSelection){
+			return getRangeSelectionSize();
+		}
 		long size = 0;
 		for(Sequence sequence : this.sequences){
 			size += sequence.countSelectedPositions(0, sequence.getLength());
@@ -254,6 +287,12 @@ public class AlignmentSelectionModel{
 	}
 
 	public List<Sequence> getSelectedSequences() {
+		if(! hasSequenceSelection){
+			if(rangeSelection == null || ! rangeSelection.hasColumns()){
+				return new ArrayList<Sequence>();
+			}
+			return rangeSelection.getRows();
+		}
 		ArrayList<Sequence> selection = new ArrayList<Sequence>();
 		for(Sequence sequence : sequences){
 			if(sequence.hasSelection()){
@@ -303,9 +342,10 @@ public class AlignmentSelectionModel{
 
 	public String getSelectionAsNucleotides() {
 		StringBuilder selection = new StringBuilder();
-		for(Sequence sequence : sequences){
-			if(sequence.getSelectedBasesAsString() != null && sequence.getSelectedBasesAsString().length() > 0){
-				selection.append(sequence.getSelectedBasesAsString());
+		for(Sequence sequence : getSelectedSequences()){
+			String selectedBases = sequence.getSelectedBasesAsString();
+			if(selectedBases != null && selectedBases.length() > 0){
+				selection.append(selectedBases);
 				selection.append(LF);
 			}
 		}
@@ -333,6 +373,10 @@ public class AlignmentSelectionModel{
 	}
 
 	public Sequence getFirstSelected() {
+		if(! hasSequenceSelection){
+			int first = getFirstSelectedSequenceIndex();
+			return first == -1 ? null : sequences.get(first);
+		}
 		for(int n = 0; n < sequences.size(); n++){
 			if(sequences.get(n).hasSelection()){
 				return sequences.get(n);
@@ -342,6 +386,13 @@ public class AlignmentSelectionModel{
 	}
 
 	public boolean hasSelection() {
+		RangeSelection ranges = rangeSelection;
+		if(ranges != null && ! ranges.isEmpty()){
+			return true;
+		}
+		if(! hasSequenceSelection){
+			return false;
+		}
 		long startTime = System.currentTimeMillis();
 		for(Sequence sequence : sequences){
 			if(sequence.hasSelection()){
@@ -354,9 +405,10 @@ public class AlignmentSelectionModel{
 	}
 
 	public void selectAll() {
-		for(Sequence seq: sequences){
-			seq.selectAllBases();
-		}
+		clearAllSelectionInternal();
+		RangeSelection all = RangeSelection.createAllRows(sequences);
+		all.selectAllColumns();
+		rangeSelection = all;
 		fireSelectionChangedAll();
 	}
 
@@ -409,8 +461,27 @@ public class AlignmentSelectionModel{
 
 
 	public void invertSelection() {
-		for(Sequence seq: sequences){
-			seq.invertSelection();
+		RangeSelection ranges = rangeSelection;
+		if(! hasSequenceSelection && ranges == null){
+			selectAll();
+			return;
+		}
+		if(isRangeSelectionOnly() && ranges.isAllRows()){
+			if(ranges.isAllColumns()){
+				rangeSelection = null;
+			}else{
+				// every row is partly selected
+				ranges.invertColumns(sequences.getLongestSequenceLength());
+			}
+		}
+		else if(isRangeSelectionOnly() && ranges.isAllColumns() && ranges.hasRowRanges()){
+			// fully selected rows are cleared and the others selected
+			ranges.invertRows();
+		}
+		else{
+			for(Sequence seq: sequences){
+				seq.invertSelection();
+			}
 		}
 		fireSelectionChangedAll();
 	}
@@ -433,9 +504,7 @@ public class AlignmentSelectionModel{
 	}
 
 	public void selectColumn(int columnIndex) {
-		for(Sequence seq: sequences){
-			seq.setSelectionAt(columnIndex);
-		}
+		addColumnsToAllRows(columnIndex, columnIndex);
 		fireSelectionChanged(new Rectangle(columnIndex,0,columnIndex,sequences.size()), false);
 	}
 
@@ -445,16 +514,22 @@ public class AlignmentSelectionModel{
 		for(Integer col: columns){
 			maxIndex = Math.max(maxIndex, col.intValue());
 			minIndex = Math.min(minIndex, col.intValue());
-			for(Sequence seq: sequences){
-				seq.setSelectionAt(col.intValue());
-			}
+			addColumnsToAllRows(col.intValue(), col.intValue());
 		}
 		fireSelectionChanged(new Rectangle(minIndex,0,maxIndex,sequences.size()), false);
 	}
 
 	public void clearColumnSelection(int columnIndex) {
-		for(Sequence seq: sequences){
-			seq.clearSelectionAt(columnIndex);
+		RangeSelection ranges = rangeSelection;
+		if(isRangeSelectionOnly() && ranges.isAllRows() && ! ranges.isAllColumns()){
+			ranges.removeColumns(columnIndex, columnIndex);
+			if(! ranges.hasColumns()){
+				rangeSelection = null;
+			}
+		}else{
+			for(Sequence seq: sequences){
+				seq.clearSelectionAt(columnIndex);
+			}
 		}
 		fireSelectionChanged(new Rectangle(columnIndex,0,0,sequences.size()), false);	
 	}
@@ -473,6 +548,9 @@ public class AlignmentSelectionModel{
 
 	public Point getFirstSelectedPos() {
 		int n = getFirstSelectedSequenceIndex();
+		if(n != -1 && ! hasSequenceSelection){
+			return new Point(rangeSelection.getFirstColumn(), n);
+		}
 		if(n != -1){
 			return new Point(sequences.get(n).getFirstSelectedPosition(), n);
 		}else{
@@ -481,6 +559,9 @@ public class AlignmentSelectionModel{
 	}
 
 	public int getFirstSelectedSequenceIndex() {
+		if(! hasSequenceSelection){
+			return rangeSelection == null || ! rangeSelection.hasColumns() ? -1 : rangeSelection.getFirstRow();
+		}
 		for(int n = 0; n < sequences.size(); n++){
 			if(sequences.get(n).hasSelection()){
 				return n;
@@ -490,6 +571,9 @@ public class AlignmentSelectionModel{
 	}
 
 	public int getLastSelectedSequenceIndex() {
+		if(! hasSequenceSelection){
+			return rangeSelection == null || ! rangeSelection.hasColumns() ? -1 : rangeSelection.getLastRow();
+		}
 		for(int n = sequences.size() - 1; n >= 0; n--){
 			if(sequences.get(n).hasSelection()){
 				return n;
@@ -500,6 +584,9 @@ public class AlignmentSelectionModel{
 
 	public Point getLastSelectedPos() {
 		int n = getLastSelectedSequenceIndex();
+		if(n != -1 && ! hasSequenceSelection){
+			return new Point(rangeSelection.getLastColumn(sequences.get(n).getLength()), n);
+		}
 		if(n != -1){
 			return new Point(sequences.get(n).getLastSelectedPosition(), n);
 		}else{
@@ -508,13 +595,12 @@ public class AlignmentSelectionModel{
 	}
 
 	public Point getFirstSelectedUngapedPos() {
-		for(int n = 0; n < sequences.size(); n++){
-			if(sequences.get(n).hasSelection()){
-				Sequence firstSelected = sequences.get(n);
-				int position = firstSelected.getFirstSelectedPosition();
-				int ungaped = firstSelected.getUngapedPos(position);
-				return new Point(ungaped, n);
-			}		
+		int n = getFirstSelectedSequenceIndex();
+		if(n != -1){
+			Sequence firstSelected = sequences.get(n);
+			int position = firstSelected.getFirstSelectedPosition();
+			int ungaped = firstSelected.getUngapedPos(position);
+			return new Point(ungaped, n);
 		}
 		return null;		
 	}
@@ -525,6 +611,9 @@ public class AlignmentSelectionModel{
 	}
 
 	public boolean hasFullySelectedSequences() {
+		if(! hasSequenceSelection){
+			return rangeSelection != null && rangeSelection.isAllColumns() && rangeSelection.getRowCount() > 0;
+		}
 		for(Sequence seq: sequences){
 			if(seq.isAllSelected()){
 				return true;
@@ -534,6 +623,12 @@ public class AlignmentSelectionModel{
 	}
 
 	public int getSelectedColumnCount() {
+		if(! hasSequenceSelection){
+			if(rangeSelection == null || rangeSelection.getRowCount() == 0){
+				return 0;
+			}
+			return rangeSelection.countColumns(sequences.getLongestSequenceLength());
+		}
 		BitSet colSelect = new BitSet();
 		for(Sequence seq: sequences){
 			if(seq.hasSelection()){
@@ -546,7 +641,22 @@ public class AlignmentSelectionModel{
 		return colSelect.cardinality();
 	}
 
+	/*
+	 * Blocks of consecutive columns that are selected in all sequences - only when selection is whole
+	 * columns (range selection of all rows), otherwise the list is empty
+	 */
+	public List<Interval> getSelectedWholeColumnRanges() {
+		RangeSelection ranges = rangeSelection;
+		if(isRangeSelectionOnly() && ranges != null && ranges.isAllRows()){
+			return ranges.getColumnRanges(sequences.getLongestSequenceLength());
+		}
+		return new ArrayList<Interval>();
+	}
+
 	public int getSelectedSequencesCount() {
+		if(! hasSequenceSelection){
+			return rangeSelection == null || ! rangeSelection.hasColumns() ? 0 : rangeSelection.getRowCount();
+		}
 		int count = 0;
 		for(Sequence seq: sequences){
 			if(seq.hasSelection()){
@@ -559,18 +669,13 @@ public class AlignmentSelectionModel{
 
 
 	public String getSelectionNames() {
-		String names = "";
-		for(Sequence seq: sequences){
-			if(seq.hasSelection()){
-				names += seq.getName() + LF;
-			}
+		StringBuilder names = new StringBuilder();
+		for(Sequence seq: getSelectedSequences()){
+			names.append(seq.getName());
+			names.append(LF);
 		}
 		// remove last LF
-		if(names.length() > 0){
-			names = StringUtils.removeEnd(names, LF);
-		}
-
-		return names;
+		return StringUtils.removeEnd(names.toString(), LF);
 	}
 
 	public int getFirstSelectedWholeColumn() {
@@ -615,9 +720,7 @@ public class AlignmentSelectionModel{
 	public void clearSequenceSelection() {
 
 		Rectangle oldSelectRectangle = getSelectionBounds();
-		for(Sequence seq: sequences){
-			seq.clearAllSelection();
-		}
+		clearAllSelectionInternal();
 		if(oldSelectRectangle != null){
 			fireSelectionChanged(oldSelectRectangle, false);
 		}
@@ -625,6 +728,135 @@ public class AlignmentSelectionModel{
 
 
 
+	// ***************************************
+	// Range selection
+	// ***************************************
+
+	private boolean isRangeSelectionOnly(){
+		return ! hasSequenceSelection && rangeSelection != null;
+	}
+
+	/*
+	 * Only clears the sequences if any of them has own selected positions
+	 */
+	private void clearAllSelectionInternal(){
+		rangeSelection = null;
+		if(hasSequenceSelection){
+			for(Sequence seq: sequences){
+				seq.clearAllSelection();
+			}
+			hasSequenceSelection = false;
+		}
+	}
+
+	private void addColumnsToAllRows(int firstColumn, int lastColumn){
+		RangeSelection ranges = rangeSelection;
+		if(! hasSelection()){
+			clearAllSelectionInternal();
+			RangeSelection columns = RangeSelection.createAllRows(sequences);
+			columns.addColumns(firstColumn, lastColumn);
+			rangeSelection = columns;
+		}
+		else if(isRangeSelectionOnly() && ranges.isAllRows()){
+			ranges.addColumns(firstColumn, lastColumn);
+		}
+		else{
+			for(Sequence seq: sequences){
+				seq.setSelection(firstColumn, lastColumn, false);
+			}
+		}
+	}
+
+	private long getRangeSelectionSize(){
+		RangeSelection ranges = rangeSelection;
+		if(ranges == null || ! ranges.hasColumns()){
+			return 0;
+		}
+		// same as countSelectedPositions(0, length) in every sequence
+		if(sequences.hasEqualSequenceLengths()){
+			return (long) ranges.getRowCount() * ranges.countColumns(sequences.getLongestSequenceLength() + 1);
+		}
+		long size = 0;
+		for(Sequence seq: ranges.getRows()){
+			size += ranges.countColumns(seq.getLength() + 1);
+		}
+		return size;
+	}
+
+	/*
+	 * Columns of the range selection if sequence is part of it, otherwise null
+	 */
+	public DefaultSequenceSelectionModel getRangeSelectionColumns(Sequence seq){
+		RangeSelection ranges = rangeSelection;
+		if(ranges == null || ! ranges.containsRow(seq)){
+			return null;
+		}
+		return ranges.getColumns();
+	}
+
+	/*
+	 * Copies range selection into the sequences, called before a sequence in range selection
+	 * is changed in a way that can not be described by the range selection
+	 *
+	 * Synchronized and the range selection is only cleared after all rows are written, so a row
+	 * that is changed from another thread never sees a half flattened selection. Code that changes
+	 * many rows concurrently must still call this once on the calling thread before the jobs start,
+	 * the per-row BitSets themselves are not thread safe.
+	 */
+	public synchronized void flattenRangeSelection(){
+		RangeSelection ranges = rangeSelection;
+		if(ranges == null){
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		List<Sequence> rows = ranges.getRows();
+		if(ranges.isAllColumns()){
+			for(Sequence seq: rows){
+				seq.selectAllBases();
+			}
+		}else{
+			List<Interval> columnRanges = ranges.getColumnRanges(Integer.MAX_VALUE);
+			for(Sequence seq: rows){
+				for(Interval range: columnRanges){
+					seq.setSelection(range.getStartPos(), range.getEndPos(), false);
+				}
+			}
+		}
+		// a new range selection might have been set meanwhile
+		if(rangeSelection == ranges){
+			rangeSelection = null;
+		}
+		long endTime = System.currentTimeMillis();
+		logger.info("flattenRangeSelection rows=" + rows.size() + " took " + (endTime - startTime) + " milliseconds");
+	}
+
+	/*
+	 * A sequence got own selected positions
+	 */
+	public void sequenceSelectionChanged(){
+		hasSequenceSelection = true;
+	}
+
+	/*
+	 * Called by AlignmentListModel before sequences are moved, removed or replaced
+	 */
+	public void sequenceOrderWillChange(){
+		RangeSelection ranges = rangeSelection;
+		if(ranges != null){
+			ranges.sequenceOrderWillChange();
+		}
+	}
+
+	/*
+	 * Called by AlignmentListModel after new sequences are inserted at index0 - index1
+	 */
+	public void sequencesInserted(int index0, int index1){
+		RangeSelection ranges = rangeSelection;
+		if(ranges != null){
+			ranges.sequencesInserted(index0, index1);
+		}
+	}
+
 	/** {@inheritDoc} */
 	public void addAlignmentSelectionListener(AlignmentSelectionListener l) {
 		listenerList.add(AlignmentSelectionListener.class, l);
@@ -803,10 +1035,25 @@ public class AlignmentSelectionModel{
 		if(isSequenceAtLeastPartlyAffectedByTempSelection(index)){
 			return true;
 		}
+		RangeSelection ranges = rangeSelection;
+		if(ranges != null && ranges.hasColumns() && ranges.containsRow(index)){
+			return true;
+		}
+		if(! hasSequenceSelection){
+			return false;
+		}
 		return sequences.get(index).hasSelection();
 	}
 
 	public void translateSelection(AlignmentMeta aliMeta) {
+		RangeSelection ranges = rangeSelection;
+		if(ranges != null && ! ranges.isAllColumns()){
+			ranges.setColumns(aliMeta.translatePositions(ranges.getColumns().getSelectedPositions(0, sequences.getLongestSequenceLength() - 1)));
+		}
+		if(! hasSequenceSelection){
+			fireSelectionChangedAll();
+			return;
+		}
 		for(Sequence seq: sequences){
 			if(seq.hasSelection()){
 				if(! seq.isAllSelected()){
@@ -823,6 +1070,14 @@ public class AlignmentSelectionModel{
 	}
 
 	public void reTranslateSelection(AlignmentMeta aliMeta) {
+		RangeSelection ranges = rangeSelection;
+		if(ranges != null && ! ranges.isAllColumns()){
+			ranges.setColumns(aliMeta.reTranslatePositions(ranges.getColumns().getSelectedPositions(0, sequences.getLongestSequenceLength() - 1)));
+		}
+		if(! hasSequenceSelection){
+			fireSelectionChangedAll();
+			return;
+		}
 		for(Sequence seq: sequences){
 			if(seq.hasSelection()){
 				if(! seq.isAllSelected()){
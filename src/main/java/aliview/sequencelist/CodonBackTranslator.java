@@ -0,0 +1,151 @@
+package aliview.sequencelist;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import utils.nexus.CodonPos;
+import utils.nexus.CodonPositions;
+import aliview.AminoAcid;
+import aliview.GeneticCode;
+import aliview.sequences.SequenceUtils;
+
+/*
+ *
+ * Realigns nucleotides after an amino acid alignment of their translation: for every amino acid in the
+ * template the next codon in the nucleotide sequence translated to the same amino acid is written, and
+ * for every gap in the template three gaps. Same result as searching the translated sequence with
+ * Sequence.find, but the codon positions (translated position -> nucleotide positions) are the same for
+ * all sequences and are looked up once, so the sequences can be translated and realigned in parallel
+ * without touching the alignment model.
+ *
+ */
+public class CodonBackTranslator {
+	private static final Logger logger = Logger.getLogger(CodonBackTranslator.class);
+	private static final byte GAP_AMINO_ACID = AminoAcid.GAP.getCodeByteVal();
+	private static final byte NON_CODING_AMINO_ACID = AminoAcid.X.getCodeByteVal();
+	private final GeneticCode geneticCode;
+	// codon of every translated position
+	private final int[] codonStarts;
+	private final int[] codonEnds;
+	private final boolean[] coding;
+	// number of translated positions of a sequence with length n + 1
+	private final int[] translatedLengths;
+
+	/*
+	 * Codon positions are read here (in calling thread), longestNucleotideLength is longest sequence to be realigned
+	 */
+	public CodonBackTranslator(CodonPositions codonPositions, GeneticCode geneticCode, int longestNucleotideLength) {
+		this.geneticCode = geneticCode;
+		this.translatedLengths = new int[longestNucleotideLength + 1];
+		for(int n = 1; n <= longestNucleotideLength; n++){
+			translatedLengths[n] = codonPositions.getAminoAcidPosFromNucleotidePos(n - 1) + 1;
+		}
+		int longestTranslated = 0;
+		for(int length: translatedLengths){
+			longestTranslated = Math.max(longestTranslated, length);
+		}
+		codonStarts = new int[longestTranslated];
+		codonEnds = new int[longestTranslated];
+		coding = new boolean[longestTranslated];
+		for(int x = 0; x < longestTranslated; x++){
+			CodonPos codonPos = codonPositions.getCodonInTranslatedPos(x);
+			codonStarts[x] = codonPos.startPos;
+			codonEnds[x] = codonPos.endPos;
+			coding[x] = codonPos.isCoding();
+		}
+	}
+
+	/*
+	 * nucleotides.get(n) is realigned after templates.get(n), a null nucleotide entry is skipped.
+	 *
+	 * Returns realigned bases, entry is null when template could not be matched (or nucleotides were null)
+	 */
+	public byte[][] backTranslate(final List<byte[]> nucleotides, final List<byte[]> templates, int nThreads){
+		long startTime = System.currentTimeMillis();
+		final int nSeqs = nucleotides.size();
+		final byte[][] realigned = new byte[nSeqs][];
+		nThreads = Math.max(1, Math.min(nThreads, nSeqs));
+		int seqsPerJob = Math.max(1, (nSeqs + nThreads - 1) / nThreads);
+
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int jobStart = 0; jobStart < nSeqs; jobStart += seqsPerJob){
+			final int firstSeq = jobStart;
+			final int lastSeq = Math.min(jobStart + seqsPerJob, nSeqs);
+			executor.execute(new Runnable() {
+				public void run() {
+					byte[] triplet = new byte[3];
+					for(int index = firstSeq; index < lastSeq; index++){
+						if(nucleotides.get(index) != null){
+							realigned[index] = backTranslate(nucleotides.get(index), templates.get(index), triplet);
+						}
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		logger.info("Back translation of " + nSeqs + " sequences took " + (System.currentTimeMillis() - startTime) + " ms");
+		return realigned;
+	}
+
+	/*
+	 * null when an amino acid in template is not found in (rest of) translated nucleotides
+	 */
+	byte[] backTranslate(byte[] nucleotides, byte[] template, byte[] triplet){
+		int translatedLength = translatedLengths[Math.min(nucleotides.length, translatedLengths.length - 1)];
+		byte[] realigned = new byte[template.length * 3];
+		int nextFindStartPos = 0;
+		for(int n = 0; n < template.length; n++){
+			byte aaTemplate = AminoAcid.getAminoAcidFromByte(template[n]).getCodeByteVal();
+			int outPos = n * 3;
+			if(aaTemplate == GAP_AMINO_ACID){
+				realigned[outPos] = SequenceUtils.GAP_SYMBOL;
+				realigned[outPos + 1] = SequenceUtils.GAP_SYMBOL;
+				realigned[outPos + 2] = SequenceUtils.GAP_SYMBOL;
+			}else{
+				int posFound = -1;
+				for(int x = nextFindStartPos; x < translatedLength; x++){
+					if(getAminoAcidInTranslatedPos(nucleotides, x, triplet) == aaTemplate){
+						posFound = x;
+						break;
+					}
+				}
+				if(posFound == -1){
+					return null;
+				}
+				// codon padded with gap when shorter than three (orphan or end of sequence)
+				for(int i = 0; i < 3; i++){
+					int nucPos = codonStarts[posFound] + i;
+					if(nucPos <= codonEnds[posFound] && nucPos >= 0 && nucPos < nucleotides.length){
+						realigned[outPos + i] = nucleotides[nucPos];
+					}else{
+						realigned[outPos + i] = SequenceUtils.GAP_SYMBOL;
+					}
+				}
+				nextFindStartPos = posFound + 1;
+			}
+		}
+		return realigned;
+	}
+
+	private byte getAminoAcidInTranslatedPos(byte[] nucleotides, int x, byte[] triplet){
+		if(! coding[x]){
+			return NON_CODING_AMINO_ACID;
+		}
+		for(int i = 0; i < 3; i++){
+			int nucPos = codonStarts[x] + i;
+			triplet[i] = (nucPos >= 0 && nucPos < nucleotides.length) ? nucleotides[nucPos] : SequenceUtils.GAP_SYMBOL;
+		}
+		return AminoAcid.getAminoAcidFromCodon(triplet, geneticCode).getCodeByteVal();
+	}
+}
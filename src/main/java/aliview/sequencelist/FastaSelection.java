@@ -0,0 +1,246 @@
+package aliview.sequencelist;
+
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import aliview.sequences.CatalogFileSequenceBases;
+import aliview.sequences.InMemorySequence;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Selection copied to clipboard as fasta. Selected bases of editable sequences are copied as bytes (one byte
+ * per residue) when selection is copied. Sequences indexed from file (that can not be changed) are kept as
+ * catalog index, start and end and are only read from the catalog when the selection is pasted or asked for
+ * as text - no sequence objects are referenced from the clipboard.
+ *
+ * Fasta text is only created when another program asks for it: as a stream (text/plain InputStream, one
+ * sequence at a time) or as a String. Between AliView windows (same JVM) this object is transferred as it is
+ * and new sequences are created from the bytes, without fasta text or temp file.
+ *
+ */
+public class FastaSelection implements Transferable, ClipboardOwner {
+	private static final Logger logger = Logger.getLogger(FastaSelection.class);
+	private static final String LF = System.getProperty("line.separator");
+	private static final String TEXT_ENCODING = "UTF-8";
+	public static final DataFlavor LOCAL_FLAVOR = createFlavor(DataFlavor.javaJVMLocalObjectMimeType + ";class=" + FastaSelection.class.getName());
+	public static final DataFlavor TEXT_STREAM_FLAVOR = createFlavor("text/plain;charset=" + TEXT_ENCODING + ";class=java.io.InputStream");
+	private final List<Entry> entries = new ArrayList<Entry>();
+	private FileSequenceCatalog catalog;
+
+	private static DataFlavor createFlavor(String mimeType){
+		try {
+			return new DataFlavor(mimeType);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Returns FastaSelection if clipboard content was copied in this JVM (another window), otherwise null
+	 */
+	public static FastaSelection getFromClipboard(Clipboard clipboard){
+		try {
+			Transferable contents = clipboard.getContents(null);
+			if(contents != null && contents.isDataFlavorSupported(LOCAL_FLAVOR)){
+				return (FastaSelection) contents.getTransferData(LOCAL_FLAVOR);
+			}
+		} catch (UnsupportedFlavorException e) {
+		} catch (IOException e) {
+		} catch (IllegalStateException e) {
+			// clipboard is busy
+			logger.info("Could not read clipboard: " + e.getMessage());
+		}
+		return null;
+	}
+
+	/*
+	 * bases are not copied, they must not be changed
+	 */
+	void add(String name, byte[] bases){
+		entries.add(new Entry(name, bases, -1, 0, bases.length - 1));
+	}
+
+	/*
+	 * Name and bases between start and endInclusive are read from catalog when needed
+	 */
+	void addReadWhenNeeded(FileSequenceCatalog sequenceCatalog, int catalogIndex, int start, int endInclusive){
+		if(catalog == null){
+			catalog = sequenceCatalog;
+		}else if(catalog != sequenceCatalog){
+			throw new IllegalArgumentException("Sequences of one file only can be read when needed");
+		}
+		entries.add(new Entry(null, null, catalogIndex, start, endInclusive));
+	}
+
+	public int size(){
+		return entries.size();
+	}
+
+	/*
+	 * New sequences (own copy of bases) to be added into an alignment
+	 */
+	public List<Sequence> createSequences(){
+		List<Sequence> sequences = new ArrayList<Sequence>(entries.size());
+		for(Entry entry: entries){
+			byte[] bases = entry.bases != null ? entry.bases.clone() : readBases(entry);
+			sequences.add(new InMemorySequence(getName(entry), bases));
+		}
+		return sequences;
+	}
+
+	public InputStream createFastaInputStream(){
+		return new FastaInputStream();
+	}
+
+	public DataFlavor[] getTransferDataFlavors() {
+		return new DataFlavor[]{LOCAL_FLAVOR, TEXT_STREAM_FLAVOR, DataFlavor.stringFlavor};
+	}
+
+	public boolean isDataFlavorSupported(DataFlavor flavor) {
+		return LOCAL_FLAVOR.equals(flavor) || TEXT_STREAM_FLAVOR.equals(flavor) || DataFlavor.stringFlavor.equals(flavor);
+	}
+
+	public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+		if(LOCAL_FLAVOR.equals(flavor)){
+			return this;
+		}
+		if(TEXT_STREAM_FLAVOR.equals(flavor)){
+			return createFastaInputStream();
+		}
+		if(DataFlavor.stringFlavor.equals(flavor)){
+			return getAsString();
+		}
+		throw new UnsupportedFlavorException(flavor);
+	}
+
+	private String getName(Entry entry){
+		return entry.name != null ? entry.name : catalog.getName(entry.catalogIndex);
+	}
+
+	private byte[] readBases(Entry entry){
+		return new CatalogFileSequenceBases(catalog, entry.catalogIndex).toByteArray(entry.start, entry.endInclusive);
+	}
+
+	private String getAsString() throws IOException{
+		long length = 0;
+		for(Entry entry: entries){
+			length += 1 + getName(entry).length() + LF.length() + entry.getLength() + LF.length();
+		}
+		if(length > Integer.MAX_VALUE - 8){
+			throw new IOException("Selection is to big to copy as text");
+		}
+		StringBuilder fasta = new StringBuilder((int) length);
+		for(Entry entry: entries){
+			fasta.append('>').append(getName(entry)).append(LF);
+			byte[] bases = entry.bases != null ? entry.bases : readBases(entry);
+			for(byte base: bases){
+				fasta.append((char) (base & 0xFF));
+			}
+			fasta.append(LF);
+		}
+		return fasta.toString();
+	}
+
+	public void lostOwnership(Clipboard clipboard, Transferable contents) {
+		// nothing to release, the catalog of a file is only referenced
+	}
+
+	/*
+	 * Name and bases, or (when name and bases are null) catalog index, start and end to read from catalog
+	 */
+	private static class Entry{
+		private final String name;
+		private final byte[] bases;
+		private final int catalogIndex;
+		private final int start;
+		private final int endInclusive;
+
+		Entry(String name, byte[] bases, int catalogIndex, int start, int endInclusive) {
+			this.name = name;
+			this.bases = bases;
+			this.catalogIndex = catalogIndex;
+			this.start = start;
+			this.endInclusive = endInclusive;
+		}
+
+		int getLength(){
+			return endInclusive - start + 1;
+		}
+	}
+
+	/*
+	 * Fasta text, bases of one sequence at a time are held in memory
+	 */
+	private class FastaInputStream extends InputStream{
+		private final byte[] lineSeparator;
+		private int entryIndex = 0;
+		// 0 = name line, 1 = bases, 2 = line separator after bases
+		private int part = 0;
+		private byte[] current;
+		private int currentPos;
+
+		FastaInputStream() {
+			try {
+				lineSeparator = LF.getBytes(TEXT_ENCODING);
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private boolean nextPart() throws IOException{
+			while(current == null || currentPos >= current.length){
+				if(entryIndex >= entries.size()){
+					return false;
+				}
+				Entry entry = entries.get(entryIndex);
+				if(part == 0){
+					current = (">" + getName(entry) + LF).getBytes(TEXT_ENCODING);
+				}else if(part == 1){
+					current = entry.bases != null ? entry.bases : readBases(entry);
+				}else{
+					current = lineSeparator;
+				}
+				currentPos = 0;
+				part ++;
+				if(part == 3){
+					part = 0;
+					entryIndex ++;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if(! nextPart()){
+				return -1;
+			}
+			return current[currentPos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if(length == 0){
+				return 0;
+			}
+			if(! nextPart()){
+				return -1;
+			}
+			int count = Math.min(length, current.length - currentPos);
+			System.arraycopy(current, currentPos, buffer, offset, count);
+			currentPos += count;
+			return count;
+		}
+	}
+}
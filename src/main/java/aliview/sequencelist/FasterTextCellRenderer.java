@@ -51,6 +51,8 @@ implements ListCellRenderer, Serializable
 	private static final Border DEFAULT_NO_FOCUS_BORDER = new EmptyBorder(1, 1, 1, 1);
 	protected static Border noFocusBorder = DEFAULT_NO_FOCUS_BORDER;
 	private String text;
+	// name is decoded from value when the cell is painted (file sequences read their name from file)
+	private Object value;
 	//private static BufferedImage buffImg;
 	private boolean selected;
 
@@ -149,7 +151,7 @@ implements ListCellRenderer, Serializable
 		// 	SwingUtilities2.drawString(this, g, text, 2, this.getHeight() - bottomCharOffset);
 
 		int bottomCharOffset = (int)(0.2 * this.getHeight());
-		g2.drawString(text, LEFT_OFFSET, getHeight() - bottomCharOffset);
+		g2.drawString(getText(), LEFT_OFFSET, getHeight() - bottomCharOffset);
 
 	}
 
@@ -194,12 +196,16 @@ implements ListCellRenderer, Serializable
 		}
 		this.selected = isSelected;
 		this.setFont(list.getFont());
-		this.text = value.toString();
+		this.value = value;
+		this.text = null;
 
 		return this;
 	}
 
 	public String getText() {
+		if(text == null && value != null){
+			text = value.toString();
+		}
 		return this.text;
 	}
 
@@ -212,6 +218,7 @@ implements ListCellRenderer, Serializable
 
 		String oldValue = this.text;
 		this.text = text;
+		this.value = null;
 		firePropertyChange("text", oldValue, text);
 
 		//        setDisplayedMnemonicIndex(
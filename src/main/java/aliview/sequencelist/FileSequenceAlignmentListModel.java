@@ -28,10 +28,16 @@ public class FileSequenceAlignmentListModel extends AlignmentListModel{
 	private static final Logger logger = Logger.getLogger(FileSequenceAlignmentListModel.class);
 	private static final String LF = System.getProperty("line.separator");
 	private List<FileSequenceLoadListener> fileSeqLoadListeners = new ArrayList<FileSequenceLoadListener>();
+	private FileSequenceCatalogList catalogList;
 
 	public FileSequenceAlignmentListModel(File alignmentFile, FileFormat foundFormat) throws IOException {
 		super(new CopyOnWriteArrayList<Sequence>(), foundFormat);
 		MemoryMappedSequencesFile sequencesFile = new MemoryMappedSequencesFile(alignmentFile, foundFormat);
+		// fasta is indexed into a catalog and sequence objects are created when needed
+		if(sequencesFile.isIndexedIntoCatalog()){
+			catalogList = new FileSequenceCatalogList(sequencesFile.getCatalog(), this);
+			delegateSequences = catalogList;
+		}
 		sequencesFile.indexFileAndAddSequencesToAlignmentModel(this);	
 	}
 
@@ -78,6 +84,44 @@ public class FileSequenceAlignmentListModel extends AlignmentListModel{
 		super.addAll(moreSeqs, setSelected);
 	}
 
+	/*
+	 * Called on EDT when indexing thread has added more sequences to catalog
+	 */
+	void fileSequencesIndexed(int newCatalogSize) {
+		if(newCatalogSize > catalogList.getCatalogSize()){
+			int oldSize = catalogList.size();
+			catalogList.setCatalogSize(newCatalogSize);
+			fireSequenceIntervalAdded(oldSize, catalogList.size() - 1);
+		}
+	}
+
+	@Override
+	public int getLongestSequenceLength(){
+		if(catalogList != null){
+			return catalogList.getCatalog().getLongestSequenceLength();
+		}
+		return super.getLongestSequenceLength();
+	}
+
+	@Override
+	public boolean hasEqualSequenceLengths(){
+		if(catalogList != null){
+			return catalogList.getCatalog().getShortestSequenceLength() == catalogList.getCatalog().getLongestSequenceLength();
+		}
+		return super.hasEqualSequenceLengths();
+	}
+
+	/*
+	 * Longest name is tracked by the indexer so names don't have to be read from file
+	 */
+	@Override
+	public int getLongestSequenceName(){
+		if(catalogList != null){
+			return catalogList.getCatalog().getLongestNameLength();
+		}
+		return super.getLongestSequenceName();
+	}
+
 
 
 	@Override
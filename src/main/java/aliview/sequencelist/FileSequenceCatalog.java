@@ -0,0 +1,283 @@
+package aliview.sequencelist;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+import org.apache.log4j.Logger;
+
+/*
+ *
+ * Positions of all sequences in a memory mapped (fasta) file kept in primitive arrays
+ * instead of one FileSequence object (with bases, name String and selection model) per record
+ *
+ * Arrays grow in chunks so nothing is copied when more sequences are indexed. One sequence
+ * costs about 21 bytes: start of sequence, number of residues, offset back to name start and
+ * line geometry (residues per line and line terminator length). Residues per line is 0 when the
+ * lines of a sequence are not of equal length, then all bytes from start are residues (as before).
+ *
+ * Indexing thread adds sequences while other threads read, a sequence is visible to
+ * readers first when size() includes it.
+ *
+ * A FASTQ catalog also keeps the offset from sequence start to the quality line (4 bytes more per
+ * read), qualities are read from file only when asked for (e.g. for the rows being painted).
+ *
+ * Renamed sequences are kept in a sparse map (catalog index to new name), so a rename is kept
+ * when the view of the sequence is dropped and created again.
+ *
+ */
+public class FileSequenceCatalog {
+	private static final Logger logger = Logger.getLogger(FileSequenceCatalog.class);
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int MAX_NAME_SEARCH_LENGTH = 64 * 1024;
+	private static final int PHRED_OFFSET = 33;
+	private static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+	private final MemoryMappedSequencesFile sequencesFile;
+	private volatile Chunk[] chunks = new Chunk[0];
+	private volatile int size;
+	private volatile int longestSequenceLength;
+	private volatile int shortestSequenceLength;
+	private volatile int longestNameLength;
+	private boolean namesAreFirstWord;
+	private volatile boolean withQualities;
+	private final HashMap<Integer, String> renamed = new HashMap<Integer, String>();
+
+	private static class Chunk{
+		final long[] sequenceStarts = new long[CHUNK_SIZE];
+		final int[] lengths = new int[CHUNK_SIZE];
+		final int[] nameOffsets = new int[CHUNK_SIZE];
+		final int[] residuesPerLine = new int[CHUNK_SIZE];
+		final byte[] lineTerminatorLengths = new byte[CHUNK_SIZE];
+		final int[] qualityOffsets;
+
+		Chunk(boolean withQualities){
+			qualityOffsets = withQualities ? new int[CHUNK_SIZE] : null;
+		}
+	}
+
+	public FileSequenceCatalog(MemoryMappedSequencesFile sequencesFile) {
+		this.sequencesFile = sequencesFile;
+	}
+
+	/*
+	 * Has to be set before first sequence is added
+	 */
+	public synchronized void setWithQualities(boolean withQualities) {
+		if(size > 0){
+			throw new IllegalStateException("Catalog already contains sequences");
+		}
+		this.withQualities = withQualities;
+	}
+
+	public boolean hasQualities() {
+		return withQualities;
+	}
+
+	/*
+	 * sequenceStart is first byte after the name line, nameOffset is sequenceStart - (first byte of name after >)
+	 * or 0 if not known
+	 */
+	public synchronized void add(long sequenceStart, int length, int nameOffset, int residuesPerLine, int lineTerminatorLength){
+		add(sequenceStart, length, nameOffset, residuesPerLine, lineTerminatorLength, 0);
+	}
+
+	/*
+	 * qualityOffset is first byte of quality line - sequenceStart (only kept if catalog is with qualities)
+	 */
+	public synchronized void add(long sequenceStart, int length, int nameOffset, int residuesPerLine, int lineTerminatorLength, int qualityOffset){
+		int index = size;
+		int chunkIndex = index >>> CHUNK_BITS;
+		if(chunkIndex == chunks.length){
+			Chunk[] moreChunks = new Chunk[chunks.length + 1];
+			System.arraycopy(chunks, 0, moreChunks, 0, chunks.length);
+			moreChunks[chunkIndex] = new Chunk(withQualities);
+			chunks = moreChunks;
+		}
+		Chunk chunk = chunks[chunkIndex];
+		int pos = index & CHUNK_MASK;
+		if(chunk.qualityOffsets != null){
+			chunk.qualityOffsets[pos] = qualityOffset;
+		}
+		chunk.sequenceStarts[pos] = sequenceStart;
+		chunk.lengths[pos] = length;
+		chunk.nameOffsets[pos] = nameOffset;
+		chunk.residuesPerLine[pos] = residuesPerLine;
+		chunk.lineTerminatorLengths[pos] = (byte) lineTerminatorLength;
+		if(length > longestSequenceLength){
+			longestSequenceLength = length;
+		}
+		if(length < shortestSequenceLength || index == 0){
+			shortestSequenceLength = length;
+		}
+		// publish
+		size = index + 1;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public MemoryMappedSequencesFile getSequencesFile() {
+		return sequencesFile;
+	}
+
+	private Chunk getChunk(int index){
+		if(index < 0 || index >= size){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return chunks[index >>> CHUNK_BITS];
+	}
+
+	public long getSequenceStart(int index){
+		return getChunk(index).sequenceStarts[index & CHUNK_MASK];
+	}
+
+	public int getLength(int index){
+		return getChunk(index).lengths[index & CHUNK_MASK];
+	}
+
+	public int getResiduesPerLine(int index){
+		return getChunk(index).residuesPerLine[index & CHUNK_MASK];
+	}
+
+	public int getLineTerminatorLength(int index){
+		return getChunk(index).lineTerminatorLengths[index & CHUNK_MASK];
+	}
+
+	/*
+	 * First byte of name (after >), -1 if not known (e.g. catalog is read from .fai-file)
+	 */
+	public long getNameStart(int index){
+		int nameOffset = getChunk(index).nameOffsets[index & CHUNK_MASK];
+		if(nameOffset <= 0){
+			return -1;
+		}
+		return getSequenceStart(index) - nameOffset;
+	}
+
+	/*
+	 * Phred scores (quality character - 33) of residues start to endInclusive, null if catalog has no qualities.
+	 * Quality line is one line (4-line FASTQ) so residue n is at quality start + n
+	 */
+	public byte[] getQualities(int index, int start, int endInclusive){
+		if(! withQualities){
+			return null;
+		}
+		int length = getLength(index);
+		start = Math.max(0, start);
+		endInclusive = Math.min(length - 1, endInclusive);
+		if(endInclusive < start){
+			return new byte[0];
+		}
+		long qualityStart = getSequenceStart(index) + getChunk(index).qualityOffsets[index & CHUNK_MASK];
+		byte[] qualities = new byte[endInclusive - start + 1];
+		sequencesFile.readBytesInFile(qualityStart + start, qualities.length, qualities);
+		for(int n = 0; n < qualities.length; n++){
+			qualities[n] = (byte) Math.max(0, qualities[n] - PHRED_OFFSET);
+		}
+		return qualities;
+	}
+
+	public int getLongestSequenceLength(){
+		return longestSequenceLength;
+	}
+
+	public int getShortestSequenceLength(){
+		return shortestSequenceLength;
+	}
+
+	/*
+	 * Name lengths (in characters) are reported by the indexer so the name column width is known without reading names
+	 */
+	public synchronized void updateLongestNameLength(int nameLength){
+		if(nameLength > longestNameLength){
+			longestNameLength = nameLength;
+		}
+	}
+
+	public int getLongestNameLength(){
+		return longestNameLength;
+	}
+
+	/*
+	 * Names in a .fai index are only the first word of the name line
+	 */
+	public void setNamesAreFirstWord(boolean namesAreFirstWord) {
+		this.namesAreFirstWord = namesAreFirstWord;
+	}
+
+	/*
+	 * Name of a renamed sequence is kept in catalog and included in longest name length
+	 */
+	public void setName(int index, String name){
+		getChunk(index);
+		synchronized(renamed){
+			renamed.put(Integer.valueOf(index), name);
+		}
+		if(name != null){
+			updateLongestNameLength(name.length());
+		}
+	}
+
+	/*
+	 * Name is read from file every time this is called (unless sequence is renamed)
+	 */
+	public String getName(int index){
+		synchronized(renamed){
+			String name = renamed.get(Integer.valueOf(index));
+			if(name != null){
+				return name;
+			}
+		}
+		long sequenceStart = getSequenceStart(index);
+		// name line ends with LF just before sequence start
+		long nameEnd = sequenceStart - 1;
+		long nameStart = getNameStart(index);
+		if(nameStart < 0){
+			nameStart = findNameStart(nameEnd);
+		}
+
+		int nameLength = (int) Math.max(0, nameEnd - nameStart);
+		byte[] nameBytes = new byte[nameLength];
+		if(nameLength > 0){
+			sequencesFile.readBytesInFile(nameStart, nameLength, nameBytes);
+		}
+
+		int end = nameLength;
+		// remove CR if windows line ending
+		while(end > 0 && (nameBytes[end - 1] == '\r' || nameBytes[end - 1] == '\n')){
+			end --;
+		}
+		if(namesAreFirstWord){
+			for(int n = 0; n < end; n++){
+				if(nameBytes[n] == ' ' || nameBytes[n] == '\t'){
+					end = n;
+					break;
+				}
+			}
+		}
+		return new String(nameBytes, 0, end, NAME_CHARSET);
+	}
+
+	/*
+	 * Searches backwards from end of name line for the >
+	 */
+	private long findNameStart(long nameEnd){
+		int bufferSize = (int) Math.min(MAX_NAME_SEARCH_LENGTH, nameEnd);
+		if(bufferSize <= 0){
+			return nameEnd;
+		}
+		byte[] buffer = new byte[bufferSize];
+		long bufferStart = nameEnd - bufferSize;
+		sequencesFile.readBytesInFile(bufferStart, bufferSize, buffer);
+		for(int n = bufferSize - 1; n >= 0; n--){
+			if(buffer[n] == '>'){
+				return bufferStart + n + 1;
+			}
+		}
+		logger.warn("Could not find name start before file position " + nameEnd);
+		return nameEnd;
+	}
+
+}
@@ -0,0 +1,269 @@
+package aliview.sequencelist;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.RandomAccess;
+
+import org.apache.log4j.Logger;
+
+import aliview.sequences.CatalogFileSequence;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Sequence list of a FileSequenceAlignmentListModel backed by a FileSequenceCatalog
+ *
+ * Sequence views are created when a row is asked for and kept in a bounded cache (by catalog index),
+ * when cache is full all views without own selected positions are dropped (a row in the range selection
+ * is found again by catalog index). The list only contains the catalog rows that have been announced to
+ * the model (setCatalogSize is called on EDT when a batch is indexed).
+ *
+ * The first time the list is changed (sorted, moved or deleted rows) the row order is kept in an int
+ * array of catalog indices, so only sequences of the catalog can be put into the list.
+ *
+ */
+public class FileSequenceCatalogList extends AbstractList<Sequence> implements RandomAccess {
+	private static final Logger logger = Logger.getLogger(FileSequenceCatalogList.class);
+	private static final int MAX_CACHED_VIEWS = 20000;
+	private final FileSequenceCatalog catalog;
+	private final AlignmentListModel model;
+	private final HashMap<Integer, CatalogFileSequence> views = new HashMap<Integer, CatalogFileSequence>();
+	// catalog index of every row, null as long as rows are in catalog order
+	private int[] order;
+	private int size;
+	private int catalogSize;
+
+	public FileSequenceCatalogList(FileSequenceCatalog catalog, AlignmentListModel model) {
+		this.catalog = catalog;
+		this.model = model;
+	}
+
+	public FileSequenceCatalog getCatalog() {
+		return catalog;
+	}
+
+	/*
+	 * Makes catalog rows up to newCatalogSize part of the list (they are appended at end)
+	 */
+	synchronized void setCatalogSize(int newCatalogSize){
+		if(order != null){
+			ensureOrderCapacity(size + newCatalogSize - catalogSize);
+			for(int index = catalogSize; index < newCatalogSize; index++){
+				order[size] = index;
+				size ++;
+			}
+		}else{
+			size = newCatalogSize;
+		}
+		catalogSize = newCatalogSize;
+	}
+
+	synchronized int getCatalogSize(){
+		return catalogSize;
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	/*
+	 * Catalog index of the sequence at list index
+	 */
+	public synchronized int getCatalogIndex(int index){
+		checkIndex(index);
+		if(order == null){
+			return index;
+		}
+		return order[index];
+	}
+
+	@Override
+	public synchronized Sequence get(int index) {
+		return getView(getCatalogIndex(index));
+	}
+
+	private CatalogFileSequence getView(int catalogIndex){
+		Integer key = Integer.valueOf(catalogIndex);
+		CatalogFileSequence view = views.get(key);
+		if(view == null){
+			if(views.size() >= MAX_CACHED_VIEWS){
+				dropUnselectedViews();
+			}
+			view = new CatalogFileSequence(catalog, catalogIndex);
+			view.setAlignmentModel(model);
+			views.put(key, view);
+		}
+		return view;
+	}
+
+	private void dropUnselectedViews(){
+		Iterator<CatalogFileSequence> iter = views.values().iterator();
+		while(iter.hasNext()){
+			if(! iter.next().hasOwnSelection()){
+				iter.remove();
+			}
+		}
+		logger.debug("views kept after drop=" + views.size());
+	}
+
+	private void checkIndex(int index){
+		if(index < 0 || index >= size){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	/*
+	 * Element is put into the view cache so its selection is kept
+	 */
+	private int toCatalogIndex(Sequence element){
+		if(element instanceof CatalogFileSequence){
+			CatalogFileSequence view = (CatalogFileSequence) element;
+			if(view.getCatalog() == catalog){
+				views.put(Integer.valueOf(view.getCatalogIndex()), view);
+				return view.getCatalogIndex();
+			}
+		}
+		throw new IllegalArgumentException("Only sequences of the indexed file can be added to this list");
+	}
+
+	/*
+	 * Catalog index of element or -1 if element is not a sequence of this catalog
+	 */
+	private int findCatalogIndex(Object element){
+		if(element instanceof CatalogFileSequence){
+			CatalogFileSequence view = (CatalogFileSequence) element;
+			if(view.getCatalog() == catalog){
+				return view.getCatalogIndex();
+			}
+		}
+		return -1;
+	}
+
+	private void createOrder(){
+		if(order == null){
+			logger.info("Sequence list changed - keeping order of " + size + " sequences");
+			order = new int[Math.max(16, size)];
+			for(int index = 0; index < size; index++){
+				order[index] = index;
+			}
+		}
+	}
+
+	private void ensureOrderCapacity(int capacity){
+		if(capacity > order.length){
+			int[] larger = new int[Math.max(capacity, order.length + (order.length >> 1))];
+			System.arraycopy(order, 0, larger, 0, size);
+			order = larger;
+		}
+	}
+
+	@Override
+	public synchronized Sequence set(int index, Sequence element) {
+		checkIndex(index);
+		Sequence previous = get(index);
+		createOrder();
+		order[index] = toCatalogIndex(element);
+		return previous;
+	}
+
+	@Override
+	public synchronized void add(int index, Sequence element) {
+		if(index < 0 || index > size){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int catalogIndex = toCatalogIndex(element);
+		createOrder();
+		ensureOrderCapacity(size + 1);
+		System.arraycopy(order, index, order, index + 1, size - index);
+		order[index] = catalogIndex;
+		size ++;
+		modCount ++;
+	}
+
+	@Override
+	public synchronized boolean addAll(int index, Collection<? extends Sequence> elements) {
+		if(index < 0 || index > size){
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int[] catalogIndices = new int[elements.size()];
+		int n = 0;
+		for(Sequence element: elements){
+			catalogIndices[n] = toCatalogIndex(element);
+			n ++;
+		}
+		createOrder();
+		ensureOrderCapacity(size + n);
+		System.arraycopy(order, index, order, index + n, size - index);
+		System.arraycopy(catalogIndices, 0, order, index, n);
+		size += n;
+		modCount ++;
+		return n > 0;
+	}
+
+	@Override
+	public synchronized Sequence remove(int index) {
+		checkIndex(index);
+		Sequence removed = get(index);
+		createOrder();
+		System.arraycopy(order, index + 1, order, index, size - index - 1);
+		size --;
+		modCount ++;
+		return removed;
+	}
+
+	/*
+	 * Rows are compared by catalog index, no views are created while searching
+	 */
+	@Override
+	public synchronized int indexOf(Object element) {
+		int catalogIndex = findCatalogIndex(element);
+		if(catalogIndex < 0){
+			return -1;
+		}
+		if(order == null){
+			return catalogIndex < size ? catalogIndex : -1;
+		}
+		for(int index = 0; index < size; index++){
+			if(order[index] == catalogIndex){
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object element) {
+		return indexOf(element) >= 0;
+	}
+
+	@Override
+	public synchronized boolean removeAll(Collection<?> elements) {
+		BitSet removeCatalogIndices = new BitSet();
+		for(Object element: elements){
+			int catalogIndex = findCatalogIndex(element);
+			if(catalogIndex >= 0){
+				removeCatalogIndices.set(catalogIndex);
+			}
+		}
+		if(removeCatalogIndices.isEmpty()){
+			return false;
+		}
+		createOrder();
+		int kept = 0;
+		for(int index = 0; index < size; index++){
+			if(! removeCatalogIndices.get(order[index])){
+				order[kept] = order[index];
+				kept ++;
+			}
+		}
+		boolean changed = kept != size;
+		size = kept;
+		modCount ++;
+		return changed;
+	}
+
+}
@@ -40,6 +40,7 @@ import aliview.externalcommands.ExternalCommandExecutor;
 import aliview.importer.AlignmentImportException;
 import aliview.importer.ClustalFileIndexer;
 import aliview.importer.FastaFileIndexer;
+import aliview.importer.FastqFileIndexer;
 import aliview.importer.FileFormat;
 import aliview.importer.FileImportUtils;
 import aliview.importer.FileIndexer;
@@ -48,6 +49,7 @@ import aliview.importer.MSFFileIndexer;
 import aliview.importer.NexusFileIndexer;
 import aliview.importer.PhylipFileIndexer;
 import aliview.messenges.Messenger;
+import aliview.metrics.PerformanceMetrics;
 import aliview.sequences.FastaFileSequence;
 import aliview.sequences.FileSequence;
 import aliview.sequences.Sequence;
@@ -64,6 +66,7 @@ public class MemoryMappedSequencesFile{
 	private final ReentrantLock mappedBuffLock = new ReentrantLock();
 	//	private FileSequence lastCachedSeq;
 	private long fileSize = -1;
+	private final FileSequenceCatalog catalog = new FileSequenceCatalog(this);
 	//	ArrayList<ListDataListener> listeners = new ArrayList<ListDataListener>();
 	//	private ArrayList<FilePage> pages;
 
@@ -79,13 +82,36 @@ public class MemoryMappedSequencesFile{
 		return mappedBuffLock;
 	}
 
+	/*
+	 * Lock of mapped buffer, time is only measured when another thread is holding it (reads are per byte)
+	 */
+	private void lockMappedBuff(){
+		if(! mappedBuffLock.tryLock()){
+			long startTime = PerformanceMetrics.startTimer();
+			mappedBuffLock.lock();
+			PerformanceMetrics.recordSince(PerformanceMetrics.MAPPED_BUFFER_LOCK_WAIT, startTime);
+		}
+	}
+
+	public FileSequenceCatalog getCatalog() {
+		return catalog;
+	}
+
+	/*
+	 * Fasta and FASTQ (and everything else read with the FastaFileIndexer) is indexed into the catalog,
+	 * the other formats create their FileSequence objects in one batch
+	 */
+	public boolean isIndexedIntoCatalog(){
+		return fileFormat != FileFormat.PHYLIP && fileFormat != FileFormat.NEXUS && fileFormat != FileFormat.CLUSTAL && fileFormat != FileFormat.MSF;
+	}
+
 	void indexFileAndAddSequencesToAlignmentModel(FileSequenceAlignmentListModel destinationModel) throws IOException{
 
 		// check if index file exists
 		File indexFile = new File(alignmentFile.getAbsolutePath() + ".fai");
 		// read from index file if exists
 		if(fileFormat == FileFormat.FASTA && indexFile.exists()){
-			List<Sequence> seqs = createSequencesFromExistingIndexFile(indexFile);
+			addCatalogFromExistingIndexFile(indexFile);
 
 			// create memory mapped buffer
 			if(mappedBuff == null){
@@ -93,7 +119,7 @@ public class MemoryMappedSequencesFile{
 			}
 
 			// add sequences to cache
-			addSequencesToDestination(seqs, destinationModel);
+			addCatalogSequencesToDestination(destinationModel);
 		}
 		// Otherwise index file
 		else{
@@ -103,76 +129,38 @@ public class MemoryMappedSequencesFile{
 
 
 
-	public List<Sequence> createSequencesFromExistingIndexFile(File indexFile) {
-
+	/*
+	 * Reads a samtools faidx index (name, length, offset, residues per line, bytes per line) into catalog
+	 */
+	public void addCatalogFromExistingIndexFile(File indexFile) {
 		long startTime = System.currentTimeMillis();
-		ArrayList<Sequence> sequences = new ArrayList<Sequence>();
-
+		catalog.setNamesAreFirstWord(true);
 		try {
 			BufferedReader r = new BufferedReader(new FileReader(indexFile));
-			String line;
-			int nLine = 0;
-			int seqIndex = 0;
-			//		String[] splitted = new String[5];
-			while ((line = r.readLine()) != null) {
-
-				line = line.trim();
-
-				if(line.length() > 0){
-
-					String[] splitted = StringUtils.split(line, '\t');
-					//	String[] splitted = line.split("\t");//StringUtils.split(line, '\t');
-
-					//					int startPos = 0;
-					//					int endPos = line.indexOf('\t',startPos);
-					//					
-					//					splitted[0] = line.substring(startPos, endPos);
-					//					startPos = endPos + 1;
-					//					endPos = line.indexOf('\t',startPos);
-					//					splitted[1] = line.substring(startPos, endPos);
-					//					startPos = endPos + 1;
-					//					endPos = line.indexOf('\t',startPos);
-					//					splitted[2] = line.substring(startPos, endPos);
-					//					startPos = endPos + 1;
-					//					endPos = line.indexOf('\t',startPos);
-					//					splitted[3] = line.substring(startPos, endPos);
-					//					startPos = endPos + 1;
-					//					endPos = line.indexOf('\t',startPos);
-					//					splitted[4] = line.substring(startPos, endPos);
-
-					String  seqName = splitted[0];
-					int seqWithoutWhitespaceLength = Integer.parseInt(splitted[1]);
-					long seqAfterNameStartPointer = Long.parseLong(splitted[2]);
-					int lineCharLength = Integer.parseInt(splitted[3]);
-					int lineAbsoluteLength = Integer.parseInt(splitted[4]);
-
-					int nSeqFullLines = (int)Math.floor(seqWithoutWhitespaceLength/lineCharLength);
-					int lineDiff = lineAbsoluteLength - lineCharLength;
-
-
-					double partialLine = ((double)seqWithoutWhitespaceLength/(double)lineCharLength) - (double)nSeqFullLines;
-
-					int extraChars = (int)Math.floor(partialLine * lineDiff);
-
-					long endPointer = seqAfterNameStartPointer + seqWithoutWhitespaceLength + nSeqFullLines * lineDiff + extraChars;
-
-					FileSequence seq = new FileSequence(this, seqIndex, seqName, seqWithoutWhitespaceLength, seqAfterNameStartPointer, endPointer, lineCharLength, lineAbsoluteLength);
-					sequences.add(seq);
-					seqIndex ++;
+			try{
+				String line;
+				while ((line = r.readLine()) != null) {
+					line = line.trim();
+					if(line.length() > 0){
+						String[] splitted = StringUtils.split(line, '\t');
+						int seqWithoutWhitespaceLength = Integer.parseInt(splitted[1]);
+						long seqAfterNameStartPointer = Long.parseLong(splitted[2]);
+						int lineCharLength = Integer.parseInt(splitted[3]);
+						int lineAbsoluteLength = Integer.parseInt(splitted[4]);
+						catalog.add(seqAfterNameStartPointer, seqWithoutWhitespaceLength, 0, lineCharLength, lineAbsoluteLength - lineCharLength);
+						catalog.updateLongestNameLength(splitted[0].length());
+					}
 				}
-				nLine ++;
+			}finally{
+				r.close();
 			}
-
 		} catch (Exception e) {
 			logger.error(e);
 		}
 		long endTime = System.currentTimeMillis();
-		System.out.println("reading index took " + (endTime - startTime) + " milliseconds");
-
-		return sequences;
+		logger.info("reading index took " + (endTime - startTime) + " milliseconds");
 	}
 
-
 	private void indexFileAndAddSequencesToListInSubthread(final FileSequenceAlignmentListModel destinationModel, final FileFormat fileFormat){
 
 		final SubThreadProgressWindow progressWin = new SubThreadProgressWindow();
@@ -201,6 +189,7 @@ public class MemoryMappedSequencesFile{
 						boolean hasMoreSequencesToIndex = true;
 						FileSequence lastCachedSeq = null;
 						int indexOffset = 0;
+						long catalogStartPointer = 0;
 						while(hasMoreSequencesToIndex){
 
 							// The standard JAVA-MappedFileBuffer, but it is limited to 2GB files
@@ -217,6 +206,39 @@ public class MemoryMappedSequencesFile{
 								progressWin.setMessage("Indexing file: " + 0 + "/" + "number of sequences");
 							}
 
+							long batchStartTime = System.nanoTime();
+							if(isIndexedIntoCatalog()){
+								int catalogSizeBefore = catalog.size();
+								long nextStartPointer;
+								if(fileFormat == FileFormat.FASTQ){
+									if(catalogSizeBefore == 0){
+										catalog.setWithQualities(true);
+									}
+									nextStartPointer = new FastqFileIndexer().indexSequencesInFile(MemoryMappedSequencesFile.this, catalogStartPointer, catalog,
+									                                                               nMaxSeqsToRetrieveBeforeDestinationUpdate, progressWin);
+								}else{
+									FastaFileIndexer fileIndexer = new FastaFileIndexer();
+									nextStartPointer = fileIndexer.indexSequencesInFile(MemoryMappedSequencesFile.this, catalogStartPointer, catalog,
+									                                                    nMaxSeqsToRetrieveBeforeDestinationUpdate, progressWin);
+								}
+								long batchEndPointer = nextStartPointer < 0 ? getFileSize() : nextStartPointer;
+								PerformanceMetrics.recordIndexed(batchEndPointer - catalogStartPointer, catalog.size() - catalogSizeBefore, System.nanoTime() - batchStartTime);
+								addCatalogSequencesToDestination(destinationModel);
+								if(nextStartPointer < 0){
+									hasMoreSequencesToIndex = false;
+								}
+								catalogStartPointer = nextStartPointer;
+								if(Thread.interrupted()){
+									break;
+								}
+								nMaxSeqsToRetrieveBeforeDestinationUpdate = nMaxSeqsToRetrieveBeforeDestinationUpdateAfterFirst;
+								// after first batch the FASTQ indexer reads large parts of the file in parallel
+								if(fileFormat == FileFormat.FASTQ){
+									nMaxSeqsToRetrieveBeforeDestinationUpdate = Integer.MAX_VALUE;
+								}
+								continue;
+							}
+
 							long startPointer = 0;
 							if(lastCachedSeq != null){
 								startPointer = lastCachedSeq.getEndPointer();
@@ -228,6 +250,7 @@ public class MemoryMappedSequencesFile{
 							if(moreSeqs.size() > 0){
 								addSequencesToDestination(moreSeqs, destinationModel);
 								lastCachedSeq = (FileSequence) moreSeqs.get(moreSeqs.size() - 1);
+								PerformanceMetrics.recordIndexed(lastCachedSeq.getEndPointer() - startPointer, moreSeqs.size(), System.nanoTime() - batchStartTime);
 								indexOffset += moreSeqs.size();
 							}else{
 								hasMoreSequencesToIndex = false;
@@ -290,6 +313,15 @@ public class MemoryMappedSequencesFile{
 		}
 	}
 
+	/*
+	 * Maps file without indexing it, so an indexer can be run on it directly (e.g. from benchmarks)
+	 */
+	public void mapFile() throws IOException{
+		if(mappedBuff == null){
+			createMemoryMappedBuffer();
+		}
+	}
+
 	// TODO close buffer maybe? When alignment is changed?
 	protected void createMemoryMappedBuffer() throws IOException{
 
@@ -350,11 +382,6 @@ public class MemoryMappedSequencesFile{
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
-		}else{
-			FastaFileIndexer fileIndexer = new FastaFileIndexer();
-			mappedBuffLock.lock();
-			allSeqs = fileIndexer.findSequencesInFile(this, filePointerStart, seqOffset, nSeqsToRetrieve, progressWin);
-			mappedBuffLock.unlock();
 		}
 
 		long endTime = System.currentTimeMillis();
@@ -374,6 +401,16 @@ public class MemoryMappedSequencesFile{
 
 	}
 
+	private void addCatalogSequencesToDestination(final FileSequenceAlignmentListModel destinationModel){
+		final int catalogSize = catalog.size();
+		logger.info("addCatalogSequencesToDestination catalogSize=" + catalogSize);
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				destinationModel.fileSequencesIndexed(catalogSize);
+			}
+		});
+	}
+
 	/*
 	public List<FilePage> getFilePages() {
 
@@ -422,7 +459,7 @@ public class MemoryMappedSequencesFile{
 		if(pos < 0){
 			return 0;
 		}
-		mappedBuffLock.lock();
+		lockMappedBuff();
 		try{
 			mappedBuff.position(pos);
 			int val = mappedBuff.read();
@@ -469,7 +506,7 @@ public class MemoryMappedSequencesFile{
 		//			mappedBuff.position(pos);
 		//			return mappedBuff.read(bytesToDraw,0,i);
 		//		}
-		mappedBuffLock.lock();
+		lockMappedBuff();
 		try{
 			mappedBuff.position(pos);
 			int val = mappedBuff.read(bytesToDraw,0,i);
@@ -487,7 +524,7 @@ public class MemoryMappedSequencesFile{
 		//			return fileSize;
 		//		}
 
-		mappedBuffLock.lock();
+		lockMappedBuff();
 		try{
 			if(fileSize == -1){
 				fileSize = mappedBuff.length();
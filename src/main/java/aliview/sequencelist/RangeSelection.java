@@ -0,0 +1,339 @@
+package aliview.sequencelist;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+
+import aliview.sequences.DefaultSequenceSelectionModel;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Selection of the same columns in a set of rows - select all, whole columns, whole sequences and
+ * rectangles are kept as one RangeSelection in AlignmentSelectionModel instead of a selection in every sequence
+ *
+ * Rows are all rows, or row index ranges (BitSet set with ranges), or when sequences have been moved
+ * the sequences themselves. Columns are kept in a DefaultSequenceSelectionModel that is shared by all rows.
+ *
+ */
+public class RangeSelection {
+	private final AlignmentListModel sequences;
+	private boolean allRows;
+	private BitSet rowIndices;
+	private HashSet<Sequence> rowSequences;
+	private final DefaultSequenceSelectionModel columns = new DefaultSequenceSelectionModel();
+	private int[] columnCountBefore;
+
+	private RangeSelection(AlignmentListModel sequences) {
+		this.sequences = sequences;
+	}
+
+	public static RangeSelection createAllRows(AlignmentListModel sequences){
+		RangeSelection selection = new RangeSelection(sequences);
+		selection.allRows = true;
+		return selection;
+	}
+
+	public static RangeSelection createRowRange(AlignmentListModel sequences, int firstRow, int lastRow){
+		RangeSelection selection = new RangeSelection(sequences);
+		selection.rowIndices = new BitSet();
+		selection.rowIndices.set(firstRow, lastRow + 1);
+		return selection;
+	}
+
+	// ***************************************
+	// Rows
+	// ***************************************
+
+	public synchronized boolean isAllRows(){
+		return allRows;
+	}
+
+	public synchronized boolean hasRowRanges(){
+		return rowIndices != null;
+	}
+
+	public synchronized boolean containsRow(int index){
+		if(allRows){
+			return index >= 0 && index < sequences.size();
+		}
+		if(rowIndices != null){
+			return index >= 0 && rowIndices.get(index);
+		}
+		if(index < 0 || index >= sequences.size()){
+			return false;
+		}
+		return rowSequences.contains(sequences.get(index));
+	}
+
+	public synchronized boolean containsRow(Sequence seq){
+		if(allRows){
+			return true;
+		}
+		return getRowSequences().contains(seq);
+	}
+
+	/*
+	 * Row ranges are translated to sequences the first time a row is asked for by sequence
+	 */
+	private HashSet<Sequence> getRowSequences(){
+		if(rowSequences == null){
+			rowSequences = new HashSet<Sequence>();
+			for(int n = rowIndices.nextSetBit(0); n >= 0 && n < sequences.size(); n = rowIndices.nextSetBit(n + 1)){
+				rowSequences.add(sequences.get(n));
+			}
+		}
+		return rowSequences;
+	}
+
+	public synchronized void addRows(int firstRow, int lastRow){
+		if(rowIndices != null){
+			rowIndices.set(firstRow, lastRow + 1);
+			rowSequences = null;
+		}
+	}
+
+	public synchronized void removeRows(int firstRow, int lastRow){
+		if(allRows){
+			allRows = false;
+			rowIndices = new BitSet();
+			rowIndices.set(0, sequences.size());
+		}
+		if(rowIndices != null){
+			rowIndices.clear(firstRow, lastRow + 1);
+			rowSequences = null;
+		}
+	}
+
+	/*
+	 * Complement of rows (when selection is inverted)
+	 */
+	public synchronized void invertRows(){
+		if(rowIndices != null){
+			rowIndices.flip(0, sequences.size());
+			rowSequences = null;
+		}
+	}
+
+	/*
+	 * Before sequences in list are moved or removed - row index ranges are no longer valid after
+	 */
+	public synchronized void sequenceOrderWillChange(){
+		if(rowIndices != null){
+			getRowSequences();
+			rowIndices = null;
+		}
+	}
+
+	/*
+	 * New sequences at index0 - index1 are not part of selection
+	 */
+	public synchronized void sequencesInserted(int index0, int index1){
+		int count = index1 - index0 + 1;
+		if(allRows){
+			allRows = false;
+			rowIndices = new BitSet();
+			rowIndices.set(0, sequences.size());
+			rowIndices.clear(index0, index1 + 1);
+		}
+		else if(rowIndices != null){
+			BitSet moved = new BitSet();
+			for(int n = rowIndices.nextSetBit(0); n >= 0; n = rowIndices.nextSetBit(n + 1)){
+				if(n < index0){
+					moved.set(n);
+				}else{
+					moved.set(n + count);
+				}
+			}
+			rowIndices = moved;
+		}
+	}
+
+	public synchronized int getRowCount(){
+		if(allRows){
+			return sequences.size();
+		}
+		if(rowIndices != null){
+			return rowIndices.cardinality();
+		}
+		return getRows().size();
+	}
+
+	public synchronized int getFirstRow(){
+		if(allRows){
+			return sequences.size() > 0 ? 0 : -1;
+		}
+		if(rowIndices != null){
+			int first = rowIndices.nextSetBit(0);
+			return first < sequences.size() ? first : -1;
+		}
+		for(int n = 0; n < sequences.size(); n++){
+			if(rowSequences.contains(sequences.get(n))){
+				return n;
+			}
+		}
+		return -1;
+	}
+
+	public synchronized int getLastRow(){
+		if(allRows){
+			return sequences.size() - 1;
+		}
+		if(rowIndices != null){
+			return Math.min(rowIndices.length(), sequences.size()) - 1;
+		}
+		for(int n = sequences.size() - 1; n >= 0; n--){
+			if(rowSequences.contains(sequences.get(n))){
+				return n;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Row indices in list order
+	 */
+	public synchronized List<Integer> getRowIndices(){
+		ArrayList<Integer> indices = new ArrayList<Integer>();
+		if(allRows){
+			for(int n = 0; n < sequences.size(); n++){
+				indices.add(Integer.valueOf(n));
+			}
+		}
+		else if(rowIndices != null){
+			for(int n = rowIndices.nextSetBit(0); n >= 0 && n < sequences.size(); n = rowIndices.nextSetBit(n + 1)){
+				indices.add(Integer.valueOf(n));
+			}
+		}
+		else{
+			for(int n = 0; n < sequences.size(); n++){
+				if(rowSequences.contains(sequences.get(n))){
+					indices.add(Integer.valueOf(n));
+				}
+			}
+		}
+		return indices;
+	}
+
+	/*
+	 * Row sequences in list order
+	 */
+	public synchronized List<Sequence> getRows(){
+		ArrayList<Sequence> rows = new ArrayList<Sequence>();
+		if(allRows){
+			rows.addAll(sequences.getDelegateSequences());
+		}
+		else if(rowIndices != null){
+			for(int n = rowIndices.nextSetBit(0); n >= 0 && n < sequences.size(); n = rowIndices.nextSetBit(n + 1)){
+				rows.add(sequences.get(n));
+			}
+		}
+		else{
+			for(Sequence seq: sequences.getDelegateSequences()){
+				if(rowSequences.contains(seq)){
+					rows.add(seq);
+				}
+			}
+		}
+		return rows;
+	}
+
+	// ***************************************
+	// Columns
+	// ***************************************
+
+	/*
+	 * Columns selected in every row, this instance is shared by all rows and should not be changed outside
+	 */
+	public DefaultSequenceSelectionModel getColumns(){
+		return columns;
+	}
+
+	public synchronized boolean isAllColumns(){
+		return columns.isAllSelected();
+	}
+
+	public synchronized boolean hasColumns(){
+		return columns.hasSelection();
+	}
+
+	public synchronized boolean isColumnSelected(int x){
+		return columns.isSelected(x);
+	}
+
+	public synchronized void selectAllColumns(){
+		columns.selectAll();
+		columnCountBefore = null;
+	}
+
+	public synchronized void addColumns(int firstColumn, int lastColumn){
+		columns.setSelection(firstColumn, lastColumn, false);
+		columnCountBefore = null;
+	}
+
+	public synchronized void removeColumns(int firstColumn, int lastColumn){
+		columns.clearSelection(firstColumn, lastColumn, false);
+		columnCountBefore = null;
+	}
+
+	public synchronized void setColumns(int[] selectedColumns){
+		columns.clearAll();
+		for(int column: selectedColumns){
+			columns.setSelectionAt(column);
+		}
+		columnCountBefore = null;
+	}
+
+	public synchronized void invertColumns(int length){
+		columns.invertSelection(length);
+		columnCountBefore = null;
+	}
+
+	/*
+	 * Selected columns as ranges of consecutive columns
+	 */
+	public synchronized List<Interval> getColumnRanges(int length){
+		ArrayList<Interval> ranges = new ArrayList<Interval>();
+		int start = columns.nextSelectedPosition(0);
+		while(start >= 0 && start < length){
+			int end = (int) Math.min((long)columns.nextUnselectedPosition(start), length) - 1;
+			ranges.add(new Interval(start, end));
+			start = columns.nextSelectedPosition(end + 1);
+		}
+		return ranges;
+	}
+
+	/*
+	 * Number of selected columns in a sequence of this length
+	 */
+	public synchronized int countColumns(int length){
+		if(columns.isAllSelected()){
+			return length;
+		}
+		if(length <= 0){
+			return 0;
+		}
+		if(columnCountBefore == null || columnCountBefore.length <= length){
+			int maxLength = Math.max(length, sequences.getLongestSequenceLength()) + 1;
+			columnCountBefore = new int[maxLength + 1];
+			for(int x = 0; x < maxLength; x++){
+				columnCountBefore[x + 1] = columnCountBefore[x] + (columns.isSelected(x) ? 1 : 0);
+			}
+		}
+		return columnCountBefore[length];
+	}
+
+	public synchronized int getFirstColumn(){
+		return columns.getFirstSelectedPosition();
+	}
+
+	public synchronized int getLastColumn(int length){
+		return columns.getLastSelectedPosition(length);
+	}
+
+	public synchronized boolean isEmpty(){
+		return ! columns.hasSelection() || getRowCount() == 0;
+	}
+
+}
@@ -0,0 +1,192 @@
+package aliview.sequencelist;
+
+import aliview.NucleotideUtilities;
+import aliview.alignment.AliHistogram;
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * One sort criterion of SequenceSorter. The key of every sequence is extracted once into an array
+ * (one sequence per index) and the sort is then comparing array values, not sequences, so file
+ * sequences are only read once per sort
+ *
+ */
+public abstract class SequenceSortKey {
+	private boolean descending;
+
+	/*
+	 * Called before extract with number of sequences
+	 */
+	abstract void init(int size);
+
+	/*
+	 * True if extract needs all residues of the sequence (they are then read once for all keys)
+	 */
+	abstract boolean needsBases();
+
+	/*
+	 * Stores key of sequence at index, called from several threads for different indices
+	 */
+	abstract void extract(int index, Sequence seq, byte[] bases);
+
+	abstract int compareAscending(int index1, int index2);
+
+	int compare(int index1, int index2){
+		int result = compareAscending(index1, index2);
+		return descending ? -result : result;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	public SequenceSortKey descending(){
+		this.descending = true;
+		return this;
+	}
+
+	public static SequenceSortKey byName(){
+		return new NameKey();
+	}
+
+	/*
+	 * Least common character in column first (count in histogram), same character together
+	 */
+	public static SequenceSortKey byCharInColumn(int position, AliHistogram histogram){
+		return new CharInColumnKey(position, histogram);
+	}
+
+	public static SequenceSortKey byUngapedLength(){
+		return new UngapedLengthKey();
+	}
+
+	public static SequenceSortKey byGapCount(){
+		return new GapCountKey();
+	}
+
+	/*
+	 * Precalculated distance of every sequence (in list order), e.g. to a reference sequence. Closest
+	 * first and sequences without distance (NaN) last
+	 */
+	public static SequenceSortKey byDistance(float[] distances){
+		return new DistanceKey(distances);
+	}
+
+	static int gapCount(byte[] bases){
+		int gaps = 0;
+		for(int n = 0; n < bases.length; n++){
+			if(NucleotideUtilities.isGap(bases[n])){
+				gaps ++;
+			}
+		}
+		return gaps;
+	}
+
+	private static class NameKey extends SequenceSortKey{
+		private String[] names;
+
+		void init(int size){
+			names = new String[size];
+		}
+
+		boolean needsBases(){
+			return false;
+		}
+
+		void extract(int index, Sequence seq, byte[] bases){
+			names[index] = seq.getName();
+		}
+
+		int compareAscending(int index1, int index2){
+			return names[index1].compareTo(names[index2]);
+		}
+	}
+
+	private static abstract class LongKey extends SequenceSortKey{
+		private long[] keys;
+
+		void init(int size){
+			keys = new long[size];
+		}
+
+		void extract(int index, Sequence seq, byte[] bases){
+			keys[index] = extractLong(seq, bases);
+		}
+
+		abstract long extractLong(Sequence seq, byte[] bases);
+
+		int compareAscending(int index1, int index2){
+			long key1 = keys[index1];
+			long key2 = keys[index2];
+			return key1 < key2 ? -1 : (key1 == key2 ? 0 : 1);
+		}
+	}
+
+	private static class CharInColumnKey extends LongKey{
+		private final int position;
+		private final AliHistogram histogram;
+
+		public CharInColumnKey(int position, AliHistogram histogram) {
+			this.position = position;
+			this.histogram = histogram;
+		}
+
+		boolean needsBases(){
+			return false;
+		}
+
+		long extractLong(Sequence seq, byte[] bases){
+			byte base = seq.getBaseAtPos(position);
+			int count = histogram.getValueCount(position, NucleotideUtilities.baseValFromBase(base));
+			// count first, then the character
+			return ((long) count << 8) + (base & 0xFF);
+		}
+	}
+
+	private static class UngapedLengthKey extends LongKey{
+		boolean needsBases(){
+			return true;
+		}
+
+		long extractLong(Sequence seq, byte[] bases){
+			return bases.length - gapCount(bases);
+		}
+	}
+
+	private static class GapCountKey extends LongKey{
+		boolean needsBases(){
+			return true;
+		}
+
+		long extractLong(Sequence seq, byte[] bases){
+			return gapCount(bases);
+		}
+	}
+
+	private static class DistanceKey extends SequenceSortKey{
+		private final float[] distances;
+
+		public DistanceKey(float[] distances) {
+			this.distances = distances;
+		}
+
+		void init(int size){
+			if(size != distances.length){
+				throw new IllegalArgumentException("Distances are for " + distances.length + " sequences, not " + size);
+			}
+		}
+
+		boolean needsBases(){
+			return false;
+		}
+
+		void extract(int index, Sequence seq, byte[] bases){
+			// already extracted
+		}
+
+		int compareAscending(int index1, int index2){
+			return Float.compare(distances[index1], distances[index2]);
+		}
+	}
+
+}
@@ -0,0 +1,200 @@
+package aliview.sequencelist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import aliview.sequences.Sequence;
+
+/*
+ *
+ * Sorts sequences on one or more SequenceSortKey
+ *
+ * Keys of all sequences are first extracted into arrays (in parallel blocks of sequences, file
+ * sequences in one thread since the file is read through one lock), then an array of sequence
+ * indices is sorted comparing the key arrays: blocks of indices are merge sorted in parallel and
+ * then merged pairwise. Equal keys keep their original order. The result is the sequences in
+ * new order and it is up to the caller to apply it to the list in one step.
+ *
+ */
+public class SequenceSorter {
+	private static final Logger logger = Logger.getLogger(SequenceSorter.class);
+	// below this number of sequences everything is done in calling thread
+	private static final int MIN_SEQUENCES_PER_THREAD = 5000;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	private final SequenceSortKey[] keys;
+
+	public SequenceSorter(SequenceSortKey... keys) {
+		this.keys = keys;
+	}
+
+	public List<Sequence> sort(List<Sequence> sequences, boolean parallelRead){
+		long startTime = System.currentTimeMillis();
+		int nSeqs = sequences.size();
+		int nThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), nSeqs / MIN_SEQUENCES_PER_THREAD));
+
+		extractKeys(sequences, parallelRead ? nThreads : 1);
+
+		int[] order = new int[nSeqs];
+		for(int n = 0; n < nSeqs; n++){
+			order[n] = n;
+		}
+		parallelMergeSort(order, nThreads);
+
+		List<Sequence> sorted = new ArrayList<Sequence>(nSeqs);
+		for(int n = 0; n < nSeqs; n++){
+			sorted.add(sequences.get(order[n]));
+		}
+		logger.info("Sorting " + nSeqs + " sequences took " + (System.currentTimeMillis() - startTime) + " milliseconds");
+		return sorted;
+	}
+
+	private void extractKeys(final List<Sequence> sequences, int nThreads){
+		final int nSeqs = sequences.size();
+		boolean anyNeedsBases = false;
+		for(SequenceSortKey key: keys){
+			key.init(nSeqs);
+			anyNeedsBases = anyNeedsBases || key.needsBases();
+		}
+		final boolean needsBases = anyNeedsBases;
+
+		if(nThreads == 1){
+			extractKeys(sequences, 0, nSeqs, needsBases);
+			return;
+		}
+
+		int seqsPerJob = (nSeqs + nThreads - 1) / nThreads;
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int jobStart = 0; jobStart < nSeqs; jobStart += seqsPerJob){
+			final int firstSeq = jobStart;
+			final int lastSeq = Math.min(jobStart + seqsPerJob, nSeqs);
+			executor.execute(new Runnable() {
+				public void run() {
+					extractKeys(sequences, firstSeq, lastSeq, needsBases);
+				}
+			});
+		}
+		awaitDone(executor);
+	}
+
+	private void extractKeys(List<Sequence> sequences, int firstSeq, int lastSeq, boolean needsBases){
+		for(int index = firstSeq; index < lastSeq; index ++){
+			Sequence seq = sequences.get(index);
+			// residues are read once for all keys
+			byte[] bases = needsBases ? seq.getAllBasesAsByteArray() : null;
+			for(SequenceSortKey key: keys){
+				key.extract(index, seq, bases);
+			}
+		}
+	}
+
+	private int compare(int index1, int index2){
+		for(SequenceSortKey key: keys){
+			int result = key.compare(index1, index2);
+			if(result != 0){
+				return result;
+			}
+		}
+		// keep original order
+		return index1 < index2 ? -1 : (index1 == index2 ? 0 : 1);
+	}
+
+	/*
+	 * Blocks are sorted in parallel then merged pairwise (also in parallel) until one block is left
+	 */
+	private void parallelMergeSort(final int[] order, int nThreads){
+		final int length = order.length;
+		final int[] buffer = new int[length];
+		if(nThreads == 1){
+			mergeSort(order, buffer, 0, length);
+			return;
+		}
+
+		final int blockSize = (length + nThreads - 1) / nThreads;
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		for(int start = 0; start < length; start += blockSize){
+			final int from = start;
+			final int to = Math.min(start + blockSize, length);
+			executor.execute(new Runnable() {
+				public void run() {
+					mergeSort(order, buffer, from, to);
+				}
+			});
+		}
+		awaitDone(executor);
+
+		for(int width = blockSize; width < length; width *= 2){
+			final int mergeWidth = width;
+			executor = Executors.newFixedThreadPool(nThreads);
+			for(int start = 0; start < length - width; start += 2 * width){
+				final int from = start;
+				executor.execute(new Runnable() {
+					public void run() {
+						int mid = from + mergeWidth;
+						int to = Math.min(from + 2 * mergeWidth, length);
+						System.arraycopy(order, from, buffer, from, to - from);
+						merge(buffer, order, from, mid, to);
+					}
+				});
+			}
+			awaitDone(executor);
+		}
+	}
+
+	/*
+	 * Sorts order[from, to), buffer is used as temp space in the same range
+	 */
+	private void mergeSort(int[] order, int[] buffer, int from, int to){
+		if(to - from <= INSERTION_SORT_THRESHOLD){
+			for(int i = from + 1; i < to; i++){
+				int value = order[i];
+				int j = i - 1;
+				while(j >= from && compare(order[j], value) > 0){
+					order[j + 1] = order[j];
+					j--;
+				}
+				order[j + 1] = value;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(order, buffer, from, mid);
+		mergeSort(order, buffer, mid, to);
+		// already in order
+		if(compare(order[mid - 1], order[mid]) <= 0){
+			return;
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		merge(buffer, order, from, mid, to);
+	}
+
+	/*
+	 * Merges sorted source[from, mid) and source[mid, to) into target[from, to)
+	 */
+	private void merge(int[] source, int[] target, int from, int mid, int to){
+		int left = from;
+		int right = mid;
+		for(int n = from; n < to; n++){
+			if(right >= to || (left < mid && compare(source[left], source[right]) <= 0)){
+				target[n] = source[left++];
+			}else{
+				target[n] = source[right++];
+			}
+		}
+	}
+
+	private static void awaitDone(ExecutorService executor){
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
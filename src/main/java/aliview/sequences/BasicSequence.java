@@ -39,7 +39,7 @@ public class BasicSequence implements Sequence, Comparable<Sequence> {
 
 	public BasicSequence(){
 		this.id = SequenceUtils.createID();
-		selectionModel = new DefaultSequenceSelectionModel();
+		selectionModel = createNewSelectionModel();
 	}
 
 	public BasicSequence(Bases bases) {
@@ -64,7 +64,11 @@ public class BasicSequence implements Sequence, Comparable<Sequence> {
 	}
 
 	public void setName(String name){
+		int oldLength = this.name == null ? 0 : this.name.length();
 		this.name = name;
+		if(alignmentModel != null && name != null){
+			alignmentModel.sequenceNameLengthChanged(oldLength, name.length());
+		}
 	}
 
 	public String getSimpleName(){
@@ -121,7 +125,7 @@ public class BasicSequence implements Sequence, Comparable<Sequence> {
 	}
 
 	public SequenceSelectionModel createNewSelectionModel(){
-		return new DefaultSequenceSelectionModel();
+		return new RowSelectionModel(this);
 	}
 
 	public int countStopCodon(){
@@ -758,6 +762,9 @@ public class BasicSequence implements Sequence, Comparable<Sequence> {
 
 	public void setAlignmentModel(AlignmentListModel model){
 		this.alignmentModel = model;
+		if(selectionModel instanceof RowSelectionModel){
+			((RowSelectionModel) selectionModel).setAlignmentModel(model);
+		}
 	}
 
 	public AlignmentListModel getAlignmentModel() {
@@ -0,0 +1,96 @@
+package aliview.sequences;
+
+import aliview.sequencelist.FileSequenceCatalog;
+
+/*
+ *
+ * Lightweight view of one sequence in a FileSequenceCatalog, views are created when a row is needed
+ * and can be dropped and created again - two views of the same catalog row are equal
+ *
+ */
+public class CatalogFileSequence extends FileSequence implements SequenceWithQualities {
+	private final FileSequenceCatalog catalog;
+	private final int catalogIndex;
+
+	public CatalogFileSequence(FileSequenceCatalog catalog, int catalogIndex) {
+		super(new CatalogFileSequenceBases(catalog, catalogIndex));
+		this.catalog = catalog;
+		this.catalogIndex = catalogIndex;
+	}
+
+	public CatalogFileSequence getCopy() {
+		CatalogFileSequence copy = new CatalogFileSequence(catalog, catalogIndex);
+		copy.setAlignmentModel(getAlignmentModel());
+		return copy;
+	}
+
+	public FileSequenceCatalog getCatalog() {
+		return catalog;
+	}
+
+	public int getCatalogIndex() {
+		return catalogIndex;
+	}
+
+	/*
+	 * Name is read from file first time it is needed
+	 */
+	public String getName() {
+		if(name == null){
+			name = catalog.getName(catalogIndex);
+		}
+		return name;
+	}
+
+	/*
+	 * Rename is kept in catalog - this view can be dropped and created again
+	 */
+	public void setName(String name){
+		catalog.setName(catalogIndex, name);
+		super.setName(name);
+	}
+
+	public String getSimpleName(){
+		return getName();
+	}
+
+	/*
+	 * A view without own selected positions can be dropped, its part of a range selection
+	 * is found again by catalog index (views of same row are equal)
+	 */
+	public boolean hasOwnSelection() {
+		if(selectionModel instanceof RowSelectionModel){
+			return ((RowSelectionModel) selectionModel).hasOwnSelection();
+		}
+		return hasSelection();
+	}
+
+	public boolean hasQualities() {
+		return catalog.hasQualities();
+	}
+
+	/*
+	 * Read from file (FASTQ) every time
+	 */
+	public byte[] getQualities(int startIndex, int endIndexInclusive) {
+		return catalog.getQualities(catalogIndex, startIndex, endIndexInclusive);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(this == other){
+			return true;
+		}
+		if(other instanceof CatalogFileSequence){
+			CatalogFileSequence otherView = (CatalogFileSequence) other;
+			return otherView.catalog == catalog && otherView.catalogIndex == catalogIndex;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return catalogIndex;
+	}
+
+}
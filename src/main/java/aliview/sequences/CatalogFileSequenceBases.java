@@ -0,0 +1,86 @@
+package aliview.sequences;
+
+import aliview.sequencelist.FileSequenceCatalog;
+
+/*
+ *
+ * Bases of one sequence in a FileSequenceCatalog, residue positions are translated to file positions
+ * with the line geometry so line breaks inside the sequence are skipped
+ *
+ */
+public class CatalogFileSequenceBases extends FileSequenceBases {
+	private final FileSequenceCatalog catalog;
+	private final int catalogIndex;
+	private final int length;
+	private final int residuesPerLine;
+	private final int charsPerLine;
+
+	public CatalogFileSequenceBases(FileSequenceCatalog catalog, int catalogIndex) {
+		super(catalog.getSequencesFile(), catalog.getSequenceStart(catalogIndex));
+		this.catalog = catalog;
+		this.catalogIndex = catalogIndex;
+		this.length = catalog.getLength(catalogIndex);
+		this.residuesPerLine = catalog.getResiduesPerLine(catalogIndex);
+		this.charsPerLine = residuesPerLine + catalog.getLineTerminatorLength(catalogIndex);
+		setSequenceAfterNameStartPointer(getStartPointer());
+		setEndPointer(getFilePosition(length));
+	}
+
+	public CatalogFileSequenceBases getCopy(){
+		return new CatalogFileSequenceBases(catalog, catalogIndex);
+	}
+
+	public int getLength(){
+		return length;
+	}
+
+	private long getFilePosition(int n){
+		if(residuesPerLine <= 0){
+			return getStartPointer() + n;
+		}
+		return getStartPointer() + (long)(n / residuesPerLine) * charsPerLine + (n % residuesPerLine);
+	}
+
+	public byte get(int n) {
+		return (byte) sequencesFile.readInFile(getFilePosition(n));
+	}
+
+	/*
+	 * Reads all lines of the interval from file at once and removes line breaks
+	 */
+	public byte[] toByteArray(int startIndexInclusive, int endIndexInclusive) {
+		if(this.getLength() > 100 * 1000 * 1000){
+			return null;
+		}
+		int subSize = endIndexInclusive - startIndexInclusive + 1;
+		if(subSize < 0){
+			return null;
+		}
+		byte[] subarray = new byte[subSize];
+		if(subSize == 0){
+			return subarray;
+		}
+		long firstPos = getFilePosition(startIndexInclusive);
+		long lastPos = getFilePosition(endIndexInclusive);
+		int spanSize = (int)(lastPos - firstPos + 1);
+		if(spanSize == subSize){
+			sequencesFile.readBytesInFile(firstPos, subSize, subarray);
+			return subarray;
+		}
+
+		byte[] span = new byte[spanSize];
+		sequencesFile.readBytesInFile(firstPos, spanSize, span);
+		int lineOffset = startIndexInclusive % residuesPerLine;
+		int spanIndex = 0;
+		int subIndex = 0;
+		while(subIndex < subSize){
+			int count = Math.min(residuesPerLine - lineOffset, subSize - subIndex);
+			System.arraycopy(span, spanIndex, subarray, subIndex, count);
+			subIndex += count;
+			spanIndex += count + (charsPerLine - residuesPerLine);
+			lineOffset = 0;
+		}
+		return subarray;
+	}
+
+}
@@ -192,6 +192,51 @@ public class DefaultSequenceSelectionModel implements SequenceSelectionModel {
 		return allSelected;
 	}
 
+	/*
+	 * Next selected position from (and including) fromIndex or -1 if there is none
+	 */
+	public int nextSelectedPosition(int fromIndex) {
+		if(allSelected){
+			return fromIndex;
+		}
+		if(bitSelection == null){
+			return -1;
+		}
+		return bitSelection.nextSetBit(fromIndex);
+	}
+
+	/*
+	 * Next not selected position from (and including) fromIndex, Integer.MAX_VALUE if all is selected
+	 */
+	public int nextUnselectedPosition(int fromIndex) {
+		if(allSelected){
+			return Integer.MAX_VALUE;
+		}
+		if(bitSelection == null){
+			return fromIndex;
+		}
+		return bitSelection.nextClearBit(fromIndex);
+	}
+
+	/*
+	 * New selection with positions selected in this or other
+	 */
+	DefaultSequenceSelectionModel union(DefaultSequenceSelectionModel other) {
+		DefaultSequenceSelectionModel union = new DefaultSequenceSelectionModel();
+		if(allSelected || other.allSelected){
+			union.selectAll();
+			return union;
+		}
+		union.bitSelection = union.createNewSelection();
+		if(bitSelection != null){
+			union.bitSelection.or(bitSelection);
+		}
+		if(other.bitSelection != null){
+			union.bitSelection.or(other.bitSelection);
+		}
+		return union;
+	}
+
 	public void invertSelection(int length) {
 		// Full selection
 		if(allSelected){
@@ -0,0 +1,188 @@
+package aliview.sequences;
+
+import aliview.sequencelist.AlignmentListModel;
+import aliview.sequencelist.AlignmentSelectionModel;
+
+/*
+ *
+ * Selection of one sequence in an alignment. The sequence can have own selected positions and
+ * it can be a row in the range selection of the AlignmentSelectionModel (whole rows, columns or a
+ * rectangle) - then the selected columns of the range selection are also selected in this sequence.
+ *
+ * Adding to the selection is done in the own positions, other changes of a sequence that is part of
+ * the range selection first copies the range selection into the sequences (flatten)
+ *
+ */
+public class RowSelectionModel implements SequenceSelectionModel {
+	private final Sequence owner;
+	private final DefaultSequenceSelectionModel ownSelection = new DefaultSequenceSelectionModel();
+	private AlignmentListModel alignmentModel;
+
+	public RowSelectionModel(Sequence owner) {
+		this.owner = owner;
+	}
+
+	/*
+	 * Set when sequence is added to an alignment model, copies of a sequence are not part of the range selection
+	 */
+	public void setAlignmentModel(AlignmentListModel alignmentModel) {
+		this.alignmentModel = alignmentModel;
+		if(alignmentModel != null && ownSelection.hasSelection()){
+			alignmentModel.getAlignmentSelectionModel().sequenceSelectionChanged();
+		}
+	}
+
+	private AlignmentSelectionModel getAlignmentSelectionModel(){
+		if(alignmentModel == null){
+			return null;
+		}
+		return alignmentModel.getAlignmentSelectionModel();
+	}
+
+	private DefaultSequenceSelectionModel getRangeColumns(){
+		AlignmentSelectionModel aliSelection = getAlignmentSelectionModel();
+		if(aliSelection == null){
+			return null;
+		}
+		return aliSelection.getRangeSelectionColumns(owner);
+	}
+
+	private SequenceSelectionModel getReadModel(){
+		DefaultSequenceSelectionModel rangeColumns = getRangeColumns();
+		if(rangeColumns == null){
+			return ownSelection;
+		}
+		if(! ownSelection.hasSelection()){
+			return rangeColumns;
+		}
+		return ownSelection.union(rangeColumns);
+	}
+
+	/*
+	 * Before positions are cleared or moved in a sequence that is part of range selection.
+	 * The flatten writes all rows, so when many rows are changed from several threads the caller
+	 * has to flatten the range selection before the jobs are started
+	 */
+	private void flattenIfInRangeSelection(){
+		if(getRangeColumns() != null){
+			getAlignmentSelectionModel().flattenRangeSelection();
+		}
+	}
+
+	private void ownSelectionAdded(){
+		AlignmentSelectionModel aliSelection = getAlignmentSelectionModel();
+		if(aliSelection != null){
+			aliSelection.sequenceSelectionChanged();
+		}
+	}
+
+	public boolean isSelected(int n) {
+		if(ownSelection.isSelected(n)){
+			return true;
+		}
+		DefaultSequenceSelectionModel rangeColumns = getRangeColumns();
+		return rangeColumns != null && rangeColumns.isSelected(n);
+	}
+
+	public boolean hasSelection() {
+		if(ownSelection.hasSelection()){
+			return true;
+		}
+		DefaultSequenceSelectionModel rangeColumns = getRangeColumns();
+		return rangeColumns != null && rangeColumns.hasSelection();
+	}
+
+	/*
+	 * True if sequence has selected positions that are not part of the range selection
+	 */
+	public boolean hasOwnSelection() {
+		return ownSelection.hasSelection();
+	}
+
+	public boolean isAllSelected() {
+		if(ownSelection.isAllSelected()){
+			return true;
+		}
+		DefaultSequenceSelectionModel rangeColumns = getRangeColumns();
+		return rangeColumns != null && rangeColumns.isAllSelected();
+	}
+
+	public int getFirstSelectedPosition() {
+		return getReadModel().getFirstSelectedPosition();
+	}
+
+	public int getLastSelectedPosition(int seqLength) {
+		return getReadModel().getLastSelectedPosition(seqLength);
+	}
+
+	public int[] getSelectedPositions(int startIndex, int endIndex) {
+		return getReadModel().getSelectedPositions(startIndex, endIndex);
+	}
+
+	public int countSelectedPositions(int startIndex, int endIndex) {
+		return getReadModel().countSelectedPositions(startIndex, endIndex);
+	}
+
+	public int countPositionsUntilSelectedCount(int selectedCount) {
+		return getReadModel().countPositionsUntilSelectedCount(selectedCount);
+	}
+
+	public void clearAll() {
+		flattenIfInRangeSelection();
+		ownSelection.clearAll();
+	}
+
+	public void selectAll() {
+		ownSelection.selectAll();
+		ownSelectionAdded();
+	}
+
+	public void setSelectionAt(int i) {
+		ownSelection.setSelectionAt(i);
+		ownSelectionAdded();
+	}
+
+	public void clearSelectionAt(int i) {
+		flattenIfInRangeSelection();
+		ownSelection.clearSelectionAt(i);
+	}
+
+	public void setSelection(int startIndex, int endIndex, boolean clearFirst) {
+		if(clearFirst){
+			flattenIfInRangeSelection();
+		}
+		ownSelection.setSelection(startIndex, endIndex, clearFirst);
+		ownSelectionAdded();
+	}
+
+	public void clearSelection(int startIndex, int endIndex, boolean clearFirst) {
+		flattenIfInRangeSelection();
+		ownSelection.clearSelection(startIndex, endIndex, clearFirst);
+	}
+
+	public void insertNewPosAt(int n) {
+		flattenIfInRangeSelection();
+		ownSelection.insertNewPosAt(n);
+	}
+
+	public void removePosition(int index) {
+		flattenIfInRangeSelection();
+		ownSelection.removePosition(index);
+	}
+
+	public void rightPad(int length) {
+		ownSelection.rightPad(length);
+	}
+
+	public void leftPad(int length) {
+		flattenIfInRangeSelection();
+		ownSelection.leftPad(length);
+	}
+
+	public void invertSelection(int length) {
+		flattenIfInRangeSelection();
+		ownSelection.invertSelection(length);
+		ownSelectionAdded();
+	}
+
+}
@@ -24,7 +24,7 @@ public final class SequenceUtils {
 		return byteSeq;
 	}
 
-	public static int createID() {
+	public static synchronized int createID() {
 		//	logger.info("create ID=" + id_counter);
 		id_counter ++;
 		return id_counter;
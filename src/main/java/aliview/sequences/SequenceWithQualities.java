@@ -0,0 +1,17 @@
+package aliview.sequences;
+
+/*
+ *
+ * Sequence with base qualities (e.g. a read from a FASTQ file), qualities are phred scores
+ *
+ */
+public interface SequenceWithQualities {
+
+	public boolean hasQualities();
+
+	/*
+	 * Phred scores of positions startIndex to endIndexInclusive (cut at sequence end), null if no qualities
+	 */
+	public byte[] getQualities(int startIndex, int endIndexInclusive);
+
+}
@@ -35,6 +35,8 @@ public class GeneralSettingsPanel extends JPanel{
 	private JTextField txtLargeFileIndexingl;
 	private JTextField txtFontSize;
 	private JTextField txtMaxHistogramLargeFiles;
+	private JTextField txtParallelRealignJobs;
+	private JTextField txtAlignerCacheMaxMB;
 	private JCheckBox chckbxOverrideDefaultFont;
 
 	static JFrame parFrame;
@@ -44,9 +46,9 @@ public class GeneralSettingsPanel extends JPanel{
 		this.setBorder(new EmptyBorder(10, 10, 10, 10));
 		GridBagLayout gridBagLayout = new GridBagLayout();
 		gridBagLayout.columnWidths = new int[]{324, 100, 100, 0};
-		gridBagLayout.rowHeights = new int[]{23, 23, 23, 23, 0, 23, 0, 0, 23, 0, 0, 23, 23, 0};
+		gridBagLayout.rowHeights = new int[]{23, 23, 23, 23, 0, 23, 0, 0, 23, 0, 0, 23, 23, 23, 0};
 		gridBagLayout.columnWeights = new double[]{0.0, 1.0, 0.0, Double.MIN_VALUE};
-		gridBagLayout.rowWeights = new double[]{0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 1.0, 0.0, Double.MIN_VALUE};
+		gridBagLayout.rowWeights = new double[]{0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 1.0, 0.0, Double.MIN_VALUE};
 		setLayout(gridBagLayout);
 
 
@@ -242,12 +244,39 @@ public class GeneralSettingsPanel extends JPanel{
 
 
 		GridBagConstraints gbc_4 = new GridBagConstraints();
-		gbc_4.fill = GridBagConstraints.BOTH;
+		gbc_4.anchor = GridBagConstraints.WEST;
 		gbc_4.insets = new Insets(0, 0, 5, 5);
 		gbc_4.gridx = 0;
 		gbc_4.gridy = 11;
-		JLabel label_1 = new JLabel("");
-		add(label_1, gbc_4);
+		JLabel lblParallelRealignJobs = new JLabel("Number of aligners to run at the same time when realigning partitions");
+		add(lblParallelRealignJobs, gbc_4);
+
+		txtParallelRealignJobs = new JTextField();
+		txtParallelRealignJobs.setText("" + Settings.getParallelRealignJobs().getIntValue());
+		GridBagConstraints gbc_txtParallelRealignJobs = new GridBagConstraints();
+		gbc_txtParallelRealignJobs.insets = new Insets(0, 0, 5, 0);
+		gbc_txtParallelRealignJobs.fill = GridBagConstraints.HORIZONTAL;
+		gbc_txtParallelRealignJobs.gridx = 2;
+		gbc_txtParallelRealignJobs.gridy = 11;
+		add(txtParallelRealignJobs, gbc_txtParallelRealignJobs);
+
+		JLabel lblAlignerCacheMaxMB = new JLabel("Max size of aligner result cache in MB (0 = no cache)");
+		GridBagConstraints gbc_lblAlignerCacheMaxMB = new GridBagConstraints();
+		gbc_lblAlignerCacheMaxMB.anchor = GridBagConstraints.NORTHWEST;
+		gbc_lblAlignerCacheMaxMB.insets = new Insets(0, 0, 5, 5);
+		gbc_lblAlignerCacheMaxMB.gridx = 0;
+		gbc_lblAlignerCacheMaxMB.gridy = 12;
+		add(lblAlignerCacheMaxMB, gbc_lblAlignerCacheMaxMB);
+
+		txtAlignerCacheMaxMB = new JTextField();
+		txtAlignerCacheMaxMB.setText("" + Settings.getAlignerResultCacheMaxMB().getIntValue());
+		GridBagConstraints gbc_txtAlignerCacheMaxMB = new GridBagConstraints();
+		gbc_txtAlignerCacheMaxMB.anchor = GridBagConstraints.NORTH;
+		gbc_txtAlignerCacheMaxMB.insets = new Insets(0, 0, 5, 0);
+		gbc_txtAlignerCacheMaxMB.fill = GridBagConstraints.HORIZONTAL;
+		gbc_txtAlignerCacheMaxMB.gridx = 2;
+		gbc_txtAlignerCacheMaxMB.gridy = 12;
+		add(txtAlignerCacheMaxMB, gbc_txtAlignerCacheMaxMB);
 
 		JButton btnHelp = new JButton("Help");
 		btnHelp.setPreferredSize(new Dimension(100,30));
@@ -260,7 +289,7 @@ public class GeneralSettingsPanel extends JPanel{
 		gbc_btnHelp.anchor = GridBagConstraints.WEST;
 		gbc_btnHelp.insets = new Insets(0, 0, 0, 5);
 		gbc_btnHelp.gridx = 0;
-		gbc_btnHelp.gridy = 12;
+		gbc_btnHelp.gridy = 13;
 		add(btnHelp, gbc_btnHelp);
 
 
@@ -275,7 +304,7 @@ public class GeneralSettingsPanel extends JPanel{
 		gbc_btnCancel.anchor = GridBagConstraints.EAST;
 		gbc_btnCancel.insets = new Insets(0, 0, 0, 5);
 		gbc_btnCancel.gridx = 1;
-		gbc_btnCancel.gridy = 12;
+		gbc_btnCancel.gridy = 13;
 		add(btnCancel, gbc_btnCancel);
 		JButton btnOk = new JButton("OK");
 		btnOk.setPreferredSize(new Dimension(100, 30));
@@ -289,7 +318,7 @@ public class GeneralSettingsPanel extends JPanel{
 		gbc_btnOk.anchor = GridBagConstraints.EAST;
 		gbc_btnOk.fill = GridBagConstraints.VERTICAL;
 		gbc_btnOk.gridx = 2;
-		gbc_btnOk.gridy = 12;
+		gbc_btnOk.gridy = 13;
 		add(btnOk, gbc_btnOk);
 
 	}
@@ -348,6 +377,20 @@ public class GeneralSettingsPanel extends JPanel{
 			e.printStackTrace();
 		}
 
+		try {
+			Settings.getParallelRealignJobs().putIntValue(Integer.parseInt(txtParallelRealignJobs.getText()));
+		} catch (NumberFormatException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+
+		try {
+			Settings.getAlignerResultCacheMaxMB().putIntValue(Integer.parseInt(txtAlignerCacheMaxMB.getText()));
+		} catch (NumberFormatException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+
 		try {
 			Settings.getHorizontalScrollModifier().putIntValue(Integer.parseInt(txtHWheelMod.getText()));
 		} catch (NumberFormatException e) {
@@ -62,6 +62,8 @@ public class Settings {
 	private static SettingValue verticalMouseWheelScrollModifier = new SettingValue("VERTICALMOUSEWHEELSCROLLMODIFIER", 20,1,100);
 	private static SettingValue largeFileIndexing = new SettingValue("LARGE_FILE_INDEXING", 100000,10,100000000);
 	private static SettingValue maxFileHistogramSequences = new SettingValue("MAX_FILE_HISTOGRAM_SEQUENCES", 1000,10,1000000);
+	private static SettingValue alignerResultCacheMaxMB = new SettingValue("ALIGNER_RESULT_CACHE_MAX_MB", 200, 0, 100000);
+	private static SettingValue parallelRealignJobs = new SettingValue("PARALLEL_REALIGN_JOBS", Math.max(1, Runtime.getRuntime().availableProcessors()), 1, 256);
 
 	private static final String LOGFILE_NAME = "AliView.log";
 	private static final String ALIVIEW_USERDATA_SUBDIR = ".AliView";
@@ -484,7 +486,7 @@ public class Settings {
 			CommandItem MAC_DEFAULT_ALL_ALIGNER_ITEM_1 = new CommandItem("Muscle", MuscleWrapper.getMusclePath().getAbsolutePath(), "-in CURRENT_ALIGNMENT_FASTA -out TEMP_OUT_FILE", true, true);
 			CommandItem MAC_DEFAULT_ALL_ALIGNER_ITEM_2 = new CommandItem("Mafft-localpair", "/usr/local/bin/mafft", "--localpair --reorder --maxiterate 1000 --out TEMP_OUT_FILE CURRENT_ALIGNMENT_FASTA", false,true);
 			CommandItem MAC_DEFAULT_ALL_ALIGNER_ITEM_3 = new CommandItem("Mafft-globalpair", "/usr/local/bin/mafft", "--globalpair --thread 2 --out TEMP_OUT_FILE CURRENT_ALIGNMENT_FASTA", false,true);
-			CommandItem MAC_DEFAULT_ALL_ALIGNER_ITEM_4 = new CommandItem("", "", "", false,true);
+			CommandItem MAC_DEFAULT_ALL_ALIGNER_ITEM_4 = new CommandItem("Mafft-stdin-stdout", "/usr/local/bin/mafft", "--auto --thread 2 ALIGNMENT_STDIN ALIGNMENT_STDOUT", false,true);
 			CommandItem MAC_DEFAULT_ALL_ALIGNER_ITEM_5 = new CommandItem("", "", "", false,true);
 			CommandItem[] MAC_ALIGNER_ALL_ITEM_DEFAULTS = new CommandItem[]{MAC_DEFAULT_ALL_ALIGNER_ITEM_1, MAC_DEFAULT_ALL_ALIGNER_ITEM_2, MAC_DEFAULT_ALL_ALIGNER_ITEM_3, MAC_DEFAULT_ALL_ALIGNER_ITEM_4, MAC_DEFAULT_ALL_ALIGNER_ITEM_5};
 			return MAC_ALIGNER_ALL_ITEM_DEFAULTS;
@@ -492,7 +494,7 @@ public class Settings {
 			CommandItem WIN_DEFAULT_ALL_ALIGNER_ITEM_1 = new CommandItem("Muscle", MuscleWrapper.getMusclePath().getAbsolutePath(), "-in CURRENT_ALIGNMENT_FASTA -out TEMP_OUT_FILE", true, true);
 			CommandItem WIN_DEFAULT_ALL_ALIGNER_ITEM_2 = new CommandItem("Mafft", "cmd.exe", "/C \"C:\\Program Files\\mafft-win\\mafft.bat\" --localpair --reorder --maxiterate 1000 --out TEMP_OUT_FILE CURRENT_ALIGNMENT_FASTA", false,true);
 			CommandItem WIN_DEFAULT_ALL_ALIGNER_ITEM_3 = new CommandItem("Mafft--globalpair", "cmd.exe", "/C \"C:\\Program Files\\mafft-win\\mafft.bat\" --globalpair --thread 2 --out TEMP_OUT_FILE CURRENT_ALIGNMENT_FASTA", false,true);
-			CommandItem WIN_DEFAULT_ALL_ALIGNER_ITEM_4 = new CommandItem("", "", "", false,true);
+			CommandItem WIN_DEFAULT_ALL_ALIGNER_ITEM_4 = new CommandItem("Mafft-stdin-stdout", "cmd.exe", "/C \"C:\\Program Files\\mafft-win\\mafft.bat\" --auto --thread 2 ALIGNMENT_STDIN ALIGNMENT_STDOUT", false,true);
 			CommandItem WIN_DEFAULT_ALL_ALIGNER_ITEM_5 = new CommandItem("", "", "", false,true);
 			CommandItem[] WIN_ALIGNER_ALL_ITEM_DEFAULTS = new CommandItem[]{WIN_DEFAULT_ALL_ALIGNER_ITEM_1, WIN_DEFAULT_ALL_ALIGNER_ITEM_2, WIN_DEFAULT_ALL_ALIGNER_ITEM_3, WIN_DEFAULT_ALL_ALIGNER_ITEM_4, WIN_DEFAULT_ALL_ALIGNER_ITEM_5};
 			return WIN_ALIGNER_ALL_ITEM_DEFAULTS;
@@ -500,7 +502,7 @@ public class Settings {
 			CommandItem DEFAULT_ALL_ALIGNER_ITEM_1 = new CommandItem("Muscle", MuscleWrapper.getMusclePath().getAbsolutePath(), "-in CURRENT_ALIGNMENT_FASTA -out TEMP_OUT_FILE", true, true);
 			CommandItem DEFAULT_ALL_ALIGNER_ITEM_2 = new CommandItem("Mafft", "mafft", "--localpair --reorder --maxiterate 1000 --out TEMP_OUT_FILE CURRENT_ALIGNMENT_FASTA", false,true);
 			CommandItem DEFAULT_ALL_ALIGNER_ITEM_3 = new CommandItem("Mafft", "mafft", "--globalpair --thread 2 --out TEMP_OUT_FILE CURRENT_ALIGNMENT_FASTA", false,true);
-			CommandItem DEFAULT_ALL_ALIGNER_ITEM_4 = new CommandItem("", "", "", false,true);
+			CommandItem DEFAULT_ALL_ALIGNER_ITEM_4 = new CommandItem("Mafft-stdin-stdout", "mafft", "--auto --thread 2 ALIGNMENT_STDIN ALIGNMENT_STDOUT", false,true);
 			CommandItem DEFAULT_ALL_ALIGNER_ITEM_5 = new CommandItem("", "", "", false,true);
 			CommandItem[] ALIGNER_ALL_ITEM_DEFAULTS = new CommandItem[]{DEFAULT_ALL_ALIGNER_ITEM_1, DEFAULT_ALL_ALIGNER_ITEM_2, DEFAULT_ALL_ALIGNER_ITEM_3, DEFAULT_ALL_ALIGNER_ITEM_4, DEFAULT_ALL_ALIGNER_ITEM_5};
 			return ALIGNER_ALL_ITEM_DEFAULTS;
@@ -766,6 +768,14 @@ public class Settings {
 		return maxFileHistogramSequences;
 	}
 
+	public static SettingValue getParallelRealignJobs() {
+		return parallelRealignJobs;
+	}
+
+	public static SettingValue getAlignerResultCacheMaxMB() {
+		return alignerResultCacheMaxMB;
+	}
+
 	public static String getAliViewHelpWebPage() {
 		return ALIVIEW_HELP_URL;
 	}
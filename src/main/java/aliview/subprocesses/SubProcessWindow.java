@@ -22,6 +22,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import org.apache.log4j.Logger;
 
@@ -38,10 +39,16 @@ public class SubProcessWindow{
 	private Process subProcess;
 	private JTextArea consoleTextArea;
 	//JScrollPane scrollPane;
-	private boolean subProcessDestrouedByUser = false;
+	private volatile boolean subProcessDestrouedByUser = false;
 	private Dimension preferredSize = new Dimension(500,350);
 	private JFrame parentFrame;
 	private JCheckBox closeAutomaticCbx = new JCheckBox("Default checkbox message");
+	// Console keeps only the end of output, verbose sub processes can write hundreds of thousands of lines
+	private static final int MAX_CONSOLE_CHARS = 500 * 1000;
+	private static final int CONSOLE_UPDATE_INTERVAL_MILLIS = 100;
+	private final StringBuilder pendingOutput = new StringBuilder();
+	private boolean isConsoleUpdateScheduled;
+	private Timer consoleUpdateTimer;
 
 	public SubProcessWindow(JFrame parentFrame){
 		init(parentFrame, false);
@@ -74,6 +81,12 @@ public class SubProcessWindow{
 		dialog = new JDialog(parentFrame);
 
 		consoleTextArea = new JTextArea();
+		consoleUpdateTimer = new Timer(CONSOLE_UPDATE_INTERVAL_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				flushPendingOutput();
+			}
+		});
+		consoleUpdateTimer.setRepeats(false);
 		JScrollPane scrollPane = new JScrollPane(consoleTextArea, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 
 		dialog.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
@@ -157,9 +170,23 @@ public class SubProcessWindow{
 		return subProcessDestrouedByUser;
 	}
 
-	public void setActiveProcess(Process subProcess){
-		this.subProcess = subProcess;	
-	}	
+	public synchronized void setActiveProcess(Process subProcess){
+		this.subProcess = subProcess;
+		// cancelled before process was started
+		if(subProcessDestrouedByUser && subProcess != null){
+			subProcess.destroy();
+		}
+	}
+
+	/*
+	 * Cancel without window (e.g. one of several jobs), process is destroyed also if it is not started yet
+	 */
+	public synchronized void destroyActiveProcess(){
+		subProcessDestrouedByUser = true;
+		if(subProcess != null){
+			subProcess.destroy();
+		}
+	}
 
 	public void placeFrameupperLeftLocationOfThis(Component parent){
 		if(parent != null){
@@ -170,14 +197,42 @@ public class SubProcessWindow{
 	}	
 
 
+	/*
+	 * Output is collected and added to console in batches (at most every CONSOLE_UPDATE_INTERVAL_MILLIS)
+	 * so that sub processes writing many lines are not flooding the EDT
+	 */
 	public void appendOutput(final String output){
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				consoleTextArea.append(output);
-				// Make it scroll to end
-				consoleTextArea.setCaretPosition(consoleTextArea.getDocument().getLength());
+		if(consoleUpdateTimer == null){
+			return;
+		}
+		synchronized(pendingOutput){
+			pendingOutput.append(output);
+			// no need to keep more than console can show
+			if(pendingOutput.length() > MAX_CONSOLE_CHARS){
+				pendingOutput.delete(0, pendingOutput.length() - MAX_CONSOLE_CHARS);
 			}
-		});
+			if(! isConsoleUpdateScheduled){
+				isConsoleUpdateScheduled = true;
+				consoleUpdateTimer.start();
+			}
+		}
+	}
+
+	private void flushPendingOutput(){
+		String output;
+		synchronized(pendingOutput){
+			output = pendingOutput.toString();
+			pendingOutput.setLength(0);
+			isConsoleUpdateScheduled = false;
+		}
+		consoleTextArea.append(output);
+		// Remove start of console when it is full (ring buffer)
+		int excess = consoleTextArea.getDocument().getLength() - MAX_CONSOLE_CHARS;
+		if(excess > 0){
+			consoleTextArea.replaceRange("", 0, excess);
+		}
+		// Make it scroll to end
+		consoleTextArea.setCaretPosition(consoleTextArea.getDocument().getLength());
 	}
 
 	public void setMessage(final String output){
@@ -185,6 +240,10 @@ public class SubProcessWindow{
 	}
 
 	public void setOutput(final String output){
+		// output waiting to be appended is replaced by this one
+		synchronized(pendingOutput){
+			pendingOutput.setLength(0);
+		}
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
 				consoleTextArea.setText(output);
@@ -167,6 +167,10 @@ public class SubThreadProgressWindow{
 	}
 
 	public void setMessage(final String output){
+		// created without window (only to keep track of thread)
+		if(consoleTextArea == null){
+			return;
+		}
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
 				consoleTextArea.setText(output);
@@ -177,6 +181,9 @@ public class SubThreadProgressWindow{
 	}
 
 	public void setOutput(final String output){
+		if(consoleTextArea == null){
+			return;
+		}
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
 				consoleTextArea.setText(output);
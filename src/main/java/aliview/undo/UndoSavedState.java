@@ -2,6 +2,38 @@ package aliview.undo;
 
 import java.util.List;
 
+import aliview.sequences.Sequence;
+
 public abstract class UndoSavedState {
+	// rough size of a sequence object besides its residues and name
+	private static final int SEQUENCE_OVERHEAD_BYTES = 64;
+	private static final int REFERENCE_BYTES = 8;
+
+	/*
+	 * Estimated memory held by this state (for the performance metrics, not exact)
+	 */
+	public long getEstimatedSize(){
+		return 0;
+	}
+
+	protected static long estimateSequencesSize(Iterable<Sequence> sequences){
+		long size = 0;
+		if(sequences != null){
+			for(Sequence seq: sequences){
+				size += SEQUENCE_OVERHEAD_BYTES + seq.getLength();
+				if(seq.getName() != null){
+					size += 2 * seq.getName().length();
+				}
+			}
+		}
+		return size;
+	}
+
+	protected static long estimateReferencesSize(List<Sequence> sequences){
+		if(sequences == null){
+			return 0;
+		}
+		return (long) REFERENCE_BYTES * sequences.size();
+	}
 
 }
@@ -14,4 +14,9 @@ public class UndoSavedStateEditedSequences extends UndoSavedState{
 		this.meta = meta;
 	}
 
+	@Override
+	public long getEstimatedSize(){
+		return estimateSequencesSize(editedSequences);
+	}
+
 }
@@ -22,4 +22,15 @@ public class UndoSavedStateEverything extends UndoSavedState{
 		this.sequences = copy;
 		this.meta = meta;
 	}
+
+	@Override
+	public long getEstimatedSize(){
+		if(sequences != null){
+			return estimateSequencesSize(sequences);
+		}
+		if(fastaAlignment != null){
+			return 2L * fastaAlignment.length();
+		}
+		return 0;
+	}
 }
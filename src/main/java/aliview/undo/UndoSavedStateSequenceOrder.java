@@ -14,4 +14,10 @@ public class UndoSavedStateSequenceOrder extends UndoSavedState{
 		this.sequencesBackend = sequencesBackendCopy;
 		this.meta = meta;
 	}
+
+	// sequences are shared with the alignment, only the list is held by this state
+	@Override
+	public long getEstimatedSize(){
+		return estimateReferencesSize(sequencesBackend);
+	}
 }
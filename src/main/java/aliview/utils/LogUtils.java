@@ -0,0 +1,197 @@
+package aliview.utils;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.AsyncAppender;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.AppenderAttachable;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+/*
+ *
+ * Logging setup at runtime. Appenders of log4j.properties are moved behind an AsyncAppender (bounded
+ * buffer) so writing to console and file is done in a separate thread and not by e.g. the paint thread.
+ *
+ * Logging in hot paths (paint, list model events, per sequence loops) is guarded by isDiagnostic() so
+ * the messages are not even created in normal use, diagnostic is on in debug mode and when tracing to file
+ *
+ * Before the log file is read (Message log window) the async buffer is flushed: a marker event is sent
+ * through the AsyncAppender and the caller waits until it has been dispatched (the marker is not written).
+ *
+ */
+public class LogUtils {
+	private static final Logger logger = Logger.getLogger(LogUtils.class);
+	public static final String DEFAULT_PATTERN = "%-5p %d{ISO8601} %-20.30c{1} %x - %m%n";
+	// line numbers (%L) are found by creating a stack trace for every event, only used when tracing
+	public static final String TRACE_PATTERN = "%-5p %d{ISO8601} %-20.30c{1} %x %L - %m%n";
+	private static final int ASYNC_BUFFER_SIZE = 512;
+	private static final String ASYNC_APPENDER_NAME = "async";
+	private static final long FLUSH_TIMEOUT_MILLIS = 2000;
+	private static volatile boolean diagnostic;
+	private static volatile boolean traceToFile;
+	private static Level levelBeforeTrace;
+
+	public static boolean isDiagnostic() {
+		return diagnostic;
+	}
+
+	public static void setDiagnostic(boolean diagnostic) {
+		LogUtils.diagnostic = diagnostic;
+	}
+
+	/*
+	 * Moves all appenders of root logger into one AsyncAppender, calling this again does nothing
+	 */
+	public static synchronized void installAsyncAppender(){
+		Logger root = Logger.getRootLogger();
+		if(root.getAppender(ASYNC_APPENDER_NAME) != null){
+			return;
+		}
+		List<Appender> appenders = new ArrayList<Appender>();
+		Enumeration allAppenders = root.getAllAppenders();
+		while(allAppenders.hasMoreElements()){
+			appenders.add((Appender) allAppenders.nextElement());
+		}
+		if(appenders.isEmpty()){
+			return;
+		}
+		AsyncAppender async = new AsyncAppender();
+		async.setName(ASYNC_APPENDER_NAME);
+		async.setBufferSize(ASYNC_BUFFER_SIZE);
+		async.setLocationInfo(traceToFile);
+		for(Appender appender: appenders){
+			root.removeAppender(appender);
+			appender.addFilter(new DenyFlushMarkerFilter());
+			async.addAppender(appender);
+		}
+		async.addAppender(new FlushMarkerAppender());
+		root.addAppender(async);
+	}
+
+	/*
+	 * Returns when all events logged before this call have been written by the appenders behind the
+	 * AsyncAppender (or after a timeout), does nothing if no AsyncAppender is installed
+	 */
+	public static void flushAsyncAppender(){
+		Logger root = Logger.getRootLogger();
+		Appender async = root.getAppender(ASYNC_APPENDER_NAME);
+		if(async == null){
+			return;
+		}
+		FlushMarker marker = new FlushMarker();
+		async.doAppend(new LoggingEvent(LogUtils.class.getName(), root, Level.INFO, marker, null));
+		try {
+			if(! marker.dispatched.await(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)){
+				logger.warn("Timeout while flushing log buffer");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * FileAppenders of a logger, also the ones behind an AsyncAppender
+	 */
+	public static List<FileAppender> getFileAppenders(AppenderAttachable attachable){
+		List<FileAppender> fileAppenders = new ArrayList<FileAppender>();
+		addFileAppenders(attachable, fileAppenders);
+		return fileAppenders;
+	}
+
+	private static void addFileAppenders(AppenderAttachable attachable, List<FileAppender> fileAppenders){
+		Enumeration allAppenders = attachable.getAllAppenders();
+		while(allAppenders != null && allAppenders.hasMoreElements()){
+			Object appender = allAppenders.nextElement();
+			if(appender instanceof FileAppender){
+				fileAppenders.add((FileAppender) appender);
+			}
+			else if(appender instanceof AsyncAppender){
+				addFileAppenders((AsyncAppender) appender, fileAppenders);
+			}
+		}
+	}
+
+	public static boolean isTraceToFile() {
+		return traceToFile;
+	}
+
+	/*
+	 * Everything (also hot paths) is logged with line numbers, turned off level is set back
+	 */
+	public static synchronized void setTraceToFile(boolean trace, boolean debugMode){
+		if(trace == traceToFile){
+			return;
+		}
+		Logger root = Logger.getRootLogger();
+		if(trace){
+			levelBeforeTrace = root.getLevel();
+			root.setLevel(Level.ALL);
+		}else if(levelBeforeTrace != null){
+			root.setLevel(levelBeforeTrace);
+		}
+		traceToFile = trace;
+		diagnostic = trace || debugMode;
+		setLayoutPattern(root, trace ? TRACE_PATTERN : DEFAULT_PATTERN);
+		logger.info("Trace to file " + (trace ? "on" : "off"));
+	}
+
+	private static void setLayoutPattern(AppenderAttachable attachable, String pattern){
+		Enumeration allAppenders = attachable.getAllAppenders();
+		while(allAppenders.hasMoreElements()){
+			Appender appender = (Appender) allAppenders.nextElement();
+			if(appender instanceof AsyncAppender){
+				((AsyncAppender) appender).setLocationInfo(traceToFile);
+				setLayoutPattern((AsyncAppender) appender, pattern);
+			}
+			// console keeps its pattern, only file is traced
+			else if(appender instanceof FileAppender){
+				appender.setLayout(new PatternLayout(pattern));
+			}
+		}
+	}
+
+	private static class FlushMarker{
+		final CountDownLatch dispatched = new CountDownLatch(1);
+	}
+
+	/*
+	 * Last appender behind the AsyncAppender, releases the thread waiting for a flush
+	 */
+	private static class FlushMarkerAppender extends AppenderSkeleton{
+		protected void append(LoggingEvent event) {
+			if(event.getMessage() instanceof FlushMarker){
+				((FlushMarker) event.getMessage()).dispatched.countDown();
+			}
+		}
+
+		public boolean requiresLayout() {
+			return false;
+		}
+
+		public void close() {
+		}
+	}
+
+	/*
+	 * Flush markers are not written by the real appenders
+	 */
+	private static class DenyFlushMarkerFilter extends Filter{
+		public int decide(LoggingEvent event) {
+			if(event.getMessage() instanceof FlushMarker){
+				return Filter.DENY;
+			}
+			return Filter.NEUTRAL;
+		}
+	}
+
+}
@@ -67,6 +67,13 @@ public class CharSets implements Iterable<CharSet>{
 		Collections.sort(backend);
 	}
 
+	public void remapPositions(PositionRemap remap) {
+		for(CharSet charset: backend){
+			charset.remapPositions(remap);
+		}
+		Collections.sort(backend);
+	}
+
 	public ArrayList<CharSet> getIntersected(Rectangle selection) {
 		ArrayList<CharSet> intersects = new ArrayList<CharSet>();
 		if(selection == null){
@@ -241,6 +241,11 @@ public class CodonPositions{
 		positionsUpdated();
 	}
 
+	public void remapPositions(PositionRemap remap) {
+		this.codonRanges.remapPositions(remap);
+		positionsUpdated();
+	}
+
 	public boolean isAnythingButDefault() {
 		return codonRanges.isAnythingButDefault();
 	}
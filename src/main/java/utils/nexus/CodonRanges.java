@@ -62,6 +62,10 @@ public class CodonRanges{
 		backend.insertPosition(n);
 	}
 
+	public void remapPositions(PositionRemap remap) {
+		backend.remapPositions(remap);
+	}
+
 
 	public void setBackend(Ranges allRanges) {
 		backend = allRanges;
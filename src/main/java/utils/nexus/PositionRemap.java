@@ -0,0 +1,118 @@
+package utils.nexus;
+
+/*
+ *
+ * New start and end of ranges when many alignment columns are deleted or inserted at once, built from the
+ * mask once (prefix sums) so all ranges are moved in one pass instead of one pass per column.
+ *
+ * Result is the same as calling Ranges.deletePosition for every deleted column (from last to first) or
+ * Ranges.insertPosition for every inserted column (from first to last): a deleted start column moves start
+ * to next column, and columns inserted right before a range start are included in the range.
+ *
+ */
+public class PositionRemap {
+	private final boolean insert;
+	// delete: number of deleted columns <= index, insert: new position of old column at index
+	private final int[] prefix;
+	private final int total;
+
+	private PositionRemap(boolean insert, int[] prefix, int total) {
+		this.insert = insert;
+		this.prefix = prefix;
+		this.total = total;
+	}
+
+	/*
+	 * Mask is in old positions, true = column is deleted
+	 */
+	public static PositionRemap fromDeleteMask(boolean[] deleteMask){
+		int[] deletedUpTo = new int[deleteMask.length];
+		int count = 0;
+		for(int n = 0; n < deleteMask.length; n++){
+			if(deleteMask[n]){
+				count ++;
+			}
+			deletedUpTo[n] = count;
+		}
+		return new PositionRemap(false, deletedUpTo, count);
+	}
+
+	/*
+	 * Mask is in new positions, true = column is inserted (columns after end of mask are not)
+	 */
+	public static PositionRemap fromInsertMask(boolean[] insertMask){
+		int[] newPositions = new int[insertMask.length];
+		int kept = 0;
+		for(int n = 0; n < insertMask.length; n++){
+			if(! insertMask[n]){
+				newPositions[kept] = n;
+				kept ++;
+			}
+		}
+		int[] trimmed = new int[kept];
+		System.arraycopy(newPositions, 0, trimmed, 0, kept);
+		return new PositionRemap(true, trimmed, insertMask.length - kept);
+	}
+
+	/*
+	 * count columns deleted starting at first
+	 */
+	public static PositionRemap fromDeletedColumns(int first, int count){
+		boolean[] deleteMask = new boolean[first + count];
+		for(int n = first; n < first + count; n++){
+			deleteMask[n] = true;
+		}
+		return fromDeleteMask(deleteMask);
+	}
+
+	/*
+	 * count columns inserted at pos (same as calling Ranges.insertPosition(pos) count times)
+	 */
+	public static PositionRemap fromInsertedColumns(int pos, int count){
+		boolean[] insertMask = new boolean[pos + count];
+		for(int n = pos; n < pos + count; n++){
+			insertMask[n] = true;
+		}
+		return fromInsertMask(insertMask);
+	}
+
+	public boolean isEmpty(){
+		return total == 0;
+	}
+
+	public int getNewStart(int start){
+		if(insert){
+			return start <= 0 ? start : getNewInsertPos(start - 1) + 1;
+		}
+		return start - getDeletedUpTo(start - 1);
+	}
+
+	public int getNewEnd(int end){
+		if(insert){
+			return getNewInsertPos(end);
+		}
+		return end - getDeletedUpTo(end);
+	}
+
+	private int getDeletedUpTo(int pos){
+		if(pos < 0){
+			return 0;
+		}
+		if(pos < prefix.length){
+			return prefix[pos];
+		}
+		return total;
+	}
+
+	private int getNewInsertPos(int pos){
+		if(pos < 0){
+			return pos;
+		}
+		if(pos < prefix.length){
+			return prefix[pos];
+		}
+		// after mask nothing more is inserted
+		return pos + total;
+	}
+
+}
@@ -282,6 +282,23 @@ public class Ranges implements Iterable<Range> {
 		}
 	}
 	
+	/*
+	 * Many deleted or inserted positions at once
+	 */
+	public void remapPositions(PositionRemap remap) {
+		if(remap.isEmpty()){
+			return;
+		}
+		for(Range range: backend){
+			int newStart = remap.getNewStart(range.start);
+			range.end = remap.getNewEnd(range.end);
+			range.start = newStart;
+		}
+
+		// and remove 0-length ones
+		removeZeroLengthOnes();
+	}
+
 	public void set(int pos, boolean boolVal){
 		if(boolVal == true){
 			addRange(new Range(pos, pos, 0));
@@ -0,0 +1,62 @@
+package aliview.alignment;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class DistanceMatrixTest {
+	private static final String LF = System.getProperty("line.separator");
+
+	@Test
+	public void testLowerTriangleIndexing() {
+		DistanceMatrix matrix = new DistanceMatrix(new String[]{"a", "b", "c", "d"});
+		float value = 0.1f;
+		for(int row = 0; row < 4; row++){
+			for(int col = 0; col < row; col++){
+				matrix.setDistance(row, col, value);
+				value += 0.1f;
+			}
+		}
+		assertEquals(0.1f, matrix.getDistance(1, 0), 0);
+		assertEquals(0.1f, matrix.getDistance(0, 1), 0);
+		assertEquals(matrix.getDistance(3, 1), matrix.getDistance(1, 3), 0);
+		assertEquals(matrix.getDistance(2, 1) + 0.1f, matrix.getDistance(3, 0), 1e-6f);
+		assertEquals(0f, matrix.getDistance(3, 3), 0);
+		assertEquals(1f, matrix.getIdentity(2, 2), 0);
+	}
+
+	@Test
+	public void testAppendValue() {
+		assertEquals("0.333333", appendValue(1/3f));
+		assertEquals("1.000000", appendValue(1f));
+		assertEquals("0.000050", appendValue(0.00005f));
+		assertEquals("NaN", appendValue(Float.NaN));
+	}
+
+	@Test
+	public void testWritePhylipAndCSV() throws Exception {
+		DistanceMatrix matrix = new DistanceMatrix(new String[]{"first", "b,\"c\""});
+		matrix.setDistance(1, 0, 0.25f);
+
+		StringWriter phylip = new StringWriter();
+		matrix.writePhylip(phylip, false);
+		assertEquals("    2" + LF +
+				"first      0.000000 0.250000" + LF +
+				"b,\"c\"      0.250000 0.000000" + LF, phylip.toString());
+
+		StringWriter csv = new StringWriter();
+		matrix.writeCSV(csv, true);
+		assertEquals(",first,\"b,\"\"c\"\"\"" + LF +
+				"first,1.000000,0.750000" + LF +
+				"\"b,\"\"c\"\"\",0.750000,1.000000" + LF, csv.toString());
+	}
+
+	private static String appendValue(float value){
+		StringBuilder line = new StringBuilder();
+		DistanceMatrix.appendValue(line, value);
+		return line.toString();
+	}
+
+}
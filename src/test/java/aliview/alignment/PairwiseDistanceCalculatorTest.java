@@ -0,0 +1,109 @@
+package aliview.alignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import aliview.AminoAcid;
+import aliview.NucleotideUtilities;
+import aliview.sequences.FastFastaSequence;
+import aliview.sequences.Sequence;
+
+public class PairwiseDistanceCalculatorTest {
+	private static final float DELTA = 1e-6f;
+
+	@Test
+	public void testNucleotideKnownAnswers() {
+		List<Sequence> seqs = new ArrayList<Sequence>();
+		seqs.add(new FastFastaSequence("seq0", "ACGTACGT"));
+		// gap at last position is not compared, T/A differs
+		seqs.add(new FastFastaSequence("seq1", "ACGAACG-"));
+		// ambiguity codes are only equal to the same code
+		seqs.add(new FastFastaSequence("seq2", "RCGTNNGT"));
+		// nothing to compare
+		seqs.add(new FastFastaSequence("seq3", "--------"));
+		// unknown residues are not compared
+		seqs.add(new FastFastaSequence("seq4", "RCXXXXGT"));
+
+		DistanceMatrix matrix = new PairwiseDistanceCalculator(false).calculate(seqs, 2, true, null);
+
+		assertEquals(5, matrix.getSize());
+		assertEquals("seq2", matrix.getName(2));
+		assertEquals(1/7f, matrix.getDistance(1, 0), DELTA);
+		assertEquals(3/8f, matrix.getDistance(2, 0), DELTA);
+		assertEquals(4/7f, matrix.getDistance(2, 1), DELTA);
+		assertTrue(Float.isNaN(matrix.getDistance(3, 0)));
+		assertTrue(Float.isNaN(matrix.getDistance(3, 2)));
+		assertEquals(0f, matrix.getDistance(4, 2), DELTA);
+		assertEquals(1/4f, matrix.getDistance(4, 0), DELTA);
+		assertEquals(0f, matrix.getDistance(2, 2), DELTA);
+		assertEquals(1 - 3/8f, matrix.getIdentity(0, 2), DELTA);
+	}
+
+	@Test
+	public void testAminoAcidKnownAnswers() {
+		List<Sequence> seqs = new ArrayList<Sequence>();
+		seqs.add(new FastFastaSequence("seq0", "MKV-X*"));
+		seqs.add(new FastFastaSequence("seq1", "MRVLL*"));
+
+		DistanceMatrix matrix = new PairwiseDistanceCalculator(true).calculate(seqs, 1, false, null);
+
+		// gap and X are not compared, K/R differs
+		assertEquals(1/4f, matrix.getDistance(0, 1), DELTA);
+	}
+
+	/*
+	 * More sequences than one tile and longer than one 64 position word, with different lengths
+	 */
+	@Test
+	public void testSameAsPositionByPosition() {
+		Random random = new Random(45);
+		byte[] residues = "ACGTRYNacgt-?X".getBytes();
+		List<Sequence> seqs = new ArrayList<Sequence>();
+		for(int n = 0; n < 75; n++){
+			byte[] bases = new byte[100 + random.nextInt(100)];
+			for(int pos = 0; pos < bases.length; pos++){
+				bases[pos] = residues[random.nextInt(residues.length)];
+			}
+			seqs.add(new FastFastaSequence("seq" + n, bases));
+		}
+		PairwiseDistanceCalculator calculator = new PairwiseDistanceCalculator(false);
+
+		DistanceMatrix matrix = calculator.calculate(seqs, 3, true, null);
+		float[] toFirst = calculator.calculateDistancesTo(seqs.get(0), seqs, 3, true);
+
+		for(int row = 0; row < seqs.size(); row++){
+			for(int col = 0; col < seqs.size(); col++){
+				float expected = row == col ? 0 : countNucleotideDistance(seqs.get(row), seqs.get(col));
+				assertEquals(row + "," + col, expected, matrix.getDistance(row, col), DELTA);
+			}
+			assertEquals(matrix.getDistance(0, row), toFirst[row], DELTA);
+		}
+	}
+
+	private static float countNucleotideDistance(Sequence seq1, Sequence seq2){
+		int compared = 0;
+		int different = 0;
+		for(int pos = 0; pos < Math.min(seq1.getLength(), seq2.getLength()); pos++){
+			int val1 = NucleotideUtilities.baseValFromBase(seq1.getBaseAtPos(pos));
+			int val2 = NucleotideUtilities.baseValFromBase(seq2.getBaseAtPos(pos));
+			if(isCompared(val1) && isCompared(val2)){
+				compared ++;
+				if(val1 != val2){
+					different ++;
+				}
+			}
+		}
+		return compared == 0 ? Float.NaN : different / (float) compared;
+	}
+
+	private static boolean isCompared(int baseVal){
+		return baseVal != NucleotideUtilities.GAP && baseVal != NucleotideUtilities.UNKNOWN;
+	}
+
+}
@@ -0,0 +1,53 @@
+package aliview.importer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FastqFileIndexerTest {
+	// second record starts at 16, quality line of first record at 11 starts with @
+	private static final String FASTQ = "@r1\nACGT\n+\n@@@@\n" + "@r2\nAC\n+\nII\n" + "@r3\nAC";
+
+	/*
+	 * Reads from a byte array instead of a mapped file
+	 */
+	private static FastqFileIndexer.BlockReader createReader(String text){
+		final byte[] bytes = text.getBytes();
+		return new FastqFileIndexer.BlockReader(null, bytes.length){
+			int get(long pos){
+				if(pos < 0 || pos >= bytes.length){
+					return -1;
+				}
+				return bytes[(int) pos];
+			}
+		};
+	}
+
+	private static long findRecordStart(long from, long limit){
+		return FastqFileIndexer.findRecordStart(createReader(FASTQ), from, limit);
+	}
+
+	@Test
+	public void testRecordStarts() {
+		int length = FASTQ.length();
+		assertEquals(0, findRecordStart(0, length));
+		assertEquals(16, findRecordStart(16, length));
+		// from inside a record
+		assertEquals(16, findRecordStart(1, length));
+		assertEquals(16, findRecordStart(5, length));
+	}
+
+	@Test
+	public void testQualityLineStartingWithAt() {
+		assertEquals(16, findRecordStart(11, FASTQ.length()));
+		assertEquals(16, findRecordStart(12, FASTQ.length()));
+	}
+
+	@Test
+	public void testNoRecordBeforeLimit() {
+		assertEquals(10, findRecordStart(1, 10));
+		// last record is not complete
+		assertEquals(FASTQ.length(), findRecordStart(17, FASTQ.length()));
+	}
+
+}
@@ -0,0 +1,82 @@
+package aliview.primer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import aliview.NucleotideUtilities;
+
+/*
+ * DimerScreen has to give the same 3"-end dimer lengths as Dimer(primer1, revComp(primer2))
+ */
+public class DimerScreenTest {
+	private static final String BASES = "ACGT";
+	private static final String DEGENERATE = "RYMKWSBDHVN";
+
+	@Test
+	public void testSameAsDimer() {
+		Random random = new Random(27);
+		List<Primer> primers = new ArrayList<Primer>();
+		for(int n = 0; n < 150; n++){
+			// a few primers longer than 64 bases are checked with Dimer by the screen
+			int length = n % 25 == 0 ? 65 + random.nextInt(16) : 8 + random.nextInt(30);
+			String sequence = createRandomPrimer(random, length, n % 3 == 0);
+			// make some primers binding with 3" end of an earlier one
+			if(n > 0 && random.nextBoolean()){
+				String other = primers.get(random.nextInt(n)).getSequence();
+				int overlap = Math.min(Math.min(other.length(), length), 5 + random.nextInt(8));
+				String binding = NucleotideUtilities.revComp(other.substring(other.length() - overlap));
+				sequence = sequence.substring(0, length - overlap) + mutate(random, binding);
+			}
+			primers.add(new Primer(sequence, 0));
+		}
+
+		DimerMatrix matrix = new DimerScreen().screen(primers);
+
+		int dimers = 0;
+		for(int row = 0; row < primers.size(); row++){
+			for(int col = 0; col < primers.size(); col++){
+				String primer1 = primers.get(row).getSequence();
+				String primer2 = primers.get(col).getSequence();
+				int expected = new Dimer(primer1, NucleotideUtilities.revComp(primer2)).get3EndDimerMaxLength();
+				assertEquals(primer1 + " " + primer2, expected, matrix.get3EndDimerLength(row, col));
+				if(expected > 0){
+					dimers ++;
+				}
+			}
+		}
+		// comparison is not only of pairs without dimers
+		assertTrue(dimers > 50);
+	}
+
+	private static String createRandomPrimer(Random random, int length, boolean degenerate){
+		StringBuilder primer = new StringBuilder();
+		for(int n = 0; n < length; n++){
+			if(degenerate && random.nextInt(5) == 0){
+				primer.append(DEGENERATE.charAt(random.nextInt(DEGENERATE.length())));
+			}else{
+				primer.append(BASES.charAt(random.nextInt(BASES.length())));
+			}
+		}
+		return primer.toString();
+	}
+
+	/*
+	 * One position changed now and then (dimers with one non binding position)
+	 */
+	private static String mutate(Random random, String sequence){
+		if(random.nextInt(3) != 0){
+			return sequence;
+		}
+		StringBuilder mutated = new StringBuilder(sequence);
+		int pos = random.nextInt(sequence.length());
+		mutated.setCharAt(pos, (BASES + DEGENERATE).charAt(random.nextInt(BASES.length() + DEGENERATE.length())));
+		return mutated.toString();
+	}
+
+}
@@ -0,0 +1,78 @@
+package aliview.sequencelist;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import utils.nexus.CodonPositions;
+import aliview.GeneticCode;
+
+public class CodonBackTranslatorTest {
+
+	private static String backTranslate(CodonPositions codonPositions, String nucleotides, String template){
+		CodonBackTranslator translator = new CodonBackTranslator(codonPositions, GeneticCode.DEFAULT, nucleotides.length());
+		byte[] realigned = translator.backTranslate(nucleotides.getBytes(), template.getBytes(), new byte[3]);
+		return realigned == null ? null : new String(realigned);
+	}
+
+	@Test
+	public void testGapsInTemplate() {
+		assertEquals("ATG---AAATTT---", backTranslate(new CodonPositions(), "ATGAAATTT", "M-KF-"));
+	}
+
+	@Test
+	public void testCodonsNotInTemplateAreSkipped() {
+		// P is not in template
+		assertEquals("ATGAAA", backTranslate(new CodonPositions(), "ATGCCCAAA", "MK"));
+		assertEquals("CCC---", backTranslate(new CodonPositions(), "ATGCCCAAA", "P-"));
+	}
+
+	@Test
+	public void testTemplateNotMatched() {
+		assertNull(backTranslate(new CodonPositions(), "ATGAAATTT", "MW"));
+		// amino acids are found in order
+		assertNull(backTranslate(new CodonPositions(), "ATGAAATTT", "KM"));
+	}
+
+	@Test
+	public void testReadingFrame() {
+		CodonPositions codonPositions = new CodonPositions();
+		codonPositions.setReadingFrame(2);
+		// first base is a non coding orphan (X)
+		assertEquals("ATGAAA", backTranslate(codonPositions, "CATGAAA", "MK"));
+		assertEquals("C--ATGAAA", backTranslate(codonPositions, "CATGAAA", "XMK"));
+	}
+
+	@Test
+	public void testManySequences() {
+		List<byte[]> nucleotides = new ArrayList<byte[]>();
+		List<byte[]> templates = new ArrayList<byte[]>();
+		for(int n = 0; n < 1000; n++){
+			if(n % 7 == 0){
+				// skipped
+				nucleotides.add(null);
+			}else{
+				nucleotides.add((n % 2 == 0 ? "ATGCCCAAA" : "ATGAAATTT").getBytes());
+			}
+			templates.add((n % 2 == 0 ? "M-K" : "MK-F").getBytes());
+		}
+
+		CodonBackTranslator translator = new CodonBackTranslator(new CodonPositions(), GeneticCode.DEFAULT, 9);
+		byte[][] realigned = translator.backTranslate(nucleotides, templates, 4);
+
+		assertEquals(1000, realigned.length);
+		for(int n = 0; n < 1000; n++){
+			if(n % 7 == 0){
+				assertNull(realigned[n]);
+			}else{
+				assertArrayEquals((n % 2 == 0 ? "ATG---AAA" : "ATGAAA---TTT").getBytes(), realigned[n]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package aliview.sequencelist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import aliview.sequences.FastFastaSequence;
+import aliview.sequences.Sequence;
+
+public class RangeSelectionTest {
+
+	private static AlignmentListModel createModel(int nSeqs){
+		List<Sequence> seqs = new ArrayList<Sequence>();
+		for(int n = 0; n < nSeqs; n++){
+			seqs.add(new FastFastaSequence("seq" + n, "ACGTACGTAC"));
+		}
+		return new AlignmentListModel(seqs);
+	}
+
+	@Test
+	public void testRowRange() {
+		AlignmentListModel model = createModel(6);
+		RangeSelection selection = RangeSelection.createRowRange(model, 1, 3);
+		selection.addColumns(2, 4);
+
+		assertEquals(Arrays.asList(1, 2, 3), selection.getRowIndices());
+		assertEquals(3, selection.getRowCount());
+		assertEquals(1, selection.getFirstRow());
+		assertEquals(3, selection.getLastRow());
+		assertTrue(selection.containsRow(model.get(2)));
+		assertFalse(selection.containsRow(model.get(4)));
+		assertFalse(selection.containsRow(-1));
+
+		selection.addRows(5, 5);
+		selection.removeRows(2, 2);
+		assertEquals(Arrays.asList(1, 3, 5), selection.getRowIndices());
+		assertEquals(Arrays.asList(model.get(1), model.get(3), model.get(5)), selection.getRows());
+
+		selection.invertRows();
+		assertEquals(Arrays.asList(0, 2, 4), selection.getRowIndices());
+	}
+
+	@Test
+	public void testAllRows() {
+		AlignmentListModel model = createModel(4);
+		RangeSelection selection = RangeSelection.createAllRows(model);
+		selection.selectAllColumns();
+
+		assertTrue(selection.isAllRows());
+		assertEquals(4, selection.getRowCount());
+		assertEquals(3, selection.getLastRow());
+
+		// removing rows turns all rows into row ranges
+		selection.removeRows(0, 1);
+		assertFalse(selection.isAllRows());
+		assertEquals(Arrays.asList(2, 3), selection.getRowIndices());
+	}
+
+	@Test
+	public void testSequencesInsertedAreNotSelected() {
+		AlignmentListModel model = createModel(5);
+		RangeSelection selection = RangeSelection.createRowRange(model, 1, 3);
+		selection.sequencesInserted(2, 3);
+		assertEquals(Arrays.asList(1, 4, 5), toList(selection, 7));
+
+		RangeSelection all = RangeSelection.createAllRows(model);
+		all.sequencesInserted(0, 0);
+		assertEquals(4, all.getRowCount());
+		assertFalse(all.containsRow(0));
+	}
+
+	@Test
+	public void testRowsFollowSequencesWhenMoved() {
+		AlignmentListModel model = createModel(5);
+		RangeSelection selection = RangeSelection.createRowRange(model, 0, 1);
+		Sequence first = model.get(0);
+		Sequence second = model.get(1);
+
+		selection.sequenceOrderWillChange();
+		Collections.reverse(model.getDelegateSequences());
+
+		assertFalse(selection.hasRowRanges());
+		assertEquals(Arrays.asList(3, 4), selection.getRowIndices());
+		assertEquals(Arrays.asList(second, first), selection.getRows());
+		assertEquals(3, selection.getFirstRow());
+		assertEquals(4, selection.getLastRow());
+	}
+
+	@Test
+	public void testColumns() {
+		AlignmentListModel model = createModel(3);
+		RangeSelection selection = RangeSelection.createAllRows(model);
+		selection.addColumns(1, 3);
+		selection.addColumns(6, 7);
+		selection.removeColumns(2, 2);
+
+		assertEquals("[1-1, 3-3, 6-7]", toString(selection.getColumnRanges(10)));
+		assertEquals("[1-1, 3-3, 6-6]", toString(selection.getColumnRanges(7)));
+		assertEquals(4, selection.countColumns(10));
+		assertEquals(2, selection.countColumns(4));
+		assertEquals(0, selection.countColumns(1));
+		assertEquals(1, selection.getFirstColumn());
+		assertEquals(7, selection.getLastColumn(10));
+
+		selection.invertColumns(10);
+		assertEquals("[0-0, 2-2, 4-5, 8-9]", toString(selection.getColumnRanges(10)));
+		assertEquals(6, selection.countColumns(10));
+
+		selection.setColumns(new int[]{4, 5});
+		assertEquals("[4-5]", toString(selection.getColumnRanges(10)));
+		assertFalse(selection.isEmpty());
+	}
+
+	private static List<Integer> toList(RangeSelection selection, int size){
+		List<Integer> rows = new ArrayList<Integer>();
+		for(int n = 0; n < size; n++){
+			if(selection.containsRow(n)){
+				rows.add(n);
+			}
+		}
+		return rows;
+	}
+
+	private static String toString(List<Interval> intervals){
+		List<String> texts = new ArrayList<String>();
+		for(Interval interval: intervals){
+			texts.add(interval.getStartPos() + "-" + interval.getEndPos());
+		}
+		return texts.toString();
+	}
+
+}
@@ -0,0 +1,108 @@
+package aliview.sequencelist;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import aliview.alignment.NucleotideHistogram;
+import aliview.sequences.FastFastaSequence;
+import aliview.sequences.Sequence;
+
+public class SequenceSorterTest {
+
+	private static List<Sequence> createSequences(String... namesAndBases){
+		List<Sequence> seqs = new ArrayList<Sequence>();
+		for(int n = 0; n < namesAndBases.length; n += 2){
+			seqs.add(new FastFastaSequence(namesAndBases[n], namesAndBases[n + 1]));
+		}
+		return seqs;
+	}
+
+	private static String names(List<Sequence> seqs){
+		StringBuilder names = new StringBuilder();
+		for(Sequence seq: seqs){
+			if(names.length() > 0){
+				names.append(',');
+			}
+			names.append(seq.getName());
+		}
+		return names.toString();
+	}
+
+	@Test
+	public void testByName() {
+		List<Sequence> seqs = createSequences("c", "A", "a", "A", "b", "A", "B", "A");
+		assertEquals("B,a,b,c", names(new SequenceSorter(SequenceSortKey.byName()).sort(seqs, true)));
+		assertEquals("c,b,a,B", names(new SequenceSorter(SequenceSortKey.byName().descending()).sort(seqs, true)));
+	}
+
+	@Test
+	public void testGapsAndLengthThenNameKeepOriginalOrder() {
+		List<Sequence> seqs = createSequences("s1", "AC--", "s2", "ACG-", "s3", "----", "s4", "A-G-", "s5", "ACGT");
+		// equal keys keep original order
+		assertEquals("s5,s2,s1,s4,s3", names(new SequenceSorter(SequenceSortKey.byGapCount()).sort(seqs, true)));
+		assertEquals("s5,s2,s1,s4,s3", names(new SequenceSorter(SequenceSortKey.byUngapedLength().descending()).sort(seqs, false)));
+		assertEquals("s3,s4,s1,s2,s5", names(new SequenceSorter(SequenceSortKey.byUngapedLength(), SequenceSortKey.byName().descending()).sort(seqs, true)));
+	}
+
+	@Test
+	public void testByCharInColumn() {
+		List<Sequence> seqs = createSequences("s1", "AA", "s2", "AC", "s3", "AG", "s4", "AC", "s5", "AT", "s6", "AG", "s7", "AC");
+		NucleotideHistogram histogram = new NucleotideHistogram(2);
+		for(Sequence seq: seqs){
+			histogram.addSequence(seq);
+		}
+		// least common character first, same count ordered by character
+		assertEquals("s1,s5,s3,s6,s2,s4,s7", names(new SequenceSorter(SequenceSortKey.byCharInColumn(1, histogram)).sort(seqs, true)));
+	}
+
+	@Test
+	public void testByDistance() {
+		List<Sequence> seqs = createSequences("s1", "A", "s2", "A", "s3", "A", "s4", "A");
+		float[] distances = new float[]{0.5f, Float.NaN, 0.1f, 0.5f};
+		// sequences without distance last
+		assertEquals("s3,s1,s4,s2", names(new SequenceSorter(SequenceSortKey.byDistance(distances)).sort(seqs, true)));
+	}
+
+	/*
+	 * Enough sequences for parallel key extraction and parallel merge, stable like Collections.sort
+	 */
+	@Test
+	public void testSameAsCollectionsSort() {
+		Random random = new Random(44);
+		List<Sequence> seqs = new ArrayList<Sequence>();
+		for(int n = 0; n < 23456; n++){
+			StringBuilder bases = new StringBuilder();
+			for(int pos = 0; pos < 8; pos++){
+				bases.append(random.nextInt(3) == 0 ? '-' : 'A');
+			}
+			seqs.add(new FastFastaSequence("seq" + random.nextInt(500), bases.toString()));
+		}
+
+		List<Sequence> expected = new ArrayList<Sequence>(seqs);
+		Collections.sort(expected, new Comparator<Sequence>() {
+			public int compare(Sequence seq1, Sequence seq2) {
+				int gaps1 = SequenceSortKey.gapCount(seq1.getAllBasesAsByteArray());
+				int gaps2 = SequenceSortKey.gapCount(seq2.getAllBasesAsByteArray());
+				if(gaps1 != gaps2){
+					return gaps1 < gaps2 ? -1 : 1;
+				}
+				return seq2.getName().compareTo(seq1.getName());
+			}
+		});
+		List<Sequence> sorted = new SequenceSorter(SequenceSortKey.byGapCount(), SequenceSortKey.byName().descending()).sort(seqs, true);
+
+		assertEquals(expected.size(), sorted.size());
+		for(int n = 0; n < expected.size(); n++){
+			// same instance, not only same key
+			assertEquals("index " + n, expected.get(n), sorted.get(n));
+		}
+	}
+
+}
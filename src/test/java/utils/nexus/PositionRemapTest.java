@@ -0,0 +1,141 @@
+package utils.nexus;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/*
+ * PositionRemap has to move ranges exactly as Ranges.deletePosition / insertPosition called once per column
+ */
+public class PositionRemapTest {
+	private static final int RANDOM_CASES = 20000;
+	private static final int MAX_LENGTH = 60;
+
+	@Test
+	public void testDeleteMaskKnownAnswer() {
+		// columns 2, 3 and 7 are deleted
+		boolean[] deleteMask = new boolean[10];
+		deleteMask[2] = true;
+		deleteMask[3] = true;
+		deleteMask[7] = true;
+		Ranges ranges = createRanges(new int[][]{{0, 4}, {3, 8}, {2, 3}});
+		ranges.remapPositions(PositionRemap.fromDeleteMask(deleteMask));
+		// a range with only deleted columns is removed
+		assertEquals("0-2,2-5", toString(ranges));
+	}
+
+	@Test
+	public void testInsertedColumnsKnownAnswer() {
+		// columns inserted right before a range start are included in the range
+		Ranges ranges = createRanges(new int[][]{{0, 4}, {5, 8}});
+		ranges.remapPositions(PositionRemap.fromInsertedColumns(5, 3));
+		assertEquals("0-4,5-11", toString(ranges));
+	}
+
+	@Test
+	public void testDeleteMaskSameAsDeletePosition() {
+		Random random = new Random(46);
+		for(int n = 0; n < RANDOM_CASES; n++){
+			int length = 1 + random.nextInt(MAX_LENGTH);
+			int[][] startEnds = createRandomStartEnds(random, length);
+			boolean[] deleteMask = createRandomMask(random, length);
+
+			Ranges expected = createRanges(startEnds);
+			for(int pos = length - 1; pos >= 0; pos--){
+				if(deleteMask[pos]){
+					expected.deletePosition(pos);
+				}
+			}
+			Ranges remapped = createRanges(startEnds);
+			remapped.remapPositions(PositionRemap.fromDeleteMask(deleteMask));
+
+			assertEquals("case " + n, toString(expected), toString(remapped));
+		}
+	}
+
+	@Test
+	public void testInsertMaskSameAsInsertPosition() {
+		Random random = new Random(47);
+		for(int n = 0; n < RANDOM_CASES; n++){
+			int length = 1 + random.nextInt(MAX_LENGTH);
+			int[][] startEnds = createRandomStartEnds(random, length);
+			// mask is in new positions
+			boolean[] insertMask = createRandomMask(random, length + random.nextInt(MAX_LENGTH));
+
+			Ranges expected = createRanges(startEnds);
+			for(int pos = 0; pos < insertMask.length; pos++){
+				if(insertMask[pos]){
+					expected.insertPosition(pos);
+				}
+			}
+			Ranges remapped = createRanges(startEnds);
+			remapped.remapPositions(PositionRemap.fromInsertMask(insertMask));
+
+			assertEquals("case " + n, toString(expected), toString(remapped));
+		}
+	}
+
+	@Test
+	public void testDeletedColumnsSameAsDeletePosition() {
+		Random random = new Random(48);
+		for(int n = 0; n < RANDOM_CASES; n++){
+			int length = 1 + random.nextInt(MAX_LENGTH);
+			int[][] startEnds = createRandomStartEnds(random, length);
+			int first = random.nextInt(length);
+			int count = 1 + random.nextInt(length - first);
+
+			Ranges expected = createRanges(startEnds);
+			for(int pos = first + count - 1; pos >= first; pos--){
+				expected.deletePosition(pos);
+			}
+			Ranges remapped = createRanges(startEnds);
+			remapped.remapPositions(PositionRemap.fromDeletedColumns(first, count));
+
+			assertEquals("case " + n, toString(expected), toString(remapped));
+		}
+	}
+
+	private static int[][] createRandomStartEnds(Random random, int length){
+		int[][] startEnds = new int[1 + random.nextInt(4)][];
+		for(int n = 0; n < startEnds.length; n++){
+			int start = random.nextInt(length);
+			int end = start + random.nextInt(length - start);
+			startEnds[n] = new int[]{start, end};
+		}
+		return startEnds;
+	}
+
+	private static boolean[] createRandomMask(Random random, int length){
+		boolean[] mask = new boolean[length];
+		double fraction = random.nextDouble();
+		for(int n = 0; n < length; n++){
+			mask[n] = random.nextDouble() < fraction;
+		}
+		return mask;
+	}
+
+	/*
+	 * Ranges are added to backend directly so they are not merged
+	 */
+	private static Ranges createRanges(int[][] startEnds){
+		Ranges ranges = new Ranges();
+		for(int[] startEnd: startEnds){
+			ranges.backend.add(new Range(startEnd[0], startEnd[1], 0));
+		}
+		return ranges;
+	}
+
+	private static String toString(Ranges ranges){
+		StringBuilder text = new StringBuilder();
+		for(Range range: ranges){
+			if(text.length() > 0){
+				text.append(',');
+			}
+			text.append(range.start).append('-').append(range.end);
+		}
+		return text.toString();
+	}
+
+}